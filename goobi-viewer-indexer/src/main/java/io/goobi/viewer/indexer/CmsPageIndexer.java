@@ -20,7 +20,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -318,13 +317,7 @@ public class CmsPageIndexer extends Indexer {
             useWriteStrategy.setRootDoc(rootDoc);
 
             // WRITE TO SOLR (POINT OF NO RETURN: any indexObj modifications from here on will not be included in the index!)
-            if (!iddocsToDelete.isEmpty()) {
-                logger.info("Removing {} docs of the previous instance of this volume from the index...", iddocsToDelete.size());
-                SolrIndexerDaemon.getInstance().getSearchIndex().deleteDocuments(new ArrayList<>(iddocsToDelete));
-            }
-
-            logger.debug("Writing document to index...");
-            useWriteStrategy.writeDocs(SolrIndexerDaemon.getInstance().getConfiguration().isAggregateRecords());
+            writeRecord(useWriteStrategy, indexObj.getPi());
             logger.info("Successfully finished indexing '{}'.", cmsFile.getFileName());
         } catch (IOException | IndexerException | FatalIndexerException | SolrServerException | JDOMException e) {
             logger.error("Indexing of '{}' could not be finished due to an error.", cmsFile.getFileName());
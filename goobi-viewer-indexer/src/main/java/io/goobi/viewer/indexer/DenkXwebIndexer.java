@@ -316,13 +316,7 @@ public class DenkXwebIndexer extends Indexer {
             writeStrategy.setRootDoc(rootDoc);
 
             // WRITE TO SOLR (POINT OF NO RETURN: any indexObj modifications from here on will not be included in the index!)
-            if (!iddocsToDelete.isEmpty()) {
-                logger.info("Removing {} docs of the previous instance of this volume from the index...", iddocsToDelete.size());
-                SolrIndexerDaemon.getInstance().getSearchIndex().deleteDocuments(new ArrayList<>(iddocsToDelete));
-            }
-
-            logger.debug("Writing document to index...");
-            writeStrategy.writeDocs(SolrIndexerDaemon.getInstance().getConfiguration().isAggregateRecords());
+            writeRecord(writeStrategy, indexObj.getPi());
 
             // Set image file names belonging to this record
             ret.setMediaImageFileNames(imgFileNames);
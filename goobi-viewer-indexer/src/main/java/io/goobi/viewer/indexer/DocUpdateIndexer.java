@@ -400,7 +400,7 @@ public class DocUpdateIndexer extends Indexer {
                 SolrIndexerDaemon.getInstance().getSearchIndex().updateDoc(doc, partialUpdates);
             } else {
                 // Otherwise just commit the new UGC docs
-                SolrIndexerDaemon.getInstance().getSearchIndex().commit(false);
+                SolrIndexerDaemon.getInstance().getSearchIndex().commitRecord(false);
             }
 
             ret.setPi(pi);
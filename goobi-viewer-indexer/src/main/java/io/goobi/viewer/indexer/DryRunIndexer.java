@@ -0,0 +1,128 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jdom2.Document;
+
+import io.goobi.viewer.indexer.helper.Hotfolder;
+import io.goobi.viewer.indexer.helper.JDomXP;
+import io.goobi.viewer.indexer.helper.JDomXP.FileFormat;
+import io.goobi.viewer.indexer.model.IndexingResult;
+import io.goobi.viewer.indexer.model.IndexingResult.IndexingResultStatus;
+import io.goobi.viewer.indexer.model.datarepository.DataRepository;
+
+/**
+ * Runs the complete indexing path of the respective indexer for a record file, but does not copy or move any files to the data repositories. Used
+ * in dry run mode, where the Solr documents are sent to a {@link io.goobi.viewer.indexer.helper.DryRunSolrClient}.
+ */
+public class DryRunIndexer {
+
+    private static final Logger logger = LogManager.getLogger(DryRunIndexer.class);
+
+    private final Hotfolder hotfolder;
+
+    /**
+     * Constructor.
+     * 
+     * @param hotfolder
+     */
+    public DryRunIndexer(Hotfolder hotfolder) {
+        this.hotfolder = hotfolder;
+    }
+
+    /**
+     * Indexes the given record file using any data folders present in the hotfolder.
+     * 
+     * @param recordFile Record file
+     * @param format Format of the record file
+     * @return List of {@link IndexingResult}s (multiple for LIDO and DenkXweb files)
+     * @throws IOException
+     */
+    public List<IndexingResult> index(Path recordFile, FileFormat format) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Path> dataFolders =
+                Indexer.checkDataFolders(hotfolder.getHotfolderPath(), FilenameUtils.getBaseName(recordFile.getFileName().toString()));
+        int pageCountStart = SolrIndexerDaemon.getInstance().getConfiguration().getPageCountStart();
+
+        List<IndexingResult> ret;
+        switch (format) {
+            case METS:
+                ret = Collections.singletonList(new MetsIndexer(hotfolder).index(recordFile, dataFolders, null, pageCountStart, false));
+                break;
+            case METS_MARC:
+                ret = Collections.singletonList(new MetsMarcIndexer(hotfolder).index(recordFile, dataFolders, null, pageCountStart, false));
+                break;
+            case LIDO:
+                ret = new ArrayList<>();
+                for (Document doc : JDomXP.splitLidoFile(recordFile.toFile())) {
+                    ret.add(new LidoIndexer(hotfolder).index(doc, dataFolders, null, pageCountStart,
+                            SolrIndexerDaemon.getInstance().getConfiguration().getStringList("init.lido.imageXPath"), false,
+                            dataFolders.get(DataRepository.PARAM_MEDIA) == null));
+                }
+                break;
+            case DENKXWEB:
+                ret = new ArrayList<>();
+                for (Document doc : JDomXP.splitDenkXwebFile(recordFile.toFile())) {
+                    ret.add(new DenkXwebIndexer(hotfolder).index(doc, dataFolders, null, pageCountStart, false));
+                }
+                break;
+            case EAD:
+                ret = Collections.singletonList(new EadIndexer(hotfolder).index(recordFile, dataFolders, null));
+                break;
+            case EAD3:
+                ret = Collections.singletonList(new Ead3Indexer(hotfolder).index(recordFile, dataFolders, null));
+                break;
+            case DUBLINCORE:
+                ret = Collections.singletonList(new DublinCoreIndexer(hotfolder).index(recordFile, dataFolders, null, pageCountStart));
+                break;
+            case WORLDVIEWS:
+                ret = Collections.singletonList(new WorldViewsIndexer(hotfolder).index(recordFile, dataFolders, null, pageCountStart));
+                break;
+            case CMS:
+                ret = Collections.singletonList(new CmsPageIndexer(hotfolder).index(recordFile, dataFolders, null, pageCountStart));
+                break;
+            default:
+                logger.warn("Dry run: unsupported format {} in '{}'.", format, recordFile.getFileName());
+                return Collections.emptyList();
+        }
+
+        int errors = 0;
+        for (IndexingResult result : ret) {
+            if (IndexingResultStatus.DEFERRED.equals(result.getStatus())) {
+                logger.info("Dry run: '{}' deferred until '{}' has been processed.", recordFile.getFileName(), result.getDeferredBy());
+                return ret;
+            }
+            if (IndexingResultStatus.ERROR.equals(result.getStatus())) {
+                logger.error("Dry run: could not index '{}': {}", recordFile.getFileName(), result.getError());
+                errors++;
+            }
+        }
+        logger.info("Dry run: indexed '{}' ({} record(s), {} error(s)) in {} ms.", recordFile.getFileName(), ret.size(), errors,
+                (System.nanoTime() - start) / 1_000_000);
+
+        return ret;
+    }
+}
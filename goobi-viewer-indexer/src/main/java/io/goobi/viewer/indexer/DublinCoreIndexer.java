@@ -319,13 +319,7 @@ public class DublinCoreIndexer extends Indexer {
             useWriteStrategy.setRootDoc(rootDoc);
 
             // WRITE TO SOLR (POINT OF NO RETURN: any indexObj modifications from here on will not be included in the index!)
-            if (!iddocsToDelete.isEmpty()) {
-                logger.info("Removing {} docs of the previous instance of this volume from the index...", iddocsToDelete.size());
-                SolrIndexerDaemon.getInstance().getSearchIndex().deleteDocuments(new ArrayList<>(iddocsToDelete));
-            }
-
-            logger.debug("Writing document to index...");
-            useWriteStrategy.writeDocs(SolrIndexerDaemon.getInstance().getConfiguration().isAggregateRecords());
+            writeRecord(useWriteStrategy, indexObj.getPi());
             logger.info("Finished writing data for '{}' to Solr.", pi);
         } catch (IOException | IndexerException | FatalIndexerException | JDOMException | SolrServerException e) {
             logger.error("Indexing of '{}' could not be finished due to an error.", dcFile.getFileName());
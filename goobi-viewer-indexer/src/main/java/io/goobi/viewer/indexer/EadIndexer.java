@@ -50,6 +50,7 @@ import io.goobi.viewer.indexer.helper.MetadataHelper;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
 import io.goobi.viewer.indexer.helper.TextHelper;
 import io.goobi.viewer.indexer.helper.Utils;
+import io.goobi.viewer.indexer.helper.logging.SecondaryAppender;
 import io.goobi.viewer.indexer.model.GroupedMetadata;
 import io.goobi.viewer.indexer.model.IndexObject;
 import io.goobi.viewer.indexer.model.IndexingResult;
@@ -279,16 +280,10 @@ public class EadIndexer extends Indexer {
             indexObj.applyFinalModifications();
 
             // WRITE TO SOLR (POINT OF NO RETURN: any indexObj modifications from here on will not be included in the index!)
-            if (!iddocsToDelete.isEmpty()) {
-                logger.info("Removing {} docs of the previous instance of this volume from the index...", iddocsToDelete.size());
-                SolrIndexerDaemon.getInstance().getSearchIndex().deleteDocuments(new ArrayList<>(iddocsToDelete));
-            }
-
-            logger.debug("Writing document to index...");
             SolrInputDocument rootDoc = SolrSearchIndex.createDocument(indexObj.getLuceneFields());
             writeStrategy.setRootDoc(rootDoc);
 
-            writeStrategy.writeDocs(SolrIndexerDaemon.getInstance().getConfiguration().isAggregateRecords());
+            writeRecord(writeStrategy, indexObj.getPi());
             logger.info("Finished writing data for '{}' to Solr.", pi);
         } catch (FatalIndexerException | IndexerException | IOException | JDOMException | SolrServerException e) {
             logger.error("Indexing of '{}' could not be finished due to an error.", eadFile.getFileName());
@@ -342,7 +337,7 @@ public class EadIndexer extends Indexer {
             // Generate each page document in its own thread
             logger.info("Processing {} nodes in parallel in {} threads (node depth={})...", childrenNodeList.size(),
                     SolrIndexerDaemon.getInstance().getConfiguration().getThreads(), depth);
-            pool = new ForkJoinPool(SolrIndexerDaemon.getInstance().getConfiguration().getThreads());
+            pool = SecondaryAppender.newRecordPool(SolrIndexerDaemon.getInstance().getConfiguration().getThreads());
             try {
                 pool.submit(() -> childrenNodeList.parallelStream().forEachOrdered(node -> {
                     int order = childrenNodeList.indexOf(node); // TODO This is expensive (O(n))
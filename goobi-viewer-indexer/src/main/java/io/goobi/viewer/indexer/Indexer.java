@@ -34,7 +34,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -45,6 +45,8 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -100,6 +102,7 @@ import io.goobi.viewer.indexer.helper.MetadataHelper;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
 import io.goobi.viewer.indexer.helper.StringConstants;
 import io.goobi.viewer.indexer.helper.TextHelper;
+import io.goobi.viewer.indexer.helper.UrnRegistry;
 import io.goobi.viewer.indexer.helper.Utils;
 import io.goobi.viewer.indexer.helper.WebAnnotationTools;
 import io.goobi.viewer.indexer.helper.XmlTools;
@@ -107,6 +110,7 @@ import io.goobi.viewer.indexer.model.GroupedMetadata;
 import io.goobi.viewer.indexer.model.IndexObject;
 import io.goobi.viewer.indexer.model.LuceneField;
 import io.goobi.viewer.indexer.model.PhysicalElement;
+import io.goobi.viewer.indexer.model.RecordState;
 import io.goobi.viewer.indexer.model.SolrConstants;
 import io.goobi.viewer.indexer.model.SolrConstants.DocType;
 import io.goobi.viewer.indexer.model.datarepository.DataRepository;
@@ -177,7 +181,15 @@ public abstract class Indexer {
 
     private final ObjectMapper mapper = new ObjectMapper();
 
-    protected Set<String> iddocsToDelete = new HashSet<>();
+    /** Queries matching the documents of the previous instance of the record being indexed, to be deleted before writing. */
+    protected final List<String> deleteQueries = new ArrayList<>();
+    /** Index generation of the record being indexed; null if index generations are disabled. */
+    protected String generation = null;
+    /** State of the previous instance of the record being indexed, retrieved once per record. */
+    private RecordState recordState = null;
+
+    /** Last assigned index generation. */
+    private static final AtomicLong lastGeneration = new AtomicLong();
 
     protected Indexer() {
         httpConnector = new HttpConnector(HTTP_CONNECTION_TIMEOUT);
@@ -286,6 +298,23 @@ public abstract class Indexer {
         }
     }
 
+    /**
+     * Removes the URNs of the given deleted record from the URN registry, if enabled.
+     *
+     * @param pi Record identifier
+     */
+    private static void unregisterUrns(String pi) {
+        UrnRegistry urnRegistry = SolrIndexerDaemon.getInstance().getUrnRegistry();
+        if (urnRegistry == null) {
+            return;
+        }
+        try {
+            urnRegistry.unregister(pi);
+        } catch (IOException e) {
+            logger.error("Could not update URN registry: {}", e.getMessage());
+        }
+    }
+
     /**
      * Removes the document represented by the given METS or LIDO file from the index.
      *
@@ -312,12 +341,12 @@ public abstract class Indexer {
         }
         // Check whether this is an anchor record
         try {
+            searchIndex.ensureVisible(pi);
             SolrDocumentList hits = searchIndex.search(new StringBuilder(SolrConstants.PI).append(":").append(pi).toString(),
                     Collections.singletonList(SolrConstants.ISANCHOR));
             if (!hits.isEmpty() && hits.get(0).getFieldValue(SolrConstants.ISANCHOR) != null
                     && Boolean.TRUE.equals(hits.get(0).getFieldValue(SolrConstants.ISANCHOR))) {
-                hits = searchIndex.search(SolrConstants.PI_PARENT + ":" + pi, Collections.singletonList(SolrConstants.PI));
-                if (hits.getNumFound() > 0) {
+                if (searchIndex.getNumHits(SolrConstants.PI_PARENT + ":" + pi) > 0) {
                     // Only empty anchors may be deleted
                     logger.error("This is a multi-volume work that has indexed children. It may not be deleted at this moment!");
                     return false;
@@ -330,8 +359,9 @@ public abstract class Indexer {
 
         // Delete
         try {
-            if (!deleteWithPI(pi, trace, true, searchIndex).isEmpty()) {
+            if (deleteWithPI(pi, trace, searchIndex)) {
                 searchIndex.commit(searchIndex.isOptimize());
+                unregisterUrns(pi);
 
                 // Clear cache for record
                 String msg = Utils.removeRecordImagesFromCache(pi);
@@ -351,24 +381,24 @@ public abstract class Indexer {
 
     /**
      * Deletes the entire document hierarchy that belong to the given PI, as well as any orphaned docs that don't belong to the current indexed
-     * instance but might still exist.
+     * instance but might still exist. Only the record's top document is retrieved from the index; all other documents are deleted by query.
      *
      * @param pi String
      * @param createTraceDoc a boolean.
-     * @param deleteImmediately
      * @param searchIndex a {@link io.goobi.viewer.indexer.helper.SolrSearchIndex} object.
      * @throws java.io.IOException
      * @throws org.apache.solr.client.solrj.SolrServerException
      * @throws io.goobi.viewer.indexer.exceptions.FatalIndexerException
-     * @return Set<String>
+     * @return true if record found and deleted; false otherwise
      */
-    protected static Set<String> deleteWithPI(String pi, boolean createTraceDoc, boolean deleteImmediately, SolrSearchIndex searchIndex)
+    protected static boolean deleteWithPI(String pi, boolean createTraceDoc, SolrSearchIndex searchIndex)
             throws IOException, SolrServerException, FatalIndexerException {
-        String query = SolrConstants.PI + ":" + pi;
-        SolrDocumentList hits = searchIndex.search(query, null);
+        searchIndex.ensureVisible(pi);
+        SolrDocumentList hits = searchIndex.search(SolrConstants.PI + ":\"" + pi + '"',
+                Arrays.asList(SolrConstants.IDDOC, SolrConstants.URN, SolrConstants.DATEDELETED));
         if (hits.isEmpty()) {
             logger.error("Not found: {}", pi);
-            return Collections.emptySet();
+            return false;
         }
 
         if (hits.getNumFound() == 1) {
@@ -379,62 +409,143 @@ public abstract class Indexer {
                             + " Check whether there is more than one indexer instance running! All instances will be removed...",
                     hits.getNumFound());
         }
-        String queryPageUrns = new StringBuilder(SolrConstants.PI_TOPSTRUCT).append(":")
-                .append(pi)
-                .append(SolrConstants.SOLR_QUERY_AND)
-                .append(SolrConstants.DOCTYPE)
-                .append(":PAGE")
-                .toString();
-
-        // Unless the index is broken, there should be only one hit
-        Set<String> ret = new HashSet<>();
-        for (SolrDocument doc : hits) {
-            String iddoc = (String) doc.getFieldValue(SolrConstants.IDDOC);
-            if (iddoc == null) {
-                continue;
+
+        // Collect trace document data before deleting (unless the index is broken, there should be only one hit)
+        List<String> traceDocUrns = new ArrayList<>();
+        if (createTraceDoc) {
+            for (SolrDocument doc : hits) {
+                if (doc.getFieldValue(SolrConstants.DATEDELETED) == null) {
+                    traceDocUrns.add((String) doc.getFieldValue(SolrConstants.URN));
+                }
             }
-            logger.debug("Removing instance: {}", iddoc);
-            ret.add(iddoc);
-
-            // Build replacement document that is marked as deleted
-            if (createTraceDoc && doc.getFieldValue(SolrConstants.DATEDELETED) == null) {
-                String urn = null;
-                if (doc.getFieldValue(SolrConstants.URN) != null) {
-                    urn = (String) doc.getFieldValue(SolrConstants.URN);
+        }
+        List<String> pageUrns = new ArrayList<>();
+        if (!traceDocUrns.isEmpty()) {
+            String queryPageUrns = new StringBuilder(SolrConstants.PI_TOPSTRUCT).append(":")
+                    .append(pi)
+                    .append(SolrConstants.SOLR_QUERY_AND)
+                    .append(SolrConstants.DOCTYPE)
+                    .append(":PAGE")
+                    .toString();
+            searchIndex.forEach(queryPageUrns, Collections.singletonList(SolrConstants.IMAGEURN), hit -> {
+                String pageUrn = (String) hit.getFieldValue(SolrConstants.IMAGEURN);
+                if (pageUrn != null) {
+                    pageUrns.add(pageUrn);
                 }
-                // Collect page URNs
-                hits = searchIndex.search(queryPageUrns, Collections.singletonList(SolrConstants.IMAGEURN));
-                List<String> pageUrns = new ArrayList<>(hits.size());
-                if (!hits.isEmpty()) {
-                    for (SolrDocument hit : hits) {
-                        String pageUrn = (String) hit.getFieldValue(SolrConstants.IMAGEURN);
-                        if (pageUrn != null) {
-                            pageUrns.add(pageUrn);
-                        }
+            });
+        }
+
+        // Trace documents must be written after the deletion, otherwise they would match the delete queries
+        searchIndex.deleteByQueries(getRecordDeleteQueries(pi));
+        logger.info("Immediate deletion requested - all docs of '{}' deleted.", pi);
+        for (String urn : traceDocUrns) {
+            String now = String.valueOf(System.currentTimeMillis());
+            createDeletedDoc(pi, urn, pageUrns, now, now, searchIndex);
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes the docs of the given write strategy and removes the previous instance of the record. If index generations are enabled, all new docs
+     * are tagged with the current generation and the previous instance is only removed after the new docs have been written successfully, so that
+     * the record never disappears from the index. Otherwise, the previous instance is removed first and, if writing fails while rollbacks are
+     * disabled, any partially written docs of the record are removed as well.
+     *
+     * @param writeStrategy Write strategy containing the record's docs
+     * @param pi Record identifier
+     * @throws IndexerException
+     * @throws FatalIndexerException
+     * @should remove partially written docs if rollback disabled
+     * @should write new generation before removing previous generation
+     */
+    protected void writeRecord(ISolrWriteStrategy writeStrategy, String pi) throws IndexerException, FatalIndexerException {
+        SolrSearchIndex searchIndex = SolrIndexerDaemon.getInstance().getSearchIndex();
+        boolean aggregateRecords = SolrIndexerDaemon.getInstance().getConfiguration().isAggregateRecords();
+        if (generation == null) {
+            if (!deleteQueries.isEmpty()) {
+                logger.info("Removing docs of the previous instance of this volume from the index...");
+                searchIndex.deleteByQueries(deleteQueries);
+            }
+            logger.debug("Writing document to index...");
+            try {
+                writeStrategy.writeDocs(aggregateRecords);
+            } catch (IndexerException | FatalIndexerException | RuntimeException e) {
+                if (!searchIndex.isRollbackEnabled()) {
+                    // Without a rollback, the partially written record must be removed explicitly; the previous instance has already been
+                    // deleted at this point
+                    logger.warn("Removing partially written docs of '{}' from the index...", pi);
+                    if (searchIndex.deleteByQueries(getRecordDeleteQueries(pi))) {
+                        searchIndex.commitRecord(false);
                     }
                 }
-                String now = String.valueOf(System.currentTimeMillis());
-                createDeletedDoc(pi, urn, pageUrns, now, now, searchIndex);
+                throw e;
             }
+            return;
         }
 
-        // Retrieve all docs for this record via PI_TOPSTRUCT
-        hits = searchIndex.search(new StringBuilder(SolrConstants.PI_TOPSTRUCT).append(":").append(pi).toString(),
-                Collections.singletonList(SolrConstants.IDDOC));
-        for (SolrDocument doc : hits) {
-            String iddoc = (String) doc.getFieldValue(SolrConstants.IDDOC);
-            if (iddoc != null) {
-                ret.add(iddoc);
+        logger.debug("Writing document to index (generation {})...", generation);
+        writeStrategy.setGeneration(generation);
+        try {
+            writeStrategy.writeDocs(aggregateRecords);
+        } catch (IndexerException | FatalIndexerException | RuntimeException e) {
+            // Remove any partially written docs of the new generation, keeping the previous instance
+            List<String> queries = new ArrayList<>();
+            for (String query : getRecordDeleteQueries(pi)) {
+                queries.add("+(" + query + ") +" + SolrConstants.INDEXGENERATION + ":" + generation);
+            }
+            if (searchIndex.deleteByQueries(queries)) {
+                searchIndex.commitRecord(false);
             }
+            throw e;
+        }
+
+        if (!deleteQueries.isEmpty()) {
+            logger.info("Removing docs of previous generations of this volume from the index...");
+            searchIndex.deleteByQueries(getPreviousGenerationQueries(deleteQueries, generation));
+            searchIndex.commitRecord(false);
         }
+    }
 
-        if (deleteImmediately && searchIndex.deleteDocuments(new ArrayList<>(ret))) {
-            logger.info("Immediate deletion requested - {} docs deleted.", ret.size());
+    /**
+     * Restricts the given delete queries to documents that do not belong to the given index generation.
+     *
+     * @param queries Delete queries
+     * @param generation Current index generation
+     * @return Restricted queries
+     * @should exclude current generation
+     */
+    static List<String> getPreviousGenerationQueries(List<String> queries, String generation) {
+        List<String> ret = new ArrayList<>(queries.size());
+        for (String query : queries) {
+            ret.add("+(" + query + ") -" + SolrConstants.INDEXGENERATION + ":" + generation);
         }
 
         return ret;
     }
 
+    /**
+     * Returns a new index generation value. Values are based on the current time and are unique and increasing within this process.
+     *
+     * @return Index generation as {@link String}
+     * @should return increasing values
+     */
+    static String getNextGeneration() {
+        long now = System.currentTimeMillis();
+        return String.valueOf(lastGeneration.accumulateAndGet(now, (last, current) -> Math.max(last + 1, current)));
+    }
+
+    /**
+     * Returns queries matching all documents that belong to the record with the given PI, including all previous instances.
+     *
+     * @param pi Record identifier
+     * @return List of delete queries
+     * @should return queries for record and child docs
+     */
+    static List<String> getRecordDeleteQueries(String pi) {
+        return Arrays.asList(SolrConstants.PI + ":\"" + pi + '"', SolrConstants.PI_TOPSTRUCT + ":\"" + pi + '"');
+    }
+
     /**
      * Build replacement document that is marked as deleted.
      * 
@@ -473,12 +584,21 @@ public abstract class Indexer {
     }
 
     /**
-     * Returns the next available IDDOC value.
+     * Returns the next available IDDOC value. Values are time-ordered version 7 UUIDs (RFC 9562) with 74 random bits, so that they can be generated
+     * without locking and without checking the index for collisions.
      *
      * @return Generated UUID as {@link String}
+     * @should return valid version 7 UUID
+     * @should return unique values
      */
-    protected static synchronized String getNextIddoc() {
-        return UUID.randomUUID().toString();
+    protected static String getNextIddoc() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 48 bit timestamp, 4 bit version, 12 random bits
+        long msb = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        // 2 bit variant, 62 random bits
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(msb, lsb).toString();
     }
 
     /**
@@ -1667,10 +1787,19 @@ public abstract class Indexer {
      */
     protected void selectDataRepository(IndexObject indexObj, String pi, Path recordFile, Map<String, Path> dataFolders)
             throws FatalIndexerException {
+        RecordState state = null;
+        if (StringUtils.isNotBlank(pi)) {
+            try {
+                state = loadRecordState(pi.trim());
+            } catch (SolrServerException | IOException e) {
+                logger.error(e.getMessage(), e);
+                throw new FatalIndexerException("Unable to look up record state for '" + pi + "': " + e.getMessage());
+            }
+        }
         DataRepository[] repositories =
                 hotfolder.getDataRepositoryStrategy()
                         .selectDataRepository(pi, recordFile, dataFolders, SolrIndexerDaemon.getInstance().getSearchIndex(),
-                                SolrIndexerDaemon.getInstance().getOldSearchIndex());
+                                SolrIndexerDaemon.getInstance().getOldSearchIndex(), state);
         dataRepository = repositories[0];
         previousDataRepository = repositories[1];
         if (StringUtils.isNotEmpty(dataRepository.getPath())) {
@@ -1694,67 +1823,94 @@ public abstract class Indexer {
      */
     protected void prepareUpdate(IndexObject indexObj) throws IOException, SolrServerException, FatalIndexerException {
         String pi = indexObj.getPi().trim();
-        SolrDocumentList hits = SolrIndexerDaemon.getInstance().getSearchIndex().search(SolrConstants.PI + ":\"" + pi + '"', null);
-        // Retrieve record from old index, if available
-        boolean fromOldIndex = false;
-        if (hits.getNumFound() == 0 && SolrIndexerDaemon.getInstance().getOldSearchIndex() != null) {
-            hits = SolrIndexerDaemon.getInstance().getOldSearchIndex().search(SolrConstants.PI + ":\"" + pi + '"', null);
-            if (hits.getNumFound() > 0) {
-                fromOldIndex = true;
-                logger.info("Retrieving data from old index for record '{}'.", pi);
-            }
-        }
-        if (hits.getNumFound() == 0) {
+        // Indexer instances may be used for multiple records
+        deleteQueries.clear();
+        generation = SolrIndexerDaemon.getInstance().getConfiguration().isIndexGenerationsEnabled() ? getNextGeneration() : null;
+        RecordState state = getRecordState(pi);
+        // The state is only valid for this indexing run
+        recordState = null;
+        if (!state.isFound()) {
             return;
         }
 
         logger.debug("This file has already been indexed, initiating an UPDATE instead...");
         indexObj.setUpdate(true);
-        SolrDocument doc = hits.get(0);
         // Set creation timestamp, if exists (should never be updated)
-        Object dateCreated = doc.getFieldValue(SolrConstants.DATECREATED);
-        if (dateCreated != null) {
-            // Set creation timestamp, if exists (should never be updated)
-            indexObj.setDateCreated((Long) dateCreated);
+        if (state.getDateCreated() != null) {
+            indexObj.setDateCreated(state.getDateCreated());
         }
         // Collect update timestamps
-        Collection<Object> dateUpdatedValues = doc.getFieldValues(SolrConstants.DATEUPDATED);
-        if (dateUpdatedValues != null) {
-            for (Object date : dateUpdatedValues) {
-                indexObj.getDateUpdated().add((Long) date);
-            }
-        }
+        indexObj.getDateUpdated().addAll(state.getDateUpdated());
         // Collect index timestamps
-        Collection<Object> dateIndexedValues = doc.getFieldValues(SolrConstants.DATEINDEXED);
-        if (dateIndexedValues != null) {
-            for (Object date : dateIndexedValues) {
-                indexObj.getDateIndexed().add((Long) date);
-            }
-        }
+        indexObj.getDateIndexed().addAll(state.getDateIndexed());
         // Set previous representation thumbnail, if available
-        Object thumbnail = doc.getFieldValue(SolrConstants.THUMBNAILREPRESENT);
-        if (thumbnail != null) {
-            indexObj.setThumbnailRepresent((String) thumbnail);
+        if (state.getThumbnailRepresent() != null) {
+            indexObj.setThumbnailRepresent(state.getThumbnailRepresent());
         }
         if (isAnchor()) {
             // Keep old IDDOC
-            indexObj.setIddoc(String.valueOf(doc.getFieldValue(SolrConstants.IDDOC)));
+            indexObj.setIddoc(state.getIddoc());
             // Delete old doc
-            iddocsToDelete.add(indexObj.getIddoc());
+            deleteQueries.add(SolrConstants.IDDOC + ":\"" + indexObj.getIddoc() + '"');
             // Delete secondary docs (grouped metadata, events)
-            hits = SolrIndexerDaemon.getInstance()
-                    .getSearchIndex()
-                    .search(SolrConstants.IDDOC_OWNER + ":\"" + indexObj.getIddoc() + "\" " + SolrConstants.PI_TOPSTRUCT + ":\"" + indexObj.getPi()
-                            + '"', Collections.singletonList(SolrConstants.IDDOC));
-            for (SolrDocument doc2 : hits) {
-                iddocsToDelete.add((String) doc2.getFieldValue(SolrConstants.IDDOC));
-            }
-        } else if (!fromOldIndex) {
+            deleteQueries.add("+" + SolrConstants.IDDOC_OWNER + ":\"" + indexObj.getIddoc() + "\" +" + SolrConstants.PI_TOPSTRUCT + ":\""
+                    + indexObj.getPi() + '"');
+        } else if (!state.isFromOldIndex()) {
             // Recursively delete all children, if not an anchor
-            iddocsToDelete = deleteWithPI(pi, false, false, SolrIndexerDaemon.getInstance().getSearchIndex());
+            if (state.getNumFound() > 1) {
+                logger.warn(
+                        "{} previous instances of this volume have been found in the index. This shouldn't ever be the case."
+                                + " Check whether there is more than one indexer instance running! All instances will be removed...",
+                        state.getNumFound());
+            }
+            deleteQueries.addAll(getRecordDeleteQueries(pi));
         }
     }
 
+    /**
+     * Returns the state of the already indexed record with the given identifier. The state retrieved during data repository selection is reused,
+     * so that the record is only looked up once per indexing run.
+     *
+     * @param pi Record identifier
+     * @return {@link RecordState}
+     * @throws SolrServerException
+     * @throws IOException
+     * @throws FatalIndexerException
+     */
+    protected RecordState getRecordState(String pi) throws SolrServerException, IOException, FatalIndexerException {
+        if (recordState != null && recordState.getPi().equals(pi)) {
+            return recordState;
+        }
+
+        return loadRecordState(pi);
+    }
+
+    /**
+     * Looks up the state of the already indexed record with the given identifier in the index (or the old index, if the record is not found in
+     * the current one).
+     *
+     * @param pi Record identifier
+     * @return {@link RecordState}
+     * @throws SolrServerException
+     * @throws IOException
+     * @throws FatalIndexerException
+     */
+    RecordState loadRecordState(String pi) throws SolrServerException, IOException, FatalIndexerException {
+        // Previous version of this record may not have been committed yet
+        SolrIndexerDaemon.getInstance().getSearchIndex().ensureVisible(pi);
+        recordState = SolrIndexerDaemon.getInstance().getSearchIndex().findRecordState(pi, false);
+        // Retrieve record from old index, if available
+        if (!recordState.isFound() && SolrIndexerDaemon.getInstance().getOldSearchIndex() != null) {
+            RecordState oldState = SolrIndexerDaemon.getInstance().getOldSearchIndex().findRecordState(pi, true);
+            if (oldState.isFound()) {
+                logger.info("Retrieving data from old index for record '{}'.", pi);
+                recordState = oldState;
+            }
+        }
+
+        return recordState;
+    }
+
     /**
      * Handles remote and local image file URLs (including optional download).
      * 
@@ -2069,8 +2225,19 @@ public abstract class Indexer {
      * @param pi The identifier of the process to create pdfs for
      */
     void prerenderPagePdfsIfRequired(String pi) {
+        prerenderPagePdfsIfRequired(pi, this.dataRepository);
+    }
+
+    /**
+     * Send a request to the viewer rest api to start a task to prerender page PDF files if a non-empty _media folder exists in the given data
+     * repository.
+     * 
+     * @param pi The identifier of the process to create pdfs for
+     * @param dataRepository Data repository containing the record's media folder
+     */
+    static void prerenderPagePdfsIfRequired(String pi, DataRepository dataRepository) {
         try {
-            Path mediaFolder = this.dataRepository.getDir(DataRepository.PARAM_MEDIA);
+            Path mediaFolder = dataRepository.getDir(DataRepository.PARAM_MEDIA);
             if (mediaFolder != null && !FileTools.isFolderEmpty(mediaFolder)) {
                 boolean force = SolrIndexerDaemon.getInstance().getConfiguration().isForcePrerenderPdfs();
                 logger.debug("Reindexed process with media files: Trigger prerenderPDFs task in viewer; overwrite existing files: {}", pi);
@@ -40,6 +40,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -48,7 +49,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrDocument;
-import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.jdom2.Attribute;
 import org.jdom2.Element;
@@ -61,10 +61,12 @@ import io.goobi.viewer.indexer.exceptions.IndexerException;
 import io.goobi.viewer.indexer.helper.DateTools;
 import io.goobi.viewer.indexer.helper.FileTools;
 import io.goobi.viewer.indexer.helper.Hotfolder;
+import io.goobi.viewer.indexer.helper.HotfolderJournal;
 import io.goobi.viewer.indexer.helper.HttpConnector;
 import io.goobi.viewer.indexer.helper.JDomXP;
 import io.goobi.viewer.indexer.helper.JDomXP.FileFormat;
 import io.goobi.viewer.indexer.helper.MetadataHelper;
+import io.goobi.viewer.indexer.helper.RecordLockRegistry;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
 import io.goobi.viewer.indexer.helper.TextHelper;
 import io.goobi.viewer.indexer.helper.Utils;
@@ -74,6 +76,7 @@ import io.goobi.viewer.indexer.model.IndexingResult;
 import io.goobi.viewer.indexer.model.IndexingResult.IndexingResultStatus;
 import io.goobi.viewer.indexer.model.LuceneField;
 import io.goobi.viewer.indexer.model.PhysicalElement;
+import io.goobi.viewer.indexer.model.RecordState;
 import io.goobi.viewer.indexer.model.SolrConstants;
 import io.goobi.viewer.indexer.model.SolrConstants.DocType;
 import io.goobi.viewer.indexer.model.config.FieldConfig;
@@ -121,7 +124,7 @@ public class MetsIndexer extends Indexer {
                     + "/mods:recordInfo/mods:recordIdentifier"; //NOSONAR XPathexpression , not URI
 
     /** */
-    protected static List<Path> reindexedChildrenFileList = new ArrayList<>();
+    protected static List<Path> reindexedChildrenFileList = Collections.synchronizedList(new ArrayList<>());
 
     private final List<String> availablePreferredImageFileGroups;
     private final Map<String, String> fileIdToFileGrpMap = new HashMap<>();
@@ -159,6 +162,17 @@ public class MetsIndexer extends Indexer {
         this.availablePreferredImageFileGroups = availablePreferredImageFileGroups;
     }
 
+    /**
+     * Adds the given file to the list of volumes that are re-indexed due to an anchor update (e.g. when restoring queues after a restart).
+     * 
+     * @param file Indexed METS file of the volume
+     */
+    public static void addReindexedChildrenFile(Path file) {
+        if (file != null && !reindexedChildrenFileList.contains(file)) {
+            reindexedChildrenFileList.add(file);
+        }
+    }
+
     /** {@inheritDoc} */
     public List<String> addToIndex(Path metsFile, Map<String, Boolean> reindexSettings) throws IOException {
         String fileNameRoot = FilenameUtils.getBaseName(metsFile.getFileName().toString());
@@ -180,72 +194,23 @@ public class MetsIndexer extends Indexer {
                 return Collections.singletonList(result.getPi());
             }
 
-            if (Files.exists(indexed)) {
-                // Add a timestamp to the old file name
-                String oldMetsFilename =
-                        FilenameUtils.getBaseName(newMetsFileName) + "_" + LocalDateTime.now().format(DateTools.FORMATTER_BASIC_DATETIME) + ".xml";
-                Path newFile = Paths.get(hotfolder.getUpdatedMets().toAbsolutePath().toString(), oldMetsFilename);
-                Files.copy(indexed, newFile);
-                logger.debug("Old METS file copied to '{}'.", newFile.toAbsolutePath());
-            }
-            Files.copy(metsFile, indexed, StandardCopyOption.REPLACE_EXISTING);
-            dataRepository.checkOtherRepositoriesForRecordFileDuplicates(newMetsFileName, DataRepository.PARAM_INDEXED_METS,
-                    hotfolder.getDataRepositoryStrategy().getAllDataRepositories());
-
-            if (previousDataRepository != null) {
-                // Move non-repository data folders to the selected repository
-                previousDataRepository.moveDataFoldersToRepository(dataRepository, FilenameUtils.getBaseName(newMetsFileName));
-            }
-
-            // Copy and delete media folder
-            if (dataRepository.checkCopyAndDeleteDataFolder(result.getPi(), dataFolders, reindexSettings, DataRepository.PARAM_MEDIA,
-                    hotfolder.getDataRepositoryStrategy().getAllDataRepositories()) > 0) {
-                String msg = Utils.removeRecordImagesFromCache(FilenameUtils.getBaseName(newMetsFileName));
-                if (msg != null) {
-                    logger.info(msg);
-                }
-            }
-
-            // Copy data folders
-            dataRepository.copyAndDeleteAllDataFolders(result.getPi(), dataFolders, reindexSettings,
-                    hotfolder.getDataRepositoryStrategy().getAllDataRepositories());
-
-            // Delete unsupported data folders
-            FileTools.deleteUnsupportedDataFolders(hotfolder.getHotfolderPath(), fileNameRoot);
-
-            // success for goobi
-            Path successFile = Paths.get(hotfolder.getSuccessFolder().toAbsolutePath().toString(), metsFile.getFileName().toString());
-            try {
-                Files.createFile(successFile);
-                Files.setLastModifiedTime(successFile, FileTime.fromMillis(System.currentTimeMillis()));
-            } catch (FileAlreadyExistsException e) {
-                Files.delete(successFile);
-                Files.createFile(successFile);
-                Files.setLastModifiedTime(successFile, FileTime.fromMillis(System.currentTimeMillis()));
-            }
-
-            try {
-                Files.delete(metsFile);
-            } catch (IOException e) {
-                logger.warn(LOG_COULD_NOT_BE_DELETED, metsFile.toAbsolutePath());
-            }
-
-            // Update data repository cache map in the Goobi viewer
-            if (previousDataRepository != null) {
-                try {
-                    Utils.updateDataRepositoryCache(result.getPi(), dataRepository.getPath());
-                } catch (HTTPException e) {
-                    logger.error(e.getMessage(), e);
-                }
-            }
-            prerenderPagePdfsIfRequired(result.getPi());
-            logger.info("Successfully finished indexing '{}'.", metsFile.getFileName());
-
-            // Remove this file from lower priority hotfolders to avoid overriding changes with older version
-            SolrIndexerDaemon.getInstance().removeRecordFileFromLowerPriorityHotfolders(result.getPi(), hotfolder);
+            // Copy the record file and data folders to the data repository (possibly while the next record is already being indexed); the task
+            // must not reference this indexer, so that queued tasks do not keep the parsed document in memory
+            final Hotfolder useHotfolder = hotfolder;
+            final DataRepository useDataRepository = dataRepository;
+            final DataRepository usePreviousDataRepository = previousDataRepository;
+            final String pi = result.getPi();
+            hotfolder.getRelocationStage()
+                    .submit(metsFile, () -> relocate(metsFile, indexed, pi, dataFolders, reindexSettings, useHotfolder, useDataRepository,
+                            usePreviousDataRepository));
 
             return result.isSubmitPiToViewer() ? Collections.singletonList(result.getPi()) : Collections.emptyList();
         }
+        if (IndexingResultStatus.DEFERRED.equals(result.getStatus())) {
+            // Leave the file and its data folders in the hotfolder until the anchor has been processed
+            hotfolder.deferRecordFile(metsFile, result.getDeferredBy());
+            return Collections.emptyList();
+        }
 
         // Error
         if (hotfolder.isDeleteContentFilesOnFailure()) {
@@ -262,6 +227,88 @@ public class MetsIndexer extends Indexer {
         return Collections.emptyList();
     }
 
+    /**
+     * Moves the given successfully indexed METS file and its data folders from the hotfolder to the data repository.
+     * 
+     * @param metsFile METS file in the hotfolder
+     * @param indexed Target path of the METS file in the data repository
+     * @param pi Record identifier
+     * @param dataFolders Data folders in the hotfolder
+     * @param reindexSettings
+     * @param hotfolder
+     * @param dataRepository Selected data repository
+     * @param previousDataRepository Previous data repository of the record, if changed
+     * @throws IOException
+     */
+    private static void relocate(Path metsFile, Path indexed, String pi, Map<String, Path> dataFolders, Map<String, Boolean> reindexSettings,
+            Hotfolder hotfolder, DataRepository dataRepository, DataRepository previousDataRepository) throws IOException {
+        String fileNameRoot = FilenameUtils.getBaseName(metsFile.getFileName().toString());
+        String newMetsFileName = indexed.getFileName().toString();
+        if (Files.exists(indexed)) {
+            // Add a timestamp to the old file name
+            String oldMetsFilename =
+                    FilenameUtils.getBaseName(newMetsFileName) + "_" + LocalDateTime.now().format(DateTools.FORMATTER_BASIC_DATETIME) + ".xml";
+            Path newFile = Paths.get(hotfolder.getUpdatedMets().toAbsolutePath().toString(), oldMetsFilename);
+            Files.copy(indexed, newFile);
+            logger.debug("Old METS file copied to '{}'.", newFile.toAbsolutePath());
+        }
+        Files.copy(metsFile, indexed, StandardCopyOption.REPLACE_EXISTING);
+        dataRepository.checkOtherRepositoriesForRecordFileDuplicates(newMetsFileName, DataRepository.PARAM_INDEXED_METS,
+                hotfolder.getDataRepositoryStrategy().getAllDataRepositories());
+
+        if (previousDataRepository != null) {
+            // Move non-repository data folders to the selected repository
+            previousDataRepository.moveDataFoldersToRepository(dataRepository, FilenameUtils.getBaseName(newMetsFileName));
+        }
+
+        // Copy and delete media folder
+        if (dataRepository.checkCopyAndDeleteDataFolder(pi, dataFolders, reindexSettings, DataRepository.PARAM_MEDIA,
+                hotfolder.getDataRepositoryStrategy().getAllDataRepositories()) > 0) {
+            String msg = Utils.removeRecordImagesFromCache(FilenameUtils.getBaseName(newMetsFileName));
+            if (msg != null) {
+                logger.info(msg);
+            }
+        }
+
+        // Copy data folders
+        dataRepository.copyAndDeleteAllDataFolders(pi, dataFolders, reindexSettings,
+                hotfolder.getDataRepositoryStrategy().getAllDataRepositories());
+
+        // Delete unsupported data folders
+        FileTools.deleteUnsupportedDataFolders(hotfolder.getHotfolderPath(), fileNameRoot);
+
+        // success for goobi
+        Path successFile = Paths.get(hotfolder.getSuccessFolder().toAbsolutePath().toString(), metsFile.getFileName().toString());
+        try {
+            Files.createFile(successFile);
+            Files.setLastModifiedTime(successFile, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (FileAlreadyExistsException e) {
+            Files.delete(successFile);
+            Files.createFile(successFile);
+            Files.setLastModifiedTime(successFile, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+
+        try {
+            Files.delete(metsFile);
+        } catch (IOException e) {
+            logger.warn(LOG_COULD_NOT_BE_DELETED, metsFile.toAbsolutePath());
+        }
+
+        // Update data repository cache map in the Goobi viewer
+        if (previousDataRepository != null) {
+            try {
+                Utils.updateDataRepositoryCache(pi, dataRepository.getPath());
+            } catch (HTTPException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+        prerenderPagePdfsIfRequired(pi, dataRepository);
+        logger.info("Successfully finished indexing '{}'.", metsFile.getFileName());
+
+        // Remove this file from lower priority hotfolders to avoid overriding changes with older version
+        SolrIndexerDaemon.getInstance().removeRecordFileFromLowerPriorityHotfolders(pi, hotfolder);
+    }
+
     /**
      * Indexes the given METS file.
      *
@@ -282,6 +329,7 @@ public class MetsIndexer extends Indexer {
      * @should read datecreated from mets with correct time zone
      * @should not add dateupdated if value already exists
      * @should index page metadata correctly
+     * @should defer volume if anchor locked
      * 
      */
     public IndexingResult index(Path metsFile, Map<String, Path> dataFolders, final ISolrWriteStrategy inWriteStrategy,
@@ -296,12 +344,28 @@ public class MetsIndexer extends Indexer {
         logger.debug("Indexing METS file '{}'...", metsFile.getFileName());
         ISolrWriteStrategy writeStrategy = inWriteStrategy;
         IndexingResult ret = new IndexingResult();
+        String lockedAnchorPi = null;
         try {
             initJDomXP(metsFile);
             IndexObject indexObj = new IndexObject(getNextIddoc());
             logger.debug("IDDOC: {}", indexObj.getIddoc());
             indexObj.setVolume(isVolume());
             logger.info("Document is volume: {}", indexObj.isVolume());
+            if (indexObj.isVolume() && hotfolder != null) {
+                // Make sure the anchor is not being (re-)indexed in parallel while its volume is being indexed; instead of blocking this
+                // thread, the volume is deferred until the anchor has been processed
+                String anchorPi = getAnchorPi();
+                if (StringUtils.isNotEmpty(anchorPi)) {
+                    String anchorLockKey = RecordLockRegistry.getLockKeyForBaseName(MetadataHelper.applyIdentifierModifications(anchorPi));
+                    if (!anchorLockKey.equals(RecordLockRegistry.getLockKey(metsFile))) {
+                        if (!hotfolder.getRecordLocks().tryLock(anchorLockKey)) {
+                            logger.info("Anchor '{}' is currently being processed, deferring '{}'.", anchorLockKey, metsFile.getFileName());
+                            return ret.setDeferredBy(anchorLockKey);
+                        }
+                        lockedAnchorPi = anchorLockKey;
+                    }
+                }
+            }
             indexObj.setAnchor(isAnchor());
             Element structNode = findStructNode(indexObj);
             if (structNode == null) {
@@ -335,6 +399,7 @@ public class MetsIndexer extends Indexer {
             prepareUpdate(indexObj);
 
             int hierarchyLevel = 0; // depth of the docstrct that has ISWORK (volume or monograph)
+            RecordState anchorState = null;
             if (indexObj.isVolume()) {
                 // Find anchor document for this volume
                 hierarchyLevel = 1;
@@ -343,17 +408,11 @@ public class MetsIndexer extends Indexer {
                     anchorPi = MetadataHelper.applyIdentifierModifications(anchorPi);
                     indexObj.setParentPI(anchorPi);
                     indexObj.setAnchorPI(anchorPi);
-                    String[] fields = { SolrConstants.IDDOC, SolrConstants.DOCSTRCT };
-                    String parentIddoc = null;
-                    String parentDocstrct = null;
-                    SolrDocumentList hits = SolrIndexerDaemon.getInstance()
-                            .getSearchIndex()
-                            .search(new StringBuilder().append(SolrConstants.PI).append(":\"").append(anchorPi).append('"').toString(),
-                                    Arrays.asList(fields));
-                    if (hits != null && hits.getNumFound() > 0) {
-                        parentIddoc = (String) hits.get(0).getFieldValue(SolrConstants.IDDOC);
-                        parentDocstrct = (String) hits.get(0).getFieldValue(SolrConstants.DOCSTRCT);
-                    }
+                    // Anchor IDDOC, docstruct and access conditions are retrieved with a single lookup
+                    SolrIndexerDaemon.getInstance().getSearchIndex().ensureVisible(anchorPi);
+                    anchorState = SolrIndexerDaemon.getInstance().getSearchIndex().findRecordState(anchorPi, false);
+                    String parentIddoc = anchorState.getIddoc();
+                    String parentDocstrct = anchorState.getDocstrct();
                     // Create parent IndexObject
                     if (anchorPi != null && parentIddoc != null) {
                         logger.debug("Creating anchor for '{}' (PI:{}, IDDOC:{})", indexObj.getIddoc(), anchorPi, parentIddoc);
@@ -410,16 +469,13 @@ public class MetsIndexer extends Indexer {
 
             // If this is a volume (= has an anchor) that has already been indexed, copy access conditions from the anchor element
             if (indexObj.isVolume() && indexObj.getAccessConditions().isEmpty() && StringUtils.isNotEmpty(indexObj.getAnchorPI())) {
-                indexObj.setAnchorPI(indexObj.getAnchorPI());
-                SolrDocumentList hits = SolrIndexerDaemon.getInstance()
-                        .getSearchIndex()
-                        .search(SolrConstants.PI + ":" + indexObj.getAnchorPI(), Collections.singletonList(SolrConstants.ACCESSCONDITION));
-                if (hits != null && !hits.isEmpty()) {
-                    Collection<Object> fields = hits.get(0).getFieldValues(SolrConstants.ACCESSCONDITION);
-                    if (fields != null) {
-                        for (Object o : fields) {
-                            indexObj.getAccessConditions().add(o.toString());
-                        }
+                if (anchorState == null || !anchorState.getPi().equals(indexObj.getAnchorPI())) {
+                    SolrIndexerDaemon.getInstance().getSearchIndex().ensureVisible(indexObj.getAnchorPI());
+                    anchorState = SolrIndexerDaemon.getInstance().getSearchIndex().findRecordState(indexObj.getAnchorPI(), false);
+                }
+                if (anchorState.isFound()) {
+                    if (!anchorState.getAccessConditions().isEmpty()) {
+                        indexObj.getAccessConditions().addAll(anchorState.getAccessConditions());
                     } else {
                         logger.error(
                                 "Anchor document '{}' has no ACCESSCONDITION values. Please check whether it is a proper anchor and not a group!",
@@ -443,6 +499,7 @@ public class MetsIndexer extends Indexer {
             if (indexObj.isAnchor()) {
                 // Anchors: add NUMVOLUMES
                 indexObj.addToLucene(SolrConstants.ISANCHOR, "true");
+                SolrIndexerDaemon.getInstance().getSearchIndex().ensureVisible(indexObj.getPi());
                 long numVolumes = SolrIndexerDaemon.getInstance()
                         .getSearchIndex()
                         .getNumHits(new StringBuilder(SolrConstants.PI_PARENT).append(":\"")
@@ -565,6 +622,7 @@ public class MetsIndexer extends Indexer {
                 if (MetsIndexer.reindexedChildrenFileList.contains(metsFile)) {
                     logger.debug("{} in reindexedChildrenFileList, removing...", metsFile.toAbsolutePath());
                     MetsIndexer.reindexedChildrenFileList.remove(metsFile);
+                    hotfolder.getJournal().finished(HotfolderJournal.QueueType.REINDEXED_CHILDREN, metsFile);
                     indexedChildrenFileList = true;
                 }
 
@@ -594,16 +652,10 @@ public class MetsIndexer extends Indexer {
             indexObj.applyFinalModifications();
 
             // WRITE TO SOLR (POINT OF NO RETURN: any indexObj modifications from here on will not be included in the index!)
-            if (!iddocsToDelete.isEmpty()) {
-                logger.info("Removing {} docs of the previous instance of this volume from the index...", iddocsToDelete.size());
-                SolrIndexerDaemon.getInstance().getSearchIndex().deleteDocuments(new ArrayList<>(iddocsToDelete));
-            }
-
-            logger.debug("Writing document to index...");
             SolrInputDocument rootDoc = SolrSearchIndex.createDocument(indexObj.getLuceneFields());
             writeStrategy.setRootDoc(rootDoc);
 
-            writeStrategy.writeDocs(SolrIndexerDaemon.getInstance().getConfiguration().isAggregateRecords());
+            writeRecord(writeStrategy, indexObj.getPi());
             if (indexObj.isVolume() && (!indexObj.isUpdate() || indexedChildrenFileList)) {
                 logger.info("Re-indexing anchor...");
                 copyAndReIndexAnchor(indexObj, hotfolder, dataRepository);
@@ -624,6 +676,9 @@ public class MetsIndexer extends Indexer {
             if (writeStrategy != null) {
                 writeStrategy.cleanup();
             }
+            if (lockedAnchorPi != null) {
+                hotfolder.getRecordLocks().unlock(lockedAnchorPi);
+            }
         }
 
         return ret;
@@ -677,8 +732,7 @@ public class MetsIndexer extends Indexer {
 
     public void collectFileGroupInfo() {
         logger.info("Buidling fileId->fileGrp map...");
-        String xpathFileGrpList = "/mets:mets/mets:fileSec/mets:fileGrp"; //NOSONAR XPath expression, not parameter
-        eleListAllFileGroups = xp.evaluateToElements(xpathFileGrpList, null);
+        eleListAllFileGroups = xp.getMetsStructureIndex().getFileGroups();
         logger.info("Found {} file groups in document.", eleListAllFileGroups.size());
         fileIdToFileGrpMap.clear();
         for (Element eleFileGroup : eleListAllFileGroups) {
@@ -722,8 +776,8 @@ public class MetsIndexer extends Indexer {
                         + "/mets:div[@xlink:label=\"START_PAGE\"]/mets:fptr/@FILEID"; //NOSONAR XPath, not URI
         List<String> fileIds = xp.evaluateToAttributes(xpathFilePtr, null).stream().map(Attribute::getValue).toList();
         for (String fileId : fileIds) {
-            String xpath = XPATH_FILEGRP + filegroup + "\"]/mets:file[@ID='" + fileId + "']/mets:FLocat/@xlink:href";
-            filePathBanner = xp.evaluateToAttributeStringValue(xpath, null);
+            String xpath = XPATH_FILEGRP + filegroup + "\"]/mets:file[@ID=$id]/mets:FLocat/@xlink:href";
+            filePathBanner = xp.evaluateToAttributeStringValue(xpath, null, Map.of("id", fileId));
             if (StringUtils.isNotBlank(filePathBanner)) {
                 return filePathBanner;
             }
@@ -752,8 +806,7 @@ public class MetsIndexer extends Indexer {
         }
 
         // Determine all PHYSID mapped to the current LOGID
-        String xpath = "/mets:mets/mets:structLink/mets:smLink[@xlink:from=\"" + indexObj.getLogId() + "\"]/@xlink:to";
-        List<String> physIdList = xp.evaluateToStringList(xpath, null);
+        List<String> physIdList = xp.getMetsStructureIndex().getPhysIdsForLogId(indexObj.getLogId());
         if (physIdList == null || physIdList.isEmpty()) {
             logger.warn("No pages mapped to '{}'.", indexObj.getLogId());
             return Collections.emptyList();
@@ -1153,19 +1206,12 @@ public class MetsIndexer extends Indexer {
      * @throws IndexerException in case of errors.
      * @throws IOException in case of errors.
      * @throws SolrServerException
+     * @throws FatalIndexerException
      */
-    private void anchorMerge(IndexObject indexObj) throws IndexerException, IOException, SolrServerException {
+    private void anchorMerge(IndexObject indexObj) throws IndexerException, IOException, SolrServerException, FatalIndexerException {
         logger.debug("anchorMerge: {}", indexObj.getPi());
-        SolrDocumentList hits =
-                SolrIndexerDaemon.getInstance()
-                        .getSearchIndex()
-                        .search(SolrConstants.PI_PARENT + ":\"" + indexObj.getPi() + '"' + SolrConstants.SOLR_QUERY_AND + SolrConstants.ISWORK
-                                + SolrConstants.SOLR_QUERY_TRUE, null);
-        if (hits.isEmpty()) {
-            logger.warn("Anchor '{}' has no volumes, no merge needed.", indexObj.getPi());
-            return;
-        }
-
+        // Volumes indexed since the last commit must be included
+        SolrIndexerDaemon.getInstance().getSearchIndex().ensureVisible(indexObj.getPi());
         Map<Long, String> childrenInfo = new HashMap<>();
         Map<String, String> labelInfo = new HashMap<>();
         Map<String, Long> orderInfo = new HashMap<>();
@@ -1173,14 +1219,22 @@ public class MetsIndexer extends Indexer {
         Map<String, String> typeInfo = new HashMap<>();
         List<String> childrenInfoUnsorted = new ArrayList<>();
         List<String> collections = new ArrayList<>();
-        boolean labelSort = false;
+        AtomicBoolean labelSortRequired = new AtomicBoolean(false);
         // Collect volume info
-        for (SolrDocument doc : hits) {
-            if (collectVolumeInfo(doc, orderInfo, urnInfo, typeInfo, labelInfo, childrenInfo, collections, childrenInfoUnsorted,
-                    hotfolder.isAddVolumeCollectionsToAnchor())) {
-                labelSort = true;
-            }
+        long volumeCount = SolrIndexerDaemon.getInstance()
+                .getSearchIndex()
+                .forEach(SolrConstants.PI_PARENT + ":\"" + indexObj.getPi() + '"' + SolrConstants.SOLR_QUERY_AND + SolrConstants.ISWORK
+                        + SolrConstants.SOLR_QUERY_TRUE, null, doc -> {
+                            if (collectVolumeInfo(doc, orderInfo, urnInfo, typeInfo, labelInfo, childrenInfo, collections, childrenInfoUnsorted,
+                                    hotfolder.isAddVolumeCollectionsToAnchor())) {
+                                labelSortRequired.set(true);
+                            }
+                        });
+        if (volumeCount == 0) {
+            logger.warn("Anchor '{}' has no volumes, no merge needed.", indexObj.getPi());
+            return;
         }
+        boolean labelSort = labelSortRequired.get();
 
         SortedMap<Long, String> sortedChildrenMap = null;
         List<Element> childrenE = new ArrayList<>();
@@ -1500,36 +1554,38 @@ public class MetsIndexer extends Indexer {
      * @param indexObj {@link IndexObject}
      * @throws IOException -
      * @throws SolrServerException
+     * @throws FatalIndexerException
      */
-    protected void updateAnchorChildrenParentIddoc(IndexObject indexObj) throws IOException, SolrServerException {
+    protected void updateAnchorChildrenParentIddoc(IndexObject indexObj) throws IOException, SolrServerException, FatalIndexerException {
         logger.debug("Scheduling all METS files that belong to this anchor for re-indexing...");
-        SolrDocumentList hits = SolrIndexerDaemon.getInstance()
+        SolrIndexerDaemon.getInstance().getSearchIndex().ensureVisible(indexObj.getPi());
+        long volumeCount = SolrIndexerDaemon.getInstance()
                 .getSearchIndex()
-                .search(new StringBuilder(SolrConstants.PI_PARENT).append(":")
+                .forEach(new StringBuilder(SolrConstants.PI_PARENT).append(":")
                         .append(indexObj.getPi())
                         .append(SolrConstants.SOLR_QUERY_AND)
                         .append(SolrConstants.ISWORK)
                         .append(SolrConstants.SOLR_QUERY_TRUE)
-                        .toString(), null);
-        if (hits.isEmpty()) {
+                        .toString(), Arrays.asList(SolrConstants.PI, SolrConstants.IDDOC_PARENT), doc -> {
+                            // Do not use PI here, as older documents might not have that field, use PPN instead
+                            String pi = doc.getFieldValue(SolrConstants.PI).toString();
+                            if (doc.getFieldValue(SolrConstants.IDDOC_PARENT) != null
+                                    && doc.getFieldValue(SolrConstants.IDDOC_PARENT).toString().equals(String.valueOf(indexObj.getIddoc()))) {
+                                logger.debug("{} already has the correct parent, skipping.", pi);
+                                return;
+                            }
+                            String indexedMetsFilePath =
+                                    dataRepository.getDir(DataRepository.PARAM_INDEXED_METS) + File.separator + pi + FileTools.XML_EXTENSION;
+                            Path indexedMets = Paths.get(indexedMetsFilePath);
+                            if (Files.exists(indexedMets)) {
+                                hotfolder.getHighPriorityQueue().add(indexedMets);
+                                MetsIndexer.reindexedChildrenFileList.add(indexedMets);
+                                hotfolder.getJournal().enqueued(HotfolderJournal.QueueType.REINDEXED_CHILDREN, indexedMets);
+                                logger.debug("Added '{}' to reindexedChildrenPiList.", pi);
+                            }
+                        });
+        if (volumeCount == 0) {
             logger.debug("No volume METS files found for this anchor.");
-            return;
-        }
-        for (SolrDocument doc : hits) {
-            // Do not use PI here, as older documents might not have that field, use PPN instead
-            String pi = doc.getFieldValue(SolrConstants.PI).toString();
-            if (doc.getFieldValue(SolrConstants.IDDOC_PARENT) != null
-                    && doc.getFieldValue(SolrConstants.IDDOC_PARENT).toString().equals(String.valueOf(indexObj.getIddoc()))) {
-                logger.debug("{} already has the correct parent, skipping.", pi);
-                continue;
-            }
-            String indexedMetsFilePath = dataRepository.getDir(DataRepository.PARAM_INDEXED_METS) + File.separator + pi + FileTools.XML_EXTENSION;
-            Path indexedMets = Paths.get(indexedMetsFilePath);
-            if (Files.exists(indexedMets)) {
-                hotfolder.getHighPriorityQueue().add(indexedMets);
-                MetsIndexer.reindexedChildrenFileList.add(indexedMets);
-                logger.debug("Added '{}' to reindexedChildrenPiList.", pi);
-            }
         }
     }
 
@@ -1809,8 +1865,8 @@ public class MetsIndexer extends Indexer {
      * @return The URN
      */
     private String setUrn(IndexObject indexObj) {
-        String query = "/mets:mets/mets:structMap[@TYPE='LOGICAL']//mets:div[@ID='" + indexObj.getLogId() + "']/@CONTENTIDS";
-        String urn = xp.evaluateToAttributeStringValue(query, null);
+        Element eleDiv = xp.getMetsStructureIndex().getLogicalDiv(indexObj.getLogId());
+        String urn = eleDiv != null ? eleDiv.getAttributeValue(ATTRIBUTE_CONTENTIDS) : null;
         if (Utils.isUrn(urn)) {
             indexObj.setUrn(urn);
             indexObj.addToLucene(SolrConstants.URN, urn);
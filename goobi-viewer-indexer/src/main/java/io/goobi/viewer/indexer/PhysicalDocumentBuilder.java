@@ -28,7 +28,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
@@ -54,6 +53,7 @@ import io.goobi.viewer.indexer.helper.JDomXP;
 import io.goobi.viewer.indexer.helper.JDomXP.FileFormat;
 import io.goobi.viewer.indexer.helper.MetadataHelper;
 import io.goobi.viewer.indexer.helper.Utils;
+import io.goobi.viewer.indexer.helper.logging.SecondaryAppender;
 import io.goobi.viewer.indexer.model.IndexObject;
 import io.goobi.viewer.indexer.model.LuceneField;
 import io.goobi.viewer.indexer.model.PhysicalElement;
@@ -132,8 +132,7 @@ public class PhysicalDocumentBuilder {
     }
 
     public boolean isFileGroupExists(String filegroup) {
-        String xpath = "/mets:mets/mets:fileSec/mets:fileGrp[@USE='" + filegroup + "']";
-        return !xp.evaluateToElements(xpath, null).isEmpty();
+        return xp.getMetsStructureIndex().hasFileGroup(filegroup);
     }
 
     /**
@@ -163,8 +162,7 @@ public class PhysicalDocumentBuilder {
         Collection<PhysicalElement> pages = Collections.synchronizedList(new ArrayList<PhysicalElement>());
         if (SolrIndexerDaemon.getInstance().getConfiguration().getThreads() > 1) {
             // Generate each page document in its own thread
-            ConcurrentHashMap<String, Boolean> usedIddocsMap = new ConcurrentHashMap<>();
-            try (ForkJoinPool pool = new ForkJoinPool(SolrIndexerDaemon.getInstance().getConfiguration().getThreads())) {
+            try (ForkJoinPool pool = SecondaryAppender.newRecordPool(SolrIndexerDaemon.getInstance().getConfiguration().getThreads())) {
                 pool.submit(() -> eleStructMapPhysicalList.parallelStream().forEach(eleStructMapPhysical -> {
                     try {
                         String iddoc = Indexer.getNextIddoc();
@@ -179,7 +177,6 @@ public class PhysicalDocumentBuilder {
                             }
                             page.getShapes().clear();
                         }
-                        usedIddocsMap.put(iddoc, true);
                     } catch (FatalIndexerException e) {
                         logger.error("Should be exiting here now...");
                     }
@@ -266,8 +263,8 @@ public class PhysicalDocumentBuilder {
             return null;
         }
 
-        List<Element> eleStructLinkList = getStructLinks(iddoc, id);
-        if (eleStructLinkList.isEmpty()) {
+        List<String> logIdList = getStructLinks(iddoc, id);
+        if (logIdList.isEmpty()) {
             logger.info("Page {} (PHYSID: {}) is not mapped to a structure element, skipping...", order, id);
             return null;
         }
@@ -289,10 +286,7 @@ public class PhysicalDocumentBuilder {
             String fileID = getFileId(eleFptrList, eleListAllFileGroups, fileGroup);
             if (fileID != null) {
                 // find mets:file matching file group and file id
-                String xpath = "/mets:mets/mets:fileSec/mets:fileGrp[@USE='%s']/mets:file[@ID='%s']"
-                        .formatted(fileGroup, fileID); //NOSONAR XPath, not URI
-                List<Element> eleFileGrpList = xp.evaluateToElements(xpath, null);
-                if (!eleFileGrpList.isEmpty()) {
+                if (xp.getMetsStructureIndex().getFile(fileGroup, fileID) != null) {
                     // first match: use as selected file group and file id
                     useFileID = fileID;
                     useFileGroup = fileGroup;
@@ -466,9 +460,9 @@ public class PhysicalDocumentBuilder {
                 List<Attribute> amdIdAttrList = xp.evaluateToAttributes(xpath, eleFileGrp);
                 if (amdIdAttrList != null && !amdIdAttrList.isEmpty() && StringUtils.isNotBlank(amdIdAttrList.get(0).getValue())) {
                     String amdId = amdIdAttrList.get(0).getValue();
-                    xpath = "/mets:mets/mets:amdSec/mets:techMD[@ID='" + amdId
-                            + "']/mets:mdWrap[@MDTYPE='OTHER']/mets:xmlData/pbcoreInstantiation/formatFrameSize/text()";
-                    String frameSize = xp.evaluateToString(xpath, null);
+                    xpath = "/mets:mets/mets:amdSec/mets:techMD[@ID=$id]"
+                            + "/mets:mdWrap[@MDTYPE='OTHER']/mets:xmlData/pbcoreInstantiation/formatFrameSize/text()";
+                    String frameSize = xp.evaluateToString(xpath, null, Map.of("id", amdId));
                     if (StringUtils.isNotEmpty(frameSize)) {
                         String[] frameSizeSplit = frameSize.split("x");
                         if (frameSizeSplit.length == 2) {
@@ -523,8 +517,8 @@ public class PhysicalDocumentBuilder {
         String admId = eleStructMapPhysical.getAttributeValue("ADMID");
         if (StringUtils.isNotEmpty(admId)) {
             // Use '//' so faulty duplication in the hierarchy still works
-            String techXpath = "/mets:mets/mets:amdSec/mets:techMD[@ID='" + admId + "']//mets:mdWrap[@MDTYPE='OTHER'][mets:xmlData/mix:mix]";
-            List<Element> eletechMdList = xp.evaluateToElements(techXpath, null);
+            String techXpath = "/mets:mets/mets:amdSec/mets:techMD[@ID=$id]//mets:mdWrap[@MDTYPE='OTHER'][mets:xmlData/mix:mix]";
+            List<Element> eletechMdList = xp.evaluateToElements(techXpath, null, Map.of("id", admId));
             if (!eletechMdList.isEmpty()) {
                 IndexObject indexObj = new IndexObject("dummy", pi);
                 indexObj.setSourceDocFormat(FileFormat.MIX);
@@ -715,9 +709,7 @@ public class PhysicalDocumentBuilder {
             String fileID = eleFptr.getAttributeValue("FILEID");
             if (fileID != null) {
                 logger.trace("fileID: {}", fileID);
-                String xpath = "/mets:mets/mets:fileSec/mets:fileGrp[@USE='" + fileGroup + "']/mets:file[@ID='" + fileID + "']";
-                List<Element> eleListFiles = xp.evaluateToElements(xpath, null);
-                if (eleListFiles.isEmpty()) {
+                if (xp.getMetsStructureIndex().getFile(fileGroup, fileID) == null) {
                     return fileID;
                 }
             }
@@ -765,14 +757,12 @@ public class PhysicalDocumentBuilder {
      * 
      * @param iddoc
      * @param id
-     * @return List<Element>
+     * @return IDs of the logical elements the physical element with the given ID is mapped to
      */
-    protected List<Element> getStructLinks(String iddoc, String id) {
+    protected List<String> getStructLinks(String iddoc, String id) {
         logger.trace("generatePageDocument: {} (IDDOC {}) processed by thread {}", id, iddoc, Thread.currentThread().threadId());
         // Check whether this physical element is mapped to any logical element, skip if not
-        StringBuilder sbXPath = new StringBuilder(70);
-        sbXPath.append("/mets:mets/mets:structLink/mets:smLink[@xlink:to=\"").append(id).append("\"]");
-        return xp.evaluateToElements(sbXPath.toString(), null);
+        return xp.getMetsStructureIndex().getLogIdsForPhysId(id);
     }
 
     /**
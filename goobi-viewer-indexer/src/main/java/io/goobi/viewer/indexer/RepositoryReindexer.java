@@ -0,0 +1,249 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
+import io.goobi.viewer.indexer.helper.Hotfolder;
+import io.goobi.viewer.indexer.helper.JDomXP;
+import io.goobi.viewer.indexer.helper.JDomXP.FileFormat;
+import io.goobi.viewer.indexer.helper.RecordLockRegistry;
+import io.goobi.viewer.indexer.model.IndexingResult;
+import io.goobi.viewer.indexer.model.IndexingResult.IndexingResultStatus;
+import io.goobi.viewer.indexer.model.datarepository.DataRepository;
+
+/**
+ * Re-indexes all records in the data repositories in place, i.e. without copying record files back into the hotfolder and without moving any
+ * files. Records are indexed in parallel; anchor and volume updates scheduled during this process are handled via the hotfolder's priority queue
+ * afterwards.
+ */
+public class RepositoryReindexer {
+
+    private static final Logger logger = LogManager.getLogger(RepositoryReindexer.class);
+
+    /** Number of records between progress reports. */
+    private static final int PROGRESS_INTERVAL = 100;
+
+    private final Hotfolder hotfolder;
+    private final int threads;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    /** Volumes that could not be indexed while their anchor was being indexed in parallel. */
+    private final Queue<Path> deferred = new ConcurrentLinkedQueue<>();
+    private int total = 0;
+    private long startTime = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param hotfolder Hotfolder providing the data repository configuration
+     * @param threads Number of records to index in parallel
+     */
+    public RepositoryReindexer(Hotfolder hotfolder, int threads) {
+        this.hotfolder = hotfolder;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Re-indexes all METS, Dublin Core and EAD records from all configured data repositories.
+     *
+     * @return Number of successfully re-indexed records
+     * @throws FatalIndexerException
+     * @should reindex records from data repositories in place
+     */
+    public int run() throws FatalIndexerException {
+        List<Path> recordFiles = collectRecordFiles();
+        total = recordFiles.size();
+        startTime = System.currentTimeMillis();
+        logger.info("Re-indexing {} record file(s) using {} thread(s)...", total, threads);
+
+        if (threads > 1) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (Path recordFile : recordFiles) {
+                executor.execute(() -> reindex(recordFile));
+            }
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    logProgress();
+                }
+            } catch (InterruptedException e) {
+                logger.error(e.getMessage());
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            for (Path recordFile : recordFiles) {
+                reindex(recordFile);
+            }
+        }
+        // Volumes deferred while their anchor was being indexed
+        List<Path> deferredFiles = new ArrayList<>(deferred);
+        deferred.clear();
+        for (Path recordFile : deferredFiles) {
+            reindex(recordFile);
+        }
+        for (Path recordFile : deferred) {
+            logger.error("Could not re-index '{}': anchor is still locked.", recordFile.getFileName());
+            failed.incrementAndGet();
+        }
+        logProgress();
+
+        // Anchor merges and volume updates scheduled while re-indexing
+        int priorityCount = hotfolder.processHighPriorityQueue();
+        if (priorityCount > 0) {
+            logger.info("Processed {} anchor/volume update(s) from the priority queue.", priorityCount);
+        }
+
+        logger.info("Re-indexing finished: {} succeeded, {} failed, {} skipped in {} s.", succeeded.get(), failed.get(), skipped.get(),
+                (System.currentTimeMillis() - startTime) / 1000);
+        return succeeded.get();
+    }
+
+    /**
+     * Collects record files from the indexed record folders of all data repositories.
+     *
+     * @return List of record files
+     * @should collect record files from indexed folders of all repositories
+     */
+    List<Path> collectRecordFiles() {
+        Set<Path> folders = new LinkedHashSet<>();
+        for (DataRepository repository : hotfolder.getDataRepositoryStrategy().getAllDataRepositories()) {
+            if (!repository.isValid()) {
+                continue;
+            }
+            for (String param : new String[] { DataRepository.PARAM_INDEXED_METS, DataRepository.PARAM_INDEXED_DUBLINCORE,
+                    DataRepository.PARAM_INDEXED_EAD }) {
+                Path folder = repository.getDir(param);
+                if (folder != null && Files.isDirectory(folder)) {
+                    folders.add(folder.toAbsolutePath().normalize());
+                }
+            }
+        }
+
+        List<Path> ret = new ArrayList<>();
+        for (Path folder : folders) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.xml")) {
+                for (Path path : stream) {
+                    ret.add(path);
+                }
+            } catch (IOException e) {
+                logger.error("Could not list '{}': {}", folder, e.getMessage());
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Re-indexes the given record file in place.
+     *
+     * @param recordFile
+     */
+    private void reindex(Path recordFile) {
+        String lockKey = RecordLockRegistry.getLockKey(recordFile);
+        try {
+            hotfolder.getRecordLocks().lock(lockKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            IndexingResult result = index(recordFile);
+            if (result == null) {
+                skipped.incrementAndGet();
+            } else if (IndexingResultStatus.OK.equals(result.getStatus())) {
+                succeeded.incrementAndGet();
+            } else if (IndexingResultStatus.DEFERRED.equals(result.getStatus())) {
+                deferred.add(recordFile);
+                return;
+            } else {
+                logger.error("Could not re-index '{}': {}", recordFile.getFileName(), result.getError());
+                failed.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not re-index '{}'.", recordFile.getFileName(), e);
+            failed.incrementAndGet();
+        } finally {
+            hotfolder.getRecordLocks().unlock(lockKey);
+        }
+        if (processed.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+            logProgress();
+        }
+    }
+
+    /**
+     * 
+     * @param recordFile
+     * @return {@link IndexingResult}; null if the file format is not supported
+     */
+    private IndexingResult index(Path recordFile) {
+        FileFormat format;
+        try {
+            format = JDomXP.determineFileFormat(recordFile.toFile());
+        } catch (IOException e) {
+            logger.error("Could not determine format of '{}': {}", recordFile.getFileName(), e.getMessage());
+            return new IndexingResult().setStatus(IndexingResultStatus.ERROR).setError(e.getMessage());
+        }
+        int pageCountStart = SolrIndexerDaemon.getInstance().getConfiguration().getPageCountStart();
+        switch (format) {
+            case METS:
+                return new MetsIndexer(hotfolder).index(recordFile, new HashMap<>(), null, pageCountStart, false);
+            case METS_MARC:
+                return new MetsMarcIndexer(hotfolder).index(recordFile, new HashMap<>(), null, pageCountStart, false);
+            case DUBLINCORE:
+                return new DublinCoreIndexer(hotfolder).index(recordFile, new HashMap<>(), null, pageCountStart);
+            case EAD:
+                return new EadIndexer(hotfolder).index(recordFile, new HashMap<>(), null);
+            default:
+                logger.warn("Skipping '{}', format {} cannot be re-indexed in place.", recordFile.getFileName(), format);
+                return null;
+        }
+    }
+
+    /**
+     * Logs the number of processed records, throughput and estimated remaining time.
+     */
+    private void logProgress() {
+        int count = processed.get();
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        double perSecond = count * 1000.0 / elapsed;
+        long remaining = perSecond > 0 ? (long) ((total - count) / perSecond) : -1;
+        logger.info("Progress: {}/{} record(s) ({} failed, {} skipped), {} records/s, about {} s remaining.", count, total, failed.get(),
+                skipped.get(), String.format("%.2f", perSecond), remaining);
+    }
+}
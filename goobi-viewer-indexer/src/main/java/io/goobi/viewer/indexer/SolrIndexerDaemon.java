@@ -17,6 +17,7 @@ package io.goobi.viewer.indexer;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -26,14 +27,20 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
 
 import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.helper.Configuration;
+import io.goobi.viewer.indexer.helper.DryRunSolrClient;
 import io.goobi.viewer.indexer.helper.Hotfolder;
+import io.goobi.viewer.indexer.helper.HotfolderWatcher;
+import io.goobi.viewer.indexer.helper.OptimizeScheduler;
+import io.goobi.viewer.indexer.helper.SolrRetryPolicy;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
+import io.goobi.viewer.indexer.helper.UrnRegistry;
 import io.goobi.viewer.indexer.helper.Utils;
 
 /**
@@ -62,6 +69,15 @@ public final class SolrIndexerDaemon {
     private SolrSearchIndex oldSearchIndex;
 
     private List<Hotfolder> hotfolders = new ArrayList<>();
+    /** Optional file system watcher that replaces periodic hotfolder listings. */
+    private HotfolderWatcher hotfolderWatcher;
+    /** Solr client replacement used in dry run mode. */
+    private DryRunSolrClient dryRunClient;
+
+    private UrnRegistry urnRegistry;
+    private boolean urnRegistryOpened = false;
+
+    private OptimizeScheduler optimizeScheduler;
 
     /**
      * <p>
@@ -101,18 +117,23 @@ public final class SolrIndexerDaemon {
         Thread.setDefaultUncaughtExceptionHandler((t, e) ->
             logger.error("Uncaught exception in thread {}:", t.getName(), e));
 
-        try {
-            if (!checkSolrSchemaName(
-                    SolrSearchIndex.getSolrSchemaDocument(getConfiguration().getSolrUrl()))) {
-                throw new FatalIndexerException("Incompatible Solr schema, exiting..");
+        if (getConfiguration().isDryRunEnabled()) {
+            logger.info("DRY RUN MODE: Documents will not be sent to Solr.");
+        } else {
+            try {
+                if (!checkSolrSchemaName(
+                        SolrSearchIndex.getSolrSchemaDocument(getConfiguration().getSolrUrl()))) {
+                    throw new FatalIndexerException("Incompatible Solr schema, exiting..");
+                }
+            } catch (IOException | JDOMException | FatalIndexerException e) {
+                throw new FatalIndexerException("Could not check Solr schema: " + e.getMessage());
             }
-        } catch (IOException | JDOMException | FatalIndexerException e) {
-            throw new FatalIndexerException("Could not check Solr schema: " + e.getMessage());
         }
 
         // Init old search index, if configured
         try {
-            SolrClient oldClient = SolrSearchIndex.getNewSolrClient(getConfiguration().getOldSolrUrl());
+            SolrClient oldClient =
+                    getConfiguration().isDryRunEnabled() ? null : SolrSearchIndex.getNewSolrClient(getConfiguration().getOldSolrUrl());
             if (StringUtils.isNotEmpty(getConfiguration().getOldSolrUrl()) && oldClient != null) {
                 this.oldSearchIndex = new SolrSearchIndex(oldClient);
                 if (logger.isInfoEnabled()) {
@@ -171,16 +192,31 @@ public final class SolrIndexerDaemon {
      */
     public static void main(String[] args) {
         boolean cleanupAnchors = false;
+        boolean reindexRepositories = false;
+        int reindexThreads = 0;
 
         if (args.length > 0) {
             SolrIndexerDaemon.getInstance().confFileName = args[0];
             if (args.length > 1 && args[1].equalsIgnoreCase("-cleanupGrievingAnchors")) {
                 cleanupAnchors = true;
+            } else if (args.length > 1 && args[1].equalsIgnoreCase("-reindexRepositories")) {
+                reindexRepositories = true;
+                if (args.length > 2) {
+                    try {
+                        reindexThreads = Integer.parseInt(args[2]);
+                    } catch (NumberFormatException e) {
+                        logger.warn("Invalid number of threads: {}", args[2]);
+                    }
+                }
             }
         }
 
         try {
-            SolrIndexerDaemon.getInstance().init().start(cleanupAnchors);
+            if (reindexRepositories) {
+                SolrIndexerDaemon.getInstance().init().reindexRepositories(reindexThreads);
+            } else {
+                SolrIndexerDaemon.getInstance().init().start(cleanupAnchors);
+            }
         } catch (FatalIndexerException e) {
             logger.error("{}, exiting...", e.getMessage(), e);
             System.exit(-1);
@@ -239,24 +275,148 @@ public final class SolrIndexerDaemon {
         }
 
         logger.info("Using {} CPU thread(s).", configuration.getThreads());
+        logger.info("Using {} indexing thread(s) per hotfolder.", configuration.getHotfolderThreads());
+
+        if (configuration.isUrnRegistryEnabled()) {
+            if (configuration.isDryRunEnabled()) {
+                logger.info("Dry run mode: URN registry will not be used.");
+            } else {
+                // Build the registry before indexing starts
+                getUrnRegistry();
+            }
+        }
 
         Utils.submitDataToViewer(Collections.emptyList(), hotfolders.get(0).countRecordFiles());
 
+        if (configuration.isHotfolderWatchEnabled()) {
+            initHotfolderWatcher();
+        }
+
+        logger.info("Auto-optimize: {}", configuration.isAutoOptimize());
+        if (configuration.isAutoOptimize()) {
+            optimizeScheduler = new OptimizeScheduler(configuration.getAutoOptimizeIdleMinutes() * 60000L,
+                    OptimizeScheduler.parseTime(configuration.getAutoOptimizeFrom()), OptimizeScheduler.parseTime(configuration.getAutoOptimizeTo()),
+                    configuration.getAutoOptimizeMaxSegments());
+        }
+
         // main loop
         logger.info("Program started, monitoring hotfolder(s)...");
         while (running) {
-            for (Hotfolder hotfolder : hotfolders) {
-                if (hotfolder.scan()) {
-                    break;
+            boolean busy = false;
+            boolean solrUnavailable = getSearchIndex().getRetryPolicy().isCircuitOpen();
+            if (solrUnavailable) {
+                // Don't start new records while Solr is unavailable
+                logger.debug("Solr is unavailable, not checking hotfolders.");
+            } else {
+                for (Hotfolder hotfolder : hotfolders) {
+                    if (hotfolder.scan()) {
+                        busy = true;
+                        break;
+                    }
+                }
+            }
+            if (!busy && !solrUnavailable) {
+                // Commit anything left uncommitted by the commit policy
+                getSearchIndex().commitPending();
+            }
+            if (optimizeScheduler != null && !solrUnavailable) {
+                // Optimize in the background once the hotfolders have been idle long enough; records still being indexed in worker threads
+                // count as activity
+                boolean indexing = busy;
+                for (Hotfolder hotfolder : hotfolders) {
+                    indexing |= hotfolder.isIndexing();
                 }
+                optimizeScheduler.afterScan(indexing, getSearchIndex());
             }
             try {
-                Thread.sleep(sleepInterval);
+                if (hotfolderWatcher != null) {
+                    // Wake up as soon as new files arrive
+                    hotfolderWatcher.awaitChanges(sleepInterval);
+                } else {
+                    Thread.sleep(sleepInterval);
+                }
             } catch (InterruptedException e) {
                 logger.error(e.getMessage(), e);
                 Thread.currentThread().interrupt();
             }
         }
+
+        // Let records that are still being indexed finish
+        for (Hotfolder hotfolder : hotfolders) {
+            hotfolder.shutdown();
+        }
+        getSearchIndex().shutdownUpdateBuffer();
+        getSearchIndex().commitPending();
+        logger.info(getSearchIndex().getRetryPolicy().getMetrics());
+        if (optimizeScheduler != null) {
+            optimizeScheduler.close();
+        }
+        if (hotfolderWatcher != null) {
+            try {
+                hotfolderWatcher.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        }
+        if (urnRegistry != null) {
+            try {
+                urnRegistry.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        }
+        if (dryRunClient != null) {
+            dryRunClient.close();
+        }
+    }
+
+    /**
+     * Re-indexes all records in the data repositories of the first hotfolder in place and exits.
+     * 
+     * @param threads Number of records to index in parallel; if 0 or less, the configured number of hotfolder threads is used
+     * @throws FatalIndexerException
+     */
+    public void reindexRepositories(int threads) throws FatalIndexerException {
+        if (!initialized) {
+            init();
+        }
+        int useThreads = threads > 0 ? threads : configuration.getHotfolderThreads();
+        logger.info("REPOSITORY RE-INDEX MODE");
+        // Rollbacks would discard changes of other records being indexed in parallel
+        getSearchIndex().setRollbackEnabled(useThreads <= 1);
+        Hotfolder hotfolder = hotfolders.get(0);
+        try {
+            new RepositoryReindexer(hotfolder, useThreads).run();
+        } finally {
+            hotfolder.shutdown();
+        }
+        getSearchIndex().shutdownUpdateBuffer();
+        getSearchIndex().commitPending();
+        if (dryRunClient != null) {
+            dryRunClient.close();
+        }
+        logger.info("Shutting down...");
+    }
+
+    /**
+     * Registers all hotfolders with a new {@link HotfolderWatcher}. Hotfolders that cannot be watched will keep listing their contents on every
+     * scan.
+     */
+    private void initHotfolderWatcher() {
+        try {
+            hotfolderWatcher = new HotfolderWatcher();
+            boolean watching = false;
+            for (Hotfolder hotfolder : hotfolders) {
+                watching |= hotfolderWatcher.register(hotfolder);
+            }
+            if (!watching) {
+                hotfolderWatcher.close();
+                hotfolderWatcher = null;
+            }
+        } catch (IOException e) {
+            logger.warn("File system watch service not available, hotfolders will be listed periodically: {}", e.getMessage());
+            hotfolderWatcher = null;
+        }
     }
 
     /**
@@ -381,12 +541,34 @@ public final class SolrIndexerDaemon {
     public SolrSearchIndex getSearchIndex() {
         if (this.searchIndex == null) {
             synchronized (LOCK) {
-                try {
-                    this.searchIndex = new SolrSearchIndex(null);
-                    this.searchIndex.setOptimize(configuration.isAutoOptimize());
-                    logger.info("Auto-optimize: {}", this.searchIndex.isOptimize());
-                } catch (ConfigurationException e) {
-                    logger.error(e.getMessage());
+                if (this.searchIndex == null) {
+                    try {
+                        if (configuration.isDryRunEnabled()) {
+                            dryRunClient = new DryRunSolrClient(DryRunSolrClient.Sink.getByName(configuration.getDryRunSink()),
+                                    configuration.getDryRunOutputFolder() != null ? Paths.get(configuration.getDryRunOutputFolder()) : null);
+                        }
+                        SolrSearchIndex newSearchIndex = new SolrSearchIndex(dryRunClient);
+                        // Rollbacks would discard changes of other records being indexed in parallel
+                        newSearchIndex.setRollbackEnabled(configuration.getHotfolderThreads() <= 1);
+                        newSearchIndex.setCompressUpdates(configuration.isSolrCompressionEnabled());
+                        SolrSearchIndex.CommitPolicy commitPolicy = SolrSearchIndex.CommitPolicy.getByName(configuration.getCommitPolicy());
+                        if (commitPolicy == null) {
+                            logger.warn("Unknown commit policy '{}', committing after every record.", configuration.getCommitPolicy());
+                        }
+                        newSearchIndex.setCommitPolicy(commitPolicy);
+                        newSearchIndex.setCommitWithin(configuration.getCommitWithin());
+                        newSearchIndex.setSoftCommitDocs(configuration.getSoftCommitDocs());
+                        newSearchIndex.setSoftCommitInterval(configuration.getSoftCommitInterval() * 1000L);
+                        logger.info("Commit policy: {}", newSearchIndex.getCommitPolicy());
+                        if (!newSearchIndex.isRollbackEnabled()) {
+                            logger.info("Solr rollbacks are DISABLED, partially written records will be deleted instead.");
+                        }
+                        newSearchIndex.setRetryPolicy(new SolrRetryPolicy(configuration.getSolrRetryBaseDelay(), configuration.getSolrRetryMaxDelay(),
+                                configuration.getSolrRetryFailureThreshold(), configuration.getSolrRetryOpenDuration() * 1000L));
+                        this.searchIndex = newSearchIndex;
+                    } catch (ConfigurationException | IOException | IllegalArgumentException e) {
+                        logger.error(e.getMessage());
+                    }
                 }
             }
         }
@@ -403,6 +585,35 @@ public final class SolrIndexerDaemon {
         this.searchIndex = searchIndex;
     }
 
+    /**
+     * Returns the local URN registry, building it from the index on first use. The registry is never used in dry run mode, since records are not
+     * actually written there.
+     *
+     * @return {@link UrnRegistry}; null if disabled, unavailable or in dry run mode
+     */
+    public UrnRegistry getUrnRegistry() {
+        if (!urnRegistryOpened && configuration.isUrnRegistryEnabled() && !configuration.isDryRunEnabled()) {
+            synchronized (LOCK) {
+                if (!urnRegistryOpened) {
+                    urnRegistryOpened = true;
+                    if (StringUtils.isEmpty(configuration.getUrnRegistryFile())) {
+                        logger.error("URN registry is enabled, but no registry file is configured.");
+                    } else {
+                        UrnRegistry registry = new UrnRegistry(Paths.get(configuration.getUrnRegistryFile()));
+                        try {
+                            registry.open(getSearchIndex());
+                            this.urnRegistry = registry;
+                        } catch (IOException | SolrServerException e) {
+                            logger.error("URN registry could not be opened, checking URNs against the index only: {}", e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+
+        return urnRegistry;
+    }
+
     /**
      * @return the oldSearchIndex
      */
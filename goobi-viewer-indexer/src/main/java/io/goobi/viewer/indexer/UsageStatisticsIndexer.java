@@ -193,7 +193,7 @@ public class UsageStatisticsIndexer extends Indexer {
             logger.info("Deleting usage statistics for {}:{}", StatisticsLuceneFields.DATE, solrDateString);
             return SolrIndexerDaemon.getInstance().getSearchIndex().deleteByQuery(query);
         } finally {
-            SolrIndexerDaemon.getInstance().getSearchIndex().commit(false);
+            SolrIndexerDaemon.getInstance().getSearchIndex().commitRecord(false);
         }
     }
 
@@ -57,6 +57,7 @@ import io.goobi.viewer.indexer.helper.MetadataHelper;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
 import io.goobi.viewer.indexer.helper.TextHelper;
 import io.goobi.viewer.indexer.helper.Utils;
+import io.goobi.viewer.indexer.helper.logging.SecondaryAppender;
 import io.goobi.viewer.indexer.model.IndexObject;
 import io.goobi.viewer.indexer.model.IndexingResult;
 import io.goobi.viewer.indexer.model.IndexingResult.IndexingResultStatus;
@@ -86,7 +87,7 @@ public class WorldViewsIndexer extends Indexer {
     /** Constant <code>DEFAULT_FULLTEXT_CHARSET="Cp1250"</code> */
     public static final String DEFAULT_FULLTEXT_CHARSET = "Cp1250";
 
-    private static List<Path> reindexedChildrenFileList = new ArrayList<>();
+    private static List<Path> reindexedChildrenFileList = Collections.synchronizedList(new ArrayList<>());
 
     /**
      * Constructor.
@@ -393,13 +394,7 @@ public class WorldViewsIndexer extends Indexer {
             useWriteStrategy.setRootDoc(rootDoc);
 
             // WRITE TO SOLR (POINT OF NO RETURN: any indexObj modifications from here on will not be included in the index!)
-            if (!iddocsToDelete.isEmpty()) {
-                logger.info("Removing {} docs of the previous instance of this volume from the index...", iddocsToDelete.size());
-                SolrIndexerDaemon.getInstance().getSearchIndex().deleteDocuments(new ArrayList<>(iddocsToDelete));
-            }
-
-            logger.debug("Writing document to index...");
-            useWriteStrategy.writeDocs(SolrIndexerDaemon.getInstance().getConfiguration().isAggregateRecords());
+            writeRecord(useWriteStrategy, indexObj.getPi());
             if (indexObj.isVolume() && (!indexObj.isUpdate() || indexedChildrenFileList)) {
                 logger.info("Re-indexing anchor...");
                 copyAndReIndexAnchor(indexObj, hotfolder, dataRepository);
@@ -715,7 +710,7 @@ public class WorldViewsIndexer extends Indexer {
             // Generate each page document in its own thread
 
             ConcurrentHashMap<String, Boolean> map = new ConcurrentHashMap<>();
-            try (ForkJoinPool pool = new ForkJoinPool(SolrIndexerDaemon.getInstance().getConfiguration().getThreads())) {
+            try (ForkJoinPool pool = SecondaryAppender.newRecordPool(SolrIndexerDaemon.getInstance().getConfiguration().getThreads())) {
                 pool.submit(() -> eleListImages.parallelStream().forEach(eleImage -> {
                     String iddoc = getNextIddoc();
                     if (map.containsKey(iddoc)) {
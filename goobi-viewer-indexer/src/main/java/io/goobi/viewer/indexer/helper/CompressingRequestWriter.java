@@ -0,0 +1,76 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
+
+/**
+ * Javabin request writer that gzip-compresses the body of requests carrying a <code>Content-Encoding: gzip</code> header. All other requests
+ * are written uncompressed. The Solr server must be configured to inflate compressed request bodies (e.g. via
+ * <code>-Djetty.gzip.inflateBufferSize=8192</code>).
+ */
+public class CompressingRequestWriter extends BinaryRequestWriter {
+
+    /** Name of the request header that marks compressed requests. */
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    /** Value of the request header that marks compressed requests. */
+    public static final String ENCODING_GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 65536;
+
+    /** {@inheritDoc} */
+    @Override
+    public ContentWriter getContentWriter(SolrRequest<?> req) {
+        ContentWriter writer = super.getContentWriter(req);
+        if (writer == null || !isCompressed(req)) {
+            return writer;
+        }
+
+        return new ContentWriter() {
+
+            @Override
+            public void write(OutputStream os) throws IOException {
+                GZIPOutputStream gzip = new GZIPOutputStream(os, BUFFER_SIZE);
+                writer.write(gzip);
+                // Do not close the underlying stream
+                gzip.finish();
+            }
+
+            @Override
+            public String getContentType() {
+                return writer.getContentType();
+            }
+        };
+    }
+
+    /**
+     *
+     * @param req
+     * @return true if the given request is marked for compression; false otherwise
+     * @should return true if gzip header set
+     * @should return false if no header set
+     */
+    static boolean isCompressed(SolrRequest<?> req) {
+        Map<String, String> headers = req.getHeaders();
+        return headers != null && ENCODING_GZIP.equals(headers.get(HEADER_CONTENT_ENCODING));
+    }
+}
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Timer;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.configuration2.HierarchicalConfiguration;
@@ -61,9 +62,13 @@ public final class Configuration {
     /** Constant <code>CONFIG_FILE_NAME="config_indexer.xml"</code> */
     public static final String CONFIG_FILE_NAME = "config_indexer.xml";
 
+    /** Incremented whenever any configuration instance (re)loads its namespaces; used to invalidate compiled XPath expressions. */
+    private static final AtomicInteger NAMESPACES_GENERATION_COUNTER = new AtomicInteger();
+
     private ReloadingFileBasedConfigurationBuilder<XMLConfiguration> builder;
     private MetadataConfigurationManager metadataConfigurationManager;
     private Map<String, Namespace> namespaces;
+    private volatile int namespacesGeneration;
     private long lastFileReload = -1;
     private long lastConfigManagerReload = -1;
 
@@ -174,6 +179,7 @@ public final class Configuration {
             namespaces.put(entry.getKey(), Namespace.getNamespace(entry.getKey(), entry.getValue()));
             logger.info("Added custom namespace '{}'.", entry.getKey());
         }
+        namespacesGeneration = NAMESPACES_GENERATION_COUNTER.incrementAndGet();
     }
 
     /**
@@ -316,6 +322,66 @@ public final class Configuration {
         return getConfiguration("oldSolrUrl");
     }
 
+    /**
+     * <p>
+     * isSolrCloudEnabled.
+     * </p>
+     *
+     * @should return correct value
+     * @return true if a SolrCloud collection is used instead of solrUrl; false otherwise
+     */
+    public boolean isSolrCloudEnabled() {
+        return getBoolean("init.solrCloud[@enabled]", false);
+    }
+
+    /**
+     * <p>
+     * getSolrCloudCollection.
+     * </p>
+     *
+     * @should return correct value
+     * @return SolrCloud collection name
+     */
+    public String getSolrCloudCollection() {
+        return getString("init.solrCloud[@collection]", null);
+    }
+
+    /**
+     * <p>
+     * getSolrCloudZkHosts.
+     * </p>
+     *
+     * @should return correct value
+     * @return List of ZooKeeper hosts
+     */
+    public List<String> getSolrCloudZkHosts() {
+        return getStringList("init.solrCloud.zkHost");
+    }
+
+    /**
+     * <p>
+     * getSolrCloudZkChroot.
+     * </p>
+     *
+     * @should return correct value
+     * @return ZooKeeper chroot; null if not configured
+     */
+    public String getSolrCloudZkChroot() {
+        return getString("init.solrCloud.zkChroot", null);
+    }
+
+    /**
+     * <p>
+     * getSolrCloudUrls.
+     * </p>
+     *
+     * @should return correct value
+     * @return List of Solr node URLs used to retrieve the cluster state
+     */
+    public List<String> getSolrCloudUrls() {
+        return getStringList("init.solrCloud.solrUrl");
+    }
+
     /**
      * <p>
      * isSolrUseHttp2.
@@ -328,6 +394,18 @@ public final class Configuration {
         return getBoolean("performance.solr.useHttp2", true);
     }
 
+    /**
+     * <p>
+     * isSolrCompressionEnabled.
+     * </p>
+     *
+     * @should return correct value
+     * @return true if update requests are sent gzip-compressed; false otherwise
+     */
+    public boolean isSolrCompressionEnabled() {
+        return getBoolean("performance.solrCompression[@enabled]", false);
+    }
+
     /**
      * <p>
      * getViewerUrl.
@@ -442,6 +520,54 @@ public final class Configuration {
         return getBoolean("performance.autoOptimize", false);
     }
 
+    /**
+     * <p>
+     * getAutoOptimizeIdleMinutes.
+     * </p>
+     *
+     * @should return correct value
+     * @return Number of minutes the hotfolders must have been idle before the index is optimized
+     */
+    public int getAutoOptimizeIdleMinutes() {
+        return Math.max(0, getInt("performance.autoOptimize[@idleMinutes]", 10));
+    }
+
+    /**
+     * <p>
+     * getAutoOptimizeMaxSegments.
+     * </p>
+     *
+     * @should return correct value
+     * @return Maximum number of segments the index is merged into
+     */
+    public int getAutoOptimizeMaxSegments() {
+        return Math.max(1, getInt("performance.autoOptimize[@maxSegments]", 1));
+    }
+
+    /**
+     * <p>
+     * getAutoOptimizeFrom.
+     * </p>
+     *
+     * @should return correct value
+     * @return Start of the daily time window for index optimization (HH:mm)
+     */
+    public String getAutoOptimizeFrom() {
+        return getString("performance.autoOptimize[@from]", null);
+    }
+
+    /**
+     * <p>
+     * getAutoOptimizeTo.
+     * </p>
+     *
+     * @should return correct value
+     * @return End of the daily time window for index optimization (HH:mm)
+     */
+    public String getAutoOptimizeTo() {
+        return getString("performance.autoOptimize[@to]", null);
+    }
+
     /**
      * <p>
      * getThreads.
@@ -453,6 +579,342 @@ public final class Configuration {
         return getInt("performance.threads", 1);
     }
 
+    /**
+     * <p>
+     * getHotfolderThreads.
+     * </p>
+     *
+     * @should return correct value
+     * @return Number of records that may be indexed in parallel from the same hotfolder.
+     */
+    public int getHotfolderThreads() {
+        return Math.max(1, getInt("performance.hotfolderThreads", 1));
+    }
+
+    /**
+     * <p>
+     * getHotfolderQueueOrder.
+     * </p>
+     *
+     * @should return correct value
+     * @return Configured order of the hotfolder index queue
+     */
+    public String getHotfolderQueueOrder() {
+        return getString("performance.queueOrder", "fifo");
+    }
+
+    /**
+     * <p>
+     * isQueueJournalEnabled.
+     * </p>
+     *
+     * @should return correct value
+     * @return true if hotfolder queues are persisted in a journal file; false otherwise
+     */
+    public boolean isQueueJournalEnabled() {
+        return getBoolean("performance.queueJournal[@enabled]", false);
+    }
+
+    /**
+     * <p>
+     * isPipelineEnabled.
+     * </p>
+     *
+     * @should return correct value
+     * @return true if indexed records are moved to the data repository in a separate thread; false otherwise
+     */
+    public boolean isPipelineEnabled() {
+        return getBoolean("performance.pipeline[@enabled]", false);
+    }
+
+    /**
+     * <p>
+     * getPipelineRelocationQueueSize.
+     * </p>
+     *
+     * @should return correct value
+     * @return Maximum number of indexed records waiting to be moved to the data repository
+     */
+    public int getPipelineRelocationQueueSize() {
+        return Math.max(1, getInt("performance.pipeline.relocationQueueSize", 2));
+    }
+
+    /**
+     * <p>
+     * getCommitPolicy.
+     * </p>
+     *
+     * @should return correct value
+     * @return Commit policy name (record, commitWithin, soft or idle)
+     */
+    public String getCommitPolicy() {
+        return getString("performance.commitPolicy", "record");
+    }
+
+    /**
+     * <p>
+     * getCommitWithin.
+     * </p>
+     *
+     * @should return correct value
+     * @return Time in milliseconds within which Solr must commit updates
+     */
+    public int getCommitWithin() {
+        return Math.max(1, getInt("performance.commitPolicy[@commitWithin]", 10000));
+    }
+
+    /**
+     * <p>
+     * getSoftCommitDocs.
+     * </p>
+     *
+     * @should return correct value
+     * @return Number of documents after which a soft commit is issued
+     */
+    public int getSoftCommitDocs() {
+        return Math.max(1, getInt("performance.commitPolicy[@softCommitDocs]", 10000));
+    }
+
+    /**
+     * <p>
+     * getSoftCommitInterval.
+     * </p>
+     *
+     * @should return correct value
+     * @return Time in seconds after which a soft commit is issued
+     */
+    public int getSoftCommitInterval() {
+        return getInt("performance.commitPolicy[@softCommitInterval]", 60);
+    }
+
+    /**
+     * <p>
+     * getSolrRetryBaseDelay.
+     * </p>
+     *
+     * @should return correct value
+     * @return Delay in milliseconds before the first retry of a failed Solr request
+     */
+    public int getSolrRetryBaseDelay() {
+        return Math.max(0, getInt("performance.solrRetry[@baseDelay]", 500));
+    }
+
+    /**
+     * <p>
+     * getSolrRetryMaxDelay.
+     * </p>
+     *
+     * @should return correct value
+     * @return Maximum delay in milliseconds between two attempts of a failed Solr request
+     */
+    public int getSolrRetryMaxDelay() {
+        return Math.max(0, getInt("performance.solrRetry[@maxDelay]", 30000));
+    }
+
+    /**
+     * <p>
+     * getSolrRetryFailureThreshold.
+     * </p>
+     *
+     * @should return correct value
+     * @return Number of consecutive failed Solr requests after which indexing is paused
+     */
+    public int getSolrRetryFailureThreshold() {
+        return Math.max(1, getInt("performance.solrRetry[@failureThreshold]", 5));
+    }
+
+    /**
+     * <p>
+     * getSolrRetryOpenDuration.
+     * </p>
+     *
+     * @should return correct value
+     * @return Time in seconds indexing is paused after Solr has become unavailable
+     */
+    public int getSolrRetryOpenDuration() {
+        return Math.max(0, getInt("performance.solrRetry[@openDuration]", 30));
+    }
+
+    /**
+     * <p>
+     * isIndexGenerationsEnabled.
+     * </p>
+     *
+     * @should return correct value
+     * @return true if re-indexed records are written before their previous instance is removed; false otherwise
+     */
+    public boolean isIndexGenerationsEnabled() {
+        return getBoolean("performance.indexGenerations[@enabled]", false);
+    }
+
+    /**
+     * <p>
+     * getDuplicateCheckBatchSize.
+     * </p>
+     *
+     * @should return correct value
+     * @return Number of values checked for duplicates per Solr query
+     */
+    public int getDuplicateCheckBatchSize() {
+        return Math.max(1, getInt("performance.duplicateCheck[@batchSize]", 1000));
+    }
+
+    /**
+     * <p>
+     * getDuplicateCheckThreads.
+     * </p>
+     *
+     * @should return correct value
+     * @return Number of duplicate check queries sent to Solr in parallel
+     */
+    public int getDuplicateCheckThreads() {
+        return Math.max(1, getInt("performance.duplicateCheck[@threads]", 4));
+    }
+
+    /**
+     * <p>
+     * isUrnRegistryEnabled.
+     * </p>
+     *
+     * @should return correct value
+     * @return true if URN collisions are checked against a local URN registry first; false otherwise
+     */
+    public boolean isUrnRegistryEnabled() {
+        return getBoolean("performance.urnRegistry[@enabled]", false);
+    }
+
+    /**
+     * <p>
+     * getUrnRegistryFile.
+     * </p>
+     *
+     * @should return correct value
+     * @return Path of the local URN registry file
+     */
+    public String getUrnRegistryFile() {
+        return getString("performance.urnRegistry.file", null);
+    }
+
+    /**
+     * <p>
+     * isSolrUpdateBufferEnabled.
+     * </p>
+     *
+     * @should return correct value
+     * @return true if Solr documents are sent asynchronously by dedicated threads; false otherwise
+     */
+    public boolean isSolrUpdateBufferEnabled() {
+        return getBoolean("performance.solrUpdateBuffer[@enabled]", false);
+    }
+
+    /**
+     * <p>
+     * getSolrUpdateBufferQueueSize.
+     * </p>
+     *
+     * @should return correct value
+     * @return Maximum number of Solr documents waiting to be sent
+     */
+    public int getSolrUpdateBufferQueueSize() {
+        return getInt("performance.solrUpdateBuffer.queueSize", 1000);
+    }
+
+    /**
+     * <p>
+     * getSolrUpdateBufferBatchSize.
+     * </p>
+     *
+     * @should return correct value
+     * @return Maximum number of Solr documents sent in one request
+     */
+    public int getSolrUpdateBufferBatchSize() {
+        return Math.max(1, getInt("performance.solrUpdateBuffer.batchSize", 100));
+    }
+
+    /**
+     * <p>
+     * getSolrUpdateBufferThreads.
+     * </p>
+     *
+     * @should return correct value
+     * @return Number of threads sending Solr documents
+     */
+    public int getSolrUpdateBufferThreads() {
+        return Math.max(1, getInt("performance.solrUpdateBuffer.threads", 2));
+    }
+
+    /**
+     * <p>
+     * isDryRunEnabled.
+     * </p>
+     *
+     * @should return correct value
+     * @return true if documents are not sent to Solr and record files are not moved to the data repositories; false otherwise
+     */
+    public boolean isDryRunEnabled() {
+        return getBoolean("performance.dryRun[@enabled]", false);
+    }
+
+    /**
+     * <p>
+     * getDryRunSink.
+     * </p>
+     *
+     * @should return correct value
+     * @return Dry run sink name (null or file)
+     */
+    public String getDryRunSink() {
+        return getString("performance.dryRun[@sink]", "null");
+    }
+
+    /**
+     * <p>
+     * getDryRunOutputFolder.
+     * </p>
+     *
+     * @should return correct value
+     * @return Folder for dry run update request files
+     */
+    public String getDryRunOutputFolder() {
+        return getString("performance.dryRun.outputFolder", null);
+    }
+
+    /**
+     * <p>
+     * isHotfolderWatchEnabled.
+     * </p>
+     *
+     * @should return correct value
+     * @return a boolean
+     */
+    public boolean isHotfolderWatchEnabled() {
+        return getBoolean("performance.hotfolderWatch[@enabled]", false);
+    }
+
+    /**
+     * <p>
+     * getHotfolderFullListingInterval.
+     * </p>
+     *
+     * @should return correct value
+     * @return Interval in seconds between full hotfolder listings when watching hotfolders for changes
+     */
+    public int getHotfolderFullListingInterval() {
+        return getInt("performance.hotfolderWatch.fullListingInterval", 60);
+    }
+
+    /**
+     * <p>
+     * getExportStabilityWindow.
+     * </p>
+     *
+     * @should return correct value
+     * @return Time in milliseconds the data folders of a record must remain unchanged before the record is indexed
+     */
+    public long getExportStabilityWindow() {
+        return getInt("performance.exportStabilityWindow", 1000);
+    }
+
     /**
      * <p>
      * isCountHotfolderFiles.
@@ -465,6 +927,18 @@ public final class Configuration {
         return getBoolean("performance.countHotfolderFiles", true);
     }
 
+    /**
+     * <p>
+     * getCountHotfolderFilesRecountInterval.
+     * </p>
+     *
+     * @should return correct value
+     * @return Interval in seconds between full recounts of the hotfolder files
+     */
+    public int getCountHotfolderFilesRecountInterval() {
+        return getInt("performance.countHotfolderFiles[@recountInterval]", 300);
+    }
+
     /**
      * <p>
      * isPrioritizeLargeImageFolders.
@@ -477,6 +951,18 @@ public final class Configuration {
         return getBoolean("performance.prioritizeLargeImageFolders", false);
     }
 
+    /**
+     * <p>
+     * getPrioritizeLargeImageFoldersThreads.
+     * </p>
+     *
+     * @should return correct value
+     * @return Number of data folders to measure in parallel
+     */
+    public int getPrioritizeLargeImageFoldersThreads() {
+        return Math.max(1, getInt("performance.prioritizeLargeImageFolders[@threads]", 4));
+    }
+
     /**
      * <p>
      * isAuthorityDataCacheEnabled.
@@ -658,6 +1144,16 @@ public final class Configuration {
         return namespaces;
     }
 
+    /**
+     * Returns the generation of the currently loaded namespaces. The value changes every time the namespaces are (re)loaded.
+     *
+     * @return Namespaces generation
+     * @should change after namespaces reload
+     */
+    public int getNamespacesGeneration() {
+        return namespacesGeneration;
+    }
+
     /**
      * <p>
      * isProxyEnabled.
@@ -0,0 +1,241 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps track of the data folders (<code>&lt;record&gt;_*</code>) belonging to queued record files across hotfolder scans. A record is considered
+ * completely exported once the total size, file count and latest modification time of its data folders have not changed for the configured
+ * stability window. Checks never block; unfinished records are simply reported as not ready and checked again during the next scan.
+ */
+public class DataFolderExportTracker {
+
+    private static final Logger logger = LogManager.getLogger(DataFolderExportTracker.class);
+
+    private final long stabilityWindow;
+    private final Map<Path, Snapshot> snapshots = new ConcurrentHashMap<>();
+    /** States of record files reported by watch events that have not yet been considered complete. */
+    private final Map<Path, Snapshot> fileSnapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param stabilityWindow Time in milliseconds the data folders must remain unchanged
+     */
+    public DataFolderExportTracker(long stabilityWindow) {
+        this.stabilityWindow = Math.max(0, stabilityWindow);
+    }
+
+    /**
+     * Checks whether the data folders for the given record file have remained unchanged for at least the stability window.
+     *
+     * @param recordFile Record file in the hotfolder
+     * @return true if export is considered done; false otherwise
+     * @should return true if no data folders exist
+     * @should return false on first check if data folders exist
+     * @should return true if data folders unchanged for stability window
+     * @should return false if data folders changed
+     */
+    public boolean isExportDone(Path recordFile) {
+        return isExportDone(recordFile, System.currentTimeMillis());
+    }
+
+    /**
+     *
+     * @param recordFile Record file in the hotfolder
+     * @param now Current timestamp
+     * @return true if export is considered done; false otherwise
+     */
+    boolean isExportDone(Path recordFile, long now) {
+        Snapshot current = takeSnapshot(recordFile, now);
+        if (current.fileCount == 0) {
+            // No data folders
+            snapshots.remove(recordFile);
+            return true;
+        }
+
+        Snapshot previous = snapshots.get(recordFile);
+        if (previous == null || !previous.hasSameState(current)) {
+            logger.trace("Data folders for '{}' have changed.", recordFile.getFileName());
+            snapshots.put(recordFile, current);
+            return false;
+        }
+
+        return now - previous.stableSince >= stabilityWindow;
+    }
+
+    /**
+     * Checks whether the given file itself has remained unchanged (size and modification time) for at least the stability window. Watch services
+     * only report that a file has been created or modified, not that it has been closed after writing, so this is used to avoid reading record
+     * files that are still being copied into the hotfolder. The stored state is discarded once the file is considered complete.
+     *
+     * @param file File to check
+     * @return true if the file is considered complete or does not exist (anymore); false otherwise
+     * @should return false on first check
+     * @should return true if file unchanged for stability window
+     * @should return false if file changed
+     */
+    public boolean isFileStable(Path file) {
+        return isFileStable(file, System.currentTimeMillis());
+    }
+
+    /**
+     *
+     * @param file File to check
+     * @param now Current timestamp
+     * @return true if the file is considered complete or does not exist (anymore); false otherwise
+     */
+    boolean isFileStable(Path file, long now) {
+        Snapshot current = new Snapshot(now);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            current.add(attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            // File has been removed in the meantime
+            fileSnapshots.remove(file);
+            return true;
+        }
+
+        Snapshot previous = fileSnapshots.get(file);
+        if (previous == null || !previous.hasSameState(current)) {
+            logger.trace("'{}' is still being written.", file.getFileName());
+            fileSnapshots.put(file, current);
+            return false;
+        }
+        if (now - previous.stableSince >= stabilityWindow) {
+            fileSnapshots.remove(file);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes any stored state for the given record file.
+     *
+     * @param recordFile Record file in the hotfolder
+     */
+    public void forget(Path recordFile) {
+        if (recordFile != null) {
+            snapshots.remove(recordFile);
+            fileSnapshots.remove(recordFile);
+        }
+    }
+
+    /**
+     *
+     * @return Number of tracked record files
+     */
+    int getTrackedRecordCount() {
+        return snapshots.size();
+    }
+
+    /**
+     * Collects total size, number of files and latest modification time of all data folders and files that belong to the given record file.
+     *
+     * @param recordFile
+     * @param now
+     * @return {@link Snapshot}
+     */
+    private static Snapshot takeSnapshot(Path recordFile, long now) {
+        Snapshot ret = new Snapshot(now);
+        Path folder = recordFile.toAbsolutePath().getParent();
+        if (folder == null) {
+            return ret;
+        }
+        String prefix = FilenameUtils.getBaseName(recordFile.getFileName().toString()) + "_";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, p -> p.getFileName().toString().startsWith(prefix))) {
+            for (Path entry : stream) {
+                Files.walkFileTree(entry, new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        ret.add(attrs.size(), attrs.lastModifiedTime().toMillis());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        ret.add(0, attrs.lastModifiedTime().toMillis());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        // File may have been moved in the meantime
+                        logger.trace(e.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+        }
+
+        return ret;
+    }
+
+    /**
+     * State of a record's data folders at a given point in time.
+     */
+    static class Snapshot {
+
+        private final long stableSince;
+        private long size = 0;
+        private long lastModified = 0;
+        private int fileCount = 0;
+
+        /**
+         * @param stableSince
+         */
+        Snapshot(long stableSince) {
+            this.stableSince = stableSince;
+        }
+
+        /**
+         *
+         * @param fileSize
+         * @param fileLastModified
+         */
+        void add(long fileSize, long fileLastModified) {
+            size += fileSize;
+            fileCount++;
+            lastModified = Math.max(lastModified, fileLastModified);
+        }
+
+        /**
+         *
+         * @param other
+         * @return true if size, file count and last modification time are equal; false otherwise
+         */
+        boolean hasSameState(Snapshot other) {
+            return size == other.size && fileCount == other.fileCount && lastModified == other.lastModified;
+        }
+    }
+}
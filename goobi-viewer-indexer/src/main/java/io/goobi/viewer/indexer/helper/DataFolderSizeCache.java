@@ -0,0 +1,176 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Caches the total sizes of data folders. A cached size remains valid until the modification time of the folder changes. Sizes of multiple
+ * folders can be computed in parallel using a bounded thread pool.
+ */
+public class DataFolderSizeCache {
+
+    private static final Logger logger = LogManager.getLogger(DataFolderSizeCache.class);
+
+    private final Map<Path, CachedSize> cache = new ConcurrentHashMap<>();
+    private final int threads;
+    private ExecutorService executor;
+
+    /**
+     * Constructor.
+     *
+     * @param threads Maximum number of folders to measure in parallel
+     */
+    public DataFolderSizeCache(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Returns the total size of the given folder, using the cached value if the folder has not been modified since.
+     *
+     * @param folder Folder to measure
+     * @return Total size in bytes; 0 if folder does not exist
+     * @should return zero if folder does not exist
+     * @should return cached size if folder not modified
+     */
+    public long getSize(Path folder) {
+        if (folder == null || !Files.isDirectory(folder)) {
+            return 0;
+        }
+        try {
+            long lastModified = Files.getLastModifiedTime(folder).toMillis();
+            CachedSize cached = cache.get(folder);
+            if (cached != null && cached.lastModified == lastModified) {
+                return cached.size;
+            }
+            long size = FileUtils.sizeOfDirectory(folder.toFile());
+            cache.put(folder, new CachedSize(size, lastModified));
+            return size;
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            // Folder may have been moved in the meantime
+            logger.error(e.getMessage());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Returns the sizes of all given folders. Folders without a valid cached size are measured in parallel.
+     *
+     * @param folders Folders to measure
+     * @return Map containing the size of each given folder
+     * @should return sizes for all folders
+     */
+    public Map<Path, Long> getSizes(Collection<Path> folders) {
+        Map<Path, Long> ret = HashMap.newHashMap(folders.size());
+        if (folders.size() == 1 || threads == 1) {
+            for (Path folder : folders) {
+                ret.put(folder, getSize(folder));
+            }
+            return ret;
+        }
+
+        List<Path> submittedFolders = new ArrayList<>(folders.size());
+        List<Future<Long>> futures = new ArrayList<>(folders.size());
+        for (Path folder : folders) {
+            submittedFolders.add(folder);
+            futures.add(getExecutor().submit(() -> getSize(folder)));
+        }
+        for (int i = 0; i < futures.size(); ++i) {
+            try {
+                ret.put(submittedFolders.get(i), futures.get(i).get());
+            } catch (ExecutionException e) {
+                logger.error(e.getMessage());
+                ret.put(submittedFolders.get(i), 0L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ret.put(submittedFolders.get(i), 0L);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Removes the cached size for the given folder.
+     *
+     * @param folder
+     */
+    public void invalidate(Path folder) {
+        if (folder != null) {
+            cache.remove(folder);
+        }
+    }
+
+    /**
+     *
+     * @return Number of cached folder sizes
+     */
+    int getCachedFolderCount() {
+        return cache.size();
+    }
+
+    /**
+     *
+     * @return {@link ExecutorService}
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "dataFolderSize");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        return executor;
+    }
+
+    /**
+     * Cached folder size and the folder modification time at the time of measuring.
+     */
+    private static class CachedSize {
+
+        private final long size;
+        private final long lastModified;
+
+        /**
+         * @param size
+         * @param lastModified
+         */
+        CachedSize(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
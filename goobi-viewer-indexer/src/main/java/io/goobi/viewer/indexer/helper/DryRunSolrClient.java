@@ -0,0 +1,214 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.JavaBinUpdateRequestCodec;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ * {@link SolrClient} implementation for dry runs that never contacts a Solr server. Update requests are either discarded or written to an output
+ * folder as javabin files; queries always return an empty result. Used to measure indexing throughput without Solr.
+ */
+public class DryRunSolrClient extends SolrClient {
+
+    private static final long serialVersionUID = 4610834924213624155L;
+
+    private static final Logger logger = LogManager.getLogger(DryRunSolrClient.class);
+
+    public enum Sink {
+        /** Discard all documents. */
+        NULL,
+        /** Write update requests to javabin files. */
+        FILE;
+
+        /**
+         * 
+         * @param name
+         * @return {@link Sink} matching the given name; null if none found
+         * @should return correct value
+         */
+        public static Sink getByName(String name) {
+            if (name == null) {
+                return null;
+            }
+            for (Sink sink : Sink.values()) {
+                if (sink.name().equalsIgnoreCase(name)) {
+                    return sink;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private final Sink sink;
+    private final transient Path outputFolder;
+    private final AtomicLong updateRequestCount = new AtomicLong();
+    private final AtomicLong addedDocumentCount = new AtomicLong();
+    private final AtomicLong deleteCount = new AtomicLong();
+    private final AtomicLong queryCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     * 
+     * @param sink Where to send update requests; {@link Sink#NULL} if null
+     * @param outputFolder Folder for update request files (only used with {@link Sink#FILE})
+     * @throws IOException if the output folder could not be created
+     */
+    public DryRunSolrClient(Sink sink, Path outputFolder) throws IOException {
+        this.sink = sink != null ? sink : Sink.NULL;
+        if (Sink.FILE.equals(this.sink)) {
+            if (outputFolder == null) {
+                throw new IllegalArgumentException("outputFolder may not be null when writing update requests to files.");
+            }
+            Files.createDirectories(outputFolder);
+        }
+        this.outputFolder = outputFolder;
+        logger.info("Dry run: Solr update requests will be {}.",
+                Sink.FILE.equals(this.sink) ? "written to " + outputFolder.toAbsolutePath() : "discarded");
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @should write update requests to output folder if file sink
+     * @should read all documents of streamed update requests
+     * @should write streamed documents to output folder if file sink
+     * @should return empty result for queries
+     */
+    @Override
+    public NamedList<Object> request(SolrRequest<?> request, String collection) throws SolrServerException, IOException {
+        NamedList<Object> header = new NamedList<>();
+        header.add("status", 0);
+        header.add("QTime", 0);
+        NamedList<Object> ret = new NamedList<>();
+        ret.add("responseHeader", header);
+
+        if (request instanceof UpdateRequest updateRequest) {
+            int docCount = updateRequest.getDocuments() != null ? updateRequest.getDocuments().size() : 0;
+            int deletes = (updateRequest.getDeleteById() != null ? updateRequest.getDeleteById().size() : 0)
+                    + (updateRequest.getDeleteQuery() != null ? updateRequest.getDeleteQuery().size() : 0);
+            Iterator<SolrInputDocument> docIterator = updateRequest.getDocIterator();
+            if (docCount == 0 && deletes == 0 && docIterator == null) {
+                // Commit, optimize, rollback
+                return ret;
+            }
+            long count = updateRequestCount.incrementAndGet();
+            deleteCount.addAndGet(deletes);
+            // Streamed documents are only built while the iterator is read, so it must be consumed like a real client would
+            CountingIterator streamedDocs = null;
+            if (docIterator != null) {
+                streamedDocs = new CountingIterator(docIterator);
+                updateRequest.setDocIterator(streamedDocs);
+            }
+            try {
+                if (Sink.FILE.equals(sink)) {
+                    Path file = outputFolder.resolve(String.format("update_%08d.javabin", count));
+                    try (OutputStream out = Files.newOutputStream(file)) {
+                        new JavaBinUpdateRequestCodec().marshal(updateRequest, out);
+                    }
+                } else if (streamedDocs != null) {
+                    while (streamedDocs.hasNext()) {
+                        streamedDocs.next();
+                    }
+                }
+            } finally {
+                addedDocumentCount.addAndGet(docCount + (streamedDocs != null ? streamedDocs.count : 0));
+            }
+        } else {
+            queryCount.incrementAndGet();
+            SolrDocumentList docs = new SolrDocumentList();
+            docs.setNumFound(0);
+            docs.setStart(0);
+            ret.add("response", docs);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Logs the number of received requests and documents.
+     */
+    @Override
+    public void close() {
+        logger.info("Dry run: {} update request(s) with {} document(s) and {} deletion(s), {} query/queries.", updateRequestCount.get(),
+                addedDocumentCount.get(), deleteCount.get(), queryCount.get());
+    }
+
+    /**
+     * @return the sink
+     */
+    public Sink getSink() {
+        return sink;
+    }
+
+    /**
+     * @return Number of update requests containing documents or deletions
+     */
+    public long getUpdateRequestCount() {
+        return updateRequestCount.get();
+    }
+
+    /**
+     * @return Number of added documents
+     */
+    public long getAddedDocumentCount() {
+        return addedDocumentCount.get();
+    }
+
+    /**
+     * Counts the documents read from a streamed update request.
+     */
+    private static class CountingIterator implements Iterator<SolrInputDocument> {
+
+        private final Iterator<SolrInputDocument> iterator;
+        private long count = 0;
+
+        /**
+         * @param iterator
+         */
+        CountingIterator(Iterator<SolrInputDocument> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public SolrInputDocument next() {
+            SolrInputDocument ret = iterator.next();
+            count++;
+            return ret;
+        }
+    }
+}
@@ -18,25 +18,30 @@ package io.goobi.viewer.indexer.helper;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.file.DirectoryStream;
-import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
@@ -50,6 +55,7 @@ import org.apache.solr.common.SolrDocumentList;
 import io.goobi.viewer.indexer.CmsPageIndexer;
 import io.goobi.viewer.indexer.DenkXwebIndexer;
 import io.goobi.viewer.indexer.DocUpdateIndexer;
+import io.goobi.viewer.indexer.DryRunIndexer;
 import io.goobi.viewer.indexer.DublinCoreIndexer;
 import io.goobi.viewer.indexer.Ead3Indexer;
 import io.goobi.viewer.indexer.EadIndexer;
@@ -64,6 +70,8 @@ import io.goobi.viewer.indexer.WorldViewsIndexer;
 import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.helper.JDomXP.FileFormat;
 import io.goobi.viewer.indexer.helper.logging.SecondaryAppender;
+import io.goobi.viewer.indexer.model.IndexingResult;
+import io.goobi.viewer.indexer.model.IndexingResult.IndexingResultStatus;
 import io.goobi.viewer.indexer.model.SolrConstants;
 import io.goobi.viewer.indexer.model.SolrConstants.DocType;
 import io.goobi.viewer.indexer.model.datarepository.DataRepository;
@@ -81,7 +89,12 @@ public class Hotfolder {
     private static final Logger logger = LogManager.getLogger(Hotfolder.class);
 
     private static final String SHUTDOWN_FILE = ".SHUTDOWN_INDEXER";
+    private static final String[] RECORD_FILE_EXTENSIONS = { "xml", "json", "delete", "purge", "docupdate", "UPDATED" };
+    private static final String RECORD_FILE_GLOB = "*.{" + String.join(",", RECORD_FILE_EXTENSIONS) + "}";
+    private static final PathMatcher RECORD_FILE_MATCHER = FileSystems.getDefault().getPathMatcher("glob:" + RECORD_FILE_GLOB);
     private static final int WAIT_IF_FILE_EMPTY = 5000;
+    /** Sequence for the keys of per-record logs. */
+    private static final AtomicLong RECORD_LOG_SEQUENCE = new AtomicLong();
 
     /** Constant <code>ERROR_COULD_NOT_CREATE_DIR="Could not create directory: "</code> */
     public static final String ERROR_COULD_NOT_CREATE_DIR = "Could not create directory: ";
@@ -124,7 +137,7 @@ public class Hotfolder {
     private Path origDenkxWeb;
     private Path successFolder;
 
-    private Indexer currentIndexer;
+    private int indexingThreads = 1;
     private boolean addVolumeCollectionsToAnchor = false;
     private boolean deleteContentFilesOnFailure = true;
     private boolean prioritizeLargeImageFolders = false;
@@ -134,9 +147,44 @@ public class Hotfolder {
 
     private final IDataRepositoryStrategy dataRepositoryStrategy;
     /** Regular index queue for files found in the regular hotfolder. */
-    private final Queue<Path> indexQueue = new LinkedBlockingQueue<>(queueCapacity);
+    private HotfolderQueue indexQueue = new HotfolderQueue(queueCapacity, HotfolderQueue.Order.FIFO);
     /** High priority index queue for volume re-indexing, etc. */
-    private final Queue<Path> highPriorityIndexQueue = new LinkedList<>();
+    private final HotfolderQueue highPriorityIndexQueue = new HotfolderQueue(Integer.MAX_VALUE, HotfolderQueue.Order.FIFO);
+    /** Identifiers of records that are currently being processed. */
+    private final RecordLockRegistry recordLocks = new RecordLockRegistry();
+    /** Files currently being processed. */
+    private final Set<Path> filesInProgress = ConcurrentHashMap.newKeySet();
+    /** Deferred files and the lock keys of the records they are waiting for. */
+    private final Map<Path, String> deferredFiles = new ConcurrentHashMap<>();
+    /** Number of records currently being processed. */
+    private final AtomicInteger activeIndexingTasks = new AtomicInteger();
+    /** Worker pool for parallel record indexing; null if records are indexed sequentially in the scanning thread. */
+    private ExecutorService indexingExecutor;
+    /** Fatal error thrown by a worker thread, to be re-thrown in the scanning thread. */
+    private volatile FatalIndexerException indexingTaskError;
+    /** If true, new files are picked up from watch events; full directory listings are only performed periodically. */
+    private volatile boolean eventDriven = false;
+    /** Files reported by watch events since the last listing, and files that are still being written. */
+    private final Set<Path> fileEvents = ConcurrentHashMap.newKeySet();
+    private volatile boolean fullListingRequested = true;
+    private long lastFullListing = 0;
+    private long fullListingInterval = 60000;
+    /** Keeps data folder states of queued records across scans. */
+    private DataFolderExportTracker exportTracker = new DataFolderExportTracker(1000);
+    /** Record and command files known to be in the hotfolder, for reporting the number of remaining files to the viewer. */
+    private final Set<Path> countedRecordFiles = ConcurrentHashMap.newKeySet();
+    private volatile long lastRecount = 0;
+    private long recountInterval = 300000;
+    /** Final processing stage that moves indexed records out of the hotfolder. */
+    private RecordRelocationStage relocationStage = new RecordRelocationStage(0);
+    /** Persists queue contents across restarts. */
+    private HotfolderJournal journal = HotfolderJournal.disabled();
+    /** Keeps media folder sizes across scans for prioritizing large image folders. */
+    private DataFolderSizeCache dataFolderSizeCache = new DataFolderSizeCache(1);
+    /** If true, records are indexed without moving any files to the data repositories. */
+    private boolean dryRun = false;
+    /** Files processed in dry run mode, which are left in the hotfolder, and their modification times at the time of processing. */
+    private final Map<Path, FileTime> dryRunFiles = new ConcurrentHashMap<>();
 
     /**
      * Zero-arg constructor for tests.
@@ -175,6 +223,36 @@ public class Hotfolder {
         prioritizeLargeImageFolders = SolrIndexerDaemon.getInstance().getConfiguration().isPrioritizeLargeImageFolders();
         if (prioritizeLargeImageFolders) {
             logger.info("Large image folder prioritization is ENABLED.");
+            dataFolderSizeCache = new DataFolderSizeCache(SolrIndexerDaemon.getInstance().getConfiguration().getPrioritizeLargeImageFoldersThreads());
+        }
+
+        HotfolderQueue.Order queueOrder =
+                HotfolderQueue.Order.getByName(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderQueueOrder());
+        indexQueue = new HotfolderQueue(queueCapacity, queueOrder);
+        logger.info("Index queue order: {}", queueOrder);
+        if (prioritizeLargeImageFolders && queueOrder != HotfolderQueue.Order.FIFO) {
+            logger.warn("Queue order {} overrides large image folder prioritization.", queueOrder);
+        }
+
+        fullListingInterval = SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderFullListingInterval() * 1000L;
+        recountInterval = SolrIndexerDaemon.getInstance().getConfiguration().getCountHotfolderFilesRecountInterval() * 1000L;
+        if (SolrIndexerDaemon.getInstance().getConfiguration().isPipelineEnabled()) {
+            relocationStage = new RecordRelocationStage(SolrIndexerDaemon.getInstance().getConfiguration().getPipelineRelocationQueueSize());
+            logger.info("Pipelined record processing is ENABLED.");
+        }
+        if (SolrIndexerDaemon.getInstance().getConfiguration().isQueueJournalEnabled()) {
+            openJournal();
+        }
+        dryRun = SolrIndexerDaemon.getInstance().getConfiguration().isDryRunEnabled();
+        if (dryRun) {
+            logger.info("DRY RUN: Record files will be indexed without changing any files; all files will be left in the hotfolder.");
+        }
+        exportTracker = new DataFolderExportTracker(SolrIndexerDaemon.getInstance().getConfiguration().getExportStabilityWindow());
+
+        indexingThreads = SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderThreads();
+        if (indexingThreads > 1) {
+            indexingExecutor = Executors.newFixedThreadPool(indexingThreads);
+            logger.info("Up to {} records from '{}' will be indexed in parallel.", indexingThreads, this.hotfolderPath.getFileName());
         }
 
         String temp = SolrIndexerDaemon.getInstance().getConfiguration().getConfiguration("deleteContentFilesOnFailure");
@@ -353,15 +431,6 @@ public class Hotfolder {
         }
     }
 
-    /**
-     * Empties and re-inits the secondary logger.
-     */
-    private void resetSecondaryLog() {
-        if (secondaryAppender != null) {
-            secondaryAppender.reset();
-        }
-    }
-
     /**
      * 
      * @param subject
@@ -434,15 +503,32 @@ public class Hotfolder {
             logger.error("Hotfolder not found in file system: {}", hotfolderPath);
             return false;
         }
-        Path fileToReindex = highPriorityIndexQueue.poll();
-        if (fileToReindex != null) {
-            resetSecondaryLog();
-            logger.info("Found file '{}' (priority queue).", fileToReindex.getFileName());
-            doIndex(fileToReindex);
-        } else {
+        if (indexingTaskError != null) {
+            throw indexingTaskError;
+        }
+
+        boolean submitted = false;
+        // In sequential mode, only one record is indexed per scan; otherwise keep submitting until all indexing threads are busy
+        do {
+            if (activeIndexingTasks.get() >= indexingThreads) {
+                logger.debug("All indexing threads are busy ({}).", getHotfolderPath().getFileName());
+                return true;
+            }
+            Path fileToReindex = pollUnlockedFile(highPriorityIndexQueue, false);
+            if (fileToReindex != null) {
+                logger.info("Found file '{}' (priority queue).", fileToReindex.getFileName());
+                submitIndexingTask(fileToReindex, HotfolderJournal.QueueType.PRIORITY);
+                submitted = true;
+                continue;
+            }
+            if (!highPriorityIndexQueue.isEmpty()) {
+                logger.debug("All files in the priority queue are locked by records currently being indexed.");
+                return true;
+            }
+
             // Check for the shutdown trigger file first
             Path shutdownFile = Paths.get(hotfolderPath.toAbsolutePath().toString(), SHUTDOWN_FILE);
-            if (currentIndexer == null && Files.exists(shutdownFile)) {
+            if (activeIndexingTasks.get() == 0 && Files.exists(shutdownFile)) {
                 logger.info("Shutdown trigger file detected, shutting down...");
                 try {
                     Files.delete(shutdownFile);
@@ -454,52 +540,360 @@ public class Hotfolder {
             }
 
             if (!indexQueue.isEmpty()) {
-                Path recordFile = indexQueue.poll();
                 // Check whether the data folders for this record have been copied completely, otherwise skip
-                Set<Path> alreadyCheckedFiles = new HashSet<>();
-                while (!isDataFolderExportDone(recordFile)) {
-                    logger.info("Export not yet finished for '{}'", recordFile.getFileName());
-                    alreadyCheckedFiles.add(recordFile);
-                    indexQueue.add(recordFile); // re-add at the end
-                    if (alreadyCheckedFiles.contains(indexQueue.peek())) {
-                        logger.info("All files in queue have not yet finished export.");
-                        return true;
-                    }
-                    recordFile = indexQueue.poll();
+                Path recordFile = pollUnlockedFile(indexQueue, true);
+                if (recordFile == null) {
+                    logger.info("All files in queue have not yet finished export or are locked.");
+                    return true;
                 }
                 logger.info("Processing {} from memory queue ({})...", recordFile.getFileName(), getHotfolderPath().getFileName());
-                doIndex(recordFile);
-                return true; // always break after attempting to index a file, so that the loop restarts
+                submitIndexingTask(recordFile, HotfolderJournal.QueueType.INDEX);
+                submitted = true;
+                continue; // always break after attempting to index a file in sequential mode, so that the loop restarts
             }
 
+            if (!submitted) {
+                listFiles();
+            }
+            break;
+        } while (indexingExecutor != null);
+
+        return submitted || !highPriorityIndexQueue.isEmpty() || !indexQueue.isEmpty();
+    }
+
+    /**
+     * Adds new record files to the index queue. In event-driven mode, only files reported by watch events are considered, unless a full listing
+     * is due.
+     */
+    private void listFiles() {
+        List<Path> newFiles = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        if (!eventDriven || fullListingRequested || now - lastFullListing >= fullListingInterval) {
             logger.debug("Hotfolder ({}): Listing files...", getHotfolderPath().getFileName());
-            List<Path> newFiles = new ArrayList<>();
-            try (DirectoryStream<Path> stream = Files.newDirectoryStream(hotfolderPath, "*.{xml,json,delete,purge,docupdate,UPDATED}")) {
+            fullListingRequested = false;
+            lastFullListing = now;
+            fileEvents.clear();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(hotfolderPath, RECORD_FILE_GLOB)) {
                 for (Path path : stream) {
-                    if (currentIndexer != null) {
-                        break;
+                    if (isCountedRecordFile(path)) {
+                        countedRecordFiles.add(path);
                     }
-                    if (!path.getFileName().toString().endsWith(MetsIndexer.ANCHOR_UPDATE_EXTENSION) && !indexQueue.contains(path)) {
-                        newFiles.add(path);
+                    if (isNewRecordFile(path)) {
+                        if (eventDriven && !exportTracker.isFileStable(path)) {
+                            // Still being written; check again with the next watch events
+                            fileEvents.add(path);
+                        } else {
+                            newFiles.add(path);
+                        }
                     }
                 }
             } catch (IOException e) {
                 logger.error(e.getMessage(), e);
             }
-            if (prioritizeLargeImageFolders && !newFiles.isEmpty()) {
-                newFiles.sort((a, b) -> Long.compare(getDataFolderSize(b), getDataFolderSize(a)));
+        } else if (!fileEvents.isEmpty()) {
+            logger.debug("Hotfolder ({}): Checking {} changed file(s)...", getHotfolderPath().getFileName(), fileEvents.size());
+            for (Path path : new ArrayList<>(fileEvents)) {
+                if (filesInProgress.contains(path)) {
+                    // Modified while being indexed; keep the event so that the file is queued again if it is still there afterwards
+                    continue;
+                }
+                if (Files.isRegularFile(path) && !exportTracker.isFileStable(path)) {
+                    // WatchService has no close-write event, so the file is only picked up once it has stopped changing
+                    continue;
+                }
+                fileEvents.remove(path);
+                if (Files.isRegularFile(path)) {
+                    if (isCountedRecordFile(path)) {
+                        countedRecordFiles.add(path);
+                    }
+                    if (isNewRecordFile(path)) {
+                        newFiles.add(path);
+                    }
+                }
             }
+        }
+        if (prioritizeLargeImageFolders && newFiles.size() > 1) {
+            // Measure each media folder only once (and only if modified since the last scan)
+            Map<Path, Path> mediaFolders = HashMap.newHashMap(newFiles.size());
             for (Path recordFile : newFiles) {
-                if (indexQueue.offer(recordFile)) {
-                    logger.info("Added file from '{}' to index queue: {}", getHotfolderPath().getFileName(), recordFile.getFileName());
-                } else {
-                    logger.debug("Queue full ({})", getHotfolderPath().getFileName());
-                    break;
+                mediaFolders.put(recordFile, getMediaFolder(recordFile));
+            }
+            Map<Path, Long> sizes = dataFolderSizeCache.getSizes(mediaFolders.values());
+            newFiles.sort((a, b) -> Long.compare(sizes.get(mediaFolders.get(b)), sizes.get(mediaFolders.get(a))));
+        }
+        for (Path recordFile : newFiles) {
+            if (indexQueue.offer(recordFile)) {
+                logger.info("Added file from '{}' to index queue: {}", getHotfolderPath().getFileName(), recordFile.getFileName());
+            } else {
+                logger.debug("Queue full ({})", getHotfolderPath().getFileName());
+                // Remaining files will be picked up by the next full listing
+                fullListingRequested = true;
+                break;
+            }
+        }
+    }
+
+    /**
+     * 
+     * @param path
+     * @return true if the given path is a record or command file that is neither queued nor currently being indexed; false otherwise
+     */
+    private boolean isNewRecordFile(Path path) {
+        return !path.getFileName().toString().endsWith(MetsIndexer.ANCHOR_UPDATE_EXTENSION) && !indexQueue.contains(path)
+                && !filesInProgress.contains(path) && !isDryRunProcessed(path);
+    }
+
+    /**
+     * 
+     * @param path
+     * @return true if the given file has been processed in dry run mode and has not been modified since; false otherwise
+     */
+    private boolean isDryRunProcessed(Path path) {
+        FileTime processed = dryRunFiles.get(path);
+        if (processed == null) {
+            return false;
+        }
+        try {
+            return processed.equals(Files.getLastModifiedTime(path));
+        } catch (IOException e) {
+            dryRunFiles.remove(path);
+            return false;
+        }
+    }
+
+    /**
+     * Registers a file creation/modification event for the given path. Events for files that are currently being indexed are kept until indexing
+     * has finished.
+     * 
+     * @param path Created or modified file
+     * @should queue file modified while being indexed after indexing finished
+     * @should not queue file before it has stopped changing
+     */
+    public void addFileEvent(Path path) {
+        if (path != null && RECORD_FILE_MATCHER.matches(path.getFileName())) {
+            fileEvents.add(path);
+        }
+    }
+
+    /**
+     * Makes the next scan perform a full directory listing (e.g. after lost watch events).
+     */
+    public void requestFullListing() {
+        fullListingRequested = true;
+    }
+
+    /**
+     * Removes the first file from the given queue whose record is not currently locked (and whose data export is finished, if requested) and locks
+     * its record identifier. Skipped files keep their position in the queue.
+     * 
+     * @param queue Queue to poll
+     * @param checkExport If true, files with unfinished data folder exports will be skipped
+     * @return Locked file; null if no file is available
+     */
+    private Path pollUnlockedFile(HotfolderQueue queue, boolean checkExport) {
+        for (Path recordFile : queue.toList()) {
+            String blockingKey = deferredFiles.get(recordFile);
+            if (blockingKey != null && recordLocks.isLocked(blockingKey)) {
+                logger.debug("'{}' is waiting for '{}' to finish.", recordFile.getFileName(), blockingKey);
+            } else if (checkExport && !isDataFolderExportDone(recordFile)) {
+                logger.info("Export not yet finished for '{}'", recordFile.getFileName());
+            } else if (recordLocks.tryLock(RecordLockRegistry.getLockKey(recordFile))) {
+                if (queue.remove(recordFile)) {
+                    deferredFiles.remove(recordFile);
+                    exportTracker.forget(recordFile);
+                    dataFolderSizeCache.invalidate(getMediaFolder(recordFile));
+                    return recordFile;
                 }
+                // File has been removed from the queue in the meantime
+                recordLocks.unlock(RecordLockRegistry.getLockKey(recordFile));
+            } else {
+                logger.debug("'{}' is locked by a record currently being indexed.", recordFile.getFileName());
             }
         }
 
-        return !highPriorityIndexQueue.isEmpty() || !indexQueue.isEmpty();
+        return null;
+    }
+
+    /**
+     * Puts the given record file back into the index queue. The file will not be processed again before the record with the given lock key has
+     * been processed.
+     * 
+     * @param recordFile Record file that is currently being processed
+     * @param blockingKey Lock key of the record the given file is waiting for
+     */
+    public void deferRecordFile(Path recordFile, String blockingKey) {
+        if (blockingKey != null) {
+            deferredFiles.put(recordFile, blockingKey);
+        }
+        if (!indexQueue.offer(recordFile)) {
+            deferredFiles.remove(recordFile);
+            // The file will be picked up again by the next full listing
+            fullListingRequested = true;
+        }
+    }
+
+    /**
+     * Indexes the given (locked) record file, either directly or in a worker thread, and releases the record lock afterwards.
+     * 
+     * @param recordFile
+     * @param queueType Queue from which the file has been taken
+     * @throws FatalIndexerException
+     */
+    private void submitIndexingTask(Path recordFile, HotfolderJournal.QueueType queueType) throws FatalIndexerException {
+        activeIndexingTasks.incrementAndGet();
+        filesInProgress.add(recordFile);
+        journal.started(queueType, recordFile);
+        if (indexingExecutor == null) {
+            try {
+                doIndex(recordFile);
+            } finally {
+                finishIndexingTask(recordFile, queueType);
+            }
+            return;
+        }
+
+        indexingExecutor.execute(() -> {
+            try {
+                doIndex(recordFile);
+            } catch (FatalIndexerException e) {
+                logger.error(e.getMessage(), e);
+                indexingTaskError = e;
+            } catch (RuntimeException e) {
+                logger.error("Indexing of '{}' failed.", recordFile.getFileName(), e);
+            } finally {
+                finishIndexingTask(recordFile, queueType);
+            }
+        });
+    }
+
+    /**
+     * 
+     * @param recordFile
+     * @param queueType
+     */
+    private void finishIndexingTask(Path recordFile, HotfolderJournal.QueueType queueType) {
+        // The record stays locked until its files have been moved out of the hotfolder (or relocation has failed and the file is kept for another
+        // attempt), but the next record may already be indexed
+        relocationStage.whenRelocationFinished(recordFile, () -> {
+            journal.finished(queueType, recordFile);
+            if (!Files.exists(recordFile)) {
+                countedRecordFiles.remove(recordFile);
+            }
+            filesInProgress.remove(recordFile);
+            recordLocks.unlock(RecordLockRegistry.getLockKey(recordFile));
+        });
+        activeIndexingTasks.decrementAndGet();
+    }
+
+    /**
+     * Sequentially indexes all files currently in the priority queue (e.g. anchor and volume updates scheduled while indexing records outside of
+     * the regular hotfolder loop).
+     *
+     * @return Number of processed files
+     * @throws FatalIndexerException
+     */
+    public int processHighPriorityQueue() throws FatalIndexerException {
+        int ret = 0;
+        Path recordFile;
+        while ((recordFile = pollUnlockedFile(highPriorityIndexQueue, false)) != null) {
+            logger.info("Found file '{}' (priority queue).", recordFile.getFileName());
+            activeIndexingTasks.incrementAndGet();
+            filesInProgress.add(recordFile);
+            journal.started(HotfolderJournal.QueueType.PRIORITY, recordFile);
+            try {
+                doIndex(recordFile);
+            } finally {
+                finishIndexingTask(recordFile, HotfolderJournal.QueueType.PRIORITY);
+            }
+            ret++;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Stops accepting new indexing tasks and waits for any running tasks and pending relocations to finish.
+     */
+    public void shutdown() {
+        if (indexingExecutor != null) {
+            indexingExecutor.shutdown();
+            try {
+                while (!indexingExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.info("Waiting for {} record(s) in '{}' to finish indexing...", activeIndexingTasks.get(),
+                            getHotfolderPath().getFileName());
+                }
+            } catch (InterruptedException e) {
+                logger.error(e.getMessage());
+                indexingExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        relocationStage.shutdown();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the queue journal in the temp folder and restores any queued files from a previous run. If files have been restored, the initial
+     * hotfolder listing is postponed until the restored queue has been processed (or the next full listing is due in event-driven mode).
+     */
+    private void openJournal() {
+        Path journalFile = tempFolderPath.resolve(new StringBuilder("queue_").append(hotfolderPath.getFileName())
+                .append('_')
+                .append(Integer.toHexString(hotfolderPath.toAbsolutePath().hashCode()))
+                .append(".journal")
+                .toString());
+        try {
+            journal = HotfolderJournal.open(journalFile);
+        } catch (IOException e) {
+            logger.error("Could not open queue journal '{}', queues will not be persisted: {}", journalFile, e.getMessage());
+            return;
+        }
+
+        int restored = restoreFromJournal(HotfolderJournal.QueueType.PRIORITY, highPriorityIndexQueue);
+        int restoredIndexQueue = restoreFromJournal(HotfolderJournal.QueueType.INDEX, indexQueue);
+        for (Path path : journal.getPendingFiles(HotfolderJournal.QueueType.REINDEXED_CHILDREN)) {
+            if (Files.isRegularFile(path)) {
+                MetsIndexer.addReindexedChildrenFile(path);
+            } else {
+                journal.finished(HotfolderJournal.QueueType.REINDEXED_CHILDREN, path);
+            }
+        }
+        indexQueue.setAddListener(path -> journal.enqueued(HotfolderJournal.QueueType.INDEX, path));
+        highPriorityIndexQueue.setAddListener(path -> journal.enqueued(HotfolderJournal.QueueType.PRIORITY, path));
+
+        if (restored + restoredIndexQueue > 0) {
+            logger.info("Restored {} priority queue and {} index queue file(s) for '{}' from the queue journal.", restored, restoredIndexQueue,
+                    getHotfolderPath().getFileName());
+        }
+        if (restoredIndexQueue > 0) {
+            fullListingRequested = false;
+            lastFullListing = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Re-adds the pending files of the given type from the journal to the given queue. Files that no longer exist or do not fit into the queue
+     * are removed from the journal.
+     * 
+     * @param type
+     * @param queue
+     * @return Number of restored files
+     */
+    private int restoreFromJournal(HotfolderJournal.QueueType type, HotfolderQueue queue) {
+        int ret = 0;
+        for (Path path : journal.getPendingFiles(type)) {
+            if (Files.isRegularFile(path) && queue.offer(path)) {
+                ret++;
+            } else {
+                journal.finished(type, path);
+            }
+        }
+
+        return ret;
     }
 
     /**
@@ -509,54 +903,103 @@ public class Hotfolder {
      * @throws FatalIndexerException
      * @should return false if recordFile null
      * @should return true if successful
+     * @should leave record and command files in place in dry run mode
      */
     boolean doIndex(Path recordFile) throws FatalIndexerException {
         if (recordFile == null) {
             return false;
         }
 
-        resetSecondaryLog();
-        checkFreeSpace();
-        Map<String, Boolean> reindexSettings = new HashMap<>();
-        reindexSettings.put(DataRepository.PARAM_FULLTEXT, false);
-        reindexSettings.put(DataRepository.PARAM_TEIWC, false);
-        reindexSettings.put(DataRepository.PARAM_ALTO, false);
-        reindexSettings.put(DataRepository.PARAM_MIX, false);
-        reindexSettings.put(DataRepository.PARAM_UGC, false);
-        boolean ret = handleSourceFile(recordFile, reindexSettings);
-        if (secondaryAppender != null && emailConfigurationComplete) {
-            checkAndSendErrorReport(recordFile.getFileName() + ": Indexing failed (" + Version.asString() + ")",
-                    secondaryAppender.getLog());
+        // Unique per indexing run, so that a late report of a previous run cannot discard the log of a new run of the same file
+        String recordKey = recordFile.toAbsolutePath() + "#" + RECORD_LOG_SEQUENCE.incrementAndGet();
+        SecondaryAppender.startRecord(recordKey);
+        boolean ret = false;
+        boolean sendReport = false;
+        try {
+            checkFreeSpace();
+            sendReport = secondaryAppender != null && emailConfigurationComplete;
+            Map<String, Boolean> reindexSettings = new HashMap<>();
+            reindexSettings.put(DataRepository.PARAM_FULLTEXT, false);
+            reindexSettings.put(DataRepository.PARAM_TEIWC, false);
+            reindexSettings.put(DataRepository.PARAM_ALTO, false);
+            reindexSettings.put(DataRepository.PARAM_MIX, false);
+            reindexSettings.put(DataRepository.PARAM_UGC, false);
+            ret = handleSourceFile(recordFile, reindexSettings);
+        } finally {
+            SecondaryAppender.leaveRecord();
+            // The report is sent once the record files have been relocated, so that relocation errors are included
+            boolean report = sendReport;
+            relocationStage.afterRelocationAttempt(recordFile, () -> {
+                String log = SecondaryAppender.endRecord(recordKey);
+                if (report) {
+                    checkAndSendErrorReport(recordFile.getFileName() + ": Indexing failed (" + Version.asString() + ")", log);
+                }
+            });
         }
 
         return ret;
     }
 
     /**
-     * Returns the number of record and command (delete, update) files in the hotfolder.
+     * Returns the number of record and command (delete, update) files in the hotfolder. The number is maintained incrementally by the hotfolder
+     * scanner; the hotfolder contents are only counted again after the configured recount interval to correct any drift.
      *
      * @return Number of files
      * @should count files correctly
+     * @should not count removed files
      */
     public long countRecordFiles() {
         if (!SolrIndexerDaemon.getInstance().getConfiguration().isCountHotfolderFiles()) {
             return 0;
         }
 
+        if (System.currentTimeMillis() - lastRecount >= recountInterval) {
+            recountRecordFiles();
+        }
+        long ret = countedRecordFiles.size();
+        logger.trace("{} files in hotfolder", ret);
+        return ret;
+    }
+
+    /**
+     * Removes the given (processed) source file from the file count, if it is no longer in the hotfolder, and returns the number of remaining
+     * record and command files.
+     * 
+     * @param sourceFile Processed source file
+     * @return Number of files
+     */
+    private long countRemainingRecordFiles(Path sourceFile) {
+        if (sourceFile != null && !Files.exists(sourceFile)) {
+            countedRecordFiles.remove(sourceFile);
+        }
+        return countRecordFiles();
+    }
+
+    /**
+     * Lists the hotfolder and replaces the known record and command files with the actual contents.
+     */
+    private void recountRecordFiles() {
+        logger.debug("Hotfolder ({}): Counting files...", getHotfolderPath().getFileName());
         try (Stream<Path> files = Files.list(hotfolderPath)) {
-            long ret = files.filter(p -> !Files.isDirectory(p))
-                    .map(Path::toString)
-                    .filter(f -> (f.toLowerCase().endsWith(".xml") || f.endsWith(FILENAME_EXTENSION_DELETE) || f.endsWith(FILENAME_EXTENSION_PURGE)
-                            || f.endsWith(".docupdate")
-                            || f.endsWith(".UPDATED")))
-                    .count();
-            logger.trace("{} files in hotfolder", ret);
-            return ret;
+            Set<Path> found = files.filter(p -> isCountedRecordFile(p) && !Files.isDirectory(p)).collect(Collectors.toSet());
+            countedRecordFiles.retainAll(found);
+            countedRecordFiles.addAll(found);
+            lastRecount = System.currentTimeMillis();
         } catch (IOException e) {
             logger.error(e.getMessage());
         }
+    }
 
-        return 0;
+    /**
+     * 
+     * @param path
+     * @return true if the given file is counted as a record or command file; false otherwise
+     */
+    private static boolean isCountedRecordFile(Path path) {
+        String f = path.toString();
+        return f.toLowerCase().endsWith(".xml") || f.endsWith(FILENAME_EXTENSION_DELETE) || f.endsWith(FILENAME_EXTENSION_PURGE)
+                || f.endsWith(".docupdate")
+                || f.endsWith(".UPDATED");
     }
 
     /**
@@ -590,9 +1033,15 @@ public class Hotfolder {
         // Always unselect repository
         String filename = sourceFile.getFileName().toString();
         try {
+            if (dryRun && !Strings.CI.endsWith(filename, FileTools.XML_EXTENSION)) {
+                // Command files would delete or modify existing records and data folders
+                logger.info("Dry run: skipping '{}'.", filename);
+                dryRunFiles.put(sourceFile, Files.getLastModifiedTime(sourceFile));
+                return true;
+            }
             if (Strings.CI.endsWith(filename, FileTools.XML_EXTENSION)) {
                 // INPUT o. UPDATE
-                if (Files.size(sourceFile) == 0) {
+                if (Files.size(sourceFile) == 0 && !dryRun) {
                     // Check whether the file is actually empty or just hasn't finished copying yet
                     try {
                         Thread.sleep(WAIT_IF_FILE_EMPTY);
@@ -611,15 +1060,14 @@ public class Hotfolder {
                 List<String> identifiers = Collections.emptyList();
                 FileFormat fileType = JDomXP.determineFileFormat(sourceFile.toFile());
                 logger.info("Document format detected: {}", fileType.name());
+                if (dryRun) {
+                    indexDryRun(sourceFile, fileType);
+                    return true;
+                }
                 switch (fileType) {
                     case METS:
                         if (metsEnabled) {
-                            try {
-                                currentIndexer = new MetsIndexer(this);
-                                identifiers = currentIndexer.addToIndex(sourceFile, reindexSettings);
-                            } finally {
-                                currentIndexer = null;
-                            }
+                            identifiers = new MetsIndexer(this).addToIndex(sourceFile, reindexSettings);
                         } else {
                             logger.error("METS indexing is disabled - please make sure all folders are configured.");
                             Files.delete(sourceFile);
@@ -627,12 +1075,7 @@ public class Hotfolder {
                         break;
                     case METS_MARC:
                         if (metsEnabled) {
-                            try {
-                                currentIndexer = new MetsMarcIndexer(this);
-                                identifiers = currentIndexer.addToIndex(sourceFile, reindexSettings);
-                            } finally {
-                                currentIndexer = null;
-                            }
+                            identifiers = new MetsMarcIndexer(this).addToIndex(sourceFile, reindexSettings);
                         } else {
                             logger.error("METS indexing is disabled - please make sure all folders are configured.");
                             Files.delete(sourceFile);
@@ -640,12 +1083,7 @@ public class Hotfolder {
                         break;
                     case LIDO:
                         if (lidoEnabled) {
-                            try {
-                                currentIndexer = new LidoIndexer(this);
-                                identifiers = currentIndexer.addToIndex(sourceFile, reindexSettings);
-                            } finally {
-                                currentIndexer = null;
-                            }
+                            identifiers = new LidoIndexer(this).addToIndex(sourceFile, reindexSettings);
                         } else {
                             logger.error("LIDO indexing is disabled - please make sure all folders are configured.");
                             Files.delete(sourceFile);
@@ -653,12 +1091,7 @@ public class Hotfolder {
                         break;
                     case EAD:
                         if (eadEnabled) {
-                            try {
-                                currentIndexer = new EadIndexer(this);
-                                identifiers = currentIndexer.addToIndex(sourceFile, reindexSettings);
-                            } finally {
-                                currentIndexer = null;
-                            }
+                            identifiers = new EadIndexer(this).addToIndex(sourceFile, reindexSettings);
                         } else {
                             logger.error("EAD indexing is disabled - please make sure all folders are configured.");
                             Files.delete(sourceFile);
@@ -666,12 +1099,7 @@ public class Hotfolder {
                         break;
                     case EAD3:
                         if (eadEnabled) {
-                            try {
-                                currentIndexer = new Ead3Indexer(this);
-                                identifiers = currentIndexer.addToIndex(sourceFile, reindexSettings);
-                            } finally {
-                                currentIndexer = null;
-                            }
+                            identifiers = new Ead3Indexer(this).addToIndex(sourceFile, reindexSettings);
                         } else {
                             logger.error("EAD indexing is disabled - please make sure all folders are configured.");
                             Files.delete(sourceFile);
@@ -679,12 +1107,7 @@ public class Hotfolder {
                         break;
                     case DENKXWEB:
                         if (denkxwebEnabled) {
-                            try {
-                                currentIndexer = new DenkXwebIndexer(this);
-                                identifiers = currentIndexer.addToIndex(sourceFile, reindexSettings);
-                            } finally {
-                                currentIndexer = null;
-                            }
+                            identifiers = new DenkXwebIndexer(this).addToIndex(sourceFile, reindexSettings);
                         } else {
                             logger.error("DenkXweb indexing is disabled - please make sure all folders are configured.");
                             Files.delete(sourceFile);
@@ -692,12 +1115,7 @@ public class Hotfolder {
                         break;
                     case DUBLINCORE:
                         if (dcEnabled) {
-                            try {
-                                currentIndexer = new DublinCoreIndexer(this);
-                                identifiers = currentIndexer.addToIndex(sourceFile, reindexSettings);
-                            } finally {
-                                currentIndexer = null;
-                            }
+                            identifiers = new DublinCoreIndexer(this).addToIndex(sourceFile, reindexSettings);
                         } else {
                             logger.error("Dublin Core indexing is disabled - please make sure all folders are configured.");
                             Files.delete(sourceFile);
@@ -705,12 +1123,7 @@ public class Hotfolder {
                         break;
                     case WORLDVIEWS:
                         if (worldviewsEnabled) {
-                            try {
-                                currentIndexer = new WorldViewsIndexer(this);
-                                identifiers = currentIndexer.addToIndex(sourceFile, reindexSettings);
-                            } finally {
-                                currentIndexer = null;
-                            }
+                            identifiers = new WorldViewsIndexer(this).addToIndex(sourceFile, reindexSettings);
                         } else {
                             logger.error("WorldViews indexing is disabled - please make sure all folders are configured.");
                             Files.delete(sourceFile);
@@ -718,12 +1131,7 @@ public class Hotfolder {
                         break;
                     case CMS:
                         if (cmsEnabled) {
-                            try {
-                                currentIndexer = new CmsPageIndexer(this);
-                                identifiers = currentIndexer.addToIndex(sourceFile, reindexSettings);
-                            } finally {
-                                currentIndexer = null;
-                            }
+                            identifiers = new CmsPageIndexer(this).addToIndex(sourceFile, reindexSettings);
                         } else {
                             logger.error("CMS page indexing is disabled - please make sure all folders are configured.");
                             Files.delete(sourceFile);
@@ -734,16 +1142,14 @@ public class Hotfolder {
                         Files.delete(sourceFile);
                         return false;
                 }
-                Utils.submitDataToViewer(identifiers, countRecordFiles());
+                // Notify the viewer only once the record's data folders are in place
+                final List<String> submitIdentifiers = identifiers;
+                relocationStage.afterRelocation(sourceFile,
+                        () -> Utils.submitDataToViewer(submitIdentifiers, countRemainingRecordFiles(sourceFile)));
             } else if (filename.endsWith(".json")) {
                 if (filename.startsWith(FILENAME_PREFIX_STATISTICS_USAGE)) {
                     if (usageStatisticsEnabled) {
-                        try {
-                            this.currentIndexer = new UsageStatisticsIndexer(this);
-                            currentIndexer.addToIndex(sourceFile, null);
-                        } finally {
-                            this.currentIndexer = null;
-                        }
+                        new UsageStatisticsIndexer(this).addToIndex(sourceFile, null);
                     } else {
                         logger.error("Usage statistics indexing is disabled - please make sure all folders are configured.");
                     }
@@ -759,27 +1165,24 @@ public class Hotfolder {
                             SolrIndexerDaemon.getInstance().getSearchIndex(), SolrIndexerDaemon.getInstance().getOldSearchIndex());
                     String pi = removeFromIndex(sourceFile, repositories[1] != null ? repositories[1] : repositories[0],
                             filename.endsWith(FILENAME_EXTENSION_DELETE));
-                    Utils.submitDataToViewer(Collections.singletonList(pi), countRecordFiles());
+                    Utils.submitDataToViewer(Collections.singletonList(pi), countRemainingRecordFiles(sourceFile));
                 }
             } else if (filename.endsWith(MetsIndexer.ANCHOR_UPDATE_EXTENSION)) {
                 // SUPERUPDATE
                 DataRepository[] repositories = dataRepositoryStrategy.selectDataRepository(null, sourceFile, null,
                         SolrIndexerDaemon.getInstance().getSearchIndex(), SolrIndexerDaemon.getInstance().getOldSearchIndex());
                 MetsIndexer.anchorSuperupdate(sourceFile, updatedMets, repositories[1] != null ? repositories[1] : repositories[0]);
-                Utils.submitDataToViewer(Collections.emptyList(), countRecordFiles()); // TODO submit any record identifiers here?
+                Utils.submitDataToViewer(Collections.emptyList(), countRemainingRecordFiles(sourceFile)); // TODO submit any record identifiers here?
             } else if (filename.endsWith(DocUpdateIndexer.FILE_EXTENSION)) {
                 // Single Solr document update
-                List<String> identifiers = Collections.emptyList();
-                try {
-                    currentIndexer = new DocUpdateIndexer(this);
-                    identifiers = currentIndexer.addToIndex(sourceFile, null);
-                } finally {
-                    currentIndexer = null;
-                }
-                Utils.submitDataToViewer(identifiers, countRecordFiles());
+                List<String> identifiers = new DocUpdateIndexer(this).addToIndex(sourceFile, null);
+                Utils.submitDataToViewer(identifiers, countRemainingRecordFiles(sourceFile));
             }
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
+            if (dryRun) {
+                return false;
+            }
             try {
                 Files.delete(sourceFile);
             } catch (IOException e1) {
@@ -791,6 +1194,56 @@ public class Hotfolder {
         return true;
     }
 
+    /**
+     * Indexes the given record file in dry run mode. The file and its data folders are left in the hotfolder and will only be processed again
+     * once the file has been modified.
+     * 
+     * @param sourceFile Record file
+     * @param fileType Format of the record file
+     * @throws IOException
+     */
+    private void indexDryRun(Path sourceFile, FileFormat fileType) throws IOException {
+        if (isFormatEnabled(fileType)) {
+            for (IndexingResult result : new DryRunIndexer(this).index(sourceFile, fileType)) {
+                if (IndexingResultStatus.DEFERRED.equals(result.getStatus())) {
+                    deferRecordFile(sourceFile, result.getDeferredBy());
+                    return;
+                }
+            }
+        } else {
+            logger.error("Dry run: skipping '{}', {} indexing is disabled or format unknown.", sourceFile.getFileName(), fileType);
+        }
+        dryRunFiles.put(sourceFile, Files.getLastModifiedTime(sourceFile));
+    }
+
+    /**
+     * 
+     * @param fileType
+     * @return true if indexing of the given format is enabled; false otherwise
+     */
+    private boolean isFormatEnabled(FileFormat fileType) {
+        switch (fileType) {
+            case METS:
+            case METS_MARC:
+                return metsEnabled;
+            case LIDO:
+                return lidoEnabled;
+            case EAD:
+            case EAD3:
+                return eadEnabled;
+            case DENKXWEB:
+                return denkxwebEnabled;
+            case DUBLINCORE:
+                return dcEnabled;
+            case WORLDVIEWS:
+                return worldviewsEnabled;
+            case CMS:
+                return cmsEnabled;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Removes the document and its data folders represented by the file name.
      * 
@@ -963,138 +1416,147 @@ public class Hotfolder {
         logger.info("removeSourceFileFromQueue: {}/{}.xml", getHotfolderPath().getFileName(), pi);
 
         Path matchingFile = null;
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(hotfolderPath, "*.{xml,json,delete,purge,docupdate,UPDATED}")) {
-            for (Path path : stream) {
-                if (FilenameUtils.getBaseName(path.getFileName().toString()).equals(pi)) {
+        // Look up queued files first, then check for record files that have not yet been queued
+        for (Path path : indexQueue.getFilesForIdentifier(RecordLockRegistry.getLockKeyForBaseName(pi))) {
+            if (FilenameUtils.getBaseName(path.getFileName().toString()).equals(pi)) {
+                matchingFile = path;
+                break;
+            }
+        }
+        if (matchingFile == null) {
+            for (String extension : RECORD_FILE_EXTENSIONS) {
+                Path path = hotfolderPath.resolve(pi + "." + extension);
+                if (Files.isRegularFile(path)) {
                     matchingFile = path;
                     break;
                 }
             }
-        } catch (IOException e) {
-            logger.error(e.getMessage(), e);
         }
 
         if (matchingFile != null) {
-            if (indexQueue.contains(matchingFile)) {
-                indexQueue.remove(matchingFile);
+            if (filesInProgress.contains(matchingFile)) {
+                logger.warn("'{}' is currently being indexed from hotfolder '{}' and will not be deleted.", matchingFile.getFileName(),
+                        getHotfolderPath().getFileName());
+                return;
+            }
+            exportTracker.forget(matchingFile);
+            dataFolderSizeCache.invalidate(getMediaFolder(matchingFile));
+            if (indexQueue.remove(matchingFile)) {
+                journal.finished(HotfolderJournal.QueueType.INDEX, matchingFile);
                 logger.info("Removed '{}' from hotfolder '{}' index queue.", matchingFile.getFileName(), getHotfolderPath().getFileName());
             }
             Files.delete(matchingFile);
+            countedRecordFiles.remove(matchingFile);
             logger.info("Deleted '{}' from hotfolder '{}'.", matchingFile.getFileName(), getHotfolderPath().getFileName());
         }
     }
 
     /**
-     * Returns the total size of data folders associated with the given record file.
-     *
+     * 
      * @param recordFile
-     * @return total size in bytes
+     * @return Media folder path for the given record file
      */
-    long getDataFolderSize(Path recordFile) {
+    private Path getMediaFolder(Path recordFile) {
         String baseName = FilenameUtils.getBaseName(recordFile.getFileName().toString());
         String mediaFolderSuffix = SolrIndexerDaemon.getInstance().getConfiguration().getConfiguration(DataRepository.PARAM_MEDIA);
         if (StringUtils.isEmpty(mediaFolderSuffix)) {
             mediaFolderSuffix = "media";
         }
-        Path mediaFolder = getHotfolderPath().resolve(baseName + "_" + mediaFolderSuffix);
-        if (Files.isDirectory(mediaFolder)) {
-            try {
-                return FileUtils.sizeOfDirectory(mediaFolder.toFile());
-            } catch (IllegalArgumentException e) {
-                logger.error(e.getMessage());
-            }
-        }
-        return 0;
+        return getHotfolderPath().resolve(baseName + "_" + mediaFolderSuffix);
     }
 
     /**
-     * Checks whether the data folders for the given record file have finished being copied.
+     * Checks whether the data folders for the given record file have finished being copied. This check does not block; a record is only
+     * considered ready once its data folders have remained unchanged across scans for the configured stability window.
      *
      * @param recordFile a {@link java.nio.file.Path} object.
      * @return a boolean.
      * @should return true if hotfolder content not changing
+     * @should return false if data folders not yet stable
      */
     boolean isDataFolderExportDone(Path recordFile) {
         logger.debug("isDataFolderExportDone: {}", recordFile.getFileName());
-        DataFolderSizeCounter counter = new DataFolderSizeCounter(recordFile.getFileName().toString());
-
-        long total1 = 0;
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(getHotfolderPath(), counter)) {
-            total1 = counter.getTotal();
-        } catch (IOException e) {
-            logger.error(e.getMessage(), e);
-        }
-
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            logger.error("Error checking the hotfolder size.", e);
-            Thread.currentThread().interrupt();
-            return false;
-        }
-
-        counter.resetTotal();
-        long total2 = 0;
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(getHotfolderPath(), counter)) {
-            total2 = counter.getTotal();
-        } catch (IOException e) {
-            logger.error(e.getMessage(), e);
-        }
-
-        logger.trace("Data export done: {}", total1 == total2);
-        return total1 == total2;
+        boolean ret = exportTracker.isExportDone(recordFile);
+        logger.trace("Data export done: {}", ret);
+        return ret;
     }
 
-    protected class DataFolderSizeCounter implements Filter<Path> {
-
-        private String recordFileName;
-        private long total = 0;
-
-        /**
-         * @param recordFileName
-         */
-        public DataFolderSizeCounter(String recordFileName) {
-            this.recordFileName = recordFileName;
-        }
+    /**
+     * <p>
+     * Getter for the field <code>highPriorityIndexQueue</code>.
+     * </p>
+     *
+     * @return a {@link java.util.Queue} object.
+     */
+    public Queue<Path> getHighPriorityQueue() {
+        return highPriorityIndexQueue;
+    }
 
-        /* (non-Javadoc)
-         * @see java.nio.file.DirectoryStream.Filter#accept(java.lang.Object)
-         */
-        @Override
-        public boolean accept(Path entry) throws IOException {
-            if (entry != null && entry.getFileName().startsWith(FilenameUtils.getBaseName(recordFileName) + "_")) {
-                try {
-                    if (Files.isRegularFile(entry)) {
-                        total += FileUtils.sizeOf(entry.toFile());
-                    } else if (Files.isDirectory(entry)) {
-                        total += FileUtils.sizeOfDirectory(entry.toFile());
-                    }
-                } catch (IllegalArgumentException e) {
-                    logger.error(e.getMessage());
-                }
-            }
+    /**
+     * 
+     * @return the indexQueue
+     */
+    Queue<Path> getIndexQueue() {
+        return indexQueue;
+    }
 
-            return false; // reject everything, only the count matters
-        }
+    /**
+     * 
+     * @return true if any record of this hotfolder is currently being indexed; false otherwise
+     * @should return true while record is being indexed
+     */
+    public boolean isIndexing() {
+        return activeIndexingTasks.get() > 0;
+    }
 
-        public long getTotal() {
-            return total;
-        }
+    /**
+     * <p>
+     * Getter for the field <code>relocationStage</code>.
+     * </p>
+     *
+     * @return the relocationStage
+     */
+    public RecordRelocationStage getRelocationStage() {
+        return relocationStage;
+    }
 
-        public void resetTotal() {
-            total = 0;
-        }
+    /**
+     * <p>
+     * Getter for the field <code>journal</code>.
+     * </p>
+     *
+     * @return the journal
+     */
+    public HotfolderJournal getJournal() {
+        return journal;
     }
 
     /**
      * <p>
-     * Getter for the field <code>highPriorityIndexQueue</code>.
+     * Getter for the field <code>recordLocks</code>.
      * </p>
      *
-     * @return a {@link java.util.Queue} object.
+     * @return the recordLocks
      */
-    public Queue<Path> getHighPriorityQueue() {
-        return highPriorityIndexQueue;
+    public RecordLockRegistry getRecordLocks() {
+        return recordLocks;
+    }
+
+    /**
+     * @return the eventDriven
+     */
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    /**
+     * @param eventDriven the eventDriven to set
+     */
+    public void setEventDriven(boolean eventDriven) {
+        this.eventDriven = eventDriven;
+        if (!eventDriven) {
+            fullListingRequested = true;
+        }
     }
 
     /**
@@ -0,0 +1,318 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Append-only on-disk journal of the hotfolder work queues. Every enqueued, started and finished file is written as a single line, which is
+ * flushed immediately so that the journal survives a crash of the indexer process. When the hotfolder is initialized, the journal is replayed and
+ * all files that were still queued or being processed are restored. The journal is compacted on opening and whenever it has grown considerably
+ * larger than the number of pending files.
+ */
+public class HotfolderJournal implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(HotfolderJournal.class);
+
+    private static final String SEPARATOR = "\t";
+    /** Minimum number of lines before the journal is compacted during operation. */
+    private static final int COMPACTION_MIN_LINES = 10000;
+
+    /**
+     * Journaled work queues.
+     */
+    public enum QueueType {
+        /** Regular index queue. */
+        INDEX,
+        /** High priority index queue. */
+        PRIORITY,
+        /** Volumes scheduled for re-indexing after an anchor update. */
+        REINDEXED_CHILDREN;
+    }
+
+    /**
+     * Journal operations.
+     */
+    private enum Operation {
+        ENQUEUE,
+        START,
+        FINISH;
+    }
+
+    private final Path journalFile;
+    /** Pending files per queue; the value is true if processing has started. */
+    private final Map<QueueType, Map<Path, Boolean>> pendingFiles = new EnumMap<>(QueueType.class);
+    private BufferedWriter writer;
+    private int lineCount = 0;
+
+    /**
+     * Constructor. If no journal file is given, the journal is disabled and all operations have no effect.
+     *
+     * @param journalFile Journal file; may be null
+     */
+    HotfolderJournal(Path journalFile) {
+        this.journalFile = journalFile;
+        for (QueueType type : QueueType.values()) {
+            pendingFiles.put(type, new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Creates a disabled journal.
+     *
+     * @return {@link HotfolderJournal} that does not record anything
+     * @should not record anything
+     */
+    public static HotfolderJournal disabled() {
+        return new HotfolderJournal(null);
+    }
+
+    /**
+     * Opens the given journal file, replays any existing entries and compacts the file.
+     *
+     * @param journalFile Journal file
+     * @return Opened {@link HotfolderJournal}
+     * @throws IOException
+     * @should restore pending files
+     * @should restore started files first
+     * @should ignore incomplete lines
+     */
+    public static HotfolderJournal open(Path journalFile) throws IOException {
+        if (journalFile == null) {
+            throw new IllegalArgumentException("journalFile may not be null");
+        }
+        HotfolderJournal ret = new HotfolderJournal(journalFile);
+        if (Files.isRegularFile(journalFile)) {
+            ret.replay();
+        }
+        ret.compact();
+        logger.info("Opened queue journal '{}' ({} pending file(s)).", journalFile, ret.getPendingFileCount());
+
+        return ret;
+    }
+
+    /**
+     * Records that the given file has been added to the given queue.
+     *
+     * @param type Queue type
+     * @param path Queued file
+     */
+    public synchronized void enqueued(QueueType type, Path path) {
+        if (journalFile == null || path == null) {
+            return;
+        }
+        if (pendingFiles.get(type).putIfAbsent(path, false) == null) {
+            append(Operation.ENQUEUE, type, path);
+        }
+    }
+
+    /**
+     * Records that processing of the given file has started.
+     *
+     * @param type Queue type
+     * @param path Queued file
+     */
+    public synchronized void started(QueueType type, Path path) {
+        if (journalFile == null || path == null) {
+            return;
+        }
+        if (pendingFiles.get(type).replace(path, true) != null) {
+            append(Operation.START, type, path);
+        }
+    }
+
+    /**
+     * Records that the given file has been processed or removed from the given queue.
+     *
+     * @param type Queue type
+     * @param path Queued file
+     */
+    public synchronized void finished(QueueType type, Path path) {
+        if (journalFile == null || path == null) {
+            return;
+        }
+        if (pendingFiles.get(type).remove(path) != null) {
+            append(Operation.FINISH, type, path);
+        }
+    }
+
+    /**
+     * Returns all pending files of the given queue. Files whose processing had already started are returned first.
+     *
+     * @param type Queue type
+     * @return List of pending files
+     */
+    public synchronized List<Path> getPendingFiles(QueueType type) {
+        List<Path> ret = new ArrayList<>();
+        List<Path> notStarted = new ArrayList<>();
+        for (Entry<Path, Boolean> entry : pendingFiles.get(type).entrySet()) {
+            if (Boolean.TRUE.equals(entry.getValue())) {
+                ret.add(entry.getKey());
+            } else {
+                notStarted.add(entry.getKey());
+            }
+        }
+        ret.addAll(notStarted);
+
+        return ret;
+    }
+
+    /**
+     *
+     * @return Total number of pending files in all queues
+     */
+    public synchronized int getPendingFileCount() {
+        int ret = 0;
+        for (Map<Path, Boolean> files : pendingFiles.values()) {
+            ret += files.size();
+        }
+        return ret;
+    }
+
+    /**
+     *
+     * @return true if this journal writes to a file; false otherwise
+     */
+    public boolean isEnabled() {
+        return journalFile != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * Reads all entries from the journal file.
+     *
+     * @throws IOException
+     */
+    private void replay() throws IOException {
+        List<String> lines = Files.readAllLines(journalFile, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            String[] parts = line.split(SEPARATOR, 3);
+            if (parts.length < 3) {
+                // Incomplete line from an interrupted write
+                logger.warn("Skipping incomplete queue journal line: {}", line);
+                continue;
+            }
+            try {
+                Operation op = Operation.valueOf(parts[0]);
+                Map<Path, Boolean> files = pendingFiles.get(QueueType.valueOf(parts[1]));
+                Path path = Paths.get(parts[2]);
+                switch (op) {
+                    case ENQUEUE:
+                        files.putIfAbsent(path, false);
+                        break;
+                    case START:
+                        files.replace(path, true);
+                        break;
+                    case FINISH:
+                        files.remove(path);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Skipping invalid queue journal line: {}", line);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the journal file so that it only contains the currently pending files.
+     *
+     * @throws IOException
+     */
+    private void compact() throws IOException {
+        close();
+        Path tempFile = journalFile.resolveSibling(journalFile.getFileName().toString() + ".tmp");
+        lineCount = 0;
+        try (BufferedWriter tempWriter = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Entry<QueueType, Map<Path, Boolean>> entry : pendingFiles.entrySet()) {
+                for (Entry<Path, Boolean> file : entry.getValue().entrySet()) {
+                    writeLine(tempWriter, Operation.ENQUEUE, entry.getKey(), file.getKey());
+                    if (Boolean.TRUE.equals(file.getValue())) {
+                        writeLine(tempWriter, Operation.START, entry.getKey(), file.getKey());
+                    }
+                }
+            }
+        }
+        Files.move(tempFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Appends a line to the journal file and compacts the file, if necessary.
+     *
+     * @param op
+     * @param type
+     * @param path
+     */
+    private void append(Operation op, QueueType type, Path path) {
+        try {
+            if (writer == null) {
+                return;
+            }
+            writeLine(writer, op, type, path);
+            writer.flush();
+            if (lineCount > COMPACTION_MIN_LINES && lineCount > 2 * getPendingFileCount()) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.error("Could not write to queue journal '{}': {}", journalFile, e.getMessage());
+        }
+    }
+
+    /**
+     *
+     * @param w
+     * @param op
+     * @param type
+     * @param path
+     * @throws IOException
+     */
+    private void writeLine(BufferedWriter w, Operation op, QueueType type, Path path) throws IOException {
+        w.write(op.name());
+        w.write(SEPARATOR);
+        w.write(type.name());
+        w.write(SEPARATOR);
+        w.write(path.toString());
+        w.newLine();
+        lineCount++;
+    }
+}
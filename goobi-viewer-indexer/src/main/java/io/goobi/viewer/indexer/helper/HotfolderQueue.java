@@ -0,0 +1,317 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded queue for hotfolder record files that doubles as a hash index. Membership checks and removals by path as well as lookups by record
+ * identifier do not require iterating over the queue. Files are returned in the configured {@link Order}; adding an already queued file has no
+ * effect.
+ */
+public class HotfolderQueue extends AbstractQueue<Path> {
+
+    private static final Logger logger = LogManager.getLogger(HotfolderQueue.class);
+
+    /**
+     * Processing order of queued files.
+     */
+    public enum Order {
+        /** Files are processed in the order in which they were added. */
+        FIFO(Comparator.comparingLong(e -> e.sequence)),
+        /** Files with the oldest modification time are processed first. */
+        OLDEST_FIRST(Comparator.<Entry> comparingLong(e -> e.lastModified).thenComparingLong(e -> e.sequence)),
+        /** Smallest files are processed first. */
+        SMALLEST_FIRST(Comparator.<Entry> comparingLong(e -> e.size).thenComparingLong(e -> e.sequence)),
+        /** Largest files are processed first. */
+        LARGEST_FIRST(Comparator.<Entry> comparingLong(e -> -e.size).thenComparingLong(e -> e.sequence));
+
+        private final Comparator<Entry> comparator;
+
+        private Order(Comparator<Entry> comparator) {
+            this.comparator = comparator;
+        }
+
+        /**
+         *
+         * @param name
+         * @return {@link Order} matching the given name; FIFO if none found
+         * @should return correct value
+         * @should return fifo if name unknown
+         */
+        public static Order getByName(String name) {
+            if (name == null) {
+                return FIFO;
+            }
+
+            switch (name.toLowerCase()) {
+                case "oldest":
+                case "oldest_first":
+                    return OLDEST_FIRST;
+                case "smallest":
+                case "smallest_first":
+                    return SMALLEST_FIRST;
+                case "largest":
+                case "largest_first":
+                    return LARGEST_FIRST;
+                default:
+                    return FIFO;
+            }
+        }
+    }
+
+    private final int capacity;
+    private final Order order;
+    private final TreeSet<Entry> entries;
+    private final Map<Path, Entry> entriesByPath = new HashMap<>();
+    private final Map<String, Set<Path>> pathsByIdentifier = new HashMap<>();
+    private long sequence = 0;
+    /** Optional callback for newly added files. */
+    private Consumer<Path> addListener;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Maximum number of queued files
+     * @param order Processing order
+     */
+    public HotfolderQueue(int capacity, Order order) {
+        this.capacity = capacity;
+        this.order = order != null ? order : Order.FIFO;
+        this.entries = new TreeSet<>(this.order.comparator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @should return false if capacity reached
+     * @should not add file twice
+     */
+    @Override
+    public synchronized boolean offer(Path path) {
+        if (path == null) {
+            throw new NullPointerException();
+        }
+        if (entriesByPath.containsKey(path)) {
+            return true;
+        }
+        if (entries.size() >= capacity) {
+            return false;
+        }
+
+        Entry entry = new Entry(path, sequence++);
+        if (order != Order.FIFO) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                entry.lastModified = attrs.lastModifiedTime().toMillis();
+                entry.size = attrs.size();
+            } catch (IOException e) {
+                logger.warn("Could not read attributes of '{}': {}", path.getFileName(), e.getMessage());
+            }
+        }
+        entries.add(entry);
+        entriesByPath.put(path, entry);
+        pathsByIdentifier.computeIfAbsent(entry.identifier, k -> new LinkedHashSet<>()).add(path);
+        if (addListener != null) {
+            addListener.accept(path);
+        }
+
+        return true;
+    }
+
+    /**
+     * @should return files in configured order
+     */
+    @Override
+    public synchronized Path poll() {
+        Entry entry = entries.pollFirst();
+        if (entry == null) {
+            return null;
+        }
+        unindex(entry);
+        return entry.path;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized Path peek() {
+        return entries.isEmpty() ? null : entries.first().path;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized boolean contains(Object o) {
+        return entriesByPath.containsKey(o);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @should remove file correctly
+     */
+    @Override
+    public synchronized boolean remove(Object o) {
+        Entry entry = entriesByPath.get(o);
+        if (entry == null) {
+            return false;
+        }
+        entries.remove(entry);
+        unindex(entry);
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned iterator works on a snapshot of the queue.
+     * </p>
+     */
+    @Override
+    public Iterator<Path> iterator() {
+        Iterator<Path> snapshot = toList().iterator();
+        return new Iterator<Path>() {
+
+            private Path current;
+
+            @Override
+            public boolean hasNext() {
+                return snapshot.hasNext();
+            }
+
+            @Override
+            public Path next() {
+                current = snapshot.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+                HotfolderQueue.this.remove(current);
+                current = null;
+            }
+        };
+    }
+
+    /**
+     *
+     * @return Snapshot of all queued files in processing order
+     */
+    public synchronized List<Path> toList() {
+        List<Path> ret = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            ret.add(entry.path);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns all queued files that belong to the given record identifier.
+     *
+     * @param identifier Record identifier
+     * @return List of queued files; empty list if none found
+     * @should return all files for identifier
+     */
+    public synchronized List<Path> getFilesForIdentifier(String identifier) {
+        Set<Path> paths = pathsByIdentifier.get(identifier);
+        if (paths == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(paths);
+    }
+
+    /**
+     * Sets a callback that is called for every file that is newly added to this queue.
+     *
+     * @param addListener the addListener to set
+     */
+    public void setAddListener(Consumer<Path> addListener) {
+        this.addListener = addListener;
+    }
+
+    /**
+     *
+     * @return Processing order
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Removes the given entry from the path and identifier indexes.
+     *
+     * @param entry
+     */
+    private void unindex(Entry entry) {
+        entriesByPath.remove(entry.path);
+        Set<Path> paths = pathsByIdentifier.get(entry.identifier);
+        if (paths != null) {
+            paths.remove(entry.path);
+            if (paths.isEmpty()) {
+                pathsByIdentifier.remove(entry.identifier);
+            }
+        }
+    }
+
+    /**
+     * Queued file along with the attributes used for ordering. Attributes are read once when the file is added, so that the order of an entry
+     * remains stable while it is queued.
+     */
+    static class Entry {
+
+        private final Path path;
+        private final String identifier;
+        private final long sequence;
+        private long lastModified = 0;
+        private long size = 0;
+
+        /**
+         * @param path
+         * @param sequence
+         */
+        Entry(Path path, long sequence) {
+            this.path = path;
+            this.identifier = String.valueOf(RecordLockRegistry.getLockKey(path));
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Watches one or more hotfolders for new or modified files and forwards the file names to the respective {@link Hotfolder}. Watch events are not
+ * guaranteed on all file systems (e.g. NFS mounts), so hotfolders still perform periodic full directory listings as a fallback.
+ */
+public class HotfolderWatcher implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(HotfolderWatcher.class);
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Hotfolder> hotfolders = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @throws IOException
+     */
+    public HotfolderWatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Registers the given hotfolder with the watch service and switches it to event-driven detection.
+     *
+     * @param hotfolder
+     * @return true if successful; false otherwise
+     */
+    public boolean register(Hotfolder hotfolder) {
+        if (hotfolder == null || hotfolder.getHotfolderPath() == null) {
+            return false;
+        }
+        try {
+            WatchKey key = hotfolder.getHotfolderPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            hotfolders.put(key, hotfolder);
+            hotfolder.setEventDriven(true);
+            logger.info("Watching hotfolder '{}' for changes.", hotfolder.getHotfolderPath());
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not watch hotfolder '{}', falling back to directory listings: {}", hotfolder.getHotfolderPath(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Waits until file events are available or the given timeout has passed, whichever comes first. All available events are then forwarded to
+     * the registered hotfolders.
+     *
+     * @param timeout Maximum time to wait in milliseconds
+     * @return true if any events have been received; false otherwise
+     * @throws InterruptedException
+     * @should forward created files to hotfolder
+     * @should forward modified files to hotfolder
+     */
+    public boolean awaitChanges(long timeout) throws InterruptedException {
+        try {
+            WatchKey key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+            if (key == null) {
+                return false;
+            }
+            // Drain all other keys that are already signalled
+            while (key != null) {
+                processKey(key);
+                key = watchService.poll();
+            }
+            return true;
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Watch service closed.");
+            return false;
+        }
+    }
+
+    /**
+     *
+     * @param key
+     */
+    private void processKey(WatchKey key) {
+        Hotfolder hotfolder = hotfolders.get(key);
+        if (hotfolder != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    logger.debug("Watch event overflow in '{}', requesting full listing.", hotfolder.getHotfolderPath().getFileName());
+                    hotfolder.requestFullListing();
+                } else if (event.context() instanceof Path path) {
+                    hotfolder.addFileEvent(hotfolder.getHotfolderPath().resolve(path));
+                }
+            }
+        }
+        if (!key.reset()) {
+            logger.warn("Hotfolder '{}' is no longer accessible for watching.", hotfolder != null ? hotfolder.getHotfolderPath() : "?");
+            hotfolders.remove(key);
+            if (hotfolder != null) {
+                hotfolder.setEventDriven(false);
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
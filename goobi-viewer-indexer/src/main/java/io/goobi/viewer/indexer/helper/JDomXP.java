@@ -15,15 +15,27 @@
  */
 package io.goobi.viewer.indexer.helper;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.io.output.FileWriterWithEncoding;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jdom2.Attribute;
@@ -105,7 +117,27 @@ public class JDomXP {
 
     private static final String XPATH_TEXT = "/text()"; //NOSONAR XPath expression, not URI
 
+    /** Maximum number of compiled XPath expressions kept per thread. */
+    static final int XPATH_CACHE_SIZE = 1000;
+
+    /**
+     * Compiled XPath expressions, most recently used last. JDOM's {@link XPathExpression} instances are not thread-safe (neither evaluation nor
+     * variable values), so each thread keeps its own cache.
+     */
+    private static final ThreadLocal<Map<XPathKey, XPathExpression<Object>>> XPATH_CACHE =
+            ThreadLocal.withInitial(() -> new LinkedHashMap<XPathKey, XPathExpression<Object>>(64, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<XPathKey, XPathExpression<Object>> eldest) {
+                    return size() > XPATH_CACHE_SIZE;
+                }
+            });
+
     private Document doc;
+    /** Structural lookup tables for METS documents; built on first access */
+    private MetsStructureIndex metsStructureIndex;
 
     /**
      * Constructor that reads a Document from the given file.
@@ -138,7 +170,7 @@ public class JDomXP {
      * @return {@link java.util.List}
      */
     public List<Object> evaluate(String expr, final Object parent) {
-        return evaluate(expr, parent != null ? parent : doc, Filters.fpassthrough());
+        return evaluate(expr, parent != null ? parent : doc, Filters.fpassthrough(), null);
     }
 
     /**
@@ -147,23 +179,56 @@ public class JDomXP {
      * @param expr XPath expression to evaluate.
      * @param parent If not null, the expression is evaluated relative to this element.
      * @param filter Return type filter.
+     * @param variables Optional values for the variables (<code>$name</code>) used in the expression
      * @return List<Object>
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
-    private static List<Object> evaluate(String expr, Object parent, Filter filter) {
+    @SuppressWarnings("rawtypes")
+    private static List<Object> evaluate(String expr, Object parent, Filter filter, Map<String, Object> variables) {
         if (expr == null) {
             throw new IllegalArgumentException("expr may not be null");
         }
 
-        XPathBuilder<Object> builder = new XPathBuilder<>(expr.trim().replace("\n", ""), filter);
-        // Add all namespaces
-        for (String key : SolrIndexerDaemon.getInstance().getConfiguration().getNamespaces().keySet()) {
-            Namespace value = SolrIndexerDaemon.getInstance().getConfiguration().getNamespaces().get(key);
-            builder.setNamespace(value.getPrefix(), value.getURI());
+        XPathExpression<Object> xpath = compile(expr, filter, variables != null ? variables.keySet() : Collections.emptySet());
+        if (variables != null) {
+            for (Map.Entry<String, Object> entry : variables.entrySet()) {
+                xpath.setVariable(entry.getKey(), entry.getValue());
+            }
         }
-        XPathExpression<Object> xpath = builder.compileWith(XPathFactory.instance());
         return xpath.evaluate(parent);
+    }
+
+    /**
+     * Returns the compiled form of the given XPath expression from the cache of the current thread. Expressions are compiled with the currently
+     * configured namespaces; cached expressions compiled with previous namespace configurations are no longer used.
+     *
+     * @param expr XPath expression to compile
+     * @param filter Return type filter
+     * @param variableNames Names of the variables used in the expression
+     * @return Compiled {@link XPathExpression}
+     * @should return cached expression for same arguments
+     * @should compile separate expressions for different filters
+     * @should compile new expression after namespaces reload
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static XPathExpression<Object> compile(String expr, Filter filter, Set<String> variableNames) {
+        Configuration config = SolrIndexerDaemon.getInstance().getConfiguration();
+        XPathKey key = new XPathKey(expr, filter, config.getNamespacesGeneration(), Set.copyOf(variableNames));
+        Map<XPathKey, XPathExpression<Object>> cache = XPATH_CACHE.get();
+        XPathExpression<Object> ret = cache.get(key);
+        if (ret == null) {
+            XPathBuilder<Object> builder = new XPathBuilder<>(expr.trim().replace("\n", ""), filter);
+            // Add all namespaces
+            for (Namespace namespace : config.getNamespaces().values()) {
+                builder.setNamespace(namespace.getPrefix(), namespace.getURI());
+            }
+            for (String variableName : variableNames) {
+                builder.setVariable(variableName, "");
+            }
+            ret = builder.compileWith(XPathFactory.instance());
+            cache.put(key, ret);
+        }
 
+        return ret;
     }
 
     /**
@@ -175,7 +240,21 @@ public class JDomXP {
      * @should return all values
      */
     public List<Element> evaluateToElements(String expr, final Object parent) {
-        return evaluateToElementsStatic(expr, parent != null ? parent : doc);
+        return evaluateToElements(expr, parent, null);
+    }
+
+    /**
+     * Evaluates the given parameterized XPath expression to a list of elements. Defaults to root element if no node was given in
+     * <code>parent</code>.
+     *
+     * @param expr XPath expression to evaluate; may reference the given variables as <code>$name</code>
+     * @param parent If not null, the expression is evaluated relative to this element.
+     * @param variables Values for the variables used in the expression
+     * @return {@link java.util.ArrayList} or null
+     * @should replace variables correctly
+     */
+    public List<Element> evaluateToElements(String expr, final Object parent, Map<String, Object> variables) {
+        return toElements(evaluate(expr, parent != null ? parent : doc, Filters.element(), variables));
     }
 
     /**
@@ -186,12 +265,19 @@ public class JDomXP {
      * @return {@link java.util.ArrayList} or null
      */
     public static List<Element> evaluateToElementsStatic(String expr, Object parent) {
-        List<Element> retList = new ArrayList<>();
+        return toElements(evaluate(expr, parent, Filters.element(), null));
+    }
 
-        List<Object> list = evaluate(expr, parent, Filters.element());
+    /**
+     *
+     * @param list
+     * @return List<Element>
+     */
+    private static List<Element> toElements(List<Object> list) {
         if (list == null) {
             return Collections.emptyList();
         }
+        List<Element> retList = new ArrayList<>();
         for (Object object : list) {
             if (object instanceof Element element) {
                 retList.add(element);
@@ -211,7 +297,7 @@ public class JDomXP {
      */
     public List<Attribute> evaluateToAttributes(String expr, final Object parent) {
         List<Attribute> retList = new ArrayList<>();
-        List<Object> list = evaluate(expr, parent != null ? parent : doc, Filters.attribute());
+        List<Object> list = evaluate(expr, parent != null ? parent : doc, Filters.attribute(), null);
         if (list == null) {
             return Collections.emptyList();
         }
@@ -233,7 +319,19 @@ public class JDomXP {
      * @should return value correctly
      */
     public String evaluateToAttributeStringValue(String expr, final Object parent) {
-        List<Object> list = evaluate(expr, parent != null ? parent : doc, Filters.attribute());
+        return evaluateToAttributeStringValue(expr, parent, null);
+    }
+
+    /**
+     * Evaluates the given parameterized XPath expression to a string value of an XML attribute particularly.
+     *
+     * @param expr XPath expression to evaluate; may reference the given variables as <code>$name</code>
+     * @param parent If not null, the expression is evaluated relative to this element.
+     * @param variables Values for the variables used in the expression
+     * @return a {@link java.lang.String} object.
+     */
+    public String evaluateToAttributeStringValue(String expr, final Object parent, Map<String, Object> variables) {
+        List<Object> list = evaluate(expr, parent != null ? parent : doc, Filters.attribute(), variables);
         if (list == null || list.isEmpty()) {
             return null;
         }
@@ -254,6 +352,19 @@ public class JDomXP {
      * @should convert string to NFC
      */
     public String evaluateToString(final String expr, final Object parent) {
+        return evaluateToString(expr, parent, null);
+    }
+
+    /**
+     * Evaluates the given parameterized XPath expression to a single string. Does not work for attribute values (use
+     * <code>evaluateToAttributeStringValue</code>).
+     *
+     * @param expr XPath expression to evaluate; may reference the given variables as <code>$name</code>
+     * @param parent If not null, the expression is evaluated relative to this element.
+     * @param variables Values for the variables used in the expression
+     * @return {@link java.lang.String} or null
+     */
+    public String evaluateToString(final String expr, final Object parent, Map<String, Object> variables) {
         if (expr == null) {
             return "";
         }
@@ -263,7 +374,7 @@ public class JDomXP {
         if (!expression.endsWith(XPATH_TEXT)) {
             expression += XPATH_TEXT;
         }
-        List<Object> list = evaluate(expression, parent != null ? parent : doc, Filters.text());
+        List<Object> list = evaluate(expression, parent != null ? parent : doc, Filters.text(), variables);
         if (list == null || list.isEmpty()) {
             return null;
         }
@@ -283,7 +394,19 @@ public class JDomXP {
      * @should convert strings to NFC
      */
     public List<String> evaluateToStringList(String expr, final Object parent) {
-        return evaluateToStringListStatic(expr, parent != null ? parent : doc);
+        return evaluateToStringList(expr, parent, null);
+    }
+
+    /**
+     * Evaluates the given parameterized XPath expression to a list of strings.
+     *
+     * @param expr XPath expression to evaluate; may reference the given variables as <code>$name</code>
+     * @param parent If not null, the expression is evaluated relative to this element.
+     * @param variables Values for the variables used in the expression
+     * @return {@link java.util.ArrayList} or null
+     */
+    public List<String> evaluateToStringList(String expr, final Object parent, Map<String, Object> variables) {
+        return toStrings(evaluate(expr, parent != null ? parent : doc, Filters.fpassthrough(), variables));
     }
 
     /**
@@ -294,7 +417,15 @@ public class JDomXP {
      * @return {@link java.util.ArrayList} or null
      */
     public static List<String> evaluateToStringListStatic(String expr, Object parent) {
-        List<Object> list = evaluate(expr, parent, Filters.fpassthrough());
+        return toStrings(evaluate(expr, parent, Filters.fpassthrough(), null));
+    }
+
+    /**
+     *
+     * @param list
+     * @return List<String>
+     */
+    private static List<String> toStrings(List<Object> list) {
         if (list == null) {
             return Collections.emptyList();
         }
@@ -324,7 +455,7 @@ public class JDomXP {
         if (!useExpr.endsWith(XPATH_TEXT)) {
             useExpr += XPATH_TEXT;
         }
-        List<Object> list = evaluate(useExpr, parent != null ? parent : doc, Filters.cdata());
+        List<Object> list = evaluate(useExpr, parent != null ? parent : doc, Filters.cdata(), null);
         if (list == null || list.isEmpty()) {
             return null;
         }
@@ -376,6 +507,21 @@ public class JDomXP {
         writeXmlFile(doc, filename);
     }
 
+    /**
+     * Returns the {@link MetsStructureIndex} for this (METS) document, building it on first access. Changes to structLink, fileSec, dmdSec or
+     * structMap elements made after that are not reflected in the index.
+     *
+     * @return {@link MetsStructureIndex}
+     * @should return same instance on subsequent calls
+     */
+    public synchronized MetsStructureIndex getMetsStructureIndex() {
+        if (metsStructureIndex == null) {
+            metsStructureIndex = new MetsStructureIndex(doc != null ? doc.getRootElement() : null);
+        }
+
+        return metsStructureIndex;
+    }
+
     /**
      * <p>
      * getRootElement.
@@ -399,12 +545,11 @@ public class JDomXP {
      * @should return mdWrap correctly
      */
     public Element getMdWrap(String dmdId) {
-        List<Element> ret = evaluateToElements("mets:mets/mets:dmdSec[@ID='" + dmdId + "']/mets:mdWrap[@MDTYPE='MODS' or @MDTYPE='MARC']", null);
-        if (ret != null && !ret.isEmpty()) {
-            return ret.get(0);
+        if (dmdId == null) {
+            return null;
         }
 
-        return null;
+        return getMetsStructureIndex().getMdWrap(dmdId);
     }
 
     /**
@@ -546,7 +691,8 @@ public class JDomXP {
     }
 
     /**
-     * Determines the format of the given XML file by checking for namespaces.
+     * Determines the format of the given XML file by checking for namespaces. The file is read as a stream up to the root element (METS: up to
+     * the last mets:dmdSec), so no document tree is built.
      *
      * @param file a {@link java.io.File} object.
      * @return a {@link io.goobi.viewer.indexer.helper.JDomXP.FileFormat} object.
@@ -562,61 +708,168 @@ public class JDomXP {
      * @should detect abbyy files correctly
      * @should detect tei files correctly
      * @should detect cms files correctly
+     * @should return unknown for documents with doctype
      */
     public static FileFormat determineFileFormat(File file) throws IOException {
-        try {
-            JDomXP xp = new JDomXP(file);
-            if (xp.doc.getRootElement() == null) {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = XmlTools.getXMLInputFactory().createXMLStreamReader(is);
+            try {
+                return determineFileFormat(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            logger.error(e.getMessage());
+        }
+
+        return FileFormat.UNKNOWN;
+    }
+
+    /**
+     * Determines the format from the root element of the document read by the given reader, without reading the remaining document (except for
+     * the mets:dmdSec elements of METS documents).
+     *
+     * @param reader
+     * @return Detected {@link FileFormat}
+     * @throws XMLStreamException
+     */
+    private static FileFormat determineFileFormat(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+            if (reader.getEventType() == XMLStreamConstants.DTD) {
+                // Documents with DOCTYPE declarations cannot be read by XmlTools.getSAXBuilder()
+                logger.error("DOCTYPE declarations are not allowed.");
                 return FileFormat.UNKNOWN;
             }
+        }
+        if (!reader.isStartElement()) {
+            return FileFormat.UNKNOWN;
+        }
 
-            if (xp.doc.getRootElement().getNamespace("mets") != null) {
-                // Records containing both MODS and MARC should be treated as METS/MODS
-                List<Element> elements = evaluateToElementsStatic("mets:dmdSec/mets:mdWrap[@MDTYPE='MODS']", xp.doc.getRootElement());
-                if (elements != null && !elements.isEmpty()) {
-                    return FileFormat.METS;
-                }
-                elements = evaluateToElementsStatic("mets:dmdSec/mets:mdWrap[@MDTYPE='MARC']", xp.doc.getRootElement());
-                if (elements != null && !elements.isEmpty()) {
-                    return FileFormat.METS_MARC;
+        // All namespace prefixes in scope for the root element
+        Set<String> prefixes = new HashSet<>();
+        prefixes.add(StringUtils.defaultString(reader.getPrefix()));
+        for (int i = 0; i < reader.getNamespaceCount(); ++i) {
+            prefixes.add(StringUtils.defaultString(reader.getNamespacePrefix(i)));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); ++i) {
+            prefixes.add(StringUtils.defaultString(reader.getAttributePrefix(i)));
+        }
+        String rootName = reader.getLocalName();
+        String rootNamespaceUri = StringUtils.defaultString(reader.getNamespaceURI());
+
+        if (prefixes.contains("mets")) {
+            return determineMetsFormat(reader);
+        }
+        if (prefixes.contains("lido")) {
+            return FileFormat.LIDO;
+        }
+        if (rootNamespaceUri.equals("urn:isbn:1-931666-22-9")) {
+            return FileFormat.EAD;
+        }
+        if (rootNamespaceUri.equals("http://ead3.archivists.org/schema/") || rootNamespaceUri.equals("https://archivists.org/ns/ead/v4")) {
+            return FileFormat.EAD3;
+        }
+        if (rootNamespaceUri.equals("http://denkxweb.de/")) {
+            return FileFormat.DENKXWEB;
+        }
+        if (prefixes.contains("dc")) {
+            return FileFormat.DUBLINCORE;
+        }
+        if (rootName.equals("worldviews")) {
+            return FileFormat.WORLDVIEWS;
+        }
+        if (rootNamespaceUri.contains("abbyy")) {
+            return FileFormat.ABBYYXML;
+        }
+        if (rootName.equals("TEI.2")) {
+            return FileFormat.TEI;
+        }
+        if (rootName.equals("cmsPage")) {
+            return FileFormat.CMS;
+        }
+
+        return FileFormat.UNKNOWN;
+    }
+
+    /**
+     * Checks the mets:mdWrap types of all mets:dmdSec elements. Reading stops at the first child of the root element that is neither a mets:metsHdr
+     * nor a mets:dmdSec (the METS schema requires these to come first).
+     *
+     * @param reader Reader positioned at the root element
+     * @return {@link FileFormat#METS_MARC} if the record contains MARC but no MODS metadata; {@link FileFormat#METS} otherwise
+     * @throws XMLStreamException
+     */
+    private static FileFormat determineMetsFormat(XMLStreamReader reader) throws XMLStreamException {
+        String metsUri = SolrIndexerDaemon.getInstance().getConfiguration().getNamespaces().get("mets").getURI();
+        boolean marc = false;
+        boolean inDmdSec = false;
+        int depth = 1;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                boolean metsElement = metsUri.equals(reader.getNamespaceURI());
+                if (depth == 2) {
+                    inDmdSec = metsElement && "dmdSec".equals(reader.getLocalName());
+                    if (!inDmdSec && !(metsElement && "metsHdr".equals(reader.getLocalName()))) {
+                        break;
+                    }
+                } else if (depth == 3 && inDmdSec && metsElement && "mdWrap".equals(reader.getLocalName())) {
+                    String mdType = reader.getAttributeValue(null, "MDTYPE");
+                    if ("MODS".equals(mdType)) {
+                        // Records containing both MODS and MARC should be treated as METS/MODS
+                        return FileFormat.METS;
+                    }
+                    marc |= "MARC".equals(mdType);
                 }
-                return FileFormat.METS;
-            }
-            if (xp.doc.getRootElement().getNamespace("lido") != null) {
-                return FileFormat.LIDO;
-            }
-            if (xp.doc.getRootElement().getNamespace() != null
-                    && (xp.doc.getRootElement().getNamespace().getURI().equals("urn:isbn:1-931666-22-9"))) {
-                return FileFormat.EAD;
-            }
-            if (xp.doc.getRootElement().getNamespace() != null
-                    && (xp.doc.getRootElement().getNamespace().getURI().equals("http://ead3.archivists.org/schema/")
-                            || xp.doc.getRootElement().getNamespace().getURI().equals("https://archivists.org/ns/ead/v4"))) {
-                return FileFormat.EAD3;
-            }
-            if (xp.doc.getRootElement().getNamespace() != null
-                    && xp.doc.getRootElement().getNamespace().getURI().equals("http://denkxweb.de/")) {
-                return FileFormat.DENKXWEB;
-            }
-            if (xp.doc.getRootElement().getNamespace("dc") != null) {
-                return FileFormat.DUBLINCORE;
-            }
-            if (xp.doc.getRootElement().getName().equals("worldviews")) {
-                return FileFormat.WORLDVIEWS;
+            } else if (event == XMLStreamConstants.END_ELEMENT && --depth == 0) {
+                break;
             }
-            if (xp.doc.getRootElement().getNamespace().getURI().contains("abbyy")) {
-                return FileFormat.ABBYYXML;
-            }
-            if (xp.doc.getRootElement().getName().equals("TEI.2")) {
-                return FileFormat.TEI;
+        }
+
+        return marc ? FileFormat.METS_MARC : FileFormat.METS;
+    }
+
+    /**
+     * Cache key for compiled XPath expressions.
+     */
+    private static final class XPathKey {
+
+        private final String expr;
+        @SuppressWarnings("rawtypes")
+        private final Filter filter;
+        private final int namespacesGeneration;
+        private final Set<String> variableNames;
+
+        /**
+         * @param expr XPath expression
+         * @param filter Return type filter
+         * @param namespacesGeneration Generation of the namespace configuration the expression is compiled with
+         * @param variableNames Names of the variables declared for the expression
+         */
+        @SuppressWarnings("rawtypes")
+        XPathKey(String expr, Filter filter, int namespacesGeneration, Set<String> variableNames) {
+            this.expr = expr;
+            this.filter = filter;
+            this.namespacesGeneration = namespacesGeneration;
+            this.variableNames = variableNames;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(expr, filter, namespacesGeneration, variableNames);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
             }
-            if (xp.doc.getRootElement().getName().equals("cmsPage")) {
-                return FileFormat.CMS;
+            if (!(obj instanceof XPathKey other)) {
+                return false;
             }
-        } catch (JDOMException e) {
-            logger.error(e.getMessage());
+            return namespacesGeneration == other.namespacesGeneration && expr.equals(other.expr) && Objects.equals(filter, other.filter)
+                    && variableNames.equals(other.variableNames);
         }
-
-        return FileFormat.UNKNOWN;
     }
 }
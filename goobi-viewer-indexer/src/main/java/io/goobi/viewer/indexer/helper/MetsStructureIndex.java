@@ -0,0 +1,229 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.filter.Filters;
+
+import io.goobi.viewer.indexer.SolrIndexerDaemon;
+
+/**
+ * Lookup tables for the structural parts of a METS document (structLink, fileSec, dmdSec and structMap elements), built in a single pass over the
+ * document. Replaces absolute XPath lookups that would otherwise scan the entire document once per page or docstruct. The index reflects the
+ * document at the time of creation and is safe for concurrent reads.
+ */
+public class MetsStructureIndex {
+
+    private static final String ATTRIBUTE_ID = "ID";
+
+    /** Physical IDs mapped to each logical ID (smLink from -> to), in document order */
+    private final Map<String, List<String>> physIdsByLogId = new HashMap<>();
+    /** Logical IDs mapped to each physical ID (smLink to -> from), in document order */
+    private final Map<String, List<String>> logIdsByPhysId = new HashMap<>();
+    private final List<Element> fileGroups = new ArrayList<>();
+    /** mets:file elements by file group USE and file ID */
+    private final Map<String, Map<String, Element>> filesByFileGroup = new HashMap<>();
+    private final Map<String, Element> dmdSecs = new HashMap<>();
+    private final Map<String, Element> physicalDivs = new HashMap<>();
+    private final Map<String, Element> logicalDivs = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param eleMets Root mets:mets element; if this is not a mets:mets element, the index will be empty
+     * @should index structLinks correctly
+     * @should index files correctly
+     * @should index dmdSecs correctly
+     * @should index structMap divs correctly
+     * @should create empty index for non mets documents
+     */
+    public MetsStructureIndex(Element eleMets) {
+        Namespace nsMets = SolrIndexerDaemon.getInstance().getConfiguration().getNamespaces().get("mets");
+        Namespace nsXlink = SolrIndexerDaemon.getInstance().getConfiguration().getNamespaces().get("xlink");
+        if (eleMets == null || !"mets".equals(eleMets.getName()) || !nsMets.equals(eleMets.getNamespace())) {
+            return;
+        }
+
+        for (Element ele : eleMets.getChildren()) {
+            if (!nsMets.equals(ele.getNamespace())) {
+                continue;
+            }
+            switch (ele.getName()) {
+                case "dmdSec":
+                    putIfIdPresent(dmdSecs, ele);
+                    break;
+                case "fileSec":
+                    for (Element eleFileGrp : ele.getChildren("fileGrp", nsMets)) {
+                        fileGroups.add(eleFileGrp);
+                        String use = eleFileGrp.getAttributeValue("USE");
+                        if (use != null) {
+                            Map<String, Element> files = filesByFileGroup.computeIfAbsent(use, k -> new HashMap<>());
+                            for (Element eleFile : eleFileGrp.getChildren("file", nsMets)) {
+                                putIfIdPresent(files, eleFile);
+                            }
+                        }
+                    }
+                    break;
+                case "structMap":
+                    if ("PHYSICAL".equals(ele.getAttributeValue("TYPE"))) {
+                        indexDivs(ele, nsMets, physicalDivs);
+                    } else if ("LOGICAL".equals(ele.getAttributeValue("TYPE"))) {
+                        indexDivs(ele, nsMets, logicalDivs);
+                    }
+                    break;
+                case "structLink":
+                    for (Element eleSmLink : ele.getChildren("smLink", nsMets)) {
+                        String from = eleSmLink.getAttributeValue("from", nsXlink);
+                        String to = eleSmLink.getAttributeValue("to", nsXlink);
+                        if (from != null && to != null) {
+                            physIdsByLogId.computeIfAbsent(from, k -> new ArrayList<>()).add(to);
+                            logIdsByPhysId.computeIfAbsent(to, k -> new ArrayList<>()).add(from);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Adds all mets:div elements in the given structMap to the given map.
+     *
+     * @param eleStructMap
+     * @param nsMets
+     * @param divs
+     */
+    private static void indexDivs(Element eleStructMap, Namespace nsMets, Map<String, Element> divs) {
+        for (Element eleDiv : eleStructMap.getDescendants(Filters.element("div", nsMets))) {
+            putIfIdPresent(divs, eleDiv);
+        }
+    }
+
+    /**
+     * Adds the given element to the given map under its ID, unless the ID is missing or already present (first occurrence wins, like XPath).
+     *
+     * @param map
+     * @param ele
+     */
+    private static void putIfIdPresent(Map<String, Element> map, Element ele) {
+        String id = ele.getAttributeValue(ATTRIBUTE_ID);
+        if (id != null) {
+            map.putIfAbsent(id, ele);
+        }
+    }
+
+    /**
+     *
+     * @param logId ID of the logical mets:div
+     * @return IDs of all physical elements mapped to the given logical element; empty list if none found
+     */
+    public List<String> getPhysIdsForLogId(String logId) {
+        return Collections.unmodifiableList(physIdsByLogId.getOrDefault(logId, Collections.emptyList()));
+    }
+
+    /**
+     *
+     * @param physId ID of the physical mets:div
+     * @return IDs of all logical elements the given physical element is mapped to; empty list if none found
+     */
+    public List<String> getLogIdsForPhysId(String physId) {
+        return Collections.unmodifiableList(logIdsByPhysId.getOrDefault(physId, Collections.emptyList()));
+    }
+
+    /**
+     *
+     * @return All mets:fileGrp elements in the mets:fileSec
+     */
+    public List<Element> getFileGroups() {
+        return Collections.unmodifiableList(fileGroups);
+    }
+
+    /**
+     *
+     * @param fileGroup USE value of the file group
+     * @return true if a mets:fileGrp with the given USE value exists; false otherwise
+     */
+    public boolean hasFileGroup(String fileGroup) {
+        return filesByFileGroup.containsKey(fileGroup);
+    }
+
+    /**
+     *
+     * @param fileGroup USE value of the file group
+     * @param fileId ID of the file
+     * @return mets:file element with the given ID in the given file group; null if none found
+     */
+    public Element getFile(String fileGroup, String fileId) {
+        Map<String, Element> files = filesByFileGroup.get(fileGroup);
+        return files != null ? files.get(fileId) : null;
+    }
+
+    /**
+     *
+     * @param dmdId ID of the mets:dmdSec
+     * @return mets:dmdSec element with the given ID; null if none found
+     */
+    public Element getDmdSec(String dmdId) {
+        return dmdSecs.get(dmdId);
+    }
+
+    /**
+     *
+     * @param dmdId ID of the mets:dmdSec
+     * @return First MODS or MARC mets:mdWrap element of the mets:dmdSec with the given ID; null if none found
+     * @should return mdWrap correctly
+     */
+    public Element getMdWrap(String dmdId) {
+        Element eleDmdSec = dmdSecs.get(dmdId);
+        if (eleDmdSec == null) {
+            return null;
+        }
+        for (Element eleMdWrap : eleDmdSec.getChildren("mdWrap", eleDmdSec.getNamespace())) {
+            String mdType = eleMdWrap.getAttributeValue("MDTYPE");
+            if ("MODS".equals(mdType) || "MARC".equals(mdType)) {
+                return eleMdWrap;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     *
+     * @param physId ID of the physical mets:div
+     * @return mets:div element with the given ID in the physical structMap; null if none found
+     */
+    public Element getPhysicalDiv(String physId) {
+        return physicalDivs.get(physId);
+    }
+
+    /**
+     *
+     * @param logId ID of the logical mets:div
+     * @return mets:div element with the given ID in the logical structMap; null if none found
+     */
+    public Element getLogicalDiv(String logId) {
+        return logicalDivs.get(logId);
+    }
+}
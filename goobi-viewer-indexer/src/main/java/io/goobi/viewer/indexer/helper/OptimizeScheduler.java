@@ -0,0 +1,195 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs index optimization in a background thread once the hotfolders have been idle for the configured time, so that the expensive segment
+ * merge never blocks indexing. Optionally, optimization is restricted to a daily time window. An optimization is only scheduled if any records
+ * have been indexed since the last one.
+ */
+public class OptimizeScheduler {
+
+    private static final Logger logger = LogManager.getLogger(OptimizeScheduler.class);
+
+    private final long idleTime;
+    private final LocalTime windowStart;
+    private final LocalTime windowEnd;
+    private final int maxSegments;
+    private final AtomicBoolean optimizing = new AtomicBoolean(false);
+    private long idleSince = -1;
+    private boolean changed = false;
+    private ExecutorService executor;
+
+    /**
+     * Constructor.
+     *
+     * @param idleTime Time in milliseconds the hotfolders must have been idle
+     * @param windowStart Start of the daily time window; if null, optimization may run at any time
+     * @param windowEnd End of the daily time window; if null, optimization may run at any time
+     * @param maxSegments Maximum number of segments to merge the index into
+     */
+    public OptimizeScheduler(long idleTime, LocalTime windowStart, LocalTime windowEnd, int maxSegments) {
+        this.idleTime = Math.max(0, idleTime);
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    /**
+     * Updates the idle state after a hotfolder scan and starts a background optimization, if one is due.
+     *
+     * @param busy true if the scan found any records to index or any records are still being indexed; false otherwise
+     * @param searchIndex {@link SolrSearchIndex} to optimize
+     */
+    public void afterScan(boolean busy, SolrSearchIndex searchIndex) {
+        if (searchIndex == null || !isDue(busy, System.currentTimeMillis(), LocalTime.now())) {
+            return;
+        }
+
+        optimizing.set(true);
+        getExecutor().submit(() -> {
+            try {
+                logger.info("Hotfolders idle, optimizing index...");
+                long start = System.currentTimeMillis();
+                if (searchIndex.optimize(maxSegments)) {
+                    logger.info("Index optimized in {} ms.", System.currentTimeMillis() - start);
+                }
+            } finally {
+                optimizing.set(false);
+            }
+        });
+    }
+
+    /**
+     *
+     * @param busy true if the scan found any records to index; false otherwise
+     * @param now Current timestamp
+     * @param time Current time of day
+     * @return true if an optimization should be started now; false otherwise
+     * @should return false while busy
+     * @should return false if nothing indexed since last optimization
+     * @should return false before idle time has elapsed
+     * @should return true after idle time has elapsed
+     * @should return false outside of time window
+     * @should return true inside time window spanning midnight
+     */
+    synchronized boolean isDue(boolean busy, long now, LocalTime time) {
+        if (busy) {
+            changed = true;
+            idleSince = -1;
+            return false;
+        }
+        if (idleSince < 0) {
+            idleSince = now;
+        }
+        if (!changed || optimizing.get() || now - idleSince < idleTime || !isInTimeWindow(time)) {
+            return false;
+        }
+
+        changed = false;
+        return true;
+    }
+
+    /**
+     *
+     * @param time
+     * @return true if no time window is configured or the given time lies within it; false otherwise
+     */
+    boolean isInTimeWindow(LocalTime time) {
+        if (windowStart == null || windowEnd == null) {
+            return true;
+        }
+        if (windowStart.isAfter(windowEnd)) {
+            // Window spans midnight
+            return !time.isBefore(windowStart) || time.isBefore(windowEnd);
+        }
+
+        return !time.isBefore(windowStart) && time.isBefore(windowEnd);
+    }
+
+    /**
+     *
+     * @return true if an optimization is currently running; false otherwise
+     */
+    public boolean isOptimizing() {
+        return optimizing.get();
+    }
+
+    /**
+     * Stops the background thread. An optimization already sent to Solr will still be completed by the server.
+     */
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    /**
+     * Parses a time of day in <code>HH:mm</code> format.
+     *
+     * @param value
+     * @return Parsed {@link LocalTime}; null if value is blank or invalid
+     * @should parse time correctly
+     * @should return null if value blank or invalid
+     */
+    public static LocalTime parseTime(String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        try {
+            return LocalTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            logger.warn("Invalid time of day: {}", value);
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @return {@link ExecutorService}
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "optimize");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        return executor;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Keeps track of record identifiers that are currently being processed so that no two operations on the same record (or on an anchor and one of
+ * its volumes) run at the same time. Locks are not bound to a thread, i.e. a lock acquired by the hotfolder scanner may be released by an indexing
+ * worker thread.
+ */
+public class RecordLockRegistry {
+
+    private final Set<String> lockedIdentifiers = new HashSet<>();
+
+    /**
+     * Locks the given identifier, if it is not already locked.
+     *
+     * @param identifier Record identifier
+     * @return true if the lock has been acquired; false if the identifier is already locked
+     * @should return false if identifier already locked
+     * @should return true if identifier blank
+     */
+    public synchronized boolean tryLock(String identifier) {
+        if (StringUtils.isBlank(identifier)) {
+            return true;
+        }
+        return lockedIdentifiers.add(identifier);
+    }
+
+    /**
+     * Locks the given identifier, waiting until any other lock on it has been released.
+     *
+     * @param identifier Record identifier
+     * @throws InterruptedException
+     */
+    public synchronized void lock(String identifier) throws InterruptedException {
+        if (StringUtils.isBlank(identifier)) {
+            return;
+        }
+        while (!lockedIdentifiers.add(identifier)) {
+            wait();
+        }
+    }
+
+    /**
+     * Releases the lock on the given identifier.
+     *
+     * @param identifier Record identifier
+     * @should release lock correctly
+     */
+    public synchronized void unlock(String identifier) {
+        if (StringUtils.isBlank(identifier)) {
+            return;
+        }
+        if (lockedIdentifiers.remove(identifier)) {
+            notifyAll();
+        }
+    }
+
+    /**
+     *
+     * @param identifier Record identifier
+     * @return true if the given identifier is currently locked; false otherwise
+     */
+    public synchronized boolean isLocked(String identifier) {
+        return lockedIdentifiers.contains(identifier);
+    }
+
+    /**
+     * Returns the record identifier part of the given hotfolder file name, i.e. the base name without any anti-collision suffix.
+     *
+     * @param recordFile Record or command file
+     * @return Lock key for the given file
+     * @should return base name without collision suffix
+     */
+    public static String getLockKey(Path recordFile) {
+        if (recordFile == null) {
+            return null;
+        }
+
+        return getLockKeyForBaseName(FilenameUtils.getBaseName(recordFile.getFileName().toString()));
+    }
+
+    /**
+     * Returns the record identifier part of the given hotfolder file base name, i.e. without any anti-collision suffix.
+     *
+     * @param baseName File name without extension
+     * @return Lock key for the given base name
+     */
+    public static String getLockKeyForBaseName(String baseName) {
+        if (baseName == null || !baseName.contains("#")) {
+            return baseName;
+        }
+
+        return baseName.substring(0, baseName.indexOf('#'));
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.goobi.viewer.indexer.helper.logging.SecondaryAppender;
+
+/**
+ * Final stage of record processing, after the record has been written to Solr: copying the record file and data folders into the data repository
+ * and cleaning up the hotfolder. If enabled, relocation tasks run in a separate thread, so that the next record can already be parsed and
+ * written while the data folders of the previous one are still being copied. Tasks are handed over via a bounded queue; if the queue is full, the
+ * submitting thread performs the relocation itself.
+ */
+public class RecordRelocationStage {
+
+    private static final Logger logger = LogManager.getLogger(RecordRelocationStage.class);
+
+    /**
+     * Relocation task.
+     */
+    @FunctionalInterface
+    public interface RelocationTask {
+
+        /**
+         * @throws IOException
+         */
+        void run() throws IOException;
+    }
+
+    /** Executor for relocation tasks; null if tasks are run in the calling thread. */
+    private final ThreadPoolExecutor executor;
+    /** Pending relocations by record file. */
+    private final Map<Path, CompletableFuture<Void>> pendingRelocations = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param queueSize Maximum number of relocation tasks waiting to be processed; 0 to run all tasks in the calling thread
+     */
+    public RecordRelocationStage(int queueSize) {
+        if (queueSize > 0) {
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+                Thread t = new Thread(r, "recordRelocation");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Runs the given relocation task for the given record file, either directly or in the relocation thread. If the task fails in the relocation
+     * thread, the record file is left in the hotfolder, so that the record is indexed and relocated again during a later hotfolder scan; actions
+     * registered via <code>afterRelocation()</code> are skipped in that case.
+     *
+     * @param recordFile Record file in the hotfolder
+     * @param task Relocation task
+     * @throws IOException if the task fails in the calling thread
+     * @should run task in calling thread if disabled
+     * @should run task asynchronously if enabled
+     */
+    public void submit(Path recordFile, RelocationTask task) throws IOException {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        pendingRelocations.put(recordFile, future);
+        // Messages logged by the relocation thread belong to the log of the submitting record
+        executor.execute(SecondaryAppender.withRecord(() -> {
+            try {
+                task.run();
+                future.complete(null);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Relocation of '{}' failed, the file will be kept in the hotfolder for another attempt: {}", recordFile.getFileName(),
+                        e.getMessage(), e);
+                future.completeExceptionally(e);
+            }
+        }));
+    }
+
+    /**
+     * Runs the given action once any pending relocation of the given record file has finished successfully. If no relocation is pending, the
+     * action is run immediately in the calling thread. If the relocation fails, the action is not run.
+     *
+     * @param recordFile Record file in the hotfolder
+     * @param action Action to run
+     * @should run action immediately if no relocation pending
+     * @should run action after relocation finished
+     * @should not run action if relocation failed
+     */
+    public void afterRelocation(Path recordFile, Runnable action) {
+        CompletableFuture<Void> future = pendingRelocations.get(recordFile);
+        if (future != null) {
+            future.thenRun(() -> runSafely(action));
+        } else {
+            runSafely(action);
+        }
+    }
+
+    /**
+     * Runs the given action once any pending relocation of the given record file has finished, regardless of its outcome. If no relocation is
+     * pending, the action is run immediately in the calling thread.
+     *
+     * @param recordFile Record file in the hotfolder
+     * @param action Action to run
+     * @should run action after failed relocation
+     */
+    public void afterRelocationAttempt(Path recordFile, Runnable action) {
+        CompletableFuture<Void> future = pendingRelocations.get(recordFile);
+        if (future != null) {
+            future.whenComplete((r, e) -> runSafely(action));
+        } else {
+            runSafely(action);
+        }
+    }
+
+    /**
+     * Runs the given action once any pending relocation of the given record file has finished, regardless of its outcome, and then forgets the
+     * relocation. Must be called exactly once per processed record file, after all other actions have been registered. If no relocation is
+     * pending, the action is run immediately in the calling thread.
+     *
+     * @param recordFile Record file in the hotfolder
+     * @param action Action to run
+     * @should run action immediately if no relocation pending
+     * @should run action if relocation failed
+     */
+    public void whenRelocationFinished(Path recordFile, Runnable action) {
+        CompletableFuture<Void> future = pendingRelocations.get(recordFile);
+        if (future != null) {
+            future.whenComplete((r, e) -> {
+                pendingRelocations.remove(recordFile, future);
+                runSafely(action);
+            });
+        } else {
+            runSafely(action);
+        }
+    }
+
+    /**
+     *
+     * @param recordFile
+     * @return true if a relocation of the given record file is pending; false otherwise
+     */
+    public boolean isRelocationPending(Path recordFile) {
+        CompletableFuture<Void> future = pendingRelocations.get(recordFile);
+        return future != null && !future.isDone();
+    }
+
+    /**
+     * 
+     * @param action
+     */
+    private static void runSafely(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Waits for all pending relocations to finish and stops the relocation thread.
+     */
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.info("Waiting for {} record relocation(s) to finish...", executor.getQueue().size() + executor.getActiveCount());
+            }
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage());
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
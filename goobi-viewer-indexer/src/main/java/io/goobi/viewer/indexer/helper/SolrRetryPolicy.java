@@ -0,0 +1,203 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Retry timing and health tracking for Solr requests. Failed attempts are retried after an exponentially growing, jittered delay. After a number of
+ * consecutive failed attempts, the circuit is opened and stays open for a configured time, during which no new records should be indexed. The
+ * circuit is closed again by the next successful request.
+ */
+public class SolrRetryPolicy {
+
+    private static final Logger logger = LogManager.getLogger(SolrRetryPolicy.class);
+
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int failureThreshold;
+    private final long openDuration;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt = -1;
+
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong recoveredOperationCount = new AtomicLong();
+    private final AtomicLong failedOperationCount = new AtomicLong();
+    private final AtomicLong circuitOpenCount = new AtomicLong();
+
+    /**
+     * Constructor with default values.
+     */
+    public SolrRetryPolicy() {
+        this(500, 30000, 5, 30000);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param baseDelay Delay in milliseconds before the first retry
+     * @param maxDelay Maximum delay in milliseconds between two attempts
+     * @param failureThreshold Number of consecutive failed attempts after which the circuit is opened
+     * @param openDuration Time in milliseconds the circuit stays open
+     */
+    public SolrRetryPolicy(long baseDelay, long maxDelay, int failureThreshold, long openDuration) {
+        this.baseDelay = Math.max(0, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = Math.max(0, openDuration);
+    }
+
+    /**
+     * Returns the delay before the next attempt.
+     *
+     * @param attempt Number of failed attempts so far (starting with 1)
+     * @return Random delay in milliseconds between half and the full exponential delay for the given attempt
+     * @should increase exponentially
+     * @should not exceed max delay
+     */
+    public long getDelay(int attempt) {
+        long delay = baseDelay;
+        for (int i = 1; i < attempt && delay < maxDelay; ++i) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, maxDelay);
+        if (delay <= 1) {
+            return delay;
+        }
+
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
+
+    /**
+     * Records a failed attempt and waits before the next attempt.
+     *
+     * @param attempt Number of failed attempts of the current operation so far (starting with 1)
+     * @return false if interrupted while waiting; true otherwise
+     */
+    public boolean backoff(int attempt) {
+        retryCount.incrementAndGet();
+        recordFailedAttempt();
+        long delay = getDelay(attempt);
+        logger.warn("Solr request failed (attempt {}), retrying in {} ms...", attempt, delay);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Records a successful request and closes the circuit.
+     *
+     * @param retries Number of retries the request needed
+     * @should close circuit
+     */
+    public void recordSuccess(int retries) {
+        if (retries > 0) {
+            recoveredOperationCount.incrementAndGet();
+            logger.info("Solr request succeeded after {} retries.", retries);
+        }
+        consecutiveFailures.set(0);
+        if (openedAt >= 0) {
+            openedAt = -1;
+            logger.info("Solr is available again, resuming indexing. {}", getMetrics());
+        }
+    }
+
+    /**
+     * Records an operation that has failed after all attempts.
+     */
+    public void recordFailure() {
+        failedOperationCount.incrementAndGet();
+        recordFailedAttempt();
+    }
+
+    /**
+     *
+     * @return true if the circuit is open, i.e. Solr is considered unavailable; false otherwise
+     * @should open after failure threshold reached
+     * @should close after open duration
+     */
+    public boolean isCircuitOpen() {
+        long opened = openedAt;
+        return opened >= 0 && System.currentTimeMillis() - opened < openDuration;
+    }
+
+    /**
+     * Counts a failed attempt and opens the circuit if the failure threshold has been reached.
+     */
+    private void recordFailedAttempt() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && !isCircuitOpen()) {
+            openedAt = System.currentTimeMillis();
+            circuitOpenCount.incrementAndGet();
+            logger.warn("Solr appears to be unavailable ({} consecutive failed requests), pausing indexing for {} s.", consecutiveFailures.get(),
+                    openDuration / 1000);
+        }
+    }
+
+    /**
+     *
+     * @return Summary of retry statistics
+     */
+    public String getMetrics() {
+        return new StringBuilder("Solr retries: ").append(retryCount.get())
+                .append(", recovered requests: ")
+                .append(recoveredOperationCount.get())
+                .append(", failed requests: ")
+                .append(failedOperationCount.get())
+                .append(", circuit opened: ")
+                .append(circuitOpenCount.get())
+                .append(" time(s)")
+                .toString();
+    }
+
+    /**
+     * @return Total number of retried attempts
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * @return Number of requests that succeeded after at least one retry
+     */
+    public long getRecoveredOperationCount() {
+        return recoveredOperationCount.get();
+    }
+
+    /**
+     * @return Number of requests that failed after all attempts
+     */
+    public long getFailedOperationCount() {
+        return failedOperationCount.get();
+    }
+
+    /**
+     * @return Number of times the circuit has been opened
+     */
+    public long getCircuitOpenCount() {
+        return circuitOpenCount.get();
+    }
+}
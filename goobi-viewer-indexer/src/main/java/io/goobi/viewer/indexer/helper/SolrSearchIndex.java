@@ -23,12 +23,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.lang3.StringUtils;
@@ -36,15 +40,19 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest.METHOD;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.BaseHttpSolrClient.RemoteSolrException;
-import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
+import org.apache.solr.client.solrj.impl.CloudHttp2SolrClient;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.jdom2.Document;
 import org.jdom2.JDOMException;
 
@@ -52,6 +60,7 @@ import io.goobi.viewer.indexer.SolrIndexerDaemon;
 import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.exceptions.HTTPException;
 import io.goobi.viewer.indexer.model.LuceneField;
+import io.goobi.viewer.indexer.model.RecordState;
 import io.goobi.viewer.indexer.model.SolrConstants;
 import io.goobi.viewer.indexer.model.SolrConstants.DocType;
 
@@ -62,7 +71,46 @@ public final class SolrSearchIndex {
 
     private static final Logger logger = LogManager.getLogger(SolrSearchIndex.class);
 
+    /**
+     * Determines when changes written by {@link SolrSearchIndex#commitRecord(boolean)} are committed.
+     */
+    public enum CommitPolicy {
+        /** Hard commit after every record. */
+        RECORD,
+        /** Solr commits updates within a configured time (commitWithin). */
+        COMMIT_WITHIN,
+        /** Soft commit after a configured number of documents or seconds. */
+        SOFT,
+        /** Hard commit once the hotfolders are idle. */
+        IDLE;
+
+        /**
+         * 
+         * @param name
+         * @return {@link CommitPolicy} matching the given name; null if none found
+         * @should return correct value
+         */
+        public static CommitPolicy getByName(String name) {
+            if (name == null) {
+                return null;
+            }
+            for (CommitPolicy policy : CommitPolicy.values()) {
+                if (policy.name().equalsIgnoreCase(name) || policy.name().replace("_", "").equalsIgnoreCase(name)) {
+                    return policy;
+                }
+            }
+
+            return null;
+        }
+    }
+
     private static final int MAX_HITS = Integer.MAX_VALUE;
+    /** Number of documents fetched per request when iterating over search results. */
+    static final int CURSOR_PAGE_SIZE = 1000;
+    /** Request parameter holding the values of a terms query. */
+    private static final String PARAM_TERMS = "checkTerms";
+    /** Separator of terms query values; must not occur in the values themselves. */
+    private static final String TERMS_SEPARATOR = "\u001F";
     /** Constant <code>TIMEOUT_SO=300000</code> */
     public static final int TIMEOUT_SO = 300000;
     /** Constant <code>TIMEOUT_CONNECTION=300000</code> */
@@ -72,9 +120,28 @@ public final class SolrSearchIndex {
     private static final String ERROR_SOLR_CONNECTION = "Solr connection error";
     private static final String ERROR_UPDATE_STATUS = "Update status: {}";
 
-    private static Map<String, Boolean> usedIddocs = new ConcurrentHashMap<>();
-
     private boolean optimize = false;
+    /** If true, update requests adding documents are sent gzip-compressed. */
+    private volatile boolean compressUpdates = false;
+    /**
+     * Rollbacks affect all uncommitted changes and must be disabled if multiple records are being indexed in parallel. They are also skipped for
+     * any commit policy other than {@link CommitPolicy#RECORD}.
+     */
+    private volatile boolean rollbackEnabled = true;
+    /** Batches documents of all records; created on first use. */
+    private SolrUpdateBuffer updateBuffer;
+    private CommitPolicy commitPolicy = CommitPolicy.RECORD;
+    /** Time in milliseconds within which Solr commits updates with {@link CommitPolicy#COMMIT_WITHIN}. */
+    private int commitWithin = 10000;
+    /** Number of documents after which a soft commit is issued with {@link CommitPolicy#SOFT}. */
+    private int softCommitDocs = 10000;
+    /** Time in milliseconds after which a soft commit is issued with {@link CommitPolicy#SOFT}. */
+    private long softCommitInterval = 60000;
+    /** Record identifiers (PI, PI_TOPSTRUCT, PI_PARENT) of documents written since the last commit. */
+    private final Set<String> uncommittedIdentifiers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong uncommittedDocs = new AtomicLong();
+    private SolrRetryPolicy retryPolicy = new SolrRetryPolicy();
+    private volatile long lastCommit = System.currentTimeMillis();
 
     private SolrClient client;
 
@@ -88,7 +155,13 @@ public final class SolrSearchIndex {
      */
     public SolrSearchIndex(SolrClient client) throws ConfigurationException {
         if (client == null) {
-            this.client = getNewSolrClient(SolrIndexerDaemon.getInstance().getConfiguration().getSolrUrl());
+            Configuration config = SolrIndexerDaemon.getInstance().getConfiguration();
+            if (config.isSolrCloudEnabled()) {
+                this.client = getNewCloudSolrClient(config.getSolrCloudZkHosts(), config.getSolrCloudZkChroot(), config.getSolrCloudUrls(),
+                        config.getSolrCloudCollection());
+            } else {
+                this.client = getNewSolrClient(config.getSolrUrl());
+            }
         } else {
             this.client = client;
         }
@@ -108,57 +181,61 @@ public final class SolrSearchIndex {
             throw new ConfigurationException("No Solr URL configured. Please check <solrUrl/>.");
         }
 
-        return new Http2SolrClient.Builder(solrUrl)
-                .withIdleTimeout(TIMEOUT_SO, TimeUnit.MILLISECONDS)
-                .withConnectionTimeout(TIMEOUT_CONNECTION, TimeUnit.MILLISECONDS)
-                .withFollowRedirects(false)
-                .withRequestWriter(new BinaryRequestWriter())
-                // .allowCompression(DataManager.getInstance().getConfiguration().isSolrCompressionEnabled())
-                .build();
+        // Compressed responses are decoded by the HTTP client automatically
+        return configureHttpClient(new Http2SolrClient.Builder(solrUrl)).build();
     }
 
     /**
-     * <p>
-     * checkIddocAvailability.
-     * </p>
+     * Creates a SolrCloud client that reads the cluster state from ZooKeeper (if ZooKeeper hosts are given) or from the given Solr nodes. Updates
+     * are split by shard and sent directly to the shard leaders in parallel. Nested child documents are routed together with their root document,
+     * so all documents of a hierarchically written record stay on the same shard.
      *
-     * @param iddoc a String
-     * @return a boolean.
-     * @throws io.goobi.viewer.indexer.exceptions.FatalIndexerException if any.
+     * @param zkHosts ZooKeeper hosts (host:port); may be empty if solrUrls are given
+     * @param zkChroot Optional ZooKeeper chroot
+     * @param solrUrls Solr node base URLs used to retrieve the cluster state if no ZooKeeper hosts are given
+     * @param collection Collection to use for all requests
+     * @return New {@link CloudSolrClient}
+     * @throws ConfigurationException
+     * @should throw ConfigurationException if collection empty
+     * @should throw ConfigurationException if no hosts configured
+     * @should send updates to shard leaders only
      */
-    public synchronized boolean checkIddocAvailability(String iddoc) throws FatalIndexerException {
-        if (usedIddocs.get(iddoc) != null) {
-            return false;
+    public static CloudSolrClient getNewCloudSolrClient(List<String> zkHosts, String zkChroot, List<String> solrUrls, String collection)
+            throws ConfigurationException {
+        if (StringUtils.isEmpty(collection)) {
+            throw new ConfigurationException("No SolrCloud collection configured. Please check <solrCloud collection=\"\"/>.");
         }
-        SolrQuery query = new SolrQuery();
-        StringBuilder sbQuery = new StringBuilder();
-        sbQuery.append(SolrConstants.IDDOC).append(':').append(iddoc);
-        query.setQuery(sbQuery.toString());
-        query.setRows(1);
 
-        boolean success = false;
-        int tries = RETRY_ATTEMPTS;
-        while (!success && tries > 0) {
-            tries--;
-            try {
-                QueryResponse resp = client.query(query);
-                if (!resp.getResults().isEmpty()) {
-                    usedIddocs.put(iddoc, true);
-                    return false;
-                }
-                usedIddocs.put(iddoc, true);
-                success = true;
-            } catch (SolrServerException | NumberFormatException | IOException e) {
-                logger.error(e.getMessage(), e);
-            }
-        }
-        if (!success) {
-            logger.error("Could not veryify the next available IDDOC after {} attempts. Check the Solr server connection. Exiting...",
-                    RETRY_ATTEMPTS);
-            throw new FatalIndexerException(ERROR_SOLR_CONNECTION);
+        CloudHttp2SolrClient.Builder builder;
+        if (zkHosts != null && !zkHosts.isEmpty()) {
+            builder = new CloudHttp2SolrClient.Builder(zkHosts, Optional.ofNullable(StringUtils.trimToNull(zkChroot)));
+            logger.info("Using SolrCloud collection '{}' via ZooKeeper: {}", collection, zkHosts);
+        } else if (solrUrls != null && !solrUrls.isEmpty()) {
+            builder = new CloudHttp2SolrClient.Builder(solrUrls);
+            logger.info("Using SolrCloud collection '{}' via Solr nodes: {}", collection, solrUrls);
+        } else {
+            throw new ConfigurationException("No ZooKeeper hosts or Solr URLs configured for SolrCloud. Please check <solrCloud/>.");
         }
 
-        return true;
+        return builder.withDefaultCollection(collection)
+                .withInternalClientBuilder(configureHttpClient(new Http2SolrClient.Builder()))
+                .sendUpdatesOnlyToShardLeaders()
+                .withParallelUpdates(true)
+                .build();
+    }
+
+    /**
+     * Applies timeouts and request writer shared by all Solr clients. The request writer compresses update requests created with
+     * {@link #setCompressUpdates(boolean)} enabled.
+     *
+     * @param builder
+     * @return Given builder
+     */
+    private static Http2SolrClient.Builder configureHttpClient(Http2SolrClient.Builder builder) {
+        return builder.withIdleTimeout(TIMEOUT_SO, TimeUnit.MILLISECONDS)
+                .withConnectionTimeout(TIMEOUT_CONNECTION, TimeUnit.MILLISECONDS)
+                .withFollowRedirects(false)
+                .withRequestWriter(new CompressingRequestWriter());
     }
 
     /**
@@ -214,6 +291,73 @@ public final class SolrSearchIndex {
         return client.query(solrQuery).getResults();
     }
 
+    /**
+     * Passes all documents matching the given query to the given handler. Results are fetched page by page using Solr's cursorMark deep paging, so
+     * that large result sets never have to be held in memory at once. Documents are returned in IDDOC order.
+     *
+     * @param query Solr query
+     * @param fields Fields to return; all fields if null
+     * @param handler Handler to pass each document to
+     * @return Number of documents passed to the handler
+     * @throws SolrServerException
+     * @throws IOException
+     * @throws E if thrown by the handler
+     * @should pass all docs to handler
+     * @should return zero if nothing found
+     */
+    public <E extends Exception> long forEach(String query, List<String> fields, SolrDocumentHandler<E> handler)
+            throws SolrServerException, IOException, E {
+        return forEach(query, fields, CURSOR_PAGE_SIZE, handler);
+    }
+
+    /**
+     *
+     * @param query Solr query
+     * @param fields Fields to return; all fields if null
+     * @param pageSize Number of documents to fetch per request
+     * @param handler Handler to pass each document to
+     * @return Number of documents passed to the handler
+     * @throws SolrServerException
+     * @throws IOException
+     * @throws E if thrown by the handler
+     */
+    <E extends Exception> long forEach(String query, List<String> fields, int pageSize, SolrDocumentHandler<E> handler)
+            throws SolrServerException, IOException, E {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler may not be null");
+        }
+        SolrQuery solrQuery = new SolrQuery(query);
+        solrQuery.setRows(pageSize);
+        // cursorMark requires a sort on the unique key
+        solrQuery.setSort(SolrConstants.IDDOC, SolrQuery.ORDER.asc);
+        if (fields != null) {
+            for (String field : fields) {
+                solrQuery.addField(field);
+            }
+        }
+
+        long ret = 0;
+        String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+        while (true) {
+            solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+            QueryResponse resp = client.query(solrQuery);
+            SolrDocumentList page = resp.getResults();
+            if (page != null) {
+                for (SolrDocument doc : page) {
+                    handler.handle(doc);
+                    ret++;
+                }
+            }
+            String nextCursorMark = resp.getNextCursorMark();
+            if (page == null || page.isEmpty() || nextCursorMark == null || nextCursorMark.equals(cursorMark)) {
+                break;
+            }
+            cursorMark = nextCursorMark;
+        }
+
+        return ret;
+    }
+
     /**
      * Creates a Solr input document from the given list of name:value pairs.
      *
@@ -315,6 +459,22 @@ public final class SolrSearchIndex {
         return null;
     }
 
+    /**
+     * Retrieves the state of the indexed record with the given identifier using a single query.
+     *
+     * @param pi Record identifier
+     * @param oldIndex true if this is the old index; false otherwise
+     * @return {@link RecordState}; not found state if the record is not indexed
+     * @throws SolrServerException
+     * @throws IOException
+     * @should return found state if record indexed
+     * @should return not found state if record not indexed
+     */
+    public RecordState findRecordState(String pi, boolean oldIndex) throws SolrServerException, IOException {
+        SolrDocumentList hits = search(SolrConstants.PI + ":\"" + pi + '"', RecordState.FIELDS, 1);
+        return new RecordState(pi, hits.isEmpty() ? null : hits.get(0), hits.getNumFound(), oldIndex);
+    }
+
     /**
      * Performs an atomic update of the given solr document. Updates defined in partialUpdates will be applied to the existing document without making
      * any changes to other fields.
@@ -339,7 +499,7 @@ public final class SolrSearchIndex {
             newDoc.addField(entry.getKey(), entry.getValue());
         }
         writeToIndex(newDoc);
-        commit(false);
+        commitRecord(false);
     }
 
     /**
@@ -352,24 +512,12 @@ public final class SolrSearchIndex {
      * @should write doc correctly
      */
     public void writeToIndex(SolrInputDocument doc) throws FatalIndexerException {
-        boolean success = false;
-        int tries = RETRY_ATTEMPTS;
-
-        while (!success && tries > 0) {
-            tries--;
-            try {
-                UpdateResponse ur = client.add(doc);
-                if (ur.getStatus() == 0) {
-                    success = true;
-                } else {
-                    logger.error(ERROR_UPDATE_STATUS, ur.getStatus());
-                }
-            } catch (SolrServerException | IOException e) {
-                logger.error(e.getMessage(), e);
-            }
-        }
-
-        if (!success) {
+        UpdateRequest request = createAddRequest();
+        request.add(doc);
+        boolean success = executeUpdate(() -> request.process(client), true);
+        if (success) {
+            registerUncommitted(Collections.singletonList(doc));
+        } else {
             logger.error("Could not write document after {} attempts. Check the Solr server connection. Exiting...", RETRY_ATTEMPTS);
             rollback();
             throw new FatalIndexerException(ERROR_SOLR_CONNECTION);
@@ -384,32 +532,144 @@ public final class SolrSearchIndex {
      * @param docs a {@link java.util.List} object.
      * @throws io.goobi.viewer.indexer.exceptions.FatalIndexerException
      * @should write all docs correctly
+     * @should not open circuit if docs rejected
      */
     public void writeToIndex(List<SolrInputDocument> docs) throws FatalIndexerException {
-        boolean success = false;
-        int tries = RETRY_ATTEMPTS;
+        UpdateRequest request = createAddRequest();
+        request.add(docs);
+        boolean success = executeUpdate(() -> request.process(client), false);
+        if (success) {
+            registerUncommitted(docs);
+        } else {
+            logger.error("Could not write {} documents after {} attempts. Check the Solr server connection. Exiting...", docs.size(), RETRY_ATTEMPTS);
+            rollback();
+            throw new FatalIndexerException(ERROR_SOLR_CONNECTION);
+        }
+    }
 
-        while (!success && tries > 0) {
-            tries--;
-            try {
-                UpdateResponse ur = client.add(docs);
-                if (ur.getStatus() == 0) {
-                    success = true;
-                } else {
-                    logger.error(ERROR_UPDATE_STATUS, ur.getStatus());
-                }
-            } catch (IOException | SolrServerException e) {
-                logger.error(e.getMessage(), e);
-            } catch (RemoteSolrException e) {
-                logger.error(e.getMessage());
-            }
+    /**
+     * Writes the given documents without rolling back on failure, so that uncommitted documents of other records are kept. Used for documents
+     * whose failure is handled by the caller.
+     *
+     * @param docs Documents to write
+     * @param retry If true, failed attempts are retried according to the {@link SolrRetryPolicy}; otherwise only one attempt is made
+     * @return true if successful; false otherwise
+     * @should make only one attempt if retry false
+     * @should not roll back if write fails
+     */
+    public boolean tryWriteToIndex(List<SolrInputDocument> docs, boolean retry) {
+        UpdateRequest request = createAddRequest();
+        request.add(docs);
+        boolean success = executeUpdate(() -> request.process(client), false, retry ? RETRY_ATTEMPTS : 1);
+        if (success) {
+            registerUncommitted(docs);
         }
 
+        return success;
+    }
+
+    /**
+     * Writes the documents provided by the given source with a single streamed update request. Documents are pulled from the iterator one at a
+     * time while the request is serialized, so the documents never have to be held in memory all at once. A new iterator is requested for each
+     * attempt.
+     *
+     * @param docs Source of iterators over the documents to write
+     * @return Number of written documents
+     * @throws FatalIndexerException
+     * @should write all docs correctly
+     * @should request new iterator for each attempt
+     */
+    public long streamToIndex(Supplier<Iterator<SolrInputDocument>> docs) throws FatalIndexerException {
+        Set<String> identifiers = ConcurrentHashMap.newKeySet();
+        AtomicLong count = new AtomicLong();
+        boolean success = executeUpdate(() -> {
+            identifiers.clear();
+            count.set(0);
+            Iterator<SolrInputDocument> iterator = docs.get();
+            UpdateRequest request = createAddRequest();
+            request.setDocIterator(new Iterator<SolrInputDocument>() {
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public SolrInputDocument next() {
+                    SolrInputDocument doc = iterator.next();
+                    count.incrementAndGet();
+                    collectIdentifiers(doc, identifiers);
+                    return doc;
+                }
+            });
+            return request.process(client);
+        }, false);
         if (!success) {
-            logger.error("Could not write {} documents after {} attempts. Check the Solr server connection. Exiting...", docs.size(), RETRY_ATTEMPTS);
+            logger.error("Could not write streamed documents after {} attempts. Check the Solr server connection. Exiting...", RETRY_ATTEMPTS);
             rollback();
             throw new FatalIndexerException(ERROR_SOLR_CONNECTION);
         }
+        uncommittedDocs.addAndGet(count.get());
+        if (!CommitPolicy.RECORD.equals(commitPolicy)) {
+            uncommittedIdentifiers.addAll(identifiers);
+        }
+
+        return count.get();
+    }
+
+    /**
+     * Creates an update request for adding documents, applying commitWithin and compression settings.
+     *
+     * @return New {@link UpdateRequest}
+     */
+    private UpdateRequest createAddRequest() {
+        UpdateRequest ret = new UpdateRequest();
+        if (CommitPolicy.COMMIT_WITHIN.equals(commitPolicy)) {
+            ret.setCommitWithin(commitWithin);
+        }
+        if (compressUpdates) {
+            ret.addHeader(CompressingRequestWriter.HEADER_CONTENT_ENCODING, CompressingRequestWriter.ENCODING_GZIP);
+        }
+        return ret;
+    }
+
+    /**
+     * Opens a new update buffer session for the documents of a single record. Documents added to the session are sent to Solr in batches, possibly
+     * together with documents of other records.
+     *
+     * @param identifier Record identifier
+     * @return {@link SolrUpdateBuffer.Session}
+     */
+    public SolrUpdateBuffer.Session openUpdateSession(String identifier) {
+        return getUpdateBuffer().openSession(identifier);
+    }
+
+    /**
+     * Stops the sender threads of the update buffer, if any, after all queued documents have been sent. Must be called after all records have
+     * finished indexing and before the final commit.
+     */
+    public synchronized void shutdownUpdateBuffer() {
+        if (updateBuffer != null) {
+            updateBuffer.shutdown();
+            updateBuffer = null;
+        }
+    }
+
+    /**
+     * 
+     * @return {@link SolrUpdateBuffer}
+     */
+    synchronized SolrUpdateBuffer getUpdateBuffer() {
+        if (updateBuffer == null) {
+            Configuration config = SolrIndexerDaemon.getInstance().getConfiguration();
+            updateBuffer = new SolrUpdateBuffer(this, config.getSolrUpdateBufferQueueSize(), config.getSolrUpdateBufferBatchSize(),
+                    config.isSolrUpdateBufferEnabled() ? config.getSolrUpdateBufferThreads() : 0);
+            if (updateBuffer.isAsync()) {
+                logger.info("Asynchronous Solr update buffer is ENABLED.");
+            }
+        }
+
+        return updateBuffer;
     }
 
     /**
@@ -421,24 +681,7 @@ public final class SolrSearchIndex {
      * @throws io.goobi.viewer.indexer.exceptions.FatalIndexerException
      */
     public void deleteDocument(String id) throws FatalIndexerException {
-        boolean success = false;
-        int tries = RETRY_ATTEMPTS;
-
-        while (!success && tries > 0) {
-            tries--;
-            try {
-                UpdateResponse ur = client.deleteById(id);
-                if (ur.getStatus() == 0) {
-                    success = true;
-                } else {
-                    logger.error(ERROR_UPDATE_STATUS, ur.getStatus());
-                }
-            } catch (SolrServerException e) {
-                logger.error(e.getMessage());
-            } catch (IOException e) {
-                logger.error(e.getMessage(), e);
-            }
-        }
+        boolean success = executeUpdate(() -> client.deleteById(id), true);
         if (!success) {
             logger.error("Could not delete '{}' after {} attempts. Check the Solr server connection. Exiting...", id, RETRY_ATTEMPTS);
             rollback();
@@ -462,26 +705,39 @@ public final class SolrSearchIndex {
             logger.warn("Nothing to delete.");
             return false;
         }
-        boolean success = false;
-        int tries = RETRY_ATTEMPTS;
+        boolean success = executeUpdate(() -> client.deleteById(ids), true);
+        if (!success) {
+            logger.error("Could not delete {} docs after {} attempts. Check the Solr server connection. Exiting...", ids.size(), RETRY_ATTEMPTS);
+            rollback();
+            throw new FatalIndexerException(ERROR_SOLR_CONNECTION);
+        }
 
-        while (!success && tries > 0) {
-            tries--;
-            try {
-                UpdateResponse ur = client.deleteById(ids);
-                if (ur.getStatus() == 0) {
-                    success = true;
-                } else {
-                    logger.error(ERROR_UPDATE_STATUS, ur.getStatus());
-                }
-            } catch (SolrServerException e) {
-                logger.error(e.getMessage());
-            } catch (IOException e) {
-                logger.error(e.getMessage(), e);
-            }
+        return success;
+    }
+
+    /**
+     * Deletes all documents that match any of the given queries using a single update request.
+     *
+     * @param queries Delete queries
+     * @return true if successful; false if nothing to delete
+     * @throws FatalIndexerException if deletion failed
+     * @should send all queries in one request
+     * @should return false if queries empty
+     */
+    public boolean deleteByQueries(List<String> queries) throws FatalIndexerException {
+        if (queries == null || queries.isEmpty()) {
+            logger.warn("Nothing to delete.");
+            return false;
         }
+
+        UpdateRequest request = new UpdateRequest();
+        for (String query : queries) {
+            request.deleteByQuery(query);
+        }
+        boolean success = executeUpdate(() -> request.process(client), true);
         if (!success) {
-            logger.error("Could not delete {} docs after {} attempts. Check the Solr server connection. Exiting...", ids.size(), RETRY_ATTEMPTS);
+            logger.error("Could not delete docs matching queries {} after {} attempts. Check the Solr server connection. Exiting...", queries,
+                    RETRY_ATTEMPTS);
             rollback();
             throw new FatalIndexerException(ERROR_SOLR_CONNECTION);
         }
@@ -500,24 +756,7 @@ public final class SolrSearchIndex {
             return false;
         }
 
-        boolean success = false;
-        int tries = RETRY_ATTEMPTS;
-
-        while (!success && tries > 0) {
-            tries--;
-            try {
-                UpdateResponse ur = client.deleteByQuery(query);
-                if (ur.getStatus() == 0) {
-                    success = true;
-                } else {
-                    logger.error(ERROR_UPDATE_STATUS, ur.getStatus());
-                }
-            } catch (SolrServerException e) {
-                logger.error(e.getMessage());
-            } catch (IOException e) {
-                logger.error(e.getMessage(), e);
-            }
-        }
+        boolean success = executeUpdate(() -> client.deleteByQuery(query), true);
         if (!success) {
             logger.error("Could not delete docs matching query '{}' after {} attempts. Check the Solr server connection. Exiting...", query,
                     RETRY_ATTEMPTS);
@@ -536,53 +775,216 @@ public final class SolrSearchIndex {
      * @throws io.goobi.viewer.indexer.exceptions.FatalIndexerException
      */
     public void commit(boolean optimize) throws FatalIndexerException {
-        boolean success = false;
-        int tries = RETRY_ATTEMPTS;
+        boolean success = executeUpdate(() -> client.commit(), true);
+        if (success) {
+            resetUncommitted();
+        } else {
+            logger.error("Could not commit after {} attempts. Check the Solr server connection. Exiting...", RETRY_ATTEMPTS);
+            rollback();
+            throw new FatalIndexerException(ERROR_SOLR_CONNECTION);
+        }
+
+        if (optimize) {
+            optimize(1);
+        }
+    }
 
-        while (!success && tries > 0) {
-            tries--;
+    /**
+     * Merges the index segments down to the given maximum number of segments. This is an expensive operation that may take several minutes on
+     * large indexes; use {@link OptimizeScheduler} to run it while the indexer is idle.
+     *
+     * @param maxSegments Maximum number of segments to keep
+     * @return true if successful; false otherwise
+     * @should return true if successful
+     * @should return false if optimize fails
+     */
+    public boolean optimize(int maxSegments) {
+        logger.debug("Optimizing index (max segments: {})...", maxSegments);
+        try {
+            UpdateResponse ur = client.optimize(true, true, Math.max(1, maxSegments));
+            if (ur.getStatus() == 0) {
+                logger.debug("...done.");
+                return true;
+            }
+            logger.warn(ERROR_UPDATE_STATUS, ur.getStatus());
+        } catch (SolrServerException | RemoteSolrException e) {
+            // Optimize is an expensive operation and may cause a socket timeout, which shouldn't cause the entire indexing operation to fail,
+            // though.
+            logger.warn("Index optimization failed: {}", e.getMessage());
+        } catch (IOException e) {
+            logger.error("Index optimization failed.", e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Executes the given update request. Failed attempts are retried after a delay determined by the {@link SolrRetryPolicy}. Solr server errors
+     * (HTTP 5xx) are always retried.
+     *
+     * @param operation Update request to execute
+     * @param rethrowClientErrors If true, Solr client errors (HTTP 4xx) are rethrown; otherwise the request fails without further attempts
+     * @return true if successful; false otherwise
+     */
+    private boolean executeUpdate(UpdateOperation operation, boolean rethrowClientErrors) {
+        return executeUpdate(operation, rethrowClientErrors, RETRY_ATTEMPTS);
+    }
+
+    /**
+     * 
+     * @param operation Update request to execute
+     * @param rethrowClientErrors If true, Solr client errors (HTTP 4xx) are rethrown; otherwise the request fails without further attempts
+     * @param maxAttempts Maximum number of attempts
+     * @return true if successful; false otherwise
+     */
+    private boolean executeUpdate(UpdateOperation operation, boolean rethrowClientErrors, int maxAttempts) {
+        for (int attempt = 1; attempt <= maxAttempts; ++attempt) {
             try {
-                UpdateResponse ur = client.commit();
+                UpdateResponse ur = operation.execute();
                 if (ur.getStatus() == 0) {
-                    success = true;
-                } else {
-                    logger.error(ERROR_UPDATE_STATUS, ur.getStatus());
+                    retryPolicy.recordSuccess(attempt - 1);
+                    return true;
                 }
+                logger.error(ERROR_UPDATE_STATUS, ur.getStatus());
             } catch (SolrServerException e) {
                 logger.error(e.getMessage());
             } catch (IOException e) {
                 logger.error(e.getMessage(), e);
+            } catch (RemoteSolrException e) {
+                if (e.code() < 500) {
+                    if (rethrowClientErrors) {
+                        throw e;
+                    }
+                    // Rejected requests say nothing about the availability of Solr and must not open the circuit
+                    logger.error(e.getMessage());
+                    return false;
+                }
+                logger.error(e.getMessage());
+            }
+            if (attempt < maxAttempts && !retryPolicy.backoff(attempt)) {
+                break;
             }
         }
-        if (!success)
+        retryPolicy.recordFailure();
 
-        {
-            logger.error("Could not commit after {} attempts. Check the Solr server connection. Exiting...", RETRY_ATTEMPTS);
-            rollback();
+        return false;
+    }
+
+    /**
+     * Commits the changes of a completely written record according to the configured {@link CommitPolicy}. Use {@link #commit(boolean)} where
+     * changes must be visible immediately.
+     *
+     * @param optimize If true, a hard commit and optimize are always performed
+     * @throws FatalIndexerException
+     * @should commit immediately if policy is record
+     * @should not commit if policy is idle
+     * @should soft commit if document threshold reached
+     */
+    public void commitRecord(boolean optimize) throws FatalIndexerException {
+        if (optimize || CommitPolicy.RECORD.equals(commitPolicy)) {
+            commit(optimize);
+            return;
+        }
+        if (CommitPolicy.SOFT.equals(commitPolicy)
+                && (uncommittedDocs.get() >= softCommitDocs || System.currentTimeMillis() - lastCommit >= softCommitInterval)) {
+            softCommit();
+        }
+    }
+
+    /**
+     * Makes any uncommitted changes visible, if documents belonging to the given record identifier have been written since the last commit. Must
+     * be called before reading back records that may have been written recently (e.g. anchors and volumes, or previous versions of the same
+     * record).
+     *
+     * @param identifier Record identifier (PI)
+     * @throws FatalIndexerException
+     * @should soft commit if identifier has uncommitted changes
+     */
+    public void ensureVisible(String identifier) throws FatalIndexerException {
+        if (identifier != null && uncommittedIdentifiers.contains(identifier)) {
+            logger.debug("Uncommitted changes for '{}' found, committing...", identifier);
+            softCommit();
+        }
+    }
+
+    /**
+     * Hard commits any changes that have not been committed yet (e.g. when the hotfolders are idle or on shutdown).
+     *
+     * @throws FatalIndexerException
+     */
+    public void commitPending() throws FatalIndexerException {
+        if (uncommittedDocs.get() > 0) {
+            logger.debug("Committing {} pending document(s)...", uncommittedDocs.get());
+            commit(false);
+        }
+    }
+
+    /**
+     * Opens a new searcher without flushing changes to stable storage.
+     *
+     * @throws FatalIndexerException
+     */
+    private void softCommit() throws FatalIndexerException {
+        boolean success = executeUpdate(() -> client.commit(true, true, true), true);
+        if (success) {
+            resetUncommitted();
+        } else {
+            logger.error("Could not soft commit after {} attempts. Check the Solr server connection. Exiting...", RETRY_ATTEMPTS);
             throw new FatalIndexerException(ERROR_SOLR_CONNECTION);
         }
+    }
 
-        if (optimize) {
-            logger.debug("Optimizing index...");
-            try {
-                client.optimize();
-                logger.debug("...done.");
-            } catch (SolrServerException e) {
-                // Optimize is an expensive operation and may cause a socket timeout, which shouldn't cause the entire indexing operation to fail,
-                // though.
-                logger.warn("Index optimization failed: {}", e.getMessage());
-            } catch (IOException e) {
-                logger.error("Index optimization failed.", e);
+    /**
+     * Remembers the record identifiers of the given written documents, unless every record is committed immediately.
+     *
+     * @param docs
+     */
+    private void registerUncommitted(Collection<SolrInputDocument> docs) {
+        uncommittedDocs.addAndGet(docs.size());
+        if (CommitPolicy.RECORD.equals(commitPolicy)) {
+            return;
+        }
+        for (SolrInputDocument doc : docs) {
+            collectIdentifiers(doc, uncommittedIdentifiers);
+        }
+    }
+
+    /**
+     * 
+     * @param doc
+     * @param identifiers Set to add the record identifiers of the given doc to
+     */
+    private static void collectIdentifiers(SolrInputDocument doc, Set<String> identifiers) {
+        for (String field : new String[] { SolrConstants.PI, SolrConstants.PI_TOPSTRUCT, SolrConstants.PI_PARENT }) {
+            Object value = doc.getFieldValue(field);
+            if (value instanceof String identifier) {
+                identifiers.add(identifier);
             }
         }
     }
 
+    /**
+     * 
+     */
+    private void resetUncommitted() {
+        uncommittedIdentifiers.clear();
+        uncommittedDocs.set(0);
+        lastCommit = System.currentTimeMillis();
+    }
+
     /**
      * <p>
      * rollback.
      * </p>
+     * 
+     * @should roll back if commit policy record
+     * @should not roll back if commit policy not record
      */
     public void rollback() {
+        if (!isRollbackEnabled()) {
+            logger.warn("Rollback skipped, since it would discard uncommitted changes of other records.");
+            return;
+        }
         logger.info("Rolling back...");
         try {
             client.rollback();
@@ -632,13 +1034,14 @@ public final class SolrSearchIndex {
     public int removeGrievingAnchors() throws FatalIndexerException {
         String[] fields = { SolrConstants.IDDOC, SolrConstants.PI };
         try {
+            Map<String, String> anchors = new HashMap<>();
+            forEach(SolrConstants.ISANCHOR + SolrConstants.SOLR_QUERY_TRUE, Arrays.asList(fields),
+                    anchor -> anchors.put((String) anchor.getFirstValue(SolrConstants.PI), (String) anchor.getFirstValue(SolrConstants.IDDOC)));
             List<String> toDelete = new ArrayList<>();
-            SolrDocumentList anchors = search(SolrConstants.ISANCHOR + SolrConstants.SOLR_QUERY_TRUE, Arrays.asList(fields));
-            for (SolrDocument anchor : anchors) {
-                String iddoc = (String) anchor.getFirstValue(SolrConstants.IDDOC);
-                String pi = (String) anchor.getFirstValue(SolrConstants.PI);
-                if (search(SolrConstants.PI_PARENT + ":" + pi, Collections.singletonList(SolrConstants.IDDOC)).getNumFound() == 0) {
-                    toDelete.add(iddoc);
+            for (Entry<String, String> entry : anchors.entrySet()) {
+                String pi = entry.getKey();
+                if (getNumHits(SolrConstants.PI_PARENT + ":" + pi) == 0) {
+                    toDelete.add(entry.getValue());
                     logger.info("{} has no volumes and will be deleted.", pi);
                 }
             }
@@ -886,40 +1289,43 @@ public final class SolrSearchIndex {
     }
 
     /**
-     * <p>
-     * checkDuplicateFieldValues.
-     * </p>
+     * Checks whether any of the given values of the given field already exist in the index. The values are matched with a single terms query
+     * that is sent via POST, so that large numbers of values can be checked at once.
      *
-     * @param fields Field names to check
+     * @param field Field name to check
      * @param values Values to check
      * @param skipPi Record identifier to skip (typically the currently indexed record)
      * @return Set of PI_TOPSTRUCT values that already possess given field values
-     * @throws org.apache.solr.client.solrj.SolrServerException
-     * @throws java.io.IOException
+     * @throws SolrServerException
+     * @throws IOException
      * @should return correct identifiers
-     * @should ignore records that match skipPi
+     * @should return empty set if values empty
      */
-    public Set<String> checkDuplicateFieldValues(List<String> fields, List<String> values, String skipPi) throws SolrServerException, IOException {
-        if (fields == null || fields.isEmpty() || values == null || values.isEmpty()) {
+    public Set<String> checkDuplicateFieldTerms(String field, Collection<String> values, String skipPi) throws SolrServerException, IOException {
+        if (StringUtils.isEmpty(field) || values == null || values.isEmpty()) {
             return Collections.emptySet();
         }
-        StringBuilder sbQuery = new StringBuilder("+(");
-        for (String field : fields) {
-            sbQuery.append(field).append(":(");
-            for (String value : values) {
-                sbQuery.append('"').append(value).append("\" ");
-            }
-            sbQuery.append(") ");
-        }
-
-        sbQuery.append(')');
 
+        // Values are passed as a separate parameter, so they need no escaping
+        SolrQuery solrQuery = new SolrQuery("{!terms f=" + field + " separator=\"" + TERMS_SEPARATOR + "\" v=$" + PARAM_TERMS + "}");
+        solrQuery.set(PARAM_TERMS, String.join(TERMS_SEPARATOR, values));
         if (StringUtils.isNotEmpty(skipPi)) {
-            sbQuery.append(" -").append(SolrConstants.PI_TOPSTRUCT).append(":\"").append(skipPi).append('"');
+            solrQuery.addFilterQuery("-" + SolrConstants.PI_TOPSTRUCT + ":\"" + skipPi + '"');
         }
+        solrQuery.setFields(SolrConstants.IDDOC, SolrConstants.PI, SolrConstants.PI_TOPSTRUCT);
+        solrQuery.setRows(MAX_HITS);
+        SolrDocumentList found = client.query(solrQuery, METHOD.POST).getResults();
+        return collectRecordIdentifiers(found, field + " terms");
+    }
 
-        SolrDocumentList found = search(sbQuery.toString(), Arrays.asList(SolrConstants.PI, SolrConstants.PI_TOPSTRUCT));
-        if (found.isEmpty()) {
+    /**
+     * 
+     * @param found Documents containing duplicate values
+     * @param query Query used (for logging)
+     * @return Set of PI_TOPSTRUCT values of the given docs
+     */
+    private static Set<String> collectRecordIdentifiers(SolrDocumentList found, String query) {
+        if (found == null || found.isEmpty()) {
             return Collections.emptySet();
         }
 
@@ -932,7 +1338,7 @@ public final class SolrSearchIndex {
             } else {
                 logger.error("Solr document {} contains a duplicate value but no {} field.", doc.getFieldValue(SolrConstants.IDDOC),
                         SolrConstants.PI_TOPSTRUCT);
-                logger.error("Query used: {}", sbQuery);
+                logger.error("Query used: {}", query);
                 ret.add("PI NOT FOUND");
             }
         }
@@ -961,4 +1367,115 @@ public final class SolrSearchIndex {
     public void setOptimize(boolean optimize) {
         this.optimize = optimize;
     }
+
+    /**
+     * Rollbacks are only possible if every record is hard committed immediately; otherwise they would also discard soft committed or pending
+     * changes of records that have already been moved out of the hotfolder.
+     * 
+     * @return true if rollbacks are enabled and the commit policy is {@link CommitPolicy#RECORD}; false otherwise
+     */
+    public boolean isRollbackEnabled() {
+        return rollbackEnabled && CommitPolicy.RECORD.equals(commitPolicy);
+    }
+
+    /**
+     * @param rollbackEnabled the rollbackEnabled to set
+     */
+    public void setRollbackEnabled(boolean rollbackEnabled) {
+        this.rollbackEnabled = rollbackEnabled;
+    }
+
+    /**
+     * @return the compressUpdates
+     */
+    public boolean isCompressUpdates() {
+        return compressUpdates;
+    }
+
+    /**
+     * @param compressUpdates the compressUpdates to set
+     */
+    public void setCompressUpdates(boolean compressUpdates) {
+        this.compressUpdates = compressUpdates;
+    }
+
+    /**
+     * @return the retryPolicy
+     */
+    public SolrRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @param retryPolicy the retryPolicy to set
+     */
+    public void setRetryPolicy(SolrRetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy != null ? retryPolicy : new SolrRetryPolicy();
+    }
+
+    /**
+     * @return the commitPolicy
+     */
+    public CommitPolicy getCommitPolicy() {
+        return commitPolicy;
+    }
+
+    /**
+     * @param commitPolicy the commitPolicy to set
+     */
+    public void setCommitPolicy(CommitPolicy commitPolicy) {
+        this.commitPolicy = commitPolicy != null ? commitPolicy : CommitPolicy.RECORD;
+    }
+
+    /**
+     * @param commitWithin the commitWithin to set (in milliseconds)
+     */
+    public void setCommitWithin(int commitWithin) {
+        this.commitWithin = commitWithin;
+    }
+
+    /**
+     * @param softCommitDocs the softCommitDocs to set
+     */
+    public void setSoftCommitDocs(int softCommitDocs) {
+        this.softCommitDocs = softCommitDocs;
+    }
+
+    /**
+     * @param softCommitInterval the softCommitInterval to set (in milliseconds)
+     */
+    public void setSoftCommitInterval(long softCommitInterval) {
+        this.softCommitInterval = softCommitInterval;
+    }
+
+    /**
+     * Solr update request that may be retried.
+     */
+    @FunctionalInterface
+    private interface UpdateOperation {
+
+        /**
+         *
+         * @return {@link UpdateResponse}
+         * @throws SolrServerException
+         * @throws IOException
+         */
+        UpdateResponse execute() throws SolrServerException, IOException;
+    }
+
+    /**
+     * Receives documents from {@link SolrSearchIndex#forEach(String, List, SolrDocumentHandler)}.
+     *
+     * @param <E> Exception type the handler may throw
+     */
+    @FunctionalInterface
+    public interface SolrDocumentHandler<E extends Exception> {
+
+        /**
+         *
+         * @param doc {@link SolrDocument}
+         * @throws E
+         */
+        void handle(SolrDocument doc) throws E;
+    }
 }
@@ -0,0 +1,347 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.solr.common.SolrInputDocument;
+
+import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
+
+/**
+ * Buffers Solr documents from all records currently being indexed and sends them to Solr in batches. With sender threads, documents are sent
+ * asynchronously from a bounded queue that is shared by all records; otherwise each record sends its own batches synchronously. Each record writes
+ * via its own {@link Session}, so that send errors are reported to the record the failed documents belong to.
+ */
+public class SolrUpdateBuffer {
+
+    private static final Logger logger = LogManager.getLogger(SolrUpdateBuffer.class);
+
+    private final SolrSearchIndex searchIndex;
+    private final int batchSize;
+    /** Shared queue; null if documents are sent synchronously. */
+    private final BlockingQueue<PendingDoc> queue;
+    private ExecutorService senders;
+
+    /**
+     * Constructor.
+     *
+     * @param searchIndex Index to write to
+     * @param queueSize Maximum number of documents waiting to be sent; records adding documents to a full queue are blocked
+     * @param batchSize Maximum number of documents sent in one request
+     * @param threads Number of sender threads; if 0, documents are sent synchronously by the indexing thread
+     */
+    public SolrUpdateBuffer(SolrSearchIndex searchIndex, int queueSize, int batchSize, int threads) {
+        this.searchIndex = searchIndex;
+        this.batchSize = Math.max(1, batchSize);
+        if (threads > 0) {
+            this.queue = new ArrayBlockingQueue<>(Math.max(this.batchSize, queueSize));
+            this.senders = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "solrUpdate");
+                t.setDaemon(true);
+                return t;
+            });
+            for (int i = 0; i < threads; ++i) {
+                senders.execute(this::sendLoop);
+            }
+        } else {
+            this.queue = null;
+        }
+    }
+
+    /**
+     * Opens a new session for the documents of one record.
+     *
+     * @param identifier Record identifier (for logging)
+     * @return New {@link Session}
+     */
+    public Session openSession(String identifier) {
+        return new Session(identifier);
+    }
+
+    /**
+     * 
+     * @return true if documents are sent by sender threads; false otherwise
+     */
+    public boolean isAsync() {
+        return queue != null;
+    }
+
+    /**
+     * Stops the sender threads after all queued documents have been sent.
+     */
+    public void shutdown() {
+        if (senders == null) {
+            return;
+        }
+        senders.shutdownNow();
+        try {
+            if (!senders.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("Solr update sender threads did not terminate.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senders = null;
+    }
+
+    /**
+     * Takes batches from the shared queue and sends them until interrupted and the queue is empty.
+     */
+    private void sendLoop() {
+        boolean interrupted = false;
+        while (!interrupted || !queue.isEmpty()) {
+            List<PendingDoc> batch = new ArrayList<>(batchSize);
+            try {
+                PendingDoc first = interrupted ? queue.poll() : queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                continue;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            send(batch);
+        }
+    }
+
+    /**
+     * Sends the given documents. If sending a batch containing documents from several records fails, the documents of each record are sent
+     * separately with a single attempt each, so that only the records with failing documents are notified. Failed documents are never rolled back
+     * here, since a rollback would also discard documents of other records; the affected records clean up after themselves.
+     *
+     * @param batch
+     * @should notify only sessions with failing documents
+     * @should not retry per session sends
+     * @should not roll back
+     */
+    void send(List<PendingDoc> batch) {
+        Map<Session, List<SolrInputDocument>> docsPerSession = new LinkedHashMap<>();
+        for (PendingDoc pending : batch) {
+            docsPerSession.computeIfAbsent(pending.session, k -> new ArrayList<>()).add(pending.doc);
+        }
+        if (docsPerSession.size() == 1) {
+            docsPerSession.forEach((session, sessionDocs) -> send(session, sessionDocs, true));
+            return;
+        }
+
+        List<SolrInputDocument> docs = new ArrayList<>(batch.size());
+        for (PendingDoc pending : batch) {
+            docs.add(pending.doc);
+        }
+        if (sendDocs(docs, true)) {
+            docsPerSession.forEach((session, sessionDocs) -> session.done(sessionDocs.size(), null));
+            return;
+        }
+        logger.warn("Could not send batch of {} documents from {} records, sending documents per record...", docs.size(), docsPerSession.size());
+        docsPerSession.forEach((session, sessionDocs) -> send(session, sessionDocs, false));
+    }
+
+    /**
+     * Sends the given documents belonging to one session.
+     *
+     * @param session
+     * @param docs
+     * @param retry
+     */
+    private void send(Session session, List<SolrInputDocument> docs, boolean retry) {
+        if (sendDocs(docs, retry)) {
+            session.done(docs.size(), null);
+        } else {
+            session.done(docs.size(), new FatalIndexerException("Could not write " + docs.size() + " documents."));
+        }
+    }
+
+    /**
+     * 
+     * @param docs
+     * @param retry
+     * @return true if successful; false otherwise
+     */
+    private boolean sendDocs(List<SolrInputDocument> docs, boolean retry) {
+        try {
+            return searchIndex.tryWriteToIndex(docs, retry);
+        } catch (RuntimeException e) {
+            logger.error(e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Documents of a single record. Documents may be added from multiple threads.
+     */
+    public class Session {
+
+        private final String identifier;
+        /** Documents waiting to be sent synchronously. */
+        private final List<SolrInputDocument> localBatch = new ArrayList<>();
+        private int pending = 0;
+        private Exception error;
+
+        /**
+         * @param identifier
+         */
+        Session(String identifier) {
+            this.identifier = identifier;
+        }
+
+        /**
+         * Adds the given document to the buffer.
+         *
+         * @param doc Solr document
+         * @throws FatalIndexerException if previously added documents of this record could not be sent
+         */
+        public void add(SolrInputDocument doc) throws FatalIndexerException {
+            checkError();
+            if (queue == null) {
+                List<SolrInputDocument> toSend = null;
+                synchronized (this) {
+                    localBatch.add(doc);
+                    if (localBatch.size() >= batchSize) {
+                        toSend = new ArrayList<>(localBatch);
+                        localBatch.clear();
+                    }
+                }
+                if (toSend != null) {
+                    searchIndex.writeToIndex(toSend);
+                }
+                return;
+            }
+
+            synchronized (this) {
+                pending++;
+            }
+            try {
+                queue.put(new PendingDoc(doc, this));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done(1, e);
+                checkError();
+            }
+        }
+
+        /**
+         * Adds all given documents to the buffer.
+         *
+         * @param docs Solr documents
+         * @throws FatalIndexerException if documents of this record could not be sent
+         */
+        public void addAll(List<SolrInputDocument> docs) throws FatalIndexerException {
+            for (SolrInputDocument doc : docs) {
+                add(doc);
+            }
+        }
+
+        /**
+         * Sends any remaining documents and waits until all documents of this record have been sent.
+         *
+         * @throws FatalIndexerException if any document of this record could not be sent
+         * @should throw FatalIndexerException if any document could not be sent
+         * @should send all documents
+         */
+        public void flush() throws FatalIndexerException {
+            if (queue == null) {
+                List<SolrInputDocument> toSend;
+                synchronized (this) {
+                    toSend = new ArrayList<>(localBatch);
+                    localBatch.clear();
+                }
+                if (!toSend.isEmpty()) {
+                    searchIndex.writeToIndex(toSend);
+                }
+                return;
+            }
+
+            if (!await()) {
+                throw new FatalIndexerException("Interrupted while waiting for documents of '" + identifier + "' to be sent.");
+            }
+            checkError();
+        }
+
+        /**
+         * Waits until no documents of this record are waiting to be sent, without reporting send errors. Must be called before the indexing of a
+         * record is aborted, so that already queued documents cannot arrive in the index after the record has been cleaned up.
+         *
+         * @return true if all documents have been processed; false if interrupted while waiting
+         * @should wait for queued documents after failed batch
+         */
+        public synchronized boolean await() {
+            while (pending > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Called by sender threads after documents of this session have been sent.
+         *
+         * @param count Number of sent documents
+         * @param e Error; null if successful
+         */
+        synchronized void done(int count, Exception e) {
+            pending -= count;
+            if (e != null && error == null) {
+                error = e;
+            }
+            notifyAll();
+        }
+
+        /**
+         * 
+         * @throws FatalIndexerException
+         */
+        private synchronized void checkError() throws FatalIndexerException {
+            if (error != null) {
+                throw new FatalIndexerException("Could not send documents of '" + identifier + "' to Solr: " + error.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queued document and the session it belongs to.
+     */
+    static class PendingDoc {
+
+        private final SolrInputDocument doc;
+        private final Session session;
+
+        /**
+         * @param doc
+         * @param session
+         */
+        PendingDoc(SolrInputDocument doc, Session session) {
+            this.doc = doc;
+            this.session = session;
+        }
+    }
+}
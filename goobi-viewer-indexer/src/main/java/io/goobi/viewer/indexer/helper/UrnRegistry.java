@@ -0,0 +1,353 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.text.StringEscapeUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrDocument;
+
+import io.goobi.viewer.indexer.model.SolrConstants;
+
+/**
+ * Local URN -> PI registry that allows answering URN collision checks without querying Solr. The registry is built from the index once and then
+ * kept in sync by registering the URNs of every indexed record and unregistering deleted records. Changes are appended to the registry file as a
+ * journal, which is compacted when the registry is closed.
+ * <p>
+ * The registry can only rule out collisions if no other process writes to the same index. Reported collisions should always be confirmed by
+ * querying the index, since the registry may contain URNs of records that were not written successfully.
+ * </p>
+ */
+public class UrnRegistry {
+
+    private static final Logger logger = LogManager.getLogger(UrnRegistry.class);
+
+    private static final String OP_ADD = "+";
+    private static final String OP_REMOVE = "-";
+    private static final String SEPARATOR = "\t";
+
+    /** Records indexed up to this long before the registry file was last written are resynchronized as well (ms). */
+    private static final long RESYNC_MARGIN = 3600000;
+    /** Number of records per resynchronization query. */
+    private static final int RESYNC_BATCH_SIZE = 100;
+    private static final List<String> URN_FIELDS = Arrays.asList(SolrConstants.URN, SolrConstants.PI, SolrConstants.PI_TOPSTRUCT);
+
+    private final Path file;
+    private final Map<String, String> piByUrn = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> urnsByPi = new ConcurrentHashMap<>();
+    private BufferedWriter journal;
+
+    /**
+     * Constructor.
+     *
+     * @param file Registry file
+     */
+    public UrnRegistry(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file may not be null");
+        }
+        this.file = file;
+    }
+
+    /**
+     * Loads the registry from the registry file. If the file does not exist yet, the registry is built from all URNs in the given index. If the file
+     * exists, records indexed since the file was last written (e.g. by another indexer instance while this one was not running) are resynchronized
+     * with the index.
+     *
+     * @param searchIndex Index to build or resynchronize the registry from; no resynchronization if null
+     * @throws IOException
+     * @throws SolrServerException
+     * @should load registry from file
+     * @should build registry from index if file missing
+     * @should resync records indexed after file was written
+     */
+    public synchronized void open(SolrSearchIndex searchIndex) throws IOException, SolrServerException {
+        if (journal != null) {
+            return;
+        }
+        if (Files.isRegularFile(file)) {
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            load();
+            logger.info("Loaded {} URNs from URN registry '{}'.", piByUrn.size(), file.toAbsolutePath());
+            if (searchIndex != null && resync(searchIndex, lastModified - RESYNC_MARGIN) > 0) {
+                compact();
+            }
+        } else {
+            logger.info("URN registry '{}' not found, building from index...", file.toAbsolutePath());
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            searchIndex.forEach(SolrConstants.URN + ":*", URN_FIELDS, this::putDoc);
+            logger.info("Added {} URNs to URN registry.", piByUrn.size());
+            compact();
+        }
+        journal = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Returns the identifiers of all records other than skipPi that already use any of the given URNs.
+     *
+     * @param urns URNs to check
+     * @param skipPi Record identifier to skip (typically the currently indexed record)
+     * @return Set of record identifiers; empty if no collisions found
+     * @should return other records using given urns
+     * @should ignore skipPi
+     */
+    public Set<String> findCollisions(Collection<String> urns, String skipPi) {
+        if (urns == null || urns.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> ret = new HashSet<>();
+        for (String urn : urns) {
+            String pi = piByUrn.get(urn);
+            if (pi != null && !pi.equals(skipPi)) {
+                ret.add(pi);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Assigns the given URNs to the given record. URNs previously registered for the record are kept, since the record may still fail to be
+     * written; obsolete URNs only lead to collisions being confirmed by querying the index.
+     *
+     * @param pi Record identifier
+     * @param urns URNs of the record
+     * @throws IOException
+     * @should add urns to record
+     * @should reassign urn to given record
+     */
+    public synchronized void register(String pi, Collection<String> urns) throws IOException {
+        if (StringUtils.isEmpty(pi) || urns == null) {
+            return;
+        }
+        for (String urn : urns) {
+            if (!pi.equals(piByUrn.get(urn))) {
+                put(urn, pi);
+                writeJournalEntry(OP_ADD, pi, urn);
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Removes all registered URNs of the given record.
+     *
+     * @param pi Record identifier
+     * @throws IOException
+     * @should remove all urns of record
+     */
+    public synchronized void unregister(String pi) throws IOException {
+        if (StringUtils.isEmpty(pi) || !urnsByPi.containsKey(pi)) {
+            return;
+        }
+        removeAll(pi);
+        writeJournalEntry(OP_REMOVE, pi, null);
+        flush();
+    }
+
+    /**
+     * Compacts the registry file and closes it.
+     *
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        compact();
+    }
+
+    /**
+     *
+     * @return Number of registered URNs
+     */
+    public int size() {
+        return piByUrn.size();
+    }
+
+    /**
+     *
+     * @param urn
+     * @param pi
+     */
+    private void put(String urn, String pi) {
+        String previousPi = piByUrn.put(urn, pi);
+        if (previousPi != null && !previousPi.equals(pi)) {
+            Set<String> previousUrns = urnsByPi.get(previousPi);
+            if (previousUrns != null) {
+                previousUrns.remove(urn);
+            }
+        }
+        urnsByPi.computeIfAbsent(pi, k -> ConcurrentHashMap.newKeySet()).add(urn);
+    }
+
+    /**
+     *
+     * @param pi
+     */
+    private void removeAll(String pi) {
+        Set<String> urns = urnsByPi.remove(pi);
+        if (urns != null) {
+            for (String urn : urns) {
+                piByUrn.remove(urn, pi);
+            }
+        }
+    }
+
+    /**
+     * Registers the URNs of the given index document.
+     *
+     * @param doc Solr document containing URNs
+     */
+    private void putDoc(SolrDocument doc) {
+        String pi = (String) (doc.containsKey(SolrConstants.PI_TOPSTRUCT) ? doc.getFirstValue(SolrConstants.PI_TOPSTRUCT)
+                : doc.getFirstValue(SolrConstants.PI));
+        Collection<Object> urns = doc.getFieldValues(SolrConstants.URN);
+        if (pi != null && urns != null) {
+            for (Object urn : urns) {
+                put(String.valueOf(urn), pi);
+            }
+        }
+    }
+
+    /**
+     * Replaces the registered URNs of all records indexed since the given timestamp with their current URNs from the index.
+     *
+     * @param searchIndex
+     * @param since Timestamp (ms)
+     * @return Number of resynchronized records
+     * @throws IOException
+     * @throws SolrServerException
+     */
+    private int resync(SolrSearchIndex searchIndex, long since) throws IOException, SolrServerException {
+        Set<String> found = new HashSet<>();
+        searchIndex.forEach(SolrConstants.DATEINDEXED + ":[" + since + " TO *]", Collections.singletonList(SolrConstants.PI), doc -> {
+            if (doc.getFirstValue(SolrConstants.PI) != null) {
+                found.add(String.valueOf(doc.getFirstValue(SolrConstants.PI)));
+            }
+        });
+        if (found.isEmpty()) {
+            return 0;
+        }
+
+        List<String> pis = new ArrayList<>(found);
+        logger.info("Resynchronizing URNs of {} record(s) indexed since the URN registry was last written...", pis.size());
+        for (int start = 0; start < pis.size(); start += RESYNC_BATCH_SIZE) {
+            List<String> batch = pis.subList(start, Math.min(start + RESYNC_BATCH_SIZE, pis.size()));
+            StringBuilder sbValues = new StringBuilder();
+            for (String pi : batch) {
+                removeAll(pi);
+                sbValues.append(" \"").append(pi).append('"');
+            }
+            String values = "(" + sbValues.toString().trim() + ")";
+            searchIndex.forEach("+" + SolrConstants.URN + ":* +(" + SolrConstants.PI + ":" + values + " " + SolrConstants.PI_TOPSTRUCT + ":" + values
+                    + ")", URN_FIELDS, this::putDoc);
+        }
+
+        return pis.size();
+    }
+
+    /**
+     * Replays the registry file.
+     *
+     * @throws IOException
+     */
+    private void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(SEPARATOR);
+                if (parts.length == 3 && OP_ADD.equals(parts[0])) {
+                    put(StringEscapeUtils.unescapeJava(parts[2]), StringEscapeUtils.unescapeJava(parts[1]));
+                } else if (parts.length == 2 && OP_REMOVE.equals(parts[0])) {
+                    removeAll(StringEscapeUtils.unescapeJava(parts[1]));
+                } else if (StringUtils.isNotBlank(line)) {
+                    logger.warn("Invalid URN registry entry: {}", line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the current registry state to the registry file, replacing all journal entries.
+     *
+     * @throws IOException
+     */
+    private void compact() throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Entry<String, String> entry : piByUrn.entrySet()) {
+                writer.write(OP_ADD + SEPARATOR + StringEscapeUtils.escapeJava(entry.getValue()) + SEPARATOR
+                        + StringEscapeUtils.escapeJava(entry.getKey()));
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     *
+     * @param op
+     * @param pi
+     * @param urn
+     * @throws IOException
+     */
+    private void writeJournalEntry(String op, String pi, String urn) throws IOException {
+        if (journal == null) {
+            return;
+        }
+        journal.write(op + SEPARATOR + StringEscapeUtils.escapeJava(pi));
+        if (urn != null) {
+            journal.write(SEPARATOR + StringEscapeUtils.escapeJava(urn));
+        }
+        journal.newLine();
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    private void flush() throws IOException {
+        if (journal != null) {
+            journal.flush();
+        }
+    }
+}
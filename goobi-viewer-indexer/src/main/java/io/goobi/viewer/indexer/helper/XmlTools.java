@@ -27,6 +27,8 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.stream.XMLInputFactory;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -64,6 +66,19 @@ public final class XmlTools {
         return builder;
     }
 
+    /**
+     * 
+     * @return {@link XMLInputFactory} for streaming reads, with DTD processing and external entities disabled
+     */
+    public static XMLInputFactory getXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Disable access to external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        return factory;
+    }
+
     /**
      * <p>
      * readXmlFile.
@@ -17,9 +17,14 @@ package io.goobi.viewer.indexer.helper.logging;
 
 import java.io.Serializable;
 import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
 import org.apache.logging.log4j.core.Filter;
 import org.apache.logging.log4j.core.Layout;
 import org.apache.logging.log4j.core.LogEvent;
@@ -39,7 +44,14 @@ public class SecondaryAppender extends AbstractAppender {
 
     private static final Logger logger = LogManager.getLogger(SecondaryAppender.class);
 
-    private static final StringWriter WRITER = new StringWriter(); // static to ensure it's the same object over different appender instances
+    /** Thread context key of the record currently being indexed. */
+    public static final String RECORD_KEY = "indexerRecord";
+
+    /**
+     * Static to ensure it's the same object over different appender instances; one writer per record, so that records indexed in parallel do not
+     * end up in each other's logs. Only messages logged while a record key is set in the thread context are kept.
+     */
+    private static final Map<String, StringWriter> WRITERS = new ConcurrentHashMap<>();
 
     /**
      * Constructor.
@@ -55,8 +67,14 @@ public class SecondaryAppender extends AbstractAppender {
 
     @Override
     public void append(LogEvent logEvent) {
-        logger.trace("APPENDING ({} / {})", System.identityHashCode(this), System.identityHashCode(WRITER));
-        WRITER.append(getLayout().toSerializable(logEvent).toString());
+        String record = logEvent.getContextData().getValue(RECORD_KEY);
+        if (record == null) {
+            return;
+        }
+        StringWriter writer = WRITERS.get(record);
+        if (writer != null) {
+            writer.append(getLayout().toSerializable(logEvent).toString());
+        }
     }
 
     @PluginFactory
@@ -70,16 +88,112 @@ public class SecondaryAppender extends AbstractAppender {
         return new SecondaryAppender(name, filter, layout != null ? layout : PatternLayout.createDefaultLayout(), true);
     }
 
+    /**
+     * 
+     * @return Log of the record currently being indexed in this thread; empty string if none
+     */
     public String getLog() {
-        logger.trace("getLog ({} / {})", System.identityHashCode(this), System.identityHashCode(WRITER));
-        return WRITER.toString();
+        String record = ThreadContext.get(RECORD_KEY);
+        StringWriter writer = record != null ? WRITERS.get(record) : null;
+        return writer != null ? writer.toString() : "";
     }
 
     /**
+     * Empties the log of the record currently being indexed in this thread.
+     * 
      * @should reset writer correctly
      */
     public void reset() {
-        logger.debug("resetting writer");
-        WRITER.getBuffer().setLength(0);
+        String record = ThreadContext.get(RECORD_KEY);
+        StringWriter writer = record != null ? WRITERS.get(record) : null;
+        if (writer != null) {
+            logger.debug("resetting writer");
+            writer.getBuffer().setLength(0);
+        }
+    }
+
+    /**
+     * Starts a new, empty log for the given record and assigns the current thread to it.
+     * 
+     * @param record Record key (e.g. record file path)
+     * @should only keep messages logged for started records
+     */
+    public static void startRecord(String record) {
+        WRITERS.put(record, new StringWriter());
+        ThreadContext.put(RECORD_KEY, record);
+    }
+
+    /**
+     * Unassigns the current thread from its record. The log of the record is kept until {@link #endRecord(String)} is called, so that messages
+     * from other threads working on the record can still be added.
+     */
+    public static void leaveRecord() {
+        ThreadContext.remove(RECORD_KEY);
+    }
+
+    /**
+     * Discards the log of the given record. Messages logged for the record afterwards are no longer kept.
+     * 
+     * @param record Record key
+     * @return Log of the given record; empty string if none
+     * @should discard log of ended record
+     */
+    public static String endRecord(String record) {
+        if (record.equals(ThreadContext.get(RECORD_KEY))) {
+            ThreadContext.remove(RECORD_KEY);
+        }
+        StringWriter writer = WRITERS.remove(record);
+        return writer != null ? writer.toString() : "";
+    }
+
+    /**
+     * Wraps the given task so that messages it logs in another thread are added to the log of the record currently being indexed in the calling
+     * thread.
+     * 
+     * @param task
+     * @return Wrapped task; the given task if no record is being indexed in the calling thread
+     * @should add messages from other threads to record log
+     */
+    public static Runnable withRecord(Runnable task) {
+        String record = ThreadContext.get(RECORD_KEY);
+        if (record == null) {
+            return task;
+        }
+        return () -> {
+            String previous = ThreadContext.get(RECORD_KEY);
+            ThreadContext.put(RECORD_KEY, record);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    ThreadContext.put(RECORD_KEY, previous);
+                } else {
+                    ThreadContext.remove(RECORD_KEY);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a {@link ForkJoinPool} whose worker threads add their messages to the log of the record currently being indexed in the calling
+     * thread.
+     * 
+     * @param parallelism Number of threads
+     * @return {@link ForkJoinPool}
+     * @should add messages from worker threads to record log
+     */
+    public static ForkJoinPool newRecordPool(int parallelism) {
+        String record = ThreadContext.get(RECORD_KEY);
+        if (record == null) {
+            return new ForkJoinPool(parallelism);
+        }
+        return new ForkJoinPool(parallelism, pool -> new ForkJoinWorkerThread(pool) {
+
+            @Override
+            protected void onStart() {
+                super.onStart();
+                ThreadContext.put(RECORD_KEY, record);
+            }
+        }, null, false);
     }
-}
\ No newline at end of file
+}
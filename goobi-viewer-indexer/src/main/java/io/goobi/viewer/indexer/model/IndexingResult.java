@@ -22,7 +22,9 @@ public class IndexingResult {
 
     public enum IndexingResultStatus {
         OK,
-        ERROR;
+        ERROR,
+        /** The record could not be indexed yet because a record it depends on is currently being processed. */
+        DEFERRED;
     }
 
     private IndexingResultStatus status = IndexingResultStatus.OK;
@@ -30,6 +32,8 @@ public class IndexingResult {
     private String recordFileName;
     private String error;
     private boolean submitPiToViewer = false;
+    /** Lock key of the record that caused a deferral. */
+    private String deferredBy;
     private Set<String> mediaFileNames = new HashSet<>();
 
     /**
@@ -97,6 +101,25 @@ public class IndexingResult {
         return this;
     }
 
+    /**
+     * @return the deferredBy
+     */
+    public String getDeferredBy() {
+        return deferredBy;
+    }
+
+    /**
+     * Marks the record as deferred until the record with the given lock key has been processed.
+     * 
+     * @param deferredBy Lock key of the record currently being processed
+     * @return this
+     */
+    public IndexingResult setDeferredBy(String deferredBy) {
+        this.deferredBy = deferredBy;
+        this.status = IndexingResultStatus.DEFERRED;
+        return this;
+    }
+
     /**
      * @return the submitPiToViewer
      */
@@ -0,0 +1,201 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.solr.common.SolrDocument;
+
+/**
+ * State of an already indexed record, retrieved with a single query at the start of indexing and shared by everything that needs information
+ * about the previous instance of the record (data repository selection, update preparation, anchor lookup).
+ */
+public class RecordState {
+
+    /** Fields to return when querying a record's state. */
+    public static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList(SolrConstants.IDDOC, SolrConstants.DOCSTRCT,
+            SolrConstants.ISANCHOR, SolrConstants.DATECREATED, SolrConstants.DATEUPDATED, SolrConstants.DATEINDEXED, SolrConstants.DATAREPOSITORY,
+            SolrConstants.THUMBNAILREPRESENT, SolrConstants.ACCESSCONDITION));
+
+    private final String pi;
+    private final long numFound;
+    private final boolean fromOldIndex;
+    private String iddoc;
+    private String docstrct;
+    private boolean anchor = false;
+    private Long dateCreated;
+    private final List<Long> dateUpdated = new ArrayList<>();
+    private final List<Long> dateIndexed = new ArrayList<>();
+    private String dataRepository;
+    private String thumbnailRepresent;
+    private final List<String> accessConditions = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param pi Record identifier
+     * @param doc Top document of the record; null if not indexed
+     * @param numFound Number of indexed documents with the given PI
+     * @param fromOldIndex true if the record was found in the old index
+     * @should set all values correctly
+     * @should create not found state if doc null
+     */
+    public RecordState(String pi, SolrDocument doc, long numFound, boolean fromOldIndex) {
+        this.pi = pi;
+        this.numFound = doc != null ? numFound : 0;
+        this.fromOldIndex = fromOldIndex;
+        if (doc == null) {
+            return;
+        }
+
+        iddoc = doc.getFieldValue(SolrConstants.IDDOC) != null ? String.valueOf(doc.getFieldValue(SolrConstants.IDDOC)) : null;
+        docstrct = (String) doc.getFirstValue(SolrConstants.DOCSTRCT);
+        anchor = Boolean.TRUE.equals(doc.getFieldValue(SolrConstants.ISANCHOR));
+        dateCreated = (Long) doc.getFirstValue(SolrConstants.DATECREATED);
+        addLongValues(doc.getFieldValues(SolrConstants.DATEUPDATED), dateUpdated);
+        addLongValues(doc.getFieldValues(SolrConstants.DATEINDEXED), dateIndexed);
+        dataRepository = (String) doc.getFirstValue(SolrConstants.DATAREPOSITORY);
+        thumbnailRepresent = (String) doc.getFirstValue(SolrConstants.THUMBNAILREPRESENT);
+        Collection<Object> values = doc.getFieldValues(SolrConstants.ACCESSCONDITION);
+        if (values != null) {
+            for (Object o : values) {
+                accessConditions.add(String.valueOf(o));
+            }
+        }
+    }
+
+    /**
+     *
+     * @param values
+     * @param target
+     */
+    private static void addLongValues(Collection<Object> values, List<Long> target) {
+        if (values == null) {
+            return;
+        }
+        for (Object o : values) {
+            target.add((Long) o);
+        }
+    }
+
+    /**
+     * @return true if the record is already indexed; false otherwise
+     */
+    public boolean isFound() {
+        return numFound > 0;
+    }
+
+    /**
+     * @return Name of the data repository currently used by the record; "?" if indexed, but not in a repository; null if not indexed
+     * @should return question mark if found without repository
+     * @should return null if not found
+     */
+    public String getPreviousDataRepository() {
+        if (!isFound()) {
+            return null;
+        }
+
+        return dataRepository != null ? dataRepository : "?";
+    }
+
+    /**
+     * @return the pi
+     */
+    public String getPi() {
+        return pi;
+    }
+
+    /**
+     * @return the numFound
+     */
+    public long getNumFound() {
+        return numFound;
+    }
+
+    /**
+     * @return the fromOldIndex
+     */
+    public boolean isFromOldIndex() {
+        return fromOldIndex;
+    }
+
+    /**
+     * @return the iddoc
+     */
+    public String getIddoc() {
+        return iddoc;
+    }
+
+    /**
+     * @return the docstrct
+     */
+    public String getDocstrct() {
+        return docstrct;
+    }
+
+    /**
+     * @return the anchor
+     */
+    public boolean isAnchor() {
+        return anchor;
+    }
+
+    /**
+     * @return the dateCreated
+     */
+    public Long getDateCreated() {
+        return dateCreated;
+    }
+
+    /**
+     * @return the dateUpdated
+     */
+    public List<Long> getDateUpdated() {
+        return dateUpdated;
+    }
+
+    /**
+     * @return the dateIndexed
+     */
+    public List<Long> getDateIndexed() {
+        return dateIndexed;
+    }
+
+    /**
+     * @return the dataRepository
+     */
+    public String getDataRepository() {
+        return dataRepository;
+    }
+
+    /**
+     * @return the thumbnailRepresent
+     */
+    public String getThumbnailRepresent() {
+        return thumbnailRepresent;
+    }
+
+    /**
+     * @return the accessConditions
+     */
+    public List<String> getAccessConditions() {
+        return accessConditions;
+    }
+}
@@ -154,6 +154,8 @@ public final class SolrConstants {
     public static final String IDDOC_PARENT = "IDDOC_PARENT";
     /** Constant <code>IDDOC_TOPSTRUCT="IDDOC_TOPSTRUCT"</code> */
     public static final String IDDOC_TOPSTRUCT = "IDDOC_TOPSTRUCT";
+    /** Identifies the indexing run that wrote a document; used to replace previous record instances without a gap. */
+    public static final String INDEXGENERATION = "INDEXGENERATION";
     /** Constant <code>IMAGEURN="IMAGEURN"</code> */
     public static final String IMAGEURN = "IMAGEURN";
     /** Contains a list of all page URNs for a record. This is required for listing deleted records and their pages. */
@@ -18,6 +18,7 @@ package io.goobi.viewer.indexer.model.datarepository.strategy;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -30,6 +31,7 @@ import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.helper.Configuration;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
 import io.goobi.viewer.indexer.helper.Utils;
+import io.goobi.viewer.indexer.model.RecordState;
 import io.goobi.viewer.indexer.model.datarepository.DataRepository;
 
 public abstract class AbstractDataRepositoryStrategy implements IDataRepositoryStrategy {
@@ -89,17 +91,33 @@ public abstract class AbstractDataRepositoryStrategy implements IDataRepositoryS
         return ret;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public DataRepository[] selectDataRepository(final String pi, final Path recordFile, final Map<String, Path> dataFolders,
+            final SolrSearchIndex searchIndex, final SolrSearchIndex oldSearchIndex) throws FatalIndexerException {
+        return selectDataRepository(pi, recordFile, dataFolders, searchIndex, oldSearchIndex, null);
+    }
+
     /**
      * 
      * @param pi
      * @param searchIndex
      * @param oldSearchIndex
+     * @param recordState Already retrieved state of the record; may be null
      * @return Previous data repository name; null if none found
      * @throws SolrServerException
      * @throws IOException
+     * @should return repository from record state if available
      */
-    protected String lookUpPreviousDataRepository(String pi, final SolrSearchIndex searchIndex, final SolrSearchIndex oldSearchIndex)
-            throws SolrServerException, IOException {
+    protected String lookUpPreviousDataRepository(String pi, final SolrSearchIndex searchIndex, final SolrSearchIndex oldSearchIndex,
+            final RecordState recordState) throws SolrServerException, IOException {
+        if (recordState != null && recordState.getPi().equals(pi)) {
+            if (recordState.isFromOldIndex() && recordState.isFound()) {
+                logger.info("Data repository found in old index: {}", recordState.getPreviousDataRepository());
+            }
+            return recordState.getPreviousDataRepository();
+        }
+
         // Look up previous repository in the index
         String previousRepository = searchIndex.findCurrentDataRepository(pi);
         if (previousRepository == null && oldSearchIndex != null) {
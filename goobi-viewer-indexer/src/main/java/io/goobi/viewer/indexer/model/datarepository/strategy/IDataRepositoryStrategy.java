@@ -21,6 +21,7 @@ import java.util.Map;
 
 import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
+import io.goobi.viewer.indexer.model.RecordState;
 import io.goobi.viewer.indexer.model.datarepository.DataRepository;
 
 /**
@@ -55,4 +56,22 @@ public interface IDataRepositoryStrategy {
     public DataRepository[] selectDataRepository(String pi, final Path recordFile, final Map<String, Path> dataFolders,
             final SolrSearchIndex searchIndex, final SolrSearchIndex oldSearchIndex)
             throws FatalIndexerException;
+
+    /**
+     * Selects available data repository for the given record. If no repository could be selected, the indexer MUST be halted. The previous
+     * data repository is taken from the given record state, if available, instead of querying the index again.
+     *
+     * @param pi a {@link java.lang.String} object.
+     * @param recordFile a {@link java.nio.file.Path} object.
+     * @param dataFolders a {@link java.util.Map} object.
+     * @param searchIndex a {@link io.goobi.viewer.indexer.helper.SolrSearchIndex} object.
+     * @param oldSearchIndex
+     * @param recordState Already retrieved state of the record; may be null
+     * @return DataReopository array with index 0 containing the selected repository and 1 containing the previous repository, if not equal to
+     *         selected repository
+     * @throws io.goobi.viewer.indexer.exceptions.FatalIndexerException
+     */
+    public DataRepository[] selectDataRepository(String pi, final Path recordFile, final Map<String, Path> dataFolders,
+            final SolrSearchIndex searchIndex, final SolrSearchIndex oldSearchIndex, final RecordState recordState)
+            throws FatalIndexerException;
 }
@@ -28,6 +28,7 @@ import org.apache.solr.client.solrj.SolrServerException;
 import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.helper.Configuration;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
+import io.goobi.viewer.indexer.model.RecordState;
 import io.goobi.viewer.indexer.model.datarepository.DataRepository;
 
 /**
@@ -59,7 +60,7 @@ public class MaxRecordNumberStrategy extends AbstractDataRepositoryStrategy {
     @Override
     public DataRepository[] selectDataRepository(final String pi, final Path recordFile, final Map<String, Path> dataFolders,
             final SolrSearchIndex searchIndex,
-            final SolrSearchIndex oldSearchIndex)
+            final SolrSearchIndex oldSearchIndex, final RecordState recordState)
             throws FatalIndexerException {
         DataRepository[] ret = new DataRepository[] { null, null };
 
@@ -73,7 +74,7 @@ public class MaxRecordNumberStrategy extends AbstractDataRepositoryStrategy {
 
         String previousRepository = null;
         try {
-            previousRepository = lookUpPreviousDataRepository(usePi, searchIndex, oldSearchIndex);
+            previousRepository = lookUpPreviousDataRepository(usePi, searchIndex, oldSearchIndex, recordState);
         } catch (SolrServerException | IOException e) {
             throw new FatalIndexerException(e.getMessage());
         }
@@ -28,6 +28,7 @@ import org.apache.solr.client.solrj.SolrServerException;
 import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.helper.Configuration;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
+import io.goobi.viewer.indexer.model.RecordState;
 import io.goobi.viewer.indexer.model.datarepository.DataRepository;
 
 /**
@@ -53,7 +54,7 @@ public class SingleRepositoryStrategy extends AbstractDataRepositoryStrategy {
     /** {@inheritDoc} */
     @Override
     public DataRepository[] selectDataRepository(final String pi, final Path recordFile, final Map<String, Path> dataFolders,
-            final SolrSearchIndex searchIndex, final SolrSearchIndex oldSearchIndex) throws FatalIndexerException {
+            final SolrSearchIndex searchIndex, final SolrSearchIndex oldSearchIndex, final RecordState recordState) throws FatalIndexerException {
         DataRepository[] ret = new DataRepository[] { null, null };
 
         String usePi = lookUpPi(pi, recordFile);
@@ -66,7 +67,7 @@ public class SingleRepositoryStrategy extends AbstractDataRepositoryStrategy {
 
         String previousRepository = null;
         try {
-            previousRepository = lookUpPreviousDataRepository(usePi, searchIndex, oldSearchIndex);
+            previousRepository = lookUpPreviousDataRepository(usePi, searchIndex, oldSearchIndex, recordState);
         } catch (SolrServerException | IOException e) {
             throw new FatalIndexerException(e.getMessage());
         }
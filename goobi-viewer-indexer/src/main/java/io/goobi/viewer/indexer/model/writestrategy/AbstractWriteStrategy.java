@@ -18,7 +18,7 @@ package io.goobi.viewer.indexer.model.writestrategy;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -26,6 +26,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -38,6 +42,7 @@ import io.goobi.viewer.indexer.SolrIndexerDaemon;
 import io.goobi.viewer.indexer.exceptions.IndexerException;
 import io.goobi.viewer.indexer.helper.Hotfolder;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
+import io.goobi.viewer.indexer.helper.UrnRegistry;
 import io.goobi.viewer.indexer.model.SolrConstants;
 import io.goobi.viewer.indexer.model.datarepository.DataRepository;
 
@@ -51,11 +56,17 @@ public abstract class AbstractWriteStrategy implements ISolrWriteStrategy {
 
     private static final Logger logger = LogManager.getLogger(AbstractWriteStrategy.class);
 
+    /** Shared executor for parallel duplicate check batches of all records; created on first use. */
+    private static ExecutorService duplicateCheckExecutor;
+
     protected SolrSearchIndex searchIndex;
 
     /** Collected field values for further checks, etc. */
     protected Map<String, List<String>> collectedValues = new ConcurrentHashMap<>();
 
+    /** Index generation to tag all written docs with. */
+    protected String generation = null;
+
     /**
      * 
      * @param sourceFile File containing the record(s)
@@ -116,6 +127,25 @@ public abstract class AbstractWriteStrategy implements ISolrWriteStrategy {
         }
     }
 
+    /**
+     * Adds the current index generation to the given doc, if set.
+     *
+     * @param doc
+     * @should add generation if set
+     * @should not add generation if not set
+     */
+    void addGenerationField(SolrInputDocument doc) {
+        if (generation != null) {
+            doc.setField(SolrConstants.INDEXGENERATION, generation);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setGeneration(String generation) {
+        this.generation = generation;
+    }
+
     /**
      * Removes multiple values from fields that are not multivalued.
      * 
@@ -150,6 +180,7 @@ public abstract class AbstractWriteStrategy implements ISolrWriteStrategy {
 
     /**
      * Checks whether values of the given field in the input docs already exist in the index. If so, throws an exception to let indexing fail.
+     * URNs are checked against the local URN registry first, if enabled; the index is only queried if the registry reports a collision.
      * 
      * @param field Field whose values to check
      * @param skipPi Record identifier to skip (typically the currently indexed record)
@@ -160,37 +191,110 @@ public abstract class AbstractWriteStrategy implements ISolrWriteStrategy {
             return;
         }
 
-        logger.info("Checking for duplicate {} values...", field);
-        int batch = 50;
         List<String> allValues = collectedValues.get(field);
-        int start = 0;
-        int end = allValues.size();
-        logger.debug("values size: {}", allValues.size());
-        if (allValues.size() > batch) {
-            end = batch;
-        }
-        while (end <= allValues.size()) {
-            logger.debug("Checking {} values {}-{}", field, start, end - 1);
-            try {
-                Set<String> result = searchIndex.checkDuplicateFieldValues(Collections.singletonList(field), allValues.subList(start, end), skipPi);
-                if (!result.isEmpty()) {
-                    StringBuilder sb = new StringBuilder();
-                    for (String pi : result) {
-                        sb.append(' ').append(pi);
-                    }
-                    throw new IndexerException(field + " values used in this record already exists on the following records: " + sb.toString());
+        logger.info("Checking {} {} values for duplicates...", allValues.size(), field);
+        UrnRegistry urnRegistry = SolrConstants.URN.equals(field) ? SolrIndexerDaemon.getInstance().getUrnRegistry() : null;
+        if (urnRegistry != null && urnRegistry.findCollisions(allValues, skipPi).isEmpty()) {
+            logger.debug("No {} collisions found in the URN registry.", field);
+            registerUrns(urnRegistry, skipPi, allValues);
+            return;
+        }
+
+        Set<String> result = findDuplicateValues(field, allValues, skipPi);
+        if (!result.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (String pi : result) {
+                sb.append(' ').append(pi);
+            }
+            throw new IndexerException(field + " values used in this record already exists on the following records: " + sb.toString());
+        }
+        if (urnRegistry != null) {
+            registerUrns(urnRegistry, skipPi, allValues);
+        }
+    }
+
+    /**
+     * Queries the index for records other than skipPi that already use any of the given values. Values are checked in batches, which are sent
+     * to Solr in parallel.
+     *
+     * @param field Field whose values to check
+     * @param values Values to check
+     * @param skipPi Record identifier to skip
+     * @return Set of record identifiers using any of the given values
+     * @throws IndexerException
+     */
+    private Set<String> findDuplicateValues(String field, List<String> values, String skipPi) throws IndexerException {
+        int batchSize = SolrIndexerDaemon.getInstance().getConfiguration().getDuplicateCheckBatchSize();
+        int threads = SolrIndexerDaemon.getInstance().getConfiguration().getDuplicateCheckThreads();
+        List<List<String>> batches = new ArrayList<>();
+        for (int start = 0; start < values.size(); start += batchSize) {
+            batches.add(values.subList(start, Math.min(start + batchSize, values.size())));
+        }
+
+        Set<String> ret = new HashSet<>();
+        try {
+            if (batches.size() == 1 || threads == 1) {
+                for (List<String> batch : batches) {
+                    ret.addAll(searchIndex.checkDuplicateFieldTerms(field, batch, skipPi));
                 }
-            } catch (SolrServerException | IOException e) {
-                throw new IndexerException(e.getMessage());
+                return ret;
             }
-            if (end == allValues.size()) {
-                break;
+
+            logger.debug("Checking {} values in {} batches.", field, batches.size());
+            ExecutorService executor = getDuplicateCheckExecutor(threads);
+            List<Future<Set<String>>> futures = new ArrayList<>(batches.size());
+            for (List<String> batch : batches) {
+                futures.add(executor.submit(() -> searchIndex.checkDuplicateFieldTerms(field, batch, skipPi)));
             }
-            start += batch;
-            end += batch;
-            if (end > allValues.size()) {
-                end = allValues.size();
+            try {
+                for (Future<Set<String>> future : futures) {
+                    ret.addAll(future.get());
+                }
+            } finally {
+                for (Future<Set<String>> future : futures) {
+                    future.cancel(true);
+                }
             }
+        } catch (SolrServerException | IOException e) {
+            throw new IndexerException(e.getMessage());
+        } catch (ExecutionException e) {
+            throw new IndexerException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IndexerException(e.getMessage());
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the executor shared by all duplicate checks, so that concurrently indexed records do not each start their own thread pool.
+     * 
+     * @param threads Number of threads
+     * @return Shared executor
+     */
+    private static synchronized ExecutorService getDuplicateCheckExecutor(int threads) {
+        if (duplicateCheckExecutor == null) {
+            duplicateCheckExecutor = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "duplicateCheck");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return duplicateCheckExecutor;
+    }
+
+    /**
+     * 
+     * @param urnRegistry
+     * @param pi
+     * @param urns
+     */
+    private static void registerUrns(UrnRegistry urnRegistry, String pi, List<String> urns) {
+        try {
+            urnRegistry.register(pi, urns);
+        } catch (IOException e) {
+            logger.error("Could not update URN registry: {}", e.getMessage());
         }
     }
 
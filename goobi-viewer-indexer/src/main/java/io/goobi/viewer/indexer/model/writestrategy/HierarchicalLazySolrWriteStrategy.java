@@ -55,6 +55,7 @@ public class HierarchicalLazySolrWriteStrategy extends LazySolrWriteStrategy {
         }
 
         sanitizeDoc(rootDoc);
+        addGenerationField(rootDoc);
 
         String pi = (String) rootDoc.getFieldValue(SolrConstants.PI);
 
@@ -64,6 +65,7 @@ public class HierarchicalLazySolrWriteStrategy extends LazySolrWriteStrategy {
         for (Entry<Integer, PhysicalElement> entry : pageOrderMap.entrySet()) {
             PhysicalElement page = entry.getValue();
             checkAndAddAccessCondition(page.getDoc());
+            addGenerationField(page.getDoc());
             docsToAdd.add(page.getDoc());
         }
 
@@ -72,6 +74,7 @@ public class HierarchicalLazySolrWriteStrategy extends LazySolrWriteStrategy {
                 logger.error("Field has no GROUPFIELD: {}", doc);
             }
             sanitizeDoc(doc);
+            addGenerationField(doc);
             rootDoc.addChildDocument(doc);
             if (aggregateRecords) {
                 // Add SUPER* fields to root doc
@@ -82,7 +85,7 @@ public class HierarchicalLazySolrWriteStrategy extends LazySolrWriteStrategy {
         }
 
         searchIndex.writeToIndex(rootDoc);
-        searchIndex.commit(searchIndex.isOptimize());
+        searchIndex.commitRecord(searchIndex.isOptimize());
         logger.debug("{} new doc(s) added.", docsToAdd.size());
     }
 }
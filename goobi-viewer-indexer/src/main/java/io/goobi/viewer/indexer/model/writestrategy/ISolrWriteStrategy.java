@@ -126,6 +126,13 @@ public interface ISolrWriteStrategy {
      */
     public void writeDocs(boolean aggregateRecords) throws IndexerException, FatalIndexerException;
 
+    /**
+     * Sets the index generation with which all written docs are tagged.
+     *
+     * @param generation Index generation; null if docs should not be tagged
+     */
+    public void setGeneration(String generation);
+
     /**
      * <p>
      * cleanup.
@@ -31,6 +31,7 @@ import org.apache.solr.common.SolrInputDocument;
 import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.exceptions.IndexerException;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
+import io.goobi.viewer.indexer.helper.SolrUpdateBuffer;
 import io.goobi.viewer.indexer.model.PhysicalElement;
 import io.goobi.viewer.indexer.model.SolrConstants;
 import io.goobi.viewer.indexer.model.SolrConstants.DocType;
@@ -224,11 +225,19 @@ public class LazySolrWriteStrategy extends AbstractWriteStrategy {
             // Add FACET_DEFAULT
             addFacetDefaultField(doc);
             sanitizeDoc(doc);
+            addGenerationField(doc);
         }
 
         if (!docsToAdd.isEmpty()) {
-            searchIndex.writeToIndex(docsToAdd);
-            searchIndex.commit(searchIndex.isOptimize());
+            SolrUpdateBuffer.Session session = searchIndex.openUpdateSession(pi);
+            try {
+                session.addAll(docsToAdd);
+                session.flush();
+            } finally {
+                // Make sure no queued docs of this record arrive after a failed record has been cleaned up
+                session.await();
+            }
+            searchIndex.commitRecord(searchIndex.isOptimize());
             logger.debug("{} new doc(s) added.", docsToAdd.size());
         } else {
             throw new IndexerException("No docs to write");
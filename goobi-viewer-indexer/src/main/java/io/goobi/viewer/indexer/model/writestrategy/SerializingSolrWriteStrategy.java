@@ -33,6 +33,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
@@ -50,6 +52,8 @@ import io.goobi.viewer.indexer.SolrIndexerDaemon;
 import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.exceptions.IndexerException;
 import io.goobi.viewer.indexer.helper.SolrSearchIndex;
+import io.goobi.viewer.indexer.helper.SolrUpdateBuffer;
+import io.goobi.viewer.indexer.helper.logging.SecondaryAppender;
 import io.goobi.viewer.indexer.model.PhysicalElement;
 import io.goobi.viewer.indexer.model.SolrConstants;
 import io.goobi.viewer.indexer.model.SolrConstants.DocType;
@@ -249,6 +253,7 @@ public class SerializingSolrWriteStrategy extends AbstractWriteStrategy {
         }
 
         sanitizeDoc(rootDoc);
+        addGenerationField(rootDoc);
 
         // Check for duplicate URNs
         String pi = (String) rootDoc.getFieldValue(SolrConstants.PI);
@@ -265,73 +270,55 @@ public class SerializingSolrWriteStrategy extends AbstractWriteStrategy {
         if (batchSize > 0 && docIddocs.size() > batchSize) {
             logger.info("Sending structure docs to Solr in {} batch(es), batch size is {} docs.", numBatches, useBatchSize);
         }
-        List<SolrInputDocument> batch = new ArrayList<>(useBatchSize);
+        // Structure docs are loaded from the temp folder one by one while each batch is being streamed to Solr
+        Set<String> aggregatedIddocs = ConcurrentHashMap.newKeySet();
         int batchCount = 1;
-        int count = 0;
-        for (String iddoc : docIddocs) {
-            SolrInputDocument doc = loadDoc(iddoc);
-            if (doc != null) {
-                // Add the child doc's DEFAULT values to the SUPERDEFAULT value of the root doc
-                if (aggregateRecords) {
-                    // Add SUPER* fields to root doc
-                    addSuperSearchFields(doc, rootDoc);
-                }
-                // Add FACET_DEFAULT
-                addFacetDefaultField(doc);
-                sanitizeDoc(doc);
-                batch.add(doc);
-                count++;
-                if (count >= useBatchSize) {
-                    logger.info("Sending batch {}/{} to Solr...", batchCount, numBatches);
-                    try {
-                        writeDocBatch(batch, batchCount, pi);
-                    } finally {
-                        batch.clear();
-                        count = 0;
-                        batchCount++;
-                    }
-                }
-            } else {
-                logger.error("Could not find serialized document for IDDOC: {}", iddoc);
-            }
-        }
-        // Last batch
-        if (!batch.isEmpty()) {
-            writeDocBatch(batch, batchCount, pi);
+        for (int start = 0; start < docIddocs.size(); start += useBatchSize) {
+            List<String> batchIddocs = docIddocs.subList(start, Math.min(start + useBatchSize, docIddocs.size()));
             logger.info("Sending batch {}/{} to Solr...", batchCount, numBatches);
+            writeDocBatch(batchIddocs, batchCount, pi, rootDoc, aggregateRecords, aggregatedIddocs);
+            batchCount++;
         }
 
         logger.info("Writing {} page documents to the index...", pageDocOrderIddocMap.size());
         List<Integer> orderList = new ArrayList<>(pageDocOrderIddocMap.keySet());
         Collections.sort(orderList);
+        // Page docs are sent in batches rather than one request per page
+        SolrUpdateBuffer.Session session = searchIndex.openUpdateSession(pi);
 
-        if (SolrIndexerDaemon.getInstance().getConfiguration().getThreads() > 1) {
-            try (ExecutorService executor = Executors.newFixedThreadPool(SolrIndexerDaemon.getInstance().getConfiguration().getThreads())) {
-                for (final int order : orderList) {
-
-                    // Generate write page document in its own thread
-                    Runnable r = new Runnable() {
-
-                        @Override
-                        public void run() {
-                            try {
-                                writePageDoc(order, rootDoc, aggregateRecords);
-                            } catch (FatalIndexerException e) {
-                                logger.error(e.getMessage());
+        try {
+            if (SolrIndexerDaemon.getInstance().getConfiguration().getThreads() > 1) {
+                try (ExecutorService executor = Executors.newFixedThreadPool(SolrIndexerDaemon.getInstance().getConfiguration().getThreads())) {
+                    for (final int order : orderList) {
+
+                        // Generate write page document in its own thread
+                        Runnable r = new Runnable() {
+
+                            @Override
+                            public void run() {
+                                try {
+                                    writePageDoc(order, rootDoc, aggregateRecords, session);
+                                } catch (FatalIndexerException e) {
+                                    logger.error(e.getMessage());
+                                }
                             }
-                        }
-                    };
-                    executor.execute(r);
+                        };
+                        executor.execute(SecondaryAppender.withRecord(r));
+                    }
+                    executor.shutdown();
+                    while (!executor.isTerminated()) {
+                        logger.trace("Waiting for executor to terminate...");
+                    }
                 }
-                executor.shutdown();
-                while (!executor.isTerminated()) {
-                    logger.trace("Waiting for executor to terminate...");
+            } else {
+                for (final int order : orderList) {
+                    writePageDoc(order, rootDoc, aggregateRecords, session);
                 }
             }
-        } else {
-            for (final int order : orderList) {
-                writePageDoc(order, rootDoc, aggregateRecords);
-            }
+            session.flush();
+        } finally {
+            // Make sure no queued page docs of this record arrive after a failed record has been cleaned up
+            session.await();
         }
 
         // Write the root doc
@@ -344,21 +331,28 @@ public class SerializingSolrWriteStrategy extends AbstractWriteStrategy {
             throw new IndexerException(e.getMessage());
         }
 
-        searchIndex.commit(searchIndex.isOptimize());
+        searchIndex.commitRecord(searchIndex.isOptimize());
     }
 
     /**
      * 
-     * @param batch
+     * @param iddocs IDDOCs of the serialized docs to write
      * @param batchNumber
      * @param pi
+     * @param rootDoc
+     * @param aggregateRecords
+     * @param aggregatedIddocs IDDOCs of docs whose SUPER* fields have already been added to the root doc
      * @throws FatalIndexerException
      * @throws IndexerException
      */
-    private void writeDocBatch(List<SolrInputDocument> batch, int batchNumber, String pi) throws FatalIndexerException, IndexerException {
+    private void writeDocBatch(List<String> iddocs, int batchNumber, String pi, SolrInputDocument rootDoc, boolean aggregateRecords,
+            Set<String> aggregatedIddocs) throws FatalIndexerException, IndexerException {
         try {
-            searchIndex.writeToIndex(batch);
-            logger.debug("Batch sent");
+            long count = searchIndex.streamToIndex(() -> iddocs.stream()
+                    .map(iddoc -> prepareDoc(iddoc, rootDoc, aggregateRecords, aggregatedIddocs))
+                    .filter(Objects::nonNull)
+                    .iterator());
+            logger.debug("Batch sent ({} docs)", count);
         } catch (RemoteSolrException e) {
             copyFailedFile(Paths.get(tempFolder.toAbsolutePath().toString(), pi + "_" + batchNumber));
             logger.error(e.getMessage(), e);
@@ -366,14 +360,44 @@ public class SerializingSolrWriteStrategy extends AbstractWriteStrategy {
         }
     }
 
+    /**
+     * Loads the serialized doc with the given IDDOC and prepares it for writing.
+     * 
+     * @param iddoc
+     * @param rootDoc
+     * @param aggregateRecords
+     * @param aggregatedIddocs
+     * @return Prepared {@link SolrInputDocument}; null if not found
+     */
+    private SolrInputDocument prepareDoc(String iddoc, SolrInputDocument rootDoc, boolean aggregateRecords, Set<String> aggregatedIddocs) {
+        SolrInputDocument doc = loadDoc(iddoc);
+        if (doc == null) {
+            logger.error("Could not find serialized document for IDDOC: {}", iddoc);
+            return null;
+        }
+        // Add the child doc's DEFAULT values to the SUPERDEFAULT value of the root doc (only once, even if the batch is sent again)
+        if (aggregateRecords && aggregatedIddocs.add(iddoc)) {
+            // Add SUPER* fields to root doc
+            addSuperSearchFields(doc, rootDoc);
+        }
+        // Add FACET_DEFAULT
+        addFacetDefaultField(doc);
+        sanitizeDoc(doc);
+        addGenerationField(doc);
+
+        return doc;
+    }
+
     /**
      * 
      * @param order
      * @param rootDoc
      * @param aggregateRecords
+     * @param session Update buffer session for this record
      * @throws FatalIndexerException
      */
-    private void writePageDoc(int order, SolrInputDocument rootDoc, boolean aggregateRecords) throws FatalIndexerException {
+    private void writePageDoc(int order, SolrInputDocument rootDoc, boolean aggregateRecords, SolrUpdateBuffer.Session session)
+            throws FatalIndexerException {
         String iddoc = pageDocOrderIddocMap.get(order);
         PhysicalElement page = loadPage(iddoc);
         if (page == null) {
@@ -403,7 +427,8 @@ public class SerializingSolrWriteStrategy extends AbstractWriteStrategy {
         }
 
         checkAndAddAccessCondition(page.getDoc());
-        searchIndex.writeToIndex(page.getDoc());
+        addGenerationField(page.getDoc());
+        session.add(page.getDoc());
     }
 
     /** {@inheritDoc} */
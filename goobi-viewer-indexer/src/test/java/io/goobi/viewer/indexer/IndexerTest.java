@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,6 +36,7 @@ import java.util.UUID;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
@@ -46,6 +48,8 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
+import io.goobi.viewer.indexer.exceptions.IndexerException;
 import io.goobi.viewer.indexer.helper.Hotfolder;
 import io.goobi.viewer.indexer.helper.JDomXP;
 import io.goobi.viewer.indexer.helper.JDomXP.FileFormat;
@@ -110,6 +114,161 @@ class IndexerTest extends AbstractSolrEnabledTest {
         assertTrue(Files.isRegularFile(Paths.get(hotfolder.getErrorMets().toString(), metsFile.getFileName().toString())));
     }
 
+    /**
+     * @see Indexer#getRecordDeleteQueries(String)
+     * @verifies return queries for record and child docs
+     */
+    @Test
+    void getRecordDeleteQueries_shouldReturnQueriesForRecordAndChildDocs() throws Exception {
+        List<String> result = Indexer.getRecordDeleteQueries("PPN123");
+        assertEquals(2, result.size());
+        assertEquals(SolrConstants.PI + ":\"PPN123\"", result.get(0));
+        assertEquals(SolrConstants.PI_TOPSTRUCT + ":\"PPN123\"", result.get(1));
+    }
+
+    /**
+     * @see Indexer#getNextIddoc()
+     * @verifies return valid version 7 UUID
+     */
+    @Test
+    void getNextIddoc_shouldReturnValidVersion7UUID() throws Exception {
+        long now = System.currentTimeMillis();
+        UUID uuid = UUID.fromString(Indexer.getNextIddoc());
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long timestamp = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(timestamp >= now && timestamp <= System.currentTimeMillis());
+    }
+
+    /**
+     * @see Indexer#getNextIddoc()
+     * @verifies return unique values
+     */
+    @Test
+    void getNextIddoc_shouldReturnUniqueValues() throws Exception {
+        Set<String> iddocs = new HashSet<>();
+        for (int i = 0; i < 10000; ++i) {
+            assertTrue(iddocs.add(Indexer.getNextIddoc()));
+        }
+    }
+
+    /**
+     * @see Indexer#getPreviousGenerationQueries(List,String)
+     * @verifies exclude current generation
+     */
+    @Test
+    void getPreviousGenerationQueries_shouldExcludeCurrentGeneration() throws Exception {
+        List<String> result = Indexer.getPreviousGenerationQueries(Indexer.getRecordDeleteQueries("PPN123"), "42");
+        assertEquals(2, result.size());
+        assertEquals("+(" + SolrConstants.PI + ":\"PPN123\") -" + SolrConstants.INDEXGENERATION + ":42", result.get(0));
+        assertEquals("+(" + SolrConstants.PI_TOPSTRUCT + ":\"PPN123\") -" + SolrConstants.INDEXGENERATION + ":42", result.get(1));
+    }
+
+    /**
+     * @see Indexer#getNextGeneration()
+     * @verifies return increasing values
+     */
+    @Test
+    void getNextGeneration_shouldReturnIncreasingValues() throws Exception {
+        long previous = Long.parseLong(Indexer.getNextGeneration());
+        for (int i = 0; i < 100; ++i) {
+            long current = Long.parseLong(Indexer.getNextGeneration());
+            assertTrue(current > previous);
+            previous = current;
+        }
+    }
+
+    /**
+     * @see Indexer#writeRecord(ISolrWriteStrategy,String)
+     * @verifies remove partially written docs if rollback disabled
+     */
+    @Test
+    void writeRecord_shouldRemovePartiallyWrittenDocsIfRollbackDisabled() throws Exception {
+        SolrSearchIndex searchIndex = SolrIndexerDaemon.getInstance().getSearchIndex();
+        searchIndex.setRollbackEnabled(false);
+        try {
+            ISolrWriteStrategy writeStrategy = new LazySolrWriteStrategy(searchIndex) {
+
+                @Override
+                public void writeDocs(boolean aggregateRecords) throws IndexerException, FatalIndexerException {
+                    super.writeDocs(aggregateRecords);
+                    throw new IndexerException("Writing failed");
+                }
+            };
+            writeStrategy.setRootDoc(createRootDoc("PPN_PARTIAL"));
+            Indexer indexer = new MetsIndexer(hotfolder);
+            Assertions.assertThrows(IndexerException.class, () -> indexer.writeRecord(writeStrategy, "PPN_PARTIAL"));
+            searchIndex.commit(false);
+            assertTrue(searchIndex.search(SolrConstants.PI + ":PPN_PARTIAL", null).isEmpty());
+        } finally {
+            searchIndex.setRollbackEnabled(true);
+        }
+    }
+
+    /**
+     * @see Indexer#writeRecord(ISolrWriteStrategy,String)
+     * @verifies write new generation before removing previous generation
+     */
+    @Test
+    void writeRecord_shouldWriteNewGenerationBeforeRemovingPreviousGeneration() throws Exception {
+        SolrSearchIndex searchIndex = SolrIndexerDaemon.getInstance().getSearchIndex();
+        String pi = "PPN_GENERATION";
+
+        // Previous instance
+        Indexer oldIndexer = new MetsIndexer(hotfolder);
+        oldIndexer.generation = Indexer.getNextGeneration();
+        ISolrWriteStrategy oldWriteStrategy = AbstractWriteStrategy.create(null, Collections.emptyMap(), hotfolder);
+        oldWriteStrategy.setRootDoc(createRootDoc(pi));
+        oldIndexer.writeRecord(oldWriteStrategy, pi);
+        searchIndex.commit(false);
+        assertEquals(1, searchIndex.search(SolrConstants.PI + ":" + pi, null).size());
+
+        // New instance; both generations must be visible once the new docs have been written
+        Indexer newIndexer = new MetsIndexer(hotfolder);
+        newIndexer.generation = Indexer.getNextGeneration();
+        newIndexer.deleteQueries.addAll(Indexer.getRecordDeleteQueries(pi));
+        List<Integer> hitsAfterWrite = new ArrayList<>();
+        ISolrWriteStrategy newWriteStrategy = new LazySolrWriteStrategy(searchIndex) {
+
+            @Override
+            public void writeDocs(boolean aggregateRecords) throws IndexerException, FatalIndexerException {
+                super.writeDocs(aggregateRecords);
+                searchIndex.commit(false);
+                try {
+                    hitsAfterWrite.add(searchIndex.search(SolrConstants.PI + ":" + pi, null).size());
+                } catch (SolrServerException | IOException e) {
+                    throw new IndexerException(e.getMessage());
+                }
+            }
+        };
+        newWriteStrategy.setRootDoc(createRootDoc(pi));
+        newIndexer.writeRecord(newWriteStrategy, pi);
+        assertEquals(Collections.singletonList(2), hitsAfterWrite);
+
+        // Only the new generation is left
+        searchIndex.commit(false);
+        SolrDocumentList docs = searchIndex.search(SolrConstants.PI + ":" + pi, null);
+        assertEquals(1, docs.size());
+        assertEquals(newIndexer.generation, String.valueOf(docs.get(0).getFirstValue(SolrConstants.INDEXGENERATION)));
+    }
+
+    /**
+     * 
+     * @param pi
+     * @return Minimal record root doc with the given PI
+     */
+    private static SolrInputDocument createRootDoc(String pi) {
+        String iddoc = Indexer.getNextIddoc();
+        SolrInputDocument ret = new SolrInputDocument();
+        ret.setField(SolrConstants.IDDOC, iddoc);
+        ret.setField(SolrConstants.GROUPFIELD, iddoc);
+        ret.setField(SolrConstants.PI, pi);
+        ret.setField(SolrConstants.PI_TOPSTRUCT, pi);
+        ret.setField(SolrConstants.DOCTYPE, DocType.DOCSTRCT.name());
+        ret.setField(SolrConstants.ISWORK, true);
+        return ret;
+    }
+
     /**
      * @see Indexer#delete(String,boolean,SolrSearchIndex)
      * @verifies throw IllegalArgumentException if pi empty
@@ -433,6 +433,24 @@ class MetsIndexerTest extends AbstractSolrEnabledTest {
         }
     }
 
+    /**
+     * @see MetsIndexer#index(Path,Map,ISolrWriteStrategy,int,boolean)
+     * @verifies defer volume if anchor locked
+     */
+    @Test
+    void index_shouldDeferVolumeIfAnchorLocked() throws Exception {
+        String piAnchor = "PPN559838239";
+        assertTrue(hotfolder.getRecordLocks().tryLock(piAnchor));
+        try {
+            IndexingResult result = new MetsIndexer(hotfolder).index(metsFileVol1, new HashMap<>(), null, 1, false);
+            assertEquals(IndexingResult.IndexingResultStatus.DEFERRED, result.getStatus());
+            assertEquals(piAnchor, result.getDeferredBy());
+            assertTrue(SolrIndexerDaemon.getInstance().getSearchIndex().search(SolrConstants.PI + ":PPN612054551", null).isEmpty());
+        } finally {
+            hotfolder.getRecordLocks().unlock(piAnchor);
+        }
+    }
+
     /**
      * @see MetsIndexer#index(File,ISolrWriteStrategy,boolean,Map)
      * @verifies index multi volume records correctly
@@ -0,0 +1,91 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.solr.common.SolrDocumentList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.goobi.viewer.indexer.helper.Hotfolder;
+import io.goobi.viewer.indexer.helper.SolrSearchIndex;
+import io.goobi.viewer.indexer.model.SolrConstants;
+import io.goobi.viewer.indexer.model.SolrConstants.DocType;
+import io.goobi.viewer.indexer.model.datarepository.DataRepository;
+
+class RepositoryReindexerTest extends AbstractSolrEnabledTest {
+
+    @Override
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+
+        hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath());
+    }
+
+    /**
+     * @see RepositoryReindexer#collectRecordFiles()
+     * @verifies collect record files from indexed folders of all repositories
+     */
+    @Test
+    void collectRecordFiles_shouldCollectRecordFilesFromIndexedFoldersOfAllRepositories() throws Exception {
+        List<DataRepository> repositories = hotfolder.getDataRepositoryStrategy().getAllDataRepositories();
+        Assertions.assertFalse(repositories.isEmpty());
+
+        Path metsFolder = repositories.get(0).getDir(DataRepository.PARAM_INDEXED_METS);
+        Files.createDirectories(metsFolder);
+        Files.createFile(metsFolder.resolve("PPN123.xml"));
+        Files.createFile(metsFolder.resolve("PPN123.txt"));
+        Path eadFolder = repositories.get(repositories.size() - 1).getDir(DataRepository.PARAM_INDEXED_EAD);
+        Files.createDirectories(eadFolder);
+        Files.createFile(eadFolder.resolve("EAD456.xml"));
+
+        List<Path> result = new RepositoryReindexer(hotfolder, 2).collectRecordFiles();
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertTrue(result.contains(metsFolder.toAbsolutePath().normalize().resolve("PPN123.xml")));
+        Assertions.assertTrue(result.contains(eadFolder.toAbsolutePath().normalize().resolve("EAD456.xml")));
+    }
+
+    /**
+     * @see RepositoryReindexer#run()
+     * @verifies reindex records from data repositories in place
+     */
+    @Test
+    void run_shouldReindexRecordsFromDataRepositoriesInPlace() throws Exception {
+        String pi = IndexerTest.PI_KLEIUNIV;
+        Path metsFolder = hotfolder.getDataRepositoryStrategy().getAllDataRepositories().get(0).getDir(DataRepository.PARAM_INDEXED_METS);
+        Files.createDirectories(metsFolder);
+        Path recordFile = Files.copy(Paths.get("src/test/resources/METS/kleiuniv_PPN517154005/kleiuniv_PPN517154005.xml"),
+                metsFolder.resolve(pi + ".xml"));
+
+        Assertions.assertEquals(1, new RepositoryReindexer(hotfolder, 2).run());
+
+        SolrSearchIndex searchIndex = SolrIndexerDaemon.getInstance().getSearchIndex();
+        searchIndex.commit(false);
+        SolrDocumentList docs = searchIndex.search(SolrConstants.PI + ":" + pi, null);
+        Assertions.assertEquals(1, docs.size());
+        Assertions.assertEquals(16, docs.get(0).getFieldValue(SolrConstants.NUMPAGES));
+        Assertions.assertEquals(16, searchIndex.search("+" + SolrConstants.PI_TOPSTRUCT + ":" + pi + " +" + SolrConstants.DOCTYPE + ":"
+                + DocType.PAGE.name(), null).size());
+        // Record file stays in the data repository
+        Assertions.assertTrue(Files.isRegularFile(recordFile));
+    }
+}
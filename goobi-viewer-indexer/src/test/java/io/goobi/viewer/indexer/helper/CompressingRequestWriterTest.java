@@ -0,0 +1,76 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.solr.client.solrj.request.RequestWriter.ContentWriter;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CompressingRequestWriterTest {
+
+    /**
+     * @see CompressingRequestWriter#isCompressed(org.apache.solr.client.solrj.SolrRequest)
+     * @verifies return true if gzip header set
+     */
+    @Test
+    void isCompressed_shouldReturnTrueIfGzipHeaderSet() {
+        UpdateRequest request = new UpdateRequest();
+        request.addHeader(CompressingRequestWriter.HEADER_CONTENT_ENCODING, CompressingRequestWriter.ENCODING_GZIP);
+        Assertions.assertTrue(CompressingRequestWriter.isCompressed(request));
+    }
+
+    /**
+     * @see CompressingRequestWriter#isCompressed(org.apache.solr.client.solrj.SolrRequest)
+     * @verifies return false if no header set
+     */
+    @Test
+    void isCompressed_shouldReturnFalseIfNoHeaderSet() {
+        Assertions.assertFalse(CompressingRequestWriter.isCompressed(new UpdateRequest()));
+    }
+
+    /**
+     * @see CompressingRequestWriter#getContentWriter(org.apache.solr.client.solrj.SolrRequest)
+     */
+    @Test
+    void getContentWriter_shouldCompressMarkedRequests() throws Exception {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.setField("IDDOC", "1");
+        doc.setField("FULLTEXT", "lorem ipsum ".repeat(1000));
+
+        UpdateRequest plainRequest = new UpdateRequest();
+        plainRequest.add(doc);
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        new CompressingRequestWriter().getContentWriter(plainRequest).write(plain);
+
+        UpdateRequest compressedRequest = new UpdateRequest();
+        compressedRequest.add(doc);
+        compressedRequest.addHeader(CompressingRequestWriter.HEADER_CONTENT_ENCODING, CompressingRequestWriter.ENCODING_GZIP);
+        ContentWriter writer = new CompressingRequestWriter().getContentWriter(compressedRequest);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        writer.write(compressed);
+
+        Assertions.assertTrue(compressed.size() < plain.size());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            Assertions.assertArrayEquals(plain.toByteArray(), gzip.readAllBytes());
+        }
+    }
+}
@@ -215,6 +215,17 @@ class ConfigurationTest extends AbstractTest {
         Assertions.assertNotNull(SolrIndexerDaemon.getInstance().getConfiguration().getNamespaces().get("intranda"));
     }
 
+    /**
+     * @see Configuration#getNamespacesGeneration()
+     * @verifies change after namespaces reload
+     */
+    @Test
+    void getNamespacesGeneration_shouldChangeAfterNamespacesReload() {
+        int generation = SolrIndexerDaemon.getInstance().getConfiguration().getNamespacesGeneration();
+        SolrIndexerDaemon.getInstance().getConfiguration().initNamespaces();
+        Assertions.assertNotEquals(generation, SolrIndexerDaemon.getInstance().getConfiguration().getNamespacesGeneration());
+    }
+
     /**
      * @see Configuration#getViewerHome()
      * @verifies return correct value
@@ -258,6 +269,363 @@ class ConfigurationTest extends AbstractTest {
         assertEquals("test", SolrIndexerDaemon.getInstance().getConfiguration().getViewerAuthorizationToken());
     }
 
+    /**
+     * @see Configuration#getHotfolderThreads()
+     * @verifies return correct value
+     */
+    @Test
+    void getHotfolderThreads_shouldReturnCorrectValue() {
+        assertEquals(2, SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderThreads());
+    }
+
+    /**
+     * @see Configuration#getHotfolderQueueOrder()
+     * @verifies return correct value
+     */
+    @Test
+    void getHotfolderQueueOrder_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.queueOrder", "oldest");
+        assertEquals("oldest", SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderQueueOrder());
+    }
+
+    /**
+     * @see Configuration#isQueueJournalEnabled()
+     * @verifies return correct value
+     */
+    @Test
+    void isQueueJournalEnabled_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.queueJournal[@enabled]", true);
+        assertTrue(SolrIndexerDaemon.getInstance().getConfiguration().isQueueJournalEnabled());
+    }
+
+    /**
+     * @see Configuration#isPipelineEnabled()
+     * @verifies return correct value
+     */
+    @Test
+    void isPipelineEnabled_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.pipeline[@enabled]", true);
+        assertTrue(SolrIndexerDaemon.getInstance().getConfiguration().isPipelineEnabled());
+    }
+
+    /**
+     * @see Configuration#getPipelineRelocationQueueSize()
+     * @verifies return correct value
+     */
+    @Test
+    void getPipelineRelocationQueueSize_shouldReturnCorrectValue() {
+        assertEquals(3, SolrIndexerDaemon.getInstance().getConfiguration().getPipelineRelocationQueueSize());
+    }
+
+    /**
+     * @see Configuration#getCommitPolicy()
+     * @verifies return correct value
+     */
+    @Test
+    void getCommitPolicy_shouldReturnCorrectValue() {
+        assertEquals("soft", SolrIndexerDaemon.getInstance().getConfiguration().getCommitPolicy());
+    }
+
+    /**
+     * @see Configuration#getCommitWithin()
+     * @verifies return correct value
+     */
+    @Test
+    void getCommitWithin_shouldReturnCorrectValue() {
+        assertEquals(5000, SolrIndexerDaemon.getInstance().getConfiguration().getCommitWithin());
+    }
+
+    /**
+     * @see Configuration#getSoftCommitDocs()
+     * @verifies return correct value
+     */
+    @Test
+    void getSoftCommitDocs_shouldReturnCorrectValue() {
+        assertEquals(2000, SolrIndexerDaemon.getInstance().getConfiguration().getSoftCommitDocs());
+    }
+
+    /**
+     * @see Configuration#getSoftCommitInterval()
+     * @verifies return correct value
+     */
+    @Test
+    void getSoftCommitInterval_shouldReturnCorrectValue() {
+        assertEquals(30, SolrIndexerDaemon.getInstance().getConfiguration().getSoftCommitInterval());
+    }
+
+    /**
+     * @see Configuration#getSolrRetryBaseDelay()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrRetryBaseDelay_shouldReturnCorrectValue() {
+        assertEquals(100, SolrIndexerDaemon.getInstance().getConfiguration().getSolrRetryBaseDelay());
+    }
+
+    /**
+     * @see Configuration#getSolrRetryMaxDelay()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrRetryMaxDelay_shouldReturnCorrectValue() {
+        assertEquals(10000, SolrIndexerDaemon.getInstance().getConfiguration().getSolrRetryMaxDelay());
+    }
+
+    /**
+     * @see Configuration#getSolrRetryFailureThreshold()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrRetryFailureThreshold_shouldReturnCorrectValue() {
+        assertEquals(3, SolrIndexerDaemon.getInstance().getConfiguration().getSolrRetryFailureThreshold());
+    }
+
+    /**
+     * @see Configuration#getSolrRetryOpenDuration()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrRetryOpenDuration_shouldReturnCorrectValue() {
+        assertEquals(15, SolrIndexerDaemon.getInstance().getConfiguration().getSolrRetryOpenDuration());
+    }
+
+    /**
+     * @see Configuration#isSolrCloudEnabled()
+     * @verifies return correct value
+     */
+    @Test
+    void isSolrCloudEnabled_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("init.solrCloud[@enabled]", true);
+        assertTrue(SolrIndexerDaemon.getInstance().getConfiguration().isSolrCloudEnabled());
+    }
+
+    /**
+     * @see Configuration#getSolrCloudCollection()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrCloudCollection_shouldReturnCorrectValue() {
+        assertEquals("indexer-testing", SolrIndexerDaemon.getInstance().getConfiguration().getSolrCloudCollection());
+    }
+
+    /**
+     * @see Configuration#getSolrCloudZkHosts()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrCloudZkHosts_shouldReturnCorrectValue() {
+        List<String> result = SolrIndexerDaemon.getInstance().getConfiguration().getSolrCloudZkHosts();
+        assertEquals(2, result.size());
+        assertEquals("zk1:2181", result.get(0));
+        assertEquals("zk2:2181", result.get(1));
+    }
+
+    /**
+     * @see Configuration#getSolrCloudZkChroot()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrCloudZkChroot_shouldReturnCorrectValue() {
+        assertEquals("/solr", SolrIndexerDaemon.getInstance().getConfiguration().getSolrCloudZkChroot());
+    }
+
+    /**
+     * @see Configuration#getSolrCloudUrls()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrCloudUrls_shouldReturnCorrectValue() {
+        List<String> result = SolrIndexerDaemon.getInstance().getConfiguration().getSolrCloudUrls();
+        assertEquals(1, result.size());
+        assertEquals("http://localhost:8983/solr", result.get(0));
+    }
+
+    /**
+     * @see Configuration#isIndexGenerationsEnabled()
+     * @verifies return correct value
+     */
+    @Test
+    void isIndexGenerationsEnabled_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.indexGenerations[@enabled]", true);
+        assertTrue(SolrIndexerDaemon.getInstance().getConfiguration().isIndexGenerationsEnabled());
+    }
+
+    /**
+     * @see Configuration#isSolrCompressionEnabled()
+     * @verifies return correct value
+     */
+    @Test
+    void isSolrCompressionEnabled_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.solrCompression[@enabled]", true);
+        assertTrue(SolrIndexerDaemon.getInstance().getConfiguration().isSolrCompressionEnabled());
+    }
+
+    /**
+     * @see Configuration#getDuplicateCheckBatchSize()
+     * @verifies return correct value
+     */
+    @Test
+    void getDuplicateCheckBatchSize_shouldReturnCorrectValue() {
+        assertEquals(500, SolrIndexerDaemon.getInstance().getConfiguration().getDuplicateCheckBatchSize());
+    }
+
+    /**
+     * @see Configuration#getDuplicateCheckThreads()
+     * @verifies return correct value
+     */
+    @Test
+    void getDuplicateCheckThreads_shouldReturnCorrectValue() {
+        assertEquals(2, SolrIndexerDaemon.getInstance().getConfiguration().getDuplicateCheckThreads());
+    }
+
+    /**
+     * @see Configuration#isUrnRegistryEnabled()
+     * @verifies return correct value
+     */
+    @Test
+    void isUrnRegistryEnabled_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.urnRegistry[@enabled]", true);
+        assertTrue(SolrIndexerDaemon.getInstance().getConfiguration().isUrnRegistryEnabled());
+    }
+
+    /**
+     * @see Configuration#getUrnRegistryFile()
+     * @verifies return correct value
+     */
+    @Test
+    void getUrnRegistryFile_shouldReturnCorrectValue() {
+        assertEquals("target/urnregistry.txt", SolrIndexerDaemon.getInstance().getConfiguration().getUrnRegistryFile());
+    }
+
+    /**
+     * @see Configuration#getAutoOptimizeIdleMinutes()
+     * @verifies return correct value
+     */
+    @Test
+    void getAutoOptimizeIdleMinutes_shouldReturnCorrectValue() {
+        assertEquals(5, SolrIndexerDaemon.getInstance().getConfiguration().getAutoOptimizeIdleMinutes());
+    }
+
+    /**
+     * @see Configuration#getAutoOptimizeMaxSegments()
+     * @verifies return correct value
+     */
+    @Test
+    void getAutoOptimizeMaxSegments_shouldReturnCorrectValue() {
+        assertEquals(2, SolrIndexerDaemon.getInstance().getConfiguration().getAutoOptimizeMaxSegments());
+    }
+
+    /**
+     * @see Configuration#getAutoOptimizeFrom()
+     * @verifies return correct value
+     */
+    @Test
+    void getAutoOptimizeFrom_shouldReturnCorrectValue() {
+        assertEquals("22:00", SolrIndexerDaemon.getInstance().getConfiguration().getAutoOptimizeFrom());
+    }
+
+    /**
+     * @see Configuration#getAutoOptimizeTo()
+     * @verifies return correct value
+     */
+    @Test
+    void getAutoOptimizeTo_shouldReturnCorrectValue() {
+        assertEquals("04:30", SolrIndexerDaemon.getInstance().getConfiguration().getAutoOptimizeTo());
+    }
+
+    /**
+     * @see Configuration#isSolrUpdateBufferEnabled()
+     * @verifies return correct value
+     */
+    @Test
+    void isSolrUpdateBufferEnabled_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.solrUpdateBuffer[@enabled]", true);
+        assertTrue(SolrIndexerDaemon.getInstance().getConfiguration().isSolrUpdateBufferEnabled());
+    }
+
+    /**
+     * @see Configuration#getSolrUpdateBufferQueueSize()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrUpdateBufferQueueSize_shouldReturnCorrectValue() {
+        assertEquals(500, SolrIndexerDaemon.getInstance().getConfiguration().getSolrUpdateBufferQueueSize());
+    }
+
+    /**
+     * @see Configuration#getSolrUpdateBufferBatchSize()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrUpdateBufferBatchSize_shouldReturnCorrectValue() {
+        assertEquals(50, SolrIndexerDaemon.getInstance().getConfiguration().getSolrUpdateBufferBatchSize());
+    }
+
+    /**
+     * @see Configuration#getSolrUpdateBufferThreads()
+     * @verifies return correct value
+     */
+    @Test
+    void getSolrUpdateBufferThreads_shouldReturnCorrectValue() {
+        assertEquals(3, SolrIndexerDaemon.getInstance().getConfiguration().getSolrUpdateBufferThreads());
+    }
+
+    /**
+     * @see Configuration#isDryRunEnabled()
+     * @verifies return correct value
+     */
+    @Test
+    void isDryRunEnabled_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.dryRun[@enabled]", true);
+        assertTrue(SolrIndexerDaemon.getInstance().getConfiguration().isDryRunEnabled());
+    }
+
+    /**
+     * @see Configuration#getDryRunSink()
+     * @verifies return correct value
+     */
+    @Test
+    void getDryRunSink_shouldReturnCorrectValue() {
+        assertEquals("file", SolrIndexerDaemon.getInstance().getConfiguration().getDryRunSink());
+    }
+
+    /**
+     * @see Configuration#getDryRunOutputFolder()
+     * @verifies return correct value
+     */
+    @Test
+    void getDryRunOutputFolder_shouldReturnCorrectValue() {
+        assertEquals("target/dryrun", SolrIndexerDaemon.getInstance().getConfiguration().getDryRunOutputFolder());
+    }
+
+    /**
+     * @see Configuration#isHotfolderWatchEnabled()
+     * @verifies return correct value
+     */
+    @Test
+    void isHotfolderWatchEnabled_shouldReturnCorrectValue() {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.hotfolderWatch[@enabled]", true);
+        assertTrue(SolrIndexerDaemon.getInstance().getConfiguration().isHotfolderWatchEnabled());
+    }
+
+    /**
+     * @see Configuration#getHotfolderFullListingInterval()
+     * @verifies return correct value
+     */
+    @Test
+    void getHotfolderFullListingInterval_shouldReturnCorrectValue() {
+        assertEquals(30, SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderFullListingInterval());
+    }
+
+    /**
+     * @see Configuration#getExportStabilityWindow()
+     * @verifies return correct value
+     */
+    @Test
+    void getExportStabilityWindow_shouldReturnCorrectValue() {
+        assertEquals(2000, SolrIndexerDaemon.getInstance().getConfiguration().getExportStabilityWindow());
+    }
+
     /**
      * @see Configuration#isCountHotfolderFiles()
      * @verifies return correct value
@@ -267,6 +635,15 @@ class ConfigurationTest extends AbstractTest {
         assertFalse(SolrIndexerDaemon.getInstance().getConfiguration().isCountHotfolderFiles());
     }
 
+    /**
+     * @see Configuration#getCountHotfolderFilesRecountInterval()
+     * @verifies return correct value
+     */
+    @Test
+    void getCountHotfolderFilesRecountInterval_shouldReturnCorrectValue() {
+        assertEquals(600, SolrIndexerDaemon.getInstance().getConfiguration().getCountHotfolderFilesRecountInterval());
+    }
+
     /**
      * @see Configuration#isPrioritizeLargeImageFolders()
      * @verifies return correct value
@@ -276,6 +653,15 @@ class ConfigurationTest extends AbstractTest {
         assertFalse(SolrIndexerDaemon.getInstance().getConfiguration().isPrioritizeLargeImageFolders());
     }
 
+    /**
+     * @see Configuration#getPrioritizeLargeImageFoldersThreads()
+     * @verifies return correct value
+     */
+    @Test
+    void getPrioritizeLargeImageFoldersThreads_shouldReturnCorrectValue() {
+        assertEquals(2, SolrIndexerDaemon.getInstance().getConfiguration().getPrioritizeLargeImageFoldersThreads());
+    }
+
     /**
      * @see Configuration#isAuthorityDataCacheEnabled()
      * @verifies return correct value
@@ -0,0 +1,129 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DataFolderExportTrackerTest {
+
+    /**
+     * @see DataFolderExportTracker#isExportDone(Path)
+     * @verifies return true if no data folders exist
+     */
+    @Test
+    void isExportDone_shouldReturnTrueIfNoDataFoldersExist(@TempDir Path hotfolder) throws Exception {
+        Path recordFile = Files.createFile(hotfolder.resolve("PPN123.xml"));
+        DataFolderExportTracker tracker = new DataFolderExportTracker(1000);
+        assertTrue(tracker.isExportDone(recordFile));
+        assertEquals(0, tracker.getTrackedRecordCount());
+    }
+
+    /**
+     * @see DataFolderExportTracker#isExportDone(Path)
+     * @verifies return false on first check if data folders exist
+     */
+    @Test
+    void isExportDone_shouldReturnFalseOnFirstCheckIfDataFoldersExist(@TempDir Path hotfolder) throws Exception {
+        Path recordFile = Files.createFile(hotfolder.resolve("PPN123.xml"));
+        Path mediaFolder = Files.createDirectory(hotfolder.resolve("PPN123_media"));
+        Files.writeString(mediaFolder.resolve("00000001.tif"), "foo");
+        DataFolderExportTracker tracker = new DataFolderExportTracker(0);
+        assertFalse(tracker.isExportDone(recordFile));
+        assertEquals(1, tracker.getTrackedRecordCount());
+    }
+
+    /**
+     * @see DataFolderExportTracker#isExportDone(Path)
+     * @verifies return true if data folders unchanged for stability window
+     */
+    @Test
+    void isExportDone_shouldReturnTrueIfDataFoldersUnchangedForStabilityWindow(@TempDir Path hotfolder) throws Exception {
+        Path recordFile = Files.createFile(hotfolder.resolve("PPN123.xml"));
+        Path mediaFolder = Files.createDirectory(hotfolder.resolve("PPN123_media"));
+        Files.writeString(mediaFolder.resolve("00000001.tif"), "foo");
+        DataFolderExportTracker tracker = new DataFolderExportTracker(1000);
+        long now = System.currentTimeMillis();
+        assertFalse(tracker.isExportDone(recordFile, now));
+        assertFalse(tracker.isExportDone(recordFile, now + 500));
+        assertTrue(tracker.isExportDone(recordFile, now + 1000));
+    }
+
+    /**
+     * @see DataFolderExportTracker#isExportDone(Path)
+     * @verifies return false if data folders changed
+     */
+    @Test
+    void isExportDone_shouldReturnFalseIfDataFoldersChanged(@TempDir Path hotfolder) throws Exception {
+        Path recordFile = Files.createFile(hotfolder.resolve("PPN123.xml"));
+        Path mediaFolder = Files.createDirectory(hotfolder.resolve("PPN123_media"));
+        Files.writeString(mediaFolder.resolve("00000001.tif"), "foo");
+        DataFolderExportTracker tracker = new DataFolderExportTracker(1000);
+        long now = System.currentTimeMillis();
+        assertFalse(tracker.isExportDone(recordFile, now));
+        Files.writeString(mediaFolder.resolve("00000002.tif"), "bar");
+        assertFalse(tracker.isExportDone(recordFile, now + 1000));
+        assertTrue(tracker.isExportDone(recordFile, now + 2000));
+    }
+
+    /**
+     * @see DataFolderExportTracker#isFileStable(Path)
+     * @verifies return false on first check
+     */
+    @Test
+    void isFileStable_shouldReturnFalseOnFirstCheck(@TempDir Path hotfolder) throws Exception {
+        Path recordFile = Files.writeString(hotfolder.resolve("PPN123.xml"), "<mets");
+        DataFolderExportTracker tracker = new DataFolderExportTracker(0);
+        assertFalse(tracker.isFileStable(recordFile));
+    }
+
+    /**
+     * @see DataFolderExportTracker#isFileStable(Path)
+     * @verifies return true if file unchanged for stability window
+     */
+    @Test
+    void isFileStable_shouldReturnTrueIfFileUnchangedForStabilityWindow(@TempDir Path hotfolder) throws Exception {
+        Path recordFile = Files.writeString(hotfolder.resolve("PPN123.xml"), "<mets/>");
+        DataFolderExportTracker tracker = new DataFolderExportTracker(1000);
+        long now = System.currentTimeMillis();
+        assertFalse(tracker.isFileStable(recordFile, now));
+        assertFalse(tracker.isFileStable(recordFile, now + 500));
+        assertTrue(tracker.isFileStable(recordFile, now + 1000));
+    }
+
+    /**
+     * @see DataFolderExportTracker#isFileStable(Path)
+     * @verifies return false if file changed
+     */
+    @Test
+    void isFileStable_shouldReturnFalseIfFileChanged(@TempDir Path hotfolder) throws Exception {
+        Path recordFile = Files.writeString(hotfolder.resolve("PPN123.xml"), "<mets");
+        DataFolderExportTracker tracker = new DataFolderExportTracker(1000);
+        long now = System.currentTimeMillis();
+        assertFalse(tracker.isFileStable(recordFile, now));
+        Files.writeString(recordFile, "/>", StandardOpenOption.APPEND);
+        assertFalse(tracker.isFileStable(recordFile, now + 1000));
+        assertTrue(tracker.isFileStable(recordFile, now + 2000));
+    }
+}
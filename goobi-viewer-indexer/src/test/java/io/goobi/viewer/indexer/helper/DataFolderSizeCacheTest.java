@@ -0,0 +1,85 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DataFolderSizeCacheTest {
+
+    /**
+     * @see DataFolderSizeCache#getSize(Path)
+     * @verifies return zero if folder does not exist
+     */
+    @Test
+    void getSize_shouldReturnZeroIfFolderDoesNotExist(@TempDir Path hotfolder) throws Exception {
+        DataFolderSizeCache cache = new DataFolderSizeCache(1);
+        assertEquals(0, cache.getSize(hotfolder.resolve("PPN123_media")));
+        assertEquals(0, cache.getCachedFolderCount());
+    }
+
+    /**
+     * @see DataFolderSizeCache#getSize(Path)
+     * @verifies return cached size if folder not modified
+     */
+    @Test
+    void getSize_shouldReturnCachedSizeIfFolderNotModified(@TempDir Path hotfolder) throws Exception {
+        Path mediaFolder = Files.createDirectory(hotfolder.resolve("PPN123_media"));
+        Path file = Files.writeString(mediaFolder.resolve("00000001.tif"), "foo");
+        FileTime folderModified = Files.getLastModifiedTime(mediaFolder);
+
+        DataFolderSizeCache cache = new DataFolderSizeCache(1);
+        assertEquals(3, cache.getSize(mediaFolder));
+
+        // Changing file contents does not touch the folder, so the cached value is returned
+        Files.writeString(file, "foobar");
+        Files.setLastModifiedTime(mediaFolder, folderModified);
+        assertEquals(3, cache.getSize(mediaFolder));
+
+        // Modified folder is measured again
+        Files.setLastModifiedTime(mediaFolder, FileTime.fromMillis(folderModified.toMillis() + 1000));
+        assertEquals(6, cache.getSize(mediaFolder));
+    }
+
+    /**
+     * @see DataFolderSizeCache#getSizes(java.util.Collection)
+     * @verifies return sizes for all folders
+     */
+    @Test
+    void getSizes_shouldReturnSizesForAllFolders(@TempDir Path hotfolder) throws Exception {
+        Path mediaFolder1 = Files.createDirectory(hotfolder.resolve("PPN123_media"));
+        Files.writeString(mediaFolder1.resolve("00000001.tif"), "foo");
+        Path mediaFolder2 = Files.createDirectory(hotfolder.resolve("PPN456_media"));
+        Files.writeString(mediaFolder2.resolve("00000001.tif"), "foobar");
+        Path mediaFolder3 = hotfolder.resolve("PPN789_media");
+
+        DataFolderSizeCache cache = new DataFolderSizeCache(2);
+        Map<Path, Long> sizes = cache.getSizes(List.of(mediaFolder1, mediaFolder2, mediaFolder3));
+        assertEquals(3, sizes.size());
+        assertEquals(3L, sizes.get(mediaFolder1));
+        assertEquals(6L, sizes.get(mediaFolder2));
+        assertEquals(0L, sizes.get(mediaFolder3));
+        assertEquals(2, cache.getCachedFolderCount());
+    }
+}
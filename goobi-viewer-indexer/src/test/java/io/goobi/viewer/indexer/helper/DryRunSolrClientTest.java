@@ -0,0 +1,142 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.request.JavaBinUpdateRequestCodec;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DryRunSolrClientTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * @see DryRunSolrClient.Sink#getByName(String)
+     * @verifies return correct value
+     */
+    @Test
+    void getByName_shouldReturnCorrectValue() {
+        assertEquals(DryRunSolrClient.Sink.NULL, DryRunSolrClient.Sink.getByName("null"));
+        assertEquals(DryRunSolrClient.Sink.FILE, DryRunSolrClient.Sink.getByName("FILE"));
+        assertNull(DryRunSolrClient.Sink.getByName("json"));
+    }
+
+    /**
+     * @see DryRunSolrClient#request(org.apache.solr.client.solrj.SolrRequest,String)
+     * @verifies write update requests to output folder if file sink
+     */
+    @Test
+    void request_shouldWriteUpdateRequestsToOutputFolderIfFileSink() throws Exception {
+        Path outputFolder = tempDir.resolve("dryrun");
+        try (DryRunSolrClient client = new DryRunSolrClient(DryRunSolrClient.Sink.FILE, outputFolder)) {
+            SolrInputDocument doc = new SolrInputDocument();
+            doc.addField("IDDOC", "1");
+            assertEquals(0, client.add(doc).getStatus());
+            client.commit();
+
+            assertEquals(1, client.getUpdateRequestCount());
+            assertEquals(1, client.getAddedDocumentCount());
+            assertTrue(Files.isRegularFile(outputFolder.resolve("update_00000001.javabin")));
+            assertEquals(1, outputFolder.toFile().list().length);
+        }
+    }
+
+    /**
+     * @see DryRunSolrClient#request(org.apache.solr.client.solrj.SolrRequest,String)
+     * @verifies read all documents of streamed update requests
+     */
+    @Test
+    void request_shouldReadAllDocumentsOfStreamedUpdateRequests() throws Exception {
+        try (DryRunSolrClient client = new DryRunSolrClient(DryRunSolrClient.Sink.NULL, null)) {
+            AtomicInteger builtDocs = new AtomicInteger();
+            Iterator<SolrInputDocument> docs = createDocIterator(3, builtDocs);
+            UpdateRequest request = new UpdateRequest();
+            request.setDocIterator(docs);
+            assertEquals(0, request.process(client).getStatus());
+
+            assertFalse(docs.hasNext());
+            assertEquals(3, builtDocs.get());
+            assertEquals(1, client.getUpdateRequestCount());
+            assertEquals(3, client.getAddedDocumentCount());
+        }
+    }
+
+    /**
+     * @see DryRunSolrClient#request(org.apache.solr.client.solrj.SolrRequest,String)
+     * @verifies write streamed documents to output folder if file sink
+     */
+    @Test
+    void request_shouldWriteStreamedDocumentsToOutputFolderIfFileSink() throws Exception {
+        Path outputFolder = tempDir.resolve("dryrun");
+        try (DryRunSolrClient client = new DryRunSolrClient(DryRunSolrClient.Sink.FILE, outputFolder)) {
+            UpdateRequest request = new UpdateRequest();
+            request.setDocIterator(createDocIterator(3, new AtomicInteger()));
+            assertEquals(0, request.process(client).getStatus());
+            assertEquals(3, client.getAddedDocumentCount());
+        }
+
+        AtomicInteger writtenDocs = new AtomicInteger();
+        try (InputStream in = Files.newInputStream(outputFolder.resolve("update_00000001.javabin"))) {
+            new JavaBinUpdateRequestCodec().unmarshal(in, (doc, req, commitWithin, overwrite) -> writtenDocs.incrementAndGet());
+        }
+        assertEquals(3, writtenDocs.get());
+    }
+
+    /**
+     * @see DryRunSolrClient#request(org.apache.solr.client.solrj.SolrRequest,String)
+     * @verifies return empty result for queries
+     */
+    @Test
+    void request_shouldReturnEmptyResultForQueries() throws Exception {
+        try (DryRunSolrClient client = new DryRunSolrClient(DryRunSolrClient.Sink.NULL, null)) {
+            QueryResponse response = client.query(new SolrQuery("PI:*"));
+            assertEquals(0, response.getResults().getNumFound());
+            assertTrue(response.getResults().isEmpty());
+        }
+    }
+
+    /**
+     * 
+     * @param size Number of documents
+     * @param builtDocs Counter for documents created by the iterator
+     * @return Iterator that creates the documents as they are read
+     */
+    private static Iterator<SolrInputDocument> createDocIterator(int size, AtomicInteger builtDocs) {
+        return IntStream.rangeClosed(1, size).mapToObj(i -> {
+            builtDocs.incrementAndGet();
+            SolrInputDocument doc = new SolrInputDocument();
+            doc.addField("IDDOC", String.valueOf(i));
+            return doc;
+        }).iterator();
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.goobi.viewer.indexer.helper.HotfolderJournal.QueueType;
+
+class HotfolderJournalTest {
+
+    /**
+     * @see HotfolderJournal#open(Path)
+     * @verifies restore pending files
+     */
+    @Test
+    void open_shouldRestorePendingFiles(@TempDir Path tempFolder) throws Exception {
+        Path journalFile = tempFolder.resolve("queue.journal");
+        try (HotfolderJournal journal = HotfolderJournal.open(journalFile)) {
+            journal.enqueued(QueueType.INDEX, Path.of("/hotfolder/PPN1.xml"));
+            journal.enqueued(QueueType.INDEX, Path.of("/hotfolder/PPN2.xml"));
+            journal.enqueued(QueueType.PRIORITY, Path.of("/indexed_mets/PPN3.xml"));
+            journal.enqueued(QueueType.REINDEXED_CHILDREN, Path.of("/indexed_mets/PPN3.xml"));
+            journal.started(QueueType.INDEX, Path.of("/hotfolder/PPN1.xml"));
+            journal.finished(QueueType.INDEX, Path.of("/hotfolder/PPN1.xml"));
+        }
+
+        try (HotfolderJournal journal = HotfolderJournal.open(journalFile)) {
+            assertEquals(List.of(Path.of("/hotfolder/PPN2.xml")), journal.getPendingFiles(QueueType.INDEX));
+            assertEquals(List.of(Path.of("/indexed_mets/PPN3.xml")), journal.getPendingFiles(QueueType.PRIORITY));
+            assertEquals(List.of(Path.of("/indexed_mets/PPN3.xml")), journal.getPendingFiles(QueueType.REINDEXED_CHILDREN));
+            assertEquals(3, journal.getPendingFileCount());
+        }
+
+        // Compacted on opening
+        assertEquals(3, Files.readAllLines(journalFile).size());
+    }
+
+    /**
+     * @see HotfolderJournal#open(Path)
+     * @verifies restore started files first
+     */
+    @Test
+    void open_shouldRestoreStartedFilesFirst(@TempDir Path tempFolder) throws Exception {
+        Path journalFile = tempFolder.resolve("queue.journal");
+        try (HotfolderJournal journal = HotfolderJournal.open(journalFile)) {
+            journal.enqueued(QueueType.INDEX, Path.of("/hotfolder/PPN1.xml"));
+            journal.enqueued(QueueType.INDEX, Path.of("/hotfolder/PPN2.xml"));
+            journal.started(QueueType.INDEX, Path.of("/hotfolder/PPN2.xml"));
+        }
+
+        try (HotfolderJournal journal = HotfolderJournal.open(journalFile)) {
+            assertEquals(List.of(Path.of("/hotfolder/PPN2.xml"), Path.of("/hotfolder/PPN1.xml")), journal.getPendingFiles(QueueType.INDEX));
+        }
+    }
+
+    /**
+     * @see HotfolderJournal#open(Path)
+     * @verifies ignore incomplete lines
+     */
+    @Test
+    void open_shouldIgnoreIncompleteLines(@TempDir Path tempFolder) throws Exception {
+        Path journalFile = tempFolder.resolve("queue.journal");
+        try (HotfolderJournal journal = HotfolderJournal.open(journalFile)) {
+            journal.enqueued(QueueType.INDEX, Path.of("/hotfolder/PPN1.xml"));
+        }
+        Files.writeString(journalFile, "ENQUEUE\tIND", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (HotfolderJournal journal = HotfolderJournal.open(journalFile)) {
+            assertEquals(List.of(Path.of("/hotfolder/PPN1.xml")), journal.getPendingFiles(QueueType.INDEX));
+        }
+    }
+
+    /**
+     * @see HotfolderJournal#disabled()
+     * @verifies not record anything
+     */
+    @Test
+    void disabled_shouldNotRecordAnything() {
+        HotfolderJournal journal = HotfolderJournal.disabled();
+        journal.enqueued(QueueType.INDEX, Path.of("/hotfolder/PPN1.xml"));
+        assertTrue(journal.getPendingFiles(QueueType.INDEX).isEmpty());
+    }
+}
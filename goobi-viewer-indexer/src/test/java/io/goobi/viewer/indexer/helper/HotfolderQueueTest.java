@@ -0,0 +1,146 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HotfolderQueueTest {
+
+    /**
+     * @see HotfolderQueue#offer(Path)
+     * @verifies return false if capacity reached
+     */
+    @Test
+    void offer_shouldReturnFalseIfCapacityReached() {
+        HotfolderQueue queue = new HotfolderQueue(2, HotfolderQueue.Order.FIFO);
+        assertTrue(queue.offer(Path.of("PPN1.xml")));
+        assertTrue(queue.offer(Path.of("PPN2.xml")));
+        assertFalse(queue.offer(Path.of("PPN3.xml")));
+        assertEquals(2, queue.size());
+    }
+
+    /**
+     * @see HotfolderQueue#offer(Path)
+     * @verifies not add file twice
+     */
+    @Test
+    void offer_shouldNotAddFileTwice() {
+        HotfolderQueue queue = new HotfolderQueue(10, HotfolderQueue.Order.FIFO);
+        assertTrue(queue.offer(Path.of("PPN1.xml")));
+        assertTrue(queue.offer(Path.of("PPN1.xml")));
+        assertEquals(1, queue.size());
+    }
+
+    /**
+     * @see HotfolderQueue#poll()
+     * @verifies return files in configured order
+     */
+    @Test
+    void poll_shouldReturnFilesInConfiguredOrder(@TempDir Path hotfolder) throws Exception {
+        Path file1 = Files.writeString(hotfolder.resolve("PPN1.xml"), "foobar");
+        Path file2 = Files.writeString(hotfolder.resolve("PPN2.xml"), "f");
+        Path file3 = Files.writeString(hotfolder.resolve("PPN3.xml"), "foo");
+        Files.setLastModifiedTime(file1, FileTime.fromMillis(3000));
+        Files.setLastModifiedTime(file2, FileTime.fromMillis(2000));
+        Files.setLastModifiedTime(file3, FileTime.fromMillis(1000));
+        List<Path> files = List.of(file1, file2, file3);
+
+        assertEquals(List.of(file1, file2, file3), pollAll(HotfolderQueue.Order.FIFO, files));
+        assertEquals(List.of(file3, file2, file1), pollAll(HotfolderQueue.Order.OLDEST_FIRST, files));
+        assertEquals(List.of(file2, file3, file1), pollAll(HotfolderQueue.Order.SMALLEST_FIRST, files));
+        assertEquals(List.of(file1, file3, file2), pollAll(HotfolderQueue.Order.LARGEST_FIRST, files));
+    }
+
+    /**
+     * @see HotfolderQueue#remove(Object)
+     * @verifies remove file correctly
+     */
+    @Test
+    void remove_shouldRemoveFileCorrectly() {
+        HotfolderQueue queue = new HotfolderQueue(10, HotfolderQueue.Order.FIFO);
+        queue.offer(Path.of("PPN1.xml"));
+        queue.offer(Path.of("PPN2.xml"));
+        assertTrue(queue.remove(Path.of("PPN1.xml")));
+        assertFalse(queue.remove(Path.of("PPN1.xml")));
+        assertFalse(queue.contains(Path.of("PPN1.xml")));
+        assertTrue(queue.getFilesForIdentifier("PPN1").isEmpty());
+        assertEquals(Path.of("PPN2.xml"), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    /**
+     * @see HotfolderQueue#getFilesForIdentifier(String)
+     * @verifies return all files for identifier
+     */
+    @Test
+    void getFilesForIdentifier_shouldReturnAllFilesForIdentifier() {
+        HotfolderQueue queue = new HotfolderQueue(10, HotfolderQueue.Order.FIFO);
+        queue.offer(Path.of("PPN1.xml"));
+        queue.offer(Path.of("PPN1#1234.delete"));
+        queue.offer(Path.of("PPN2.xml"));
+        assertEquals(List.of(Path.of("PPN1.xml"), Path.of("PPN1#1234.delete")), queue.getFilesForIdentifier("PPN1"));
+    }
+
+    /**
+     * @see HotfolderQueue.Order#getByName(String)
+     * @verifies return correct value
+     */
+    @Test
+    void getByName_shouldReturnCorrectValue() {
+        assertEquals(HotfolderQueue.Order.OLDEST_FIRST, HotfolderQueue.Order.getByName("oldest"));
+        assertEquals(HotfolderQueue.Order.SMALLEST_FIRST, HotfolderQueue.Order.getByName("SMALLEST"));
+        assertEquals(HotfolderQueue.Order.LARGEST_FIRST, HotfolderQueue.Order.getByName("largest_first"));
+    }
+
+    /**
+     * @see HotfolderQueue.Order#getByName(String)
+     * @verifies return fifo if name unknown
+     */
+    @Test
+    void getByName_shouldReturnFifoIfNameUnknown() {
+        assertEquals(HotfolderQueue.Order.FIFO, HotfolderQueue.Order.getByName("foo"));
+        assertEquals(HotfolderQueue.Order.FIFO, HotfolderQueue.Order.getByName(null));
+    }
+
+    /**
+     * 
+     * @param order
+     * @param files
+     * @return Files polled from a queue with the given order
+     */
+    private static List<Path> pollAll(HotfolderQueue.Order order, List<Path> files) {
+        HotfolderQueue queue = new HotfolderQueue(10, order);
+        files.forEach(queue::offer);
+        List<Path> ret = new ArrayList<>();
+        Path path;
+        while ((path = queue.poll()) != null) {
+            ret.add(path);
+        }
+        return ret;
+    }
+}
@@ -22,6 +22,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
@@ -177,6 +180,23 @@ class HotfolderTest extends AbstractSolrEnabledTest {
 
     }
 
+    /**
+     * @see Hotfolder#countRecordFiles()
+     * @verifies not count removed files
+     */
+    @Test
+    void countRecordFiles_shouldNotCountRemovedFiles() throws Exception {
+        hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath());
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.countHotfolderFiles", true);
+
+        Files.createFile(Paths.get("target/viewer/hotfolder", "PPN1.xml"));
+        Files.createFile(Paths.get("target/viewer/hotfolder", "PPN2.xml"));
+        Assertions.assertEquals(2, hotfolder.countRecordFiles());
+
+        hotfolder.removeSourceFileFromQueue("PPN1");
+        Assertions.assertEquals(1, hotfolder.countRecordFiles());
+    }
+
     /**
      * @see Hotfolder#checkAndSendErrorReport(String,String)
      * @verifies return false if body contains no error
@@ -279,6 +299,25 @@ class HotfolderTest extends AbstractSolrEnabledTest {
         assertTrue(hotfolder.doIndex(destPath));
     }
 
+    /**
+     * @see Hotfolder#doIndex(Path)
+     * @verifies leave record and command files in place in dry run mode
+     */
+    @Test
+    void doIndex_shouldLeaveRecordAndCommandFilesInPlaceInDryRunMode() throws Exception {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.dryRun[@enabled]", true);
+        hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath());
+        Path srcPath = Paths.get("src/test/resources/METS/kleiuniv_PPN517154005/kleiuniv_PPN517154005.xml");
+        Path recordFile = Paths.get(hotfolder.getHotfolderPath().toAbsolutePath().toString(), "kleiuniv_PPN517154005.xml");
+        Files.copy(srcPath, recordFile);
+        Path deleteFile = Files.createFile(Paths.get(hotfolder.getHotfolderPath().toAbsolutePath().toString(), "PPN517154005.delete"));
+
+        assertTrue(hotfolder.doIndex(recordFile));
+        assertTrue(Files.isRegularFile(recordFile));
+        assertTrue(hotfolder.doIndex(deleteFile));
+        assertTrue(Files.isRegularFile(deleteFile));
+    }
+
     /**
      * @see Hotfolder#isDataFolderExportDone(Path)
      * @verifies return true if hotfolder content not changing
@@ -302,4 +341,130 @@ class HotfolderTest extends AbstractSolrEnabledTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @see Hotfolder#isDataFolderExportDone(Path)
+     * @verifies return false if data folders not yet stable
+     */
+    @Test
+    void isDataFolderExportDone_shouldReturnFalseIfDataFoldersNotYetStable() throws Exception {
+        hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath());
+        Path recordFile = Files.createFile(Paths.get(hotfolder.getHotfolderPath().toAbsolutePath().toString(), "PPN123.xml"));
+        Path mediaFolder = Files.createDirectory(Paths.get(hotfolder.getHotfolderPath().toAbsolutePath().toString(), "PPN123_media"));
+        Files.createFile(mediaFolder.resolve("00000001.tif"));
+
+        // First check only records the current state
+        assertFalse(hotfolder.isDataFolderExportDone(recordFile));
+    }
+
+    /**
+     * @see Hotfolder#isIndexing()
+     * @verifies return true while record is being indexed
+     */
+    @Test
+    void isIndexing_shouldReturnTrueWhileRecordIsBeingIndexed() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath()) {
+
+            @Override
+            boolean doIndex(Path recordFile) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        assertFalse(hotfolder.isIndexing());
+
+        hotfolder.getHighPriorityQueue().offer(Paths.get(hotfolder.getHotfolderPath().toAbsolutePath().toString(), "PPN123.xml"));
+        hotfolder.scan();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(hotfolder.isIndexing());
+
+        release.countDown();
+        hotfolder.shutdown();
+        assertFalse(hotfolder.isIndexing());
+    }
+
+    /**
+     * @see Hotfolder#addFileEvent(Path)
+     * @verifies queue file modified while being indexed after indexing finished
+     */
+    @Test
+    void addFileEvent_shouldQueueFileModifiedWhileBeingIndexedAfterIndexingFinished() throws Exception {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.exportStabilityWindow", 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath()) {
+
+            @Override
+            boolean doIndex(Path recordFile) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        hotfolder.setEventDriven(true);
+        // Initial full listing
+        hotfolder.scan();
+
+        Path recordFile = Files.createFile(Paths.get(hotfolder.getHotfolderPath().toAbsolutePath().toString(), "PPN123.xml"));
+        hotfolder.getHighPriorityQueue().offer(recordFile);
+        hotfolder.scan();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // File is modified while its record is being indexed
+        hotfolder.addFileEvent(recordFile);
+        hotfolder.scan();
+        assertFalse(hotfolder.getIndexQueue().contains(recordFile));
+
+        release.countDown();
+        for (int i = 0; i < 100 && hotfolder.isIndexing(); ++i) {
+            Thread.sleep(100);
+        }
+        assertFalse(hotfolder.isIndexing());
+        // The file is only queued once it has been seen unchanged by two consecutive scans
+        hotfolder.scan();
+        hotfolder.scan();
+        assertTrue(hotfolder.getIndexQueue().contains(recordFile));
+        hotfolder.shutdown();
+    }
+
+    /**
+     * @see Hotfolder#addFileEvent(Path)
+     * @verifies not queue file before it has stopped changing
+     */
+    @Test
+    void addFileEvent_shouldNotQueueFileBeforeItHasStoppedChanging() throws Exception {
+        SolrIndexerDaemon.getInstance().getConfiguration().overrideValue("performance.exportStabilityWindow", 0);
+        hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath());
+        hotfolder.setEventDriven(true);
+        // Initial full listing
+        hotfolder.scan();
+
+        // Create event while the file is still being written
+        Path recordFile = Files.writeString(Paths.get(hotfolder.getHotfolderPath().toAbsolutePath().toString(), "PPN123.xml"), "<mets:mets");
+        hotfolder.addFileEvent(recordFile);
+        hotfolder.scan();
+        assertFalse(hotfolder.getIndexQueue().contains(recordFile));
+
+        // Modified after the create event
+        Files.writeString(recordFile, "></mets:mets>", StandardOpenOption.APPEND);
+        hotfolder.addFileEvent(recordFile);
+        hotfolder.scan();
+        assertFalse(hotfolder.getIndexQueue().contains(recordFile));
+
+        // Unchanged since the last scan
+        hotfolder.scan();
+        assertTrue(hotfolder.getIndexQueue().contains(recordFile));
+        hotfolder.shutdown();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.goobi.viewer.indexer.AbstractSolrEnabledTest;
+import io.goobi.viewer.indexer.SolrIndexerDaemon;
+
+class HotfolderWatcherTest extends AbstractSolrEnabledTest {
+
+    private final Set<Path> events = ConcurrentHashMap.newKeySet();
+
+    @Override
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+        hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath()) {
+
+            @Override
+            public void addFileEvent(Path path) {
+                events.add(path);
+                super.addFileEvent(path);
+            }
+        };
+    }
+
+    /**
+     * @see HotfolderWatcher#awaitChanges(long)
+     * @verifies forward created files to hotfolder
+     */
+    @Test
+    void awaitChanges_shouldForwardCreatedFilesToHotfolder() throws Exception {
+        try (HotfolderWatcher watcher = new HotfolderWatcher()) {
+            assertTrue(watcher.register(hotfolder));
+            Path recordFile = Files.createFile(Paths.get(hotfolder.getHotfolderPath().toAbsolutePath().toString(), "PPN123.xml"));
+            assertTrue(awaitEvent(watcher, recordFile));
+        }
+    }
+
+    /**
+     * @see HotfolderWatcher#awaitChanges(long)
+     * @verifies forward modified files to hotfolder
+     */
+    @Test
+    void awaitChanges_shouldForwardModifiedFilesToHotfolder() throws Exception {
+        Path recordFile = Files.createFile(Paths.get(hotfolder.getHotfolderPath().toAbsolutePath().toString(), "PPN123.xml"));
+        try (HotfolderWatcher watcher = new HotfolderWatcher()) {
+            assertTrue(watcher.register(hotfolder));
+            Files.writeString(recordFile, "<mets/>", StandardOpenOption.APPEND);
+            assertTrue(awaitEvent(watcher, recordFile));
+        }
+    }
+
+    /**
+     * Waits up to 30 seconds for an event for the given file (polling watch services may take several seconds to report changes).
+     * 
+     * @param watcher
+     * @param file
+     * @return true if an event for the given file has been forwarded; false otherwise
+     * @throws InterruptedException
+     */
+    private boolean awaitEvent(HotfolderWatcher watcher, Path file) throws InterruptedException {
+        long end = System.currentTimeMillis() + 30000;
+        while (!events.contains(file) && System.currentTimeMillis() < end) {
+            watcher.awaitChanges(1000);
+        }
+        return events.contains(file);
+    }
+}
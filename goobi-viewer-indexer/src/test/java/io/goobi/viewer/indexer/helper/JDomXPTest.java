@@ -18,16 +18,23 @@ package io.goobi.viewer.indexer.helper;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.jdom2.Document;
 import org.jdom2.Element;
+import org.jdom2.filter.Filters;
 import org.jdom2.input.SAXBuilder;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import io.goobi.viewer.indexer.AbstractTest;
+import io.goobi.viewer.indexer.SolrIndexerDaemon;
 import io.goobi.viewer.indexer.helper.JDomXP.FileFormat;
 
 class JDomXPTest extends AbstractTest {
@@ -158,6 +165,17 @@ class JDomXPTest extends AbstractTest {
         Assertions.assertEquals(FileFormat.CMS, JDomXP.determineFileFormat(file));
     }
 
+    /**
+     * @see JDomXP#determineFileFormat(File)
+     * @verifies return unknown for documents with doctype
+     */
+    @Test
+    void determineFileFormat_shouldReturnUnknownForDocumentsWithDoctype(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("doctype.xml");
+        Files.writeString(file, "<?xml version=\"1.0\"?>\n<!DOCTYPE cmsPage [<!ENTITY foo \"bar\">]>\n<cmsPage>&foo;</cmsPage>");
+        Assertions.assertEquals(FileFormat.UNKNOWN, JDomXP.determineFileFormat(file.toFile()));
+    }
+
     /**
      * @see JDomXP#splitLidoFile(File)
      * @verifies split multi record documents correctly
@@ -383,4 +401,67 @@ class JDomXPTest extends AbstractTest {
         Assertions.assertNotNull(eleMdWrap);
     }
 
+    /**
+     * @see JDomXP#evaluateToElements(String,Object,Map)
+     * @verifies replace variables correctly
+     */
+    @Test
+    void evaluateToElements_shouldReplaceVariablesCorrectly() throws Exception {
+        File file = new File("src/test/resources/METS/kleiuniv_PPN517154005/kleiuniv_PPN517154005.xml");
+        Assertions.assertTrue(file.isFile());
+        JDomXP xp = new JDomXP(file);
+        String xpath = "/mets:mets/mets:dmdSec[@ID=$id]";
+        List<Element> elements = xp.evaluateToElements(xpath, null, Map.of("id", "DMDLOG_0003"));
+        Assertions.assertEquals(1, elements.size());
+        Assertions.assertEquals("DMDLOG_0003", elements.get(0).getAttributeValue("ID"));
+
+        // Same compiled expression, different value
+        elements = xp.evaluateToElements(xpath, null, Map.of("id", "DMDLOG_0000"));
+        Assertions.assertEquals(1, elements.size());
+        Assertions.assertEquals("DMDLOG_0000", elements.get(0).getAttributeValue("ID"));
+    }
+
+    /**
+     * @see JDomXP#compile(String,Filter,Set)
+     * @verifies return cached expression for same arguments
+     */
+    @Test
+    void compile_shouldReturnCachedExpressionForSameArguments() {
+        Assertions.assertSame(JDomXP.compile("/mets:mets", Filters.element(), Collections.emptySet()),
+                JDomXP.compile("/mets:mets", Filters.element(), Collections.emptySet()));
+    }
+
+    /**
+     * @see JDomXP#compile(String,Filter,Set)
+     * @verifies compile separate expressions for different filters
+     */
+    @Test
+    void compile_shouldCompileSeparateExpressionsForDifferentFilters() {
+        Assertions.assertNotSame(JDomXP.compile("/mets:mets", Filters.element(), Collections.emptySet()),
+                JDomXP.compile("/mets:mets", Filters.fpassthrough(), Collections.emptySet()));
+    }
+
+    /**
+     * @see JDomXP#compile(String,Filter,Set)
+     * @verifies compile new expression after namespaces reload
+     */
+    @Test
+    void compile_shouldCompileNewExpressionAfterNamespacesReload() {
+        Object xpath = JDomXP.compile("/mets:mets", Filters.element(), Collections.emptySet());
+        SolrIndexerDaemon.getInstance().getConfiguration().initNamespaces();
+        Assertions.assertNotSame(xpath, JDomXP.compile("/mets:mets", Filters.element(), Collections.emptySet()));
+    }
+
+    /**
+     * @see JDomXP#getMetsStructureIndex()
+     * @verifies return same instance on subsequent calls
+     */
+    @Test
+    void getMetsStructureIndex_shouldReturnSameInstanceOnSubsequentCalls() throws Exception {
+        File file = new File("src/test/resources/METS/kleiuniv_PPN517154005/kleiuniv_PPN517154005.xml");
+        Assertions.assertTrue(file.isFile());
+        JDomXP xp = new JDomXP(file);
+        Assertions.assertNotNull(xp.getMetsStructureIndex());
+        Assertions.assertSame(xp.getMetsStructureIndex(), xp.getMetsStructureIndex());
+    }
 }
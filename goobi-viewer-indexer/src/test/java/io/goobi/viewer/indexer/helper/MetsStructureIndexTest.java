@@ -0,0 +1,114 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import java.io.File;
+import java.util.List;
+
+import org.jdom2.Element;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.goobi.viewer.indexer.AbstractTest;
+
+class MetsStructureIndexTest extends AbstractTest {
+
+    private MetsStructureIndex index;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        File file = new File("src/test/resources/METS/kleiuniv_PPN517154005/kleiuniv_PPN517154005.xml");
+        Assertions.assertTrue(file.isFile());
+        index = new MetsStructureIndex(new JDomXP(file).getRootElement());
+    }
+
+    /**
+     * @see MetsStructureIndex#MetsStructureIndex(Element)
+     * @verifies index structLinks correctly
+     */
+    @Test
+    void MetsStructureIndex_shouldIndexStructLinksCorrectly() {
+        List<String> physIds = index.getPhysIdsForLogId("LOG_0003");
+        Assertions.assertEquals(11, physIds.size());
+        Assertions.assertEquals("PHYS_0005", physIds.get(0));
+        Assertions.assertEquals("PHYS_0006", physIds.get(1));
+        Assertions.assertEquals(List.of("LOG_0000", "LOG_0003"), index.getLogIdsForPhysId("PHYS_0005"));
+        Assertions.assertTrue(index.getPhysIdsForLogId("LOG_9999").isEmpty());
+        Assertions.assertTrue(index.getLogIdsForPhysId("PHYS_9999").isEmpty());
+    }
+
+    /**
+     * @see MetsStructureIndex#MetsStructureIndex(Element)
+     * @verifies index files correctly
+     */
+    @Test
+    void MetsStructureIndex_shouldIndexFilesCorrectly() {
+        Assertions.assertEquals(6, index.getFileGroups().size());
+        Assertions.assertTrue(index.hasFileGroup("PRESENTATION"));
+        Assertions.assertFalse(index.hasFileGroup("DOWNLOAD_RESOURCE"));
+        Element eleFile = index.getFile("PRESENTATION", "FILE_0001_PRESENTATION");
+        Assertions.assertNotNull(eleFile);
+        Assertions.assertEquals("banner", eleFile.getAttributeValue("USE"));
+        Assertions.assertNull(index.getFile("THUMBS", "FILE_0001_PRESENTATION"));
+    }
+
+    /**
+     * @see MetsStructureIndex#MetsStructureIndex(Element)
+     * @verifies index dmdSecs correctly
+     */
+    @Test
+    void MetsStructureIndex_shouldIndexDmdSecsCorrectly() {
+        Assertions.assertNotNull(index.getDmdSec("DMDLOG_0000"));
+        Assertions.assertNotNull(index.getDmdSec("DMDLOG_0003"));
+        Assertions.assertNull(index.getDmdSec("DMDLOG_9999"));
+    }
+
+    /**
+     * @see MetsStructureIndex#MetsStructureIndex(Element)
+     * @verifies index structMap divs correctly
+     */
+    @Test
+    void MetsStructureIndex_shouldIndexStructMapDivsCorrectly() {
+        Assertions.assertEquals("urn:nbn:de:hebis:66:fuldig-1975", index.getLogicalDiv("LOG_0003").getAttributeValue("CONTENTIDS"));
+        Assertions.assertEquals("1", index.getPhysicalDiv("PHYS_0001").getAttributeValue("ORDER"));
+        Assertions.assertNull(index.getLogicalDiv("PHYS_0001"));
+        Assertions.assertNull(index.getPhysicalDiv("LOG_0003"));
+    }
+
+    /**
+     * @see MetsStructureIndex#MetsStructureIndex(Element)
+     * @verifies create empty index for non mets documents
+     */
+    @Test
+    void MetsStructureIndex_shouldCreateEmptyIndexForNonMetsDocuments() {
+        MetsStructureIndex emptyIndex = new MetsStructureIndex(new Element("lido"));
+        Assertions.assertTrue(emptyIndex.getFileGroups().isEmpty());
+        Assertions.assertNull(emptyIndex.getDmdSec("DMDLOG_0000"));
+    }
+
+    /**
+     * @see MetsStructureIndex#getMdWrap(String)
+     * @verifies return mdWrap correctly
+     */
+    @Test
+    void getMdWrap_shouldReturnMdWrapCorrectly() {
+        Element eleMdWrap = index.getMdWrap("DMDLOG_0003");
+        Assertions.assertNotNull(eleMdWrap);
+        Assertions.assertEquals("MODS", eleMdWrap.getAttributeValue("MDTYPE"));
+        Assertions.assertNull(index.getMdWrap("DMDLOG_9999"));
+    }
+}
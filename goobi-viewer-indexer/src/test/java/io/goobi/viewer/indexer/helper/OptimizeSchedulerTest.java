@@ -0,0 +1,122 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+
+class OptimizeSchedulerTest {
+
+    private static final LocalTime NOON = LocalTime.of(12, 0);
+
+    /**
+     * @see OptimizeScheduler#isDue(boolean,long,LocalTime)
+     * @verifies return false while busy
+     */
+    @Test
+    void isDue_shouldReturnFalseWhileBusy() {
+        OptimizeScheduler scheduler = new OptimizeScheduler(0, null, null, 1);
+        assertFalse(scheduler.isDue(true, 1000, NOON));
+        assertFalse(scheduler.isDue(true, 2000, NOON));
+    }
+
+    /**
+     * @see OptimizeScheduler#isDue(boolean,long,LocalTime)
+     * @verifies return false if nothing indexed since last optimization
+     */
+    @Test
+    void isDue_shouldReturnFalseIfNothingIndexedSinceLastOptimization() {
+        OptimizeScheduler scheduler = new OptimizeScheduler(0, null, null, 1);
+        assertFalse(scheduler.isDue(false, 1000, NOON));
+
+        scheduler.isDue(true, 2000, NOON);
+        assertTrue(scheduler.isDue(false, 3000, NOON));
+        assertFalse(scheduler.isDue(false, 4000, NOON));
+    }
+
+    /**
+     * @see OptimizeScheduler#isDue(boolean,long,LocalTime)
+     * @verifies return false before idle time has elapsed
+     */
+    @Test
+    void isDue_shouldReturnFalseBeforeIdleTimeHasElapsed() {
+        OptimizeScheduler scheduler = new OptimizeScheduler(60000, null, null, 1);
+        scheduler.isDue(true, 1000, NOON);
+        assertFalse(scheduler.isDue(false, 2000, NOON));
+        assertFalse(scheduler.isDue(false, 61000, NOON));
+    }
+
+    /**
+     * @see OptimizeScheduler#isDue(boolean,long,LocalTime)
+     * @verifies return true after idle time has elapsed
+     */
+    @Test
+    void isDue_shouldReturnTrueAfterIdleTimeHasElapsed() {
+        OptimizeScheduler scheduler = new OptimizeScheduler(60000, null, null, 1);
+        scheduler.isDue(true, 1000, NOON);
+        assertFalse(scheduler.isDue(false, 2000, NOON));
+        assertTrue(scheduler.isDue(false, 62000, NOON));
+    }
+
+    /**
+     * @see OptimizeScheduler#isDue(boolean,long,LocalTime)
+     * @verifies return false outside of time window
+     */
+    @Test
+    void isDue_shouldReturnFalseOutsideOfTimeWindow() {
+        OptimizeScheduler scheduler = new OptimizeScheduler(0, LocalTime.of(1, 0), LocalTime.of(5, 0), 1);
+        scheduler.isDue(true, 1000, NOON);
+        assertFalse(scheduler.isDue(false, 2000, NOON));
+        assertTrue(scheduler.isDue(false, 3000, LocalTime.of(1, 0)));
+    }
+
+    /**
+     * @see OptimizeScheduler#isDue(boolean,long,LocalTime)
+     * @verifies return true inside time window spanning midnight
+     */
+    @Test
+    void isDue_shouldReturnTrueInsideTimeWindowSpanningMidnight() {
+        OptimizeScheduler scheduler = new OptimizeScheduler(0, LocalTime.of(22, 0), LocalTime.of(4, 0), 1);
+        scheduler.isDue(true, 1000, NOON);
+        assertFalse(scheduler.isDue(false, 2000, LocalTime.of(4, 0)));
+        assertTrue(scheduler.isDue(false, 3000, LocalTime.of(2, 30)));
+    }
+
+    /**
+     * @see OptimizeScheduler#parseTime(String)
+     * @verifies parse time correctly
+     */
+    @Test
+    void parseTime_shouldParseTimeCorrectly() {
+        assertEquals(LocalTime.of(4, 30), OptimizeScheduler.parseTime(" 04:30 "));
+    }
+
+    /**
+     * @see OptimizeScheduler#parseTime(String)
+     * @verifies return null if value blank or invalid
+     */
+    @Test
+    void parseTime_shouldReturnNullIfValueBlankOrInvalid() {
+        assertNull(OptimizeScheduler.parseTime(""));
+        assertNull(OptimizeScheduler.parseTime("4 o'clock"));
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+class RecordLockRegistryTest {
+
+    /**
+     * @see RecordLockRegistry#tryLock(String)
+     * @verifies return false if identifier already locked
+     */
+    @Test
+    void tryLock_shouldReturnFalseIfIdentifierAlreadyLocked() {
+        RecordLockRegistry locks = new RecordLockRegistry();
+        assertTrue(locks.tryLock("PPN123"));
+        assertFalse(locks.tryLock("PPN123"));
+        assertTrue(locks.tryLock("PPN456"));
+    }
+
+    /**
+     * @see RecordLockRegistry#tryLock(String)
+     * @verifies return true if identifier blank
+     */
+    @Test
+    void tryLock_shouldReturnTrueIfIdentifierBlank() {
+        RecordLockRegistry locks = new RecordLockRegistry();
+        assertTrue(locks.tryLock(""));
+        assertTrue(locks.tryLock(""));
+        assertTrue(locks.tryLock(null));
+    }
+
+    /**
+     * @see RecordLockRegistry#unlock(String)
+     * @verifies release lock correctly
+     */
+    @Test
+    void unlock_shouldReleaseLockCorrectly() {
+        RecordLockRegistry locks = new RecordLockRegistry();
+        assertTrue(locks.tryLock("PPN123"));
+        assertTrue(locks.isLocked("PPN123"));
+        locks.unlock("PPN123");
+        assertFalse(locks.isLocked("PPN123"));
+        assertTrue(locks.tryLock("PPN123"));
+    }
+
+    /**
+     * @see RecordLockRegistry#getLockKey(java.nio.file.Path)
+     * @verifies return base name without collision suffix
+     */
+    @Test
+    void getLockKey_shouldReturnBaseNameWithoutCollisionSuffix() {
+        assertEquals("PPN123", RecordLockRegistry.getLockKey(Paths.get("hotfolder", "PPN123.xml")));
+        assertEquals("PPN123", RecordLockRegistry.getLockKey(Paths.get("hotfolder", "PPN123.delete")));
+        assertEquals("PPN123", RecordLockRegistry.getLockKey(Paths.get("hotfolder", "PPN123#1234567890.xml")));
+    }
+}
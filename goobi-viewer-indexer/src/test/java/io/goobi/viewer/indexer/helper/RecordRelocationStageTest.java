@@ -0,0 +1,204 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RecordRelocationStageTest {
+
+    /**
+     * @see RecordRelocationStage#submit(Path,RecordRelocationStage.RelocationTask)
+     * @verifies run task in calling thread if disabled
+     */
+    @Test
+    void submit_shouldRunTaskInCallingThreadIfDisabled() throws Exception {
+        RecordRelocationStage stage = new RecordRelocationStage(0);
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        stage.submit(Path.of("PPN123.xml"), () -> threads.add(Thread.currentThread()));
+        assertEquals(List.of(Thread.currentThread()), threads);
+        assertFalse(stage.isRelocationPending(Path.of("PPN123.xml")));
+    }
+
+    /**
+     * @see RecordRelocationStage#submit(Path,RecordRelocationStage.RelocationTask)
+     * @verifies run task asynchronously if enabled
+     */
+    @Test
+    void submit_shouldRunTaskAsynchronouslyIfEnabled() throws Exception {
+        RecordRelocationStage stage = new RecordRelocationStage(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        stage.submit(Path.of("PPN123.xml"), () -> {
+            threads.add(Thread.currentThread());
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(stage.isRelocationPending(Path.of("PPN123.xml")));
+        release.countDown();
+        stage.shutdown();
+        assertEquals(1, threads.size());
+        assertNotEquals(Thread.currentThread(), threads.get(0));
+        assertFalse(stage.isRelocationPending(Path.of("PPN123.xml")));
+    }
+
+    /**
+     * @see RecordRelocationStage#afterRelocation(Path,Runnable)
+     * @verifies run action immediately if no relocation pending
+     */
+    @Test
+    void afterRelocation_shouldRunActionImmediatelyIfNoRelocationPending() {
+        RecordRelocationStage stage = new RecordRelocationStage(2);
+        List<String> log = new CopyOnWriteArrayList<>();
+        stage.afterRelocation(Path.of("PPN123.xml"), () -> log.add("action"));
+        assertEquals(List.of("action"), log);
+        stage.shutdown();
+    }
+
+    /**
+     * @see RecordRelocationStage#afterRelocation(Path,Runnable)
+     * @verifies run action after relocation finished
+     */
+    @Test
+    void afterRelocation_shouldRunActionAfterRelocationFinished() throws Exception {
+        RecordRelocationStage stage = new RecordRelocationStage(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> log = new CopyOnWriteArrayList<>();
+        stage.submit(Path.of("PPN123.xml"), () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.add("relocation");
+        });
+        stage.afterRelocation(Path.of("PPN123.xml"), () -> {
+            log.add("action");
+            done.countDown();
+        });
+        assertTrue(log.isEmpty());
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("relocation", "action"), log);
+        stage.shutdown();
+    }
+
+    /**
+     * @see RecordRelocationStage#afterRelocation(Path,Runnable)
+     * @verifies not run action if relocation failed
+     */
+    @Test
+    void afterRelocation_shouldNotRunActionIfRelocationFailed() throws Exception {
+        RecordRelocationStage stage = new RecordRelocationStage(2);
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> log = new CopyOnWriteArrayList<>();
+        stage.submit(Path.of("PPN123.xml"), () -> {
+            throw new IOException("relocation failed");
+        });
+        stage.afterRelocation(Path.of("PPN123.xml"), () -> log.add("action"));
+        stage.whenRelocationFinished(Path.of("PPN123.xml"), done::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(log.isEmpty());
+        stage.shutdown();
+    }
+
+    /**
+     * @see RecordRelocationStage#whenRelocationFinished(Path,Runnable)
+     * @verifies run action immediately if no relocation pending
+     */
+    @Test
+    void whenRelocationFinished_shouldRunActionImmediatelyIfNoRelocationPending() {
+        RecordRelocationStage stage = new RecordRelocationStage(2);
+        List<String> log = new CopyOnWriteArrayList<>();
+        stage.whenRelocationFinished(Path.of("PPN123.xml"), () -> log.add("action"));
+        assertEquals(List.of("action"), log);
+        stage.shutdown();
+    }
+
+    /**
+     * @see RecordRelocationStage#whenRelocationFinished(Path,Runnable)
+     * @verifies run action if relocation failed
+     */
+    @Test
+    void whenRelocationFinished_shouldRunActionIfRelocationFailed() throws Exception {
+        RecordRelocationStage stage = new RecordRelocationStage(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> log = new CopyOnWriteArrayList<>();
+        stage.submit(Path.of("PPN123.xml"), () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("relocation failed");
+        });
+        stage.whenRelocationFinished(Path.of("PPN123.xml"), () -> {
+            log.add("action");
+            done.countDown();
+        });
+        assertTrue(log.isEmpty());
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("action"), log);
+        assertFalse(stage.isRelocationPending(Path.of("PPN123.xml")));
+        stage.shutdown();
+    }
+
+    /**
+     * @see RecordRelocationStage#afterRelocationAttempt(Path,Runnable)
+     * @verifies run action after failed relocation
+     */
+    @Test
+    void afterRelocationAttempt_shouldRunActionAfterFailedRelocation() throws Exception {
+        RecordRelocationStage stage = new RecordRelocationStage(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> log = new CopyOnWriteArrayList<>();
+        stage.submit(Path.of("PPN123.xml"), () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("relocation failed");
+        });
+        stage.afterRelocationAttempt(Path.of("PPN123.xml"), () -> {
+            log.add("action");
+            done.countDown();
+        });
+        assertTrue(log.isEmpty());
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("action"), log);
+        stage.shutdown();
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SolrRetryPolicyTest {
+
+    /**
+     * @see SolrRetryPolicy#getDelay(int)
+     * @verifies increase exponentially
+     */
+    @Test
+    void getDelay_shouldIncreaseExponentially() {
+        SolrRetryPolicy policy = new SolrRetryPolicy(100, 100000, 5, 1000);
+        for (int i = 0; i < 10; ++i) {
+            long delay = policy.getDelay(1);
+            assertTrue(delay >= 50 && delay <= 100, "Unexpected delay: " + delay);
+            delay = policy.getDelay(4);
+            assertTrue(delay >= 400 && delay <= 800, "Unexpected delay: " + delay);
+        }
+    }
+
+    /**
+     * @see SolrRetryPolicy#getDelay(int)
+     * @verifies not exceed max delay
+     */
+    @Test
+    void getDelay_shouldNotExceedMaxDelay() {
+        SolrRetryPolicy policy = new SolrRetryPolicy(100, 1000, 5, 1000);
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(policy.getDelay(20) <= 1000);
+        }
+        assertTrue(policy.getDelay(Integer.MAX_VALUE) <= 1000);
+    }
+
+    /**
+     * @see SolrRetryPolicy#isCircuitOpen()
+     * @verifies open after failure threshold reached
+     */
+    @Test
+    void isCircuitOpen_shouldOpenAfterFailureThresholdReached() {
+        SolrRetryPolicy policy = new SolrRetryPolicy(0, 0, 3, 60000);
+        assertTrue(policy.backoff(1));
+        assertTrue(policy.backoff(2));
+        assertFalse(policy.isCircuitOpen());
+        policy.recordFailure();
+        assertTrue(policy.isCircuitOpen());
+        assertEquals(2, policy.getRetryCount());
+        assertEquals(1, policy.getFailedOperationCount());
+        assertEquals(1, policy.getCircuitOpenCount());
+    }
+
+    /**
+     * @see SolrRetryPolicy#isCircuitOpen()
+     * @verifies close after open duration
+     */
+    @Test
+    void isCircuitOpen_shouldCloseAfterOpenDuration() throws Exception {
+        SolrRetryPolicy policy = new SolrRetryPolicy(0, 0, 1, 50);
+        policy.recordFailure();
+        assertTrue(policy.isCircuitOpen());
+        Thread.sleep(100);
+        assertFalse(policy.isCircuitOpen());
+    }
+
+    /**
+     * @see SolrRetryPolicy#recordSuccess(int)
+     * @verifies close circuit
+     */
+    @Test
+    void recordSuccess_shouldCloseCircuit() {
+        SolrRetryPolicy policy = new SolrRetryPolicy(0, 0, 1, 60000);
+        assertTrue(policy.backoff(1));
+        assertTrue(policy.isCircuitOpen());
+        policy.recordSuccess(1);
+        assertFalse(policy.isCircuitOpen());
+        assertEquals(1, policy.getRecoveredOperationCount());
+    }
+}
@@ -22,18 +22,31 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.BaseHttpSolrClient.RemoteSolrException;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.NamedList;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,8 +55,10 @@ import org.junit.jupiter.api.Test;
 import io.goobi.viewer.indexer.AbstractSolrEnabledTest;
 import io.goobi.viewer.indexer.MetsIndexer;
 import io.goobi.viewer.indexer.SolrIndexerDaemon;
+import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
 import io.goobi.viewer.indexer.model.IndexingResult;
 import io.goobi.viewer.indexer.model.LuceneField;
+import io.goobi.viewer.indexer.model.RecordState;
 import io.goobi.viewer.indexer.model.SolrConstants;
 import io.goobi.viewer.indexer.model.SolrConstants.DocType;
 
@@ -108,6 +123,48 @@ class SolrSearchIndexTest extends AbstractSolrEnabledTest {
         Assertions.assertFalse(sh.deleteDocuments(Collections.emptyList()));
     }
 
+    /**
+     * @see SolrSearchIndex#deleteByQueries(List)
+     * @verifies send all queries in one request
+     */
+    @Test
+    void deleteByQueries_shouldSendAllQueriesInOneRequest() throws Exception {
+        List<UpdateRequest> requests = new ArrayList<>();
+        SolrClient recordingClient = new SolrClient() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public NamedList<Object> request(SolrRequest<?> request, String collection) {
+                requests.add((UpdateRequest) request);
+                NamedList<Object> header = new NamedList<>();
+                header.add("status", 0);
+                NamedList<Object> ret = new NamedList<>();
+                ret.add("responseHeader", header);
+                return ret;
+            }
+
+            @Override
+            public void close() {
+                //
+            }
+        };
+        SolrSearchIndex sh = new SolrSearchIndex(recordingClient);
+        Assertions.assertTrue(sh.deleteByQueries(Arrays.asList("PI:\"PPN123\"", "PI_TOPSTRUCT:\"PPN123\"")));
+        Assertions.assertEquals(1, requests.size());
+        Assertions.assertEquals(Arrays.asList("PI:\"PPN123\"", "PI_TOPSTRUCT:\"PPN123\""), requests.get(0).getDeleteQuery());
+    }
+
+    /**
+     * @see SolrSearchIndex#deleteByQueries(List)
+     * @verifies return false if queries empty
+     */
+    @Test
+    void deleteByQueries_shouldReturnFalseIfQueriesEmpty() throws Exception {
+        SolrSearchIndex sh = new SolrSearchIndex(client);
+        Assertions.assertFalse(sh.deleteByQueries(Collections.emptyList()));
+    }
+
     /**
      * @see SolrSearchIndex#getSolrSchemaDocument(String)
      * @verifies return schema document correctly
@@ -290,32 +347,45 @@ class SolrSearchIndexTest extends AbstractSolrEnabledTest {
     }
 
     /**
-     * @see SolrSearchIndex#checkDuplicateFieldValues(List,List)
-     * @verifies return correct identifiers
+     * @see SolrSearchIndex#getNewCloudSolrClient(List,String,List,String)
+     * @verifies throw ConfigurationException if collection empty
      */
     @Test
-    void checkDuplicateFieldValues_shouldReturnCorrectIdentifiers() throws Exception {
-        hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath());
+    void getNewCloudSolrClient_shouldThrowConfigurationExceptionIfCollectionEmpty() {
+        List<String> zkHosts = Collections.singletonList("localhost:2181");
+        Assertions.assertThrows(ConfigurationException.class, () -> SolrSearchIndex.getNewCloudSolrClient(zkHosts, null, null, ""));
+    }
 
-        IndexingResult result =
-                new MetsIndexer(hotfolder).index(Paths.get("src/test/resources/METS/H030001_mets.xml"), new HashMap<>(), null, 1, false);
-        Assertions.assertNull(result.getError());
-        result = new MetsIndexer(hotfolder).index(Paths.get("src/test/resources/METS/AC06736966.xml"), new HashMap<>(), null, 1, false);
-        Assertions.assertNull(result.getError());
-        Set<String> duplicates = SolrIndexerDaemon.getInstance()
-                .getSearchIndex()
-                .checkDuplicateFieldValues(Collections.singletonList(SolrConstants.PI_TOPSTRUCT), Arrays.asList("AC06736966", "H030001"), null);
-        Assertions.assertEquals(2, duplicates.size());
-        Assertions.assertTrue(duplicates.contains("H030001"));
-        Assertions.assertTrue(duplicates.contains("AC06736966"));
+    /**
+     * @see SolrSearchIndex#getNewCloudSolrClient(List,String,List,String)
+     * @verifies throw ConfigurationException if no hosts configured
+     */
+    @Test
+    void getNewCloudSolrClient_shouldThrowConfigurationExceptionIfNoHostsConfigured() {
+        List<String> empty = Collections.emptyList();
+        Assertions.assertThrows(ConfigurationException.class, () -> SolrSearchIndex.getNewCloudSolrClient(empty, "/solr", empty, "current"));
     }
 
     /**
-     * @see SolrSearchIndex#checkDuplicateFieldValues(List,List,String)
-     * @verifies ignore records that match skipPi
+     * @see SolrSearchIndex#getNewCloudSolrClient(List,String,List,String)
+     * @verifies send updates to shard leaders only
      */
     @Test
-    void checkDuplicateFieldValues_shouldIgnoreRecordsThatMatchSkipPi() throws Exception {
+    void getNewCloudSolrClient_shouldSendUpdatesToShardLeadersOnly() throws Exception {
+        // ZooKeeper is only contacted on the first request
+        try (CloudSolrClient cloudClient =
+                SolrSearchIndex.getNewCloudSolrClient(Collections.singletonList("localhost:2181"), "/solr", null, "current")) {
+            Assertions.assertTrue(cloudClient.isUpdatesToLeaders());
+            Assertions.assertEquals("current", cloudClient.getDefaultCollection());
+        }
+    }
+
+    /**
+     * @see SolrSearchIndex#checkDuplicateFieldTerms(String,java.util.Collection,String)
+     * @verifies return correct identifiers
+     */
+    @Test
+    void checkDuplicateFieldTerms_shouldReturnCorrectIdentifiers() throws Exception {
         hotfolder = new Hotfolder(SolrIndexerDaemon.getInstance().getConfiguration().getHotfolderPath());
 
         IndexingResult result =
@@ -325,9 +395,446 @@ class SolrSearchIndexTest extends AbstractSolrEnabledTest {
         Assertions.assertNull(result.getError());
         Set<String> duplicates = SolrIndexerDaemon.getInstance()
                 .getSearchIndex()
-                .checkDuplicateFieldValues(Collections.singletonList(SolrConstants.PI_TOPSTRUCT), Arrays.asList("AC06736966", "H030001"),
-                        "AC06736966");
+                .checkDuplicateFieldTerms(SolrConstants.PI_TOPSTRUCT, Arrays.asList("AC06736966", "H030001", "notfound"), "AC06736966");
         Assertions.assertEquals(1, duplicates.size());
         Assertions.assertTrue(duplicates.contains("H030001"));
     }
-}
\ No newline at end of file
+
+    /**
+     * @see SolrSearchIndex#checkDuplicateFieldTerms(String,java.util.Collection,String)
+     * @verifies return empty set if values empty
+     */
+    @Test
+    void checkDuplicateFieldTerms_shouldReturnEmptySetIfValuesEmpty() throws Exception {
+        Assertions.assertTrue(SolrIndexerDaemon.getInstance()
+                .getSearchIndex()
+                .checkDuplicateFieldTerms(SolrConstants.URN, Collections.emptyList(), null)
+                .isEmpty());
+    }
+
+    /**
+     * @see SolrSearchIndex.CommitPolicy#getByName(String)
+     * @verifies return correct value
+     */
+    @Test
+    void getByName_shouldReturnCorrectValue() {
+        Assertions.assertEquals(SolrSearchIndex.CommitPolicy.RECORD, SolrSearchIndex.CommitPolicy.getByName("record"));
+        Assertions.assertEquals(SolrSearchIndex.CommitPolicy.COMMIT_WITHIN, SolrSearchIndex.CommitPolicy.getByName("commitWithin"));
+        Assertions.assertEquals(SolrSearchIndex.CommitPolicy.IDLE, SolrSearchIndex.CommitPolicy.getByName("IDLE"));
+        Assertions.assertNull(SolrSearchIndex.CommitPolicy.getByName("never"));
+    }
+
+    /**
+     * @see SolrSearchIndex#commitRecord(boolean)
+     * @verifies commit immediately if policy is record
+     */
+    @Test
+    void commitRecord_shouldCommitImmediatelyIfPolicyIsRecord() throws Exception {
+        CommitCountingSolrClient countingClient = new CommitCountingSolrClient();
+        SolrSearchIndex index = new SolrSearchIndex(countingClient);
+        index.writeToIndex(createDoc("PPN123"));
+        index.commitRecord(false);
+        Assertions.assertEquals(1, countingClient.hardCommits);
+    }
+
+    /**
+     * @see SolrSearchIndex#commitRecord(boolean)
+     * @verifies not commit if policy is idle
+     */
+    @Test
+    void commitRecord_shouldNotCommitIfPolicyIsIdle() throws Exception {
+        CommitCountingSolrClient countingClient = new CommitCountingSolrClient();
+        SolrSearchIndex index = new SolrSearchIndex(countingClient);
+        index.setCommitPolicy(SolrSearchIndex.CommitPolicy.IDLE);
+        index.writeToIndex(createDoc("PPN123"));
+        index.commitRecord(false);
+        Assertions.assertEquals(0, countingClient.hardCommits);
+
+        index.commitPending();
+        Assertions.assertEquals(1, countingClient.hardCommits);
+    }
+
+    /**
+     * @see SolrSearchIndex#commitRecord(boolean)
+     * @verifies soft commit if document threshold reached
+     */
+    @Test
+    void commitRecord_shouldSoftCommitIfDocumentThresholdReached() throws Exception {
+        CommitCountingSolrClient countingClient = new CommitCountingSolrClient();
+        SolrSearchIndex index = new SolrSearchIndex(countingClient);
+        index.setCommitPolicy(SolrSearchIndex.CommitPolicy.SOFT);
+        index.setSoftCommitDocs(2);
+        index.setSoftCommitInterval(3600000);
+        index.writeToIndex(createDoc("PPN123"));
+        index.commitRecord(false);
+        Assertions.assertEquals(0, countingClient.softCommits);
+
+        index.writeToIndex(createDoc("PPN456"));
+        index.commitRecord(false);
+        Assertions.assertEquals(1, countingClient.softCommits);
+        Assertions.assertEquals(0, countingClient.hardCommits);
+    }
+
+    /**
+     * @see SolrSearchIndex#ensureVisible(String)
+     * @verifies soft commit if identifier has uncommitted changes
+     */
+    @Test
+    void ensureVisible_shouldSoftCommitIfIdentifierHasUncommittedChanges() throws Exception {
+        CommitCountingSolrClient countingClient = new CommitCountingSolrClient();
+        SolrSearchIndex index = new SolrSearchIndex(countingClient);
+        index.setCommitPolicy(SolrSearchIndex.CommitPolicy.IDLE);
+        index.writeToIndex(createDoc("PPN123"));
+
+        index.ensureVisible("PPN456");
+        Assertions.assertEquals(0, countingClient.softCommits);
+        index.ensureVisible("PPN123");
+        Assertions.assertEquals(1, countingClient.softCommits);
+        // Already visible
+        index.ensureVisible("PPN123");
+        Assertions.assertEquals(1, countingClient.softCommits);
+    }
+
+    /**
+     * 
+     * @param pi
+     * @return {@link SolrInputDocument}
+     */
+    private static SolrInputDocument createDoc(String pi) {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField(SolrConstants.IDDOC, UUID.randomUUID().toString());
+        doc.addField(SolrConstants.PI, pi);
+        return doc;
+    }
+
+    /**
+     * @see SolrSearchIndex#forEach(String,List,SolrSearchIndex.SolrDocumentHandler)
+     * @verifies pass all docs to handler
+     */
+    @Test
+    void forEach_shouldPassAllDocsToHandler() throws Exception {
+        PagingSolrClient pagingClient = new PagingSolrClient(5);
+        SolrSearchIndex index = new SolrSearchIndex(pagingClient);
+        List<String> iddocs = new ArrayList<>();
+        Assertions.assertEquals(5, index.forEach("*:*", null, 2, doc -> iddocs.add((String) doc.getFieldValue(SolrConstants.IDDOC))));
+        Assertions.assertEquals(Arrays.asList("0", "1", "2", "3", "4"), iddocs);
+        Assertions.assertEquals(4, pagingClient.requests);
+    }
+
+    /**
+     * @see SolrSearchIndex#forEach(String,List,SolrSearchIndex.SolrDocumentHandler)
+     * @verifies return zero if nothing found
+     */
+    @Test
+    void forEach_shouldReturnZeroIfNothingFound() throws Exception {
+        PagingSolrClient pagingClient = new PagingSolrClient(0);
+        SolrSearchIndex index = new SolrSearchIndex(pagingClient);
+        Assertions.assertEquals(0, index.forEach("*:*", null, doc -> Assertions.fail("No docs expected")));
+        Assertions.assertEquals(1, pagingClient.requests);
+    }
+
+    /**
+     * @see SolrSearchIndex#findRecordState(String,boolean)
+     * @verifies return found state if record indexed
+     */
+    @Test
+    void findRecordState_shouldReturnFoundStateIfRecordIndexed() throws Exception {
+        PagingSolrClient pagingClient = new PagingSolrClient(2);
+        SolrSearchIndex index = new SolrSearchIndex(pagingClient);
+        RecordState state = index.findRecordState("PPN123", false);
+        Assertions.assertTrue(state.isFound());
+        Assertions.assertEquals("PPN123", state.getPi());
+        Assertions.assertEquals(2, state.getNumFound());
+        Assertions.assertEquals("0", state.getIddoc());
+        Assertions.assertEquals(1, pagingClient.requests);
+    }
+
+    /**
+     * @see SolrSearchIndex#findRecordState(String,boolean)
+     * @verifies return not found state if record not indexed
+     */
+    @Test
+    void findRecordState_shouldReturnNotFoundStateIfRecordNotIndexed() throws Exception {
+        SolrSearchIndex index = new SolrSearchIndex(new PagingSolrClient(0));
+        RecordState state = index.findRecordState("PPN123", true);
+        Assertions.assertFalse(state.isFound());
+        Assertions.assertNull(state.getIddoc());
+        Assertions.assertTrue(state.isFromOldIndex());
+    }
+
+    /**
+     * @see SolrSearchIndex#streamToIndex(java.util.function.Supplier)
+     * @verifies write all docs correctly
+     */
+    @Test
+    void streamToIndex_shouldWriteAllDocsCorrectly() throws Exception {
+        StreamingSolrClient streamingClient = new StreamingSolrClient(0);
+        SolrSearchIndex index = new SolrSearchIndex(streamingClient);
+        List<SolrInputDocument> docs = Arrays.asList(createDoc("PPN123"), createDoc("PPN123"), createDoc("PPN123"));
+        Assertions.assertEquals(3, index.streamToIndex(docs::iterator));
+        Assertions.assertEquals(3, streamingClient.receivedDocs);
+        Assertions.assertEquals(1, streamingClient.requests);
+    }
+
+    /**
+     * @see SolrSearchIndex#streamToIndex(java.util.function.Supplier)
+     * @verifies request new iterator for each attempt
+     */
+    @Test
+    void streamToIndex_shouldRequestNewIteratorForEachAttempt() throws Exception {
+        StreamingSolrClient streamingClient = new StreamingSolrClient(1);
+        SolrSearchIndex index = new SolrSearchIndex(streamingClient);
+        index.setRetryPolicy(new SolrRetryPolicy(0, 0, 5, 1000));
+        List<SolrInputDocument> docs = Arrays.asList(createDoc("PPN123"), createDoc("PPN123"));
+        int[] iterators = { 0 };
+        Assertions.assertEquals(2, index.streamToIndex(() -> {
+            iterators[0]++;
+            return docs.iterator();
+        }));
+        Assertions.assertEquals(2, iterators[0]);
+        Assertions.assertEquals(2, streamingClient.requests);
+        Assertions.assertEquals(2, streamingClient.receivedDocs);
+    }
+
+    /**
+     * @see SolrSearchIndex#optimize(int)
+     * @verifies return true if successful
+     */
+    @Test
+    void optimize_shouldReturnTrueIfSuccessful() throws Exception {
+        CommitCountingSolrClient countingClient = new CommitCountingSolrClient();
+        SolrSearchIndex index = new SolrSearchIndex(countingClient);
+        Assertions.assertTrue(index.optimize(4));
+        Assertions.assertEquals(1, countingClient.optimizes);
+        Assertions.assertEquals(4, countingClient.maxSegments);
+    }
+
+    /**
+     * @see SolrSearchIndex#optimize(int)
+     * @verifies return false if optimize fails
+     */
+    @Test
+    void optimize_shouldReturnFalseIfOptimizeFails() throws Exception {
+        SolrSearchIndex index = new SolrSearchIndex(new StreamingSolrClient(1));
+        Assertions.assertFalse(index.optimize(1));
+    }
+
+    /**
+     * @see SolrSearchIndex#writeToIndex(List)
+     * @verifies not open circuit if docs rejected
+     */
+    @Test
+    void writeToIndex_shouldNotOpenCircuitIfDocsRejected() throws Exception {
+        SolrClient rejectingClient = new SolrClient() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public NamedList<Object> request(SolrRequest<?> request, String collection) {
+                throw new RemoteSolrException("localhost", 400, "Document rejected", null);
+            }
+
+            @Override
+            public void close() {
+                //
+            }
+        };
+        SolrSearchIndex index = new SolrSearchIndex(rejectingClient);
+        index.setRetryPolicy(new SolrRetryPolicy(0, 0, 2, 60000));
+        for (int i = 0; i < 5; ++i) {
+            Assertions.assertThrows(FatalIndexerException.class, () -> index.writeToIndex(Collections.singletonList(createDoc("PPN123"))));
+        }
+        Assertions.assertFalse(index.getRetryPolicy().isCircuitOpen());
+        Assertions.assertEquals(0, index.getRetryPolicy().getFailedOperationCount());
+    }
+
+    /**
+     * @see SolrSearchIndex#tryWriteToIndex(List,boolean)
+     * @verifies make only one attempt if retry false
+     */
+    @Test
+    void tryWriteToIndex_shouldMakeOnlyOneAttemptIfRetryFalse() throws Exception {
+        StreamingSolrClient streamingClient = new StreamingSolrClient(Integer.MAX_VALUE);
+        SolrSearchIndex index = new SolrSearchIndex(streamingClient);
+        index.setRetryPolicy(new SolrRetryPolicy(0, 0, 5, 1000));
+        Assertions.assertFalse(index.tryWriteToIndex(Collections.singletonList(createDoc("PPN123")), false));
+        Assertions.assertEquals(1, streamingClient.requests);
+    }
+
+    /**
+     * @see SolrSearchIndex#tryWriteToIndex(List,boolean)
+     * @verifies not roll back if write fails
+     */
+    @Test
+    void tryWriteToIndex_shouldNotRollBackIfWriteFails() throws Exception {
+        StreamingSolrClient streamingClient = new StreamingSolrClient(Integer.MAX_VALUE);
+        SolrSearchIndex index = new SolrSearchIndex(streamingClient);
+        index.setRetryPolicy(new SolrRetryPolicy(0, 0, 5, 1000));
+        Assertions.assertFalse(index.tryWriteToIndex(Collections.singletonList(createDoc("PPN123")), true));
+        Assertions.assertTrue(streamingClient.requests > 1);
+        Assertions.assertEquals(0, streamingClient.rollbacks);
+    }
+
+    /**
+     * @see SolrSearchIndex#rollback()
+     * @verifies roll back if commit policy record
+     */
+    @Test
+    void rollback_shouldRollBackIfCommitPolicyRecord() throws Exception {
+        StreamingSolrClient streamingClient = new StreamingSolrClient(Integer.MAX_VALUE);
+        SolrSearchIndex index = new SolrSearchIndex(streamingClient);
+        index.setRetryPolicy(new SolrRetryPolicy(0, 0, 5, 1000));
+        index.setCommitPolicy(SolrSearchIndex.CommitPolicy.RECORD);
+        Assertions.assertThrows(FatalIndexerException.class, () -> index.writeToIndex(Collections.singletonList(createDoc("PPN123"))));
+        Assertions.assertEquals(1, streamingClient.rollbacks);
+    }
+
+    /**
+     * @see SolrSearchIndex#rollback()
+     * @verifies not roll back if commit policy not record
+     */
+    @Test
+    void rollback_shouldNotRollBackIfCommitPolicyNotRecord() throws Exception {
+        StreamingSolrClient streamingClient = new StreamingSolrClient(0);
+        SolrSearchIndex index = new SolrSearchIndex(streamingClient);
+        index.setRetryPolicy(new SolrRetryPolicy(0, 0, 5, 1000));
+        index.setCommitPolicy(SolrSearchIndex.CommitPolicy.SOFT);
+        // A record fails after another record has already been written
+        index.writeToIndex(Collections.singletonList(createDoc("PPN456")));
+        streamingClient.failures = Integer.MAX_VALUE;
+        Assertions.assertThrows(FatalIndexerException.class, () -> index.writeToIndex(Collections.singletonList(createDoc("PPN123"))));
+        Assertions.assertFalse(index.isRollbackEnabled());
+        Assertions.assertEquals(0, streamingClient.rollbacks);
+    }
+
+    /**
+     * Accepts all requests and counts hard and soft commits as well as optimizations.
+     */
+    private static class CommitCountingSolrClient extends SolrClient {
+
+        private static final long serialVersionUID = 1L;
+
+        private int hardCommits = 0;
+        private int softCommits = 0;
+        private int optimizes = 0;
+        private int maxSegments = 0;
+
+        @Override
+        public NamedList<Object> request(SolrRequest<?> request, String collection) {
+            if (request instanceof UpdateRequest updateRequest && AbstractUpdateRequest.ACTION.COMMIT.equals(updateRequest.getAction())) {
+                if (updateRequest.getParams().getBool(UpdateParams.SOFT_COMMIT, false)) {
+                    softCommits++;
+                } else {
+                    hardCommits++;
+                }
+            } else if (request instanceof UpdateRequest updateRequest
+                    && AbstractUpdateRequest.ACTION.OPTIMIZE.equals(updateRequest.getAction())) {
+                optimizes++;
+                maxSegments = updateRequest.getParams().getInt(UpdateParams.MAX_OPTIMIZE_SEGMENTS, 0);
+            }
+            NamedList<Object> header = new NamedList<>();
+            header.add("status", 0);
+            NamedList<Object> ret = new NamedList<>();
+            ret.add("responseHeader", header);
+            return ret;
+        }
+
+        @Override
+        public void close() {
+            //
+        }
+    }
+
+    /**
+     * Consumes the document iterator of update requests like a request writer would. Fails the given number of requests first; rollbacks are
+     * counted and never fail.
+     */
+    private static class StreamingSolrClient extends SolrClient {
+
+        private static final long serialVersionUID = 1L;
+
+        private int failures;
+        private int requests = 0;
+        private int receivedDocs = 0;
+        private int rollbacks = 0;
+
+        StreamingSolrClient(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public NamedList<Object> request(SolrRequest<?> request, String collection) throws SolrServerException {
+            NamedList<Object> header = new NamedList<>();
+            header.add("status", 0);
+            NamedList<Object> ret = new NamedList<>();
+            ret.add("responseHeader", header);
+            if (request.getParams() != null && request.getParams().getBool(UpdateParams.ROLLBACK, false)) {
+                rollbacks++;
+                return ret;
+            }
+            requests++;
+            int count = 0;
+            if (request instanceof UpdateRequest updateRequest && updateRequest.getDocIterator() != null) {
+                Iterator<SolrInputDocument> iterator = updateRequest.getDocIterator();
+                while (iterator.hasNext()) {
+                    iterator.next();
+                    count++;
+                }
+            }
+            if (failures > 0) {
+                failures--;
+                throw new SolrServerException("Connection refused");
+            }
+            receivedDocs += count;
+            return ret;
+        }
+
+        @Override
+        public void close() {
+            //
+        }
+    }
+
+    /**
+     * Returns the given number of documents in pages, using the document position as cursor mark (if requested).
+     */
+    private static class PagingSolrClient extends SolrClient {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int total;
+        private int requests = 0;
+
+        PagingSolrClient(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public NamedList<Object> request(SolrRequest<?> request, String collection) {
+            requests++;
+            SolrParams params = request.getParams();
+            String cursorMark = params.get(CursorMarkParams.CURSOR_MARK_PARAM);
+            int start = cursorMark == null || CursorMarkParams.CURSOR_MARK_START.equals(cursorMark) ? 0 : Integer.parseInt(cursorMark);
+            int end = Math.min(total, start + params.getInt(CommonParams.ROWS));
+            SolrDocumentList docs = new SolrDocumentList();
+            docs.setNumFound(total);
+            for (int i = start; i < end; ++i) {
+                SolrDocument doc = new SolrDocument();
+                doc.setField(SolrConstants.IDDOC, String.valueOf(i));
+                docs.add(doc);
+            }
+            NamedList<Object> header = new NamedList<>();
+            header.add("status", 0);
+            NamedList<Object> ret = new NamedList<>();
+            ret.add("responseHeader", header);
+            ret.add("response", docs);
+            ret.add(CursorMarkParams.CURSOR_MARK_NEXT, String.valueOf(end));
+            return ret;
+        }
+
+        @Override
+        public void close() {
+            //
+        }
+    }
+}
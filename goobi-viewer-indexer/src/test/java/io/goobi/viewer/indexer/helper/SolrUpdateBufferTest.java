@@ -0,0 +1,251 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.goobi.viewer.indexer.exceptions.FatalIndexerException;
+
+class SolrUpdateBufferTest {
+
+    private final AtomicInteger writtenDocs = new AtomicInteger();
+    private final AtomicInteger singleFailingDocRequests = new AtomicInteger();
+    private final AtomicInteger rollbacks = new AtomicInteger();
+    private final CountDownLatch failed = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private SolrSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Rejects every request that contains a document with the field FAIL; requests with a document with the field BLOCK wait for release
+        SolrClient client = new SolrClient() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public NamedList<Object> request(SolrRequest<?> request, String collection) throws SolrServerException, IOException {
+                if (request.getParams() != null && request.getParams().getBool(UpdateParams.ROLLBACK, false)) {
+                    rollbacks.incrementAndGet();
+                }
+                if (request instanceof UpdateRequest updateRequest && updateRequest.getDocuments() != null) {
+                    for (SolrInputDocument doc : updateRequest.getDocuments()) {
+                        if (doc.containsKey("FAIL")) {
+                            if (updateRequest.getDocuments().size() == 1) {
+                                singleFailingDocRequests.incrementAndGet();
+                            }
+                            failed.countDown();
+                            throw new SolrServerException("Document rejected");
+                        }
+                        if (doc.containsKey("BLOCK")) {
+                            try {
+                                released.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new SolrServerException("Interrupted");
+                            }
+                        }
+                    }
+                    writtenDocs.addAndGet(updateRequest.getDocuments().size());
+                }
+                NamedList<Object> header = new NamedList<>();
+                header.add("status", 0);
+                NamedList<Object> ret = new NamedList<>();
+                ret.add("responseHeader", header);
+                return ret;
+            }
+
+            @Override
+            public void close() {
+                //
+            }
+        };
+        searchIndex = new SolrSearchIndex(client);
+        searchIndex.setRollbackEnabled(false);
+        // Fail fast instead of waiting for the default retry delays
+        searchIndex.setRetryPolicy(new SolrRetryPolicy(0, 0, 5, 1000));
+    }
+
+    /**
+     * @see SolrUpdateBuffer#send(java.util.List)
+     * @verifies notify only sessions with failing documents
+     */
+    @Test
+    void send_shouldNotifyOnlySessionsWithFailingDocuments() throws Exception {
+        SolrUpdateBuffer buffer = new SolrUpdateBuffer(searchIndex, 10, 10, 1);
+        try {
+            SolrUpdateBuffer.Session good = buffer.openSession("good");
+            SolrUpdateBuffer.Session bad = buffer.openSession("bad");
+            SolrInputDocument failingDoc = createDoc("2");
+            failingDoc.addField("FAIL", true);
+            buffer.send(Arrays.asList(new SolrUpdateBuffer.PendingDoc(createDoc("1"), good), new SolrUpdateBuffer.PendingDoc(failingDoc, bad)));
+
+            good.flush();
+            assertThrows(FatalIndexerException.class, bad::flush);
+            assertEquals(1, writtenDocs.get());
+        } finally {
+            buffer.shutdown();
+        }
+    }
+
+    /**
+     * @see SolrUpdateBuffer#send(java.util.List)
+     * @verifies not retry per session sends
+     */
+    @Test
+    void send_shouldNotRetryPerSessionSends() throws Exception {
+        SolrUpdateBuffer buffer = new SolrUpdateBuffer(searchIndex, 10, 10, 1);
+        try {
+            SolrUpdateBuffer.Session good = buffer.openSession("good");
+            SolrUpdateBuffer.Session bad = buffer.openSession("bad");
+            SolrInputDocument failingDoc = createDoc("2");
+            failingDoc.addField("FAIL", true);
+            buffer.send(Arrays.asList(new SolrUpdateBuffer.PendingDoc(createDoc("1"), good), new SolrUpdateBuffer.PendingDoc(failingDoc, bad)));
+
+            assertThrows(FatalIndexerException.class, bad::flush);
+            assertEquals(1, singleFailingDocRequests.get());
+        } finally {
+            buffer.shutdown();
+        }
+    }
+
+    /**
+     * @see SolrUpdateBuffer#send(java.util.List)
+     * @verifies not roll back
+     */
+    @Test
+    void send_shouldNotRollBack() throws Exception {
+        searchIndex.setRollbackEnabled(true);
+        SolrUpdateBuffer buffer = new SolrUpdateBuffer(searchIndex, 10, 10, 1);
+        try {
+            SolrUpdateBuffer.Session good = buffer.openSession("good");
+            SolrUpdateBuffer.Session bad = buffer.openSession("bad");
+            SolrInputDocument failingDoc = createDoc("2");
+            failingDoc.addField("FAIL", true);
+            buffer.send(Arrays.asList(new SolrUpdateBuffer.PendingDoc(createDoc("1"), good), new SolrUpdateBuffer.PendingDoc(failingDoc, bad)));
+            buffer.send(Arrays.asList(new SolrUpdateBuffer.PendingDoc(createDoc("3"), bad), new SolrUpdateBuffer.PendingDoc(failingDoc, bad)));
+
+            good.flush();
+            assertThrows(FatalIndexerException.class, bad::flush);
+            assertEquals(0, rollbacks.get());
+        } finally {
+            buffer.shutdown();
+        }
+    }
+
+    /**
+     * @see SolrUpdateBuffer.Session#flush()
+     * @verifies throw FatalIndexerException if any document could not be sent
+     */
+    @Test
+    void flush_shouldThrowFatalIndexerExceptionIfAnyDocumentCouldNotBeSent() throws Exception {
+        SolrUpdateBuffer buffer = new SolrUpdateBuffer(searchIndex, 10, 2, 2);
+        try {
+            SolrUpdateBuffer.Session session = buffer.openSession("PPN123");
+            session.add(createDoc("1"));
+            SolrInputDocument failingDoc = createDoc("2");
+            failingDoc.addField("FAIL", true);
+            session.add(failingDoc);
+            assertThrows(FatalIndexerException.class, session::flush);
+        } finally {
+            buffer.shutdown();
+        }
+    }
+
+    /**
+     * @see SolrUpdateBuffer.Session#flush()
+     * @verifies send all documents
+     */
+    @Test
+    void flush_shouldSendAllDocuments() throws Exception {
+        SolrUpdateBuffer buffer = new SolrUpdateBuffer(searchIndex, 10, 3, 0);
+        SolrUpdateBuffer.Session session = buffer.openSession("PPN123");
+        for (int i = 1; i <= 7; ++i) {
+            session.add(createDoc(String.valueOf(i)));
+        }
+        assertEquals(6, writtenDocs.get());
+        session.flush();
+        assertEquals(7, writtenDocs.get());
+    }
+
+    /**
+     * @see SolrUpdateBuffer.Session#await()
+     * @verifies wait for queued documents after failed batch
+     */
+    @Test
+    void await_shouldWaitForQueuedDocumentsAfterFailedBatch() throws Exception {
+        SolrUpdateBuffer buffer = new SolrUpdateBuffer(searchIndex, 10, 1, 1);
+        try {
+            SolrUpdateBuffer.Session session = buffer.openSession("PPN123");
+            SolrInputDocument failingDoc = createDoc("1");
+            failingDoc.addField("FAIL", true);
+            session.add(failingDoc);
+            SolrInputDocument blockingDoc = createDoc("2");
+            blockingDoc.addField("BLOCK", true);
+            session.add(blockingDoc);
+            session.add(createDoc("3"));
+
+            // The first batch has failed while the later docs are still queued
+            assertTrue(failed.await(10, TimeUnit.SECONDS));
+            assertEquals(0, writtenDocs.get());
+
+            Thread releaser = new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                released.countDown();
+            });
+            releaser.start();
+            assertTrue(session.await());
+            // All queued docs have been sent by the time await() returns
+            assertEquals(2, writtenDocs.get());
+            assertThrows(FatalIndexerException.class, session::flush);
+        } finally {
+            released.countDown();
+            buffer.shutdown();
+        }
+    }
+
+    /**
+     * 
+     * @param iddoc
+     * @return {@link SolrInputDocument}
+     */
+    private static SolrInputDocument createDoc(String iddoc) {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField("IDDOC", iddoc);
+        return doc;
+    }
+}
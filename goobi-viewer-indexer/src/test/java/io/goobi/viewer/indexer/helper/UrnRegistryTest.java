@@ -0,0 +1,240 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.goobi.viewer.indexer.model.SolrConstants;
+
+class UrnRegistryTest {
+
+    /**
+     * @see UrnRegistry#open(SolrSearchIndex)
+     * @verifies build registry from index if file missing
+     */
+    @Test
+    void open_shouldBuildRegistryFromIndexIfFileMissing(@TempDir Path folder) throws Exception {
+        Path file = folder.resolve("urnregistry.txt");
+        UrnRegistry registry = new UrnRegistry(file);
+        registry.open(new SolrSearchIndex(new UrnSolrClient()));
+        assertEquals(3, registry.size());
+        assertEquals(Collections.singleton("PPN123"), registry.findCollisions(Arrays.asList("urn:nbn:de:1", "urn:nbn:de:1-1"), "PPN456"));
+        assertEquals(Collections.singleton("PPN456"), registry.findCollisions(Collections.singletonList("urn:nbn:de:2"), null));
+        assertTrue(Files.isRegularFile(file));
+        registry.close();
+    }
+
+    /**
+     * @see UrnRegistry#open(SolrSearchIndex)
+     * @verifies load registry from file
+     */
+    @Test
+    void open_shouldLoadRegistryFromFile(@TempDir Path folder) throws Exception {
+        Path file = folder.resolve("urnregistry.txt");
+        UrnRegistry registry = new UrnRegistry(file);
+        registry.open(new SolrSearchIndex(new UrnSolrClient()));
+        registry.register("PPN789", Collections.singletonList("urn:nbn:de:3"));
+        registry.unregister("PPN456");
+
+        // Journal entries are replayed without compacting first
+        UrnRegistry reloaded = new UrnRegistry(file);
+        reloaded.open(null);
+        assertEquals(3, reloaded.size());
+        assertEquals(Collections.singleton("PPN789"), reloaded.findCollisions(Collections.singletonList("urn:nbn:de:3"), null));
+        assertTrue(reloaded.findCollisions(Collections.singletonList("urn:nbn:de:2"), null).isEmpty());
+        reloaded.close();
+        registry.close();
+    }
+
+    /**
+     * @see UrnRegistry#open(SolrSearchIndex)
+     * @verifies resync records indexed after file was written
+     */
+    @Test
+    void open_shouldResyncRecordsIndexedAfterFileWasWritten(@TempDir Path folder) throws Exception {
+        Path file = folder.resolve("urnregistry.txt");
+        UrnRegistry registry = new UrnRegistry(file);
+        registry.open(new SolrSearchIndex(new UrnSolrClient()));
+        registry.close();
+
+        // PPN456 has been re-indexed by another instance with a different URN; PPN789 is new
+        UrnRegistry reloaded = new UrnRegistry(file);
+        reloaded.open(new SolrSearchIndex(new ResyncSolrClient()));
+        assertEquals(4, reloaded.size());
+        assertEquals(Collections.singleton("PPN123"), reloaded.findCollisions(Collections.singletonList("urn:nbn:de:1"), null));
+        assertTrue(reloaded.findCollisions(Collections.singletonList("urn:nbn:de:2"), null).isEmpty());
+        assertEquals(Collections.singleton("PPN456"), reloaded.findCollisions(Collections.singletonList("urn:nbn:de:2a"), null));
+        assertEquals(Collections.singleton("PPN789"), reloaded.findCollisions(Collections.singletonList("urn:nbn:de:3"), null));
+        reloaded.close();
+    }
+
+    /**
+     * @see UrnRegistry#findCollisions(java.util.Collection,String)
+     * @verifies return other records using given urns
+     */
+    @Test
+    void findCollisions_shouldReturnOtherRecordsUsingGivenUrns(@TempDir Path folder) throws Exception {
+        UrnRegistry registry = new UrnRegistry(folder.resolve("urnregistry.txt"));
+        registry.register("PPN123", Arrays.asList("urn:1", "urn:2"));
+        registry.register("PPN456", Collections.singletonList("urn:3"));
+        Set<String> result = registry.findCollisions(Arrays.asList("urn:2", "urn:3", "urn:4"), null);
+        assertEquals(2, result.size());
+        assertTrue(result.contains("PPN123"));
+        assertTrue(result.contains("PPN456"));
+    }
+
+    /**
+     * @see UrnRegistry#findCollisions(java.util.Collection,String)
+     * @verifies ignore skipPi
+     */
+    @Test
+    void findCollisions_shouldIgnoreSkipPi(@TempDir Path folder) throws Exception {
+        UrnRegistry registry = new UrnRegistry(folder.resolve("urnregistry.txt"));
+        registry.register("PPN123", Arrays.asList("urn:1", "urn:2"));
+        assertTrue(registry.findCollisions(Arrays.asList("urn:1", "urn:2"), "PPN123").isEmpty());
+    }
+
+    /**
+     * @see UrnRegistry#register(String,java.util.Collection)
+     * @verifies add urns to record
+     */
+    @Test
+    void register_shouldAddUrnsToRecord(@TempDir Path folder) throws Exception {
+        UrnRegistry registry = new UrnRegistry(folder.resolve("urnregistry.txt"));
+        registry.register("PPN123", Collections.singletonList("urn:1"));
+        registry.register("PPN123", Collections.singletonList("urn:2"));
+        assertEquals(2, registry.size());
+        assertEquals(Collections.singleton("PPN123"), registry.findCollisions(Arrays.asList("urn:1", "urn:2"), null));
+    }
+
+    /**
+     * @see UrnRegistry#register(String,java.util.Collection)
+     * @verifies reassign urn to given record
+     */
+    @Test
+    void register_shouldReassignUrnToGivenRecord(@TempDir Path folder) throws Exception {
+        UrnRegistry registry = new UrnRegistry(folder.resolve("urnregistry.txt"));
+        registry.register("PPN123", Collections.singletonList("urn:1"));
+        registry.register("PPN456", Collections.singletonList("urn:1"));
+        assertEquals(1, registry.size());
+        assertEquals(Collections.singleton("PPN456"), registry.findCollisions(Collections.singletonList("urn:1"), null));
+        // Unregistering the previous owner no longer affects the URN
+        registry.unregister("PPN123");
+        assertEquals(1, registry.size());
+    }
+
+    /**
+     * @see UrnRegistry#unregister(String)
+     * @verifies remove all urns of record
+     */
+    @Test
+    void unregister_shouldRemoveAllUrnsOfRecord(@TempDir Path folder) throws Exception {
+        UrnRegistry registry = new UrnRegistry(folder.resolve("urnregistry.txt"));
+        registry.register("PPN123", Arrays.asList("urn:1", "urn:2"));
+        registry.register("PPN456", Collections.singletonList("urn:3"));
+        registry.unregister("PPN123");
+        assertEquals(1, registry.size());
+        assertTrue(registry.findCollisions(Arrays.asList("urn:1", "urn:2"), null).isEmpty());
+    }
+
+    /**
+     * Returns one page of documents with URNs; no cursor mark, so that iteration stops after the first page.
+     */
+    private static class UrnSolrClient extends SolrClient {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public NamedList<Object> request(SolrRequest<?> request, String collection) {
+            SolrDocumentList docs = new SolrDocumentList();
+            docs.add(createDoc("PPN123", null, "urn:nbn:de:1"));
+            docs.add(createDoc("PPN123_0001", "PPN123", "urn:nbn:de:1-1"));
+            docs.add(createDoc("PPN456", null, "urn:nbn:de:2"));
+            return createResponse(docs);
+        }
+
+        @Override
+        public void close() {
+            //
+        }
+
+        static NamedList<Object> createResponse(SolrDocumentList docs) {
+            docs.setNumFound(docs.size());
+            NamedList<Object> header = new NamedList<>();
+            header.add("status", 0);
+            NamedList<Object> ret = new NamedList<>();
+            ret.add("responseHeader", header);
+            ret.add("response", docs);
+            return ret;
+        }
+
+        static SolrDocument createDoc(String pi, String piTopstruct, String urn) {
+            SolrDocument doc = new SolrDocument();
+            doc.setField(SolrConstants.PI, pi);
+            if (piTopstruct != null) {
+                doc.setField(SolrConstants.PI_TOPSTRUCT, piTopstruct);
+            }
+            doc.setField(SolrConstants.URN, urn);
+            return doc;
+        }
+    }
+
+    /**
+     * Reports PPN456 and PPN789 as recently indexed and returns their current URNs.
+     */
+    private static class ResyncSolrClient extends SolrClient {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public NamedList<Object> request(SolrRequest<?> request, String collection) {
+            SolrDocumentList docs = new SolrDocumentList();
+            if (request.getParams().get(CommonParams.Q).startsWith(SolrConstants.DATEINDEXED)) {
+                SolrDocument doc = new SolrDocument();
+                doc.setField(SolrConstants.PI, "PPN456");
+                docs.add(doc);
+                doc = new SolrDocument();
+                doc.setField(SolrConstants.PI, "PPN789");
+                docs.add(doc);
+            } else {
+                docs.add(UrnSolrClient.createDoc("PPN456", null, "urn:nbn:de:2a"));
+                docs.add(UrnSolrClient.createDoc("PPN789", null, "urn:nbn:de:3"));
+            }
+            return UrnSolrClient.createResponse(docs);
+        }
+
+        @Override
+        public void close() {
+            //
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.helper.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.ContextDataFactory;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SecondaryAppenderTest {
+
+    private SecondaryAppender appender;
+
+    @BeforeEach
+    void setUp() {
+        appender = SecondaryAppender.createAppender("record", null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecondaryAppender.endRecord("PPN123");
+        ThreadContext.remove(SecondaryAppender.RECORD_KEY);
+    }
+
+    /**
+     * @see SecondaryAppender#reset()
+     * @verifies reset writer correctly
+     */
+    @Test
+    void reset_shouldResetWriterCorrectly() {
+        SecondaryAppender.startRecord("PPN123");
+        appender.append(createEvent("foo"));
+        assertTrue(appender.getLog().contains("foo"));
+
+        appender.reset();
+        assertEquals("", appender.getLog());
+    }
+
+    /**
+     * @see SecondaryAppender#startRecord(String)
+     * @verifies only keep messages logged for started records
+     */
+    @Test
+    void startRecord_shouldOnlyKeepMessagesLoggedForStartedRecords() {
+        appender.append(createEvent("no record"));
+        ThreadContext.put(SecondaryAppender.RECORD_KEY, "PPN456");
+        appender.append(createEvent("unknown record"));
+
+        SecondaryAppender.startRecord("PPN123");
+        appender.append(createEvent("foo"));
+        String log = appender.getLog();
+        assertTrue(log.contains("foo"));
+        assertFalse(log.contains("record"));
+    }
+
+    /**
+     * @see SecondaryAppender#endRecord(String)
+     * @verifies discard log of ended record
+     */
+    @Test
+    void endRecord_shouldDiscardLogOfEndedRecord() {
+        SecondaryAppender.startRecord("PPN123");
+        appender.append(createEvent("foo"));
+        assertTrue(SecondaryAppender.endRecord("PPN123").contains("foo"));
+        assertEquals("", appender.getLog());
+
+        // Late messages of an ended record are not kept
+        ThreadContext.put(SecondaryAppender.RECORD_KEY, "PPN123");
+        appender.append(createEvent("bar"));
+        assertEquals("", appender.getLog());
+    }
+
+    /**
+     * @see SecondaryAppender#withRecord(Runnable)
+     * @verifies add messages from other threads to record log
+     */
+    @Test
+    void withRecord_shouldAddMessagesFromOtherThreadsToRecordLog() throws Exception {
+        SecondaryAppender.startRecord("PPN123");
+        Thread thread = new Thread(SecondaryAppender.withRecord(() -> appender.append(createEvent("foo"))));
+        thread.start();
+        thread.join();
+        assertTrue(appender.getLog().contains("foo"));
+    }
+
+    /**
+     * @see SecondaryAppender#newRecordPool(int)
+     * @verifies add messages from worker threads to record log
+     */
+    @Test
+    void newRecordPool_shouldAddMessagesFromWorkerThreadsToRecordLog() throws Exception {
+        SecondaryAppender.startRecord("PPN123");
+        try (ForkJoinPool pool = SecondaryAppender.newRecordPool(2)) {
+            pool.submit(() -> appender.append(createEvent("foo"))).get();
+        }
+        assertTrue(appender.getLog().contains("foo"));
+    }
+
+    /**
+     * Creates a log event carrying the current thread context, as log4j does for regular log messages.
+     * 
+     * @param message
+     * @return {@link LogEvent}
+     */
+    private static LogEvent createEvent(String message) {
+        return Log4jLogEvent.newBuilder()
+                .setLevel(Level.ERROR)
+                .setMessage(new SimpleMessage(message))
+                .setContextData(ContextDataFactory.createContextData(ThreadContext.getImmutableContext()))
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * This file is part of the Goobi Solr Indexer - a content indexing tool for the Goobi viewer and OAI-PMH/SRU interfaces.
+ *
+ * Visit these websites for more information.
+ *          - http://www.intranda.com
+ *          - http://digiverso.com
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.goobi.viewer.indexer.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.solr.common.SolrDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RecordStateTest {
+
+    /**
+     * @see RecordState#RecordState(String,SolrDocument,long,boolean)
+     * @verifies set all values correctly
+     */
+    @Test
+    void RecordState_shouldSetAllValuesCorrectly() {
+        SolrDocument doc = new SolrDocument();
+        doc.setField(SolrConstants.IDDOC, "123");
+        doc.setField(SolrConstants.DOCSTRCT, "monograph");
+        doc.setField(SolrConstants.ISANCHOR, true);
+        doc.setField(SolrConstants.DATECREATED, 1000L);
+        doc.setField(SolrConstants.DATEUPDATED, Arrays.asList(2000L, 3000L));
+        doc.setField(SolrConstants.DATEINDEXED, Collections.singletonList(4000L));
+        doc.setField(SolrConstants.DATAREPOSITORY, "1");
+        doc.setField(SolrConstants.THUMBNAILREPRESENT, "00000001.tif");
+        doc.setField(SolrConstants.ACCESSCONDITION, Arrays.asList("OPENACCESS", "restricted"));
+
+        RecordState state = new RecordState("PPN123", doc, 2, true);
+        Assertions.assertEquals("PPN123", state.getPi());
+        Assertions.assertTrue(state.isFound());
+        Assertions.assertEquals(2, state.getNumFound());
+        Assertions.assertTrue(state.isFromOldIndex());
+        Assertions.assertEquals("123", state.getIddoc());
+        Assertions.assertEquals("monograph", state.getDocstrct());
+        Assertions.assertTrue(state.isAnchor());
+        Assertions.assertEquals(Long.valueOf(1000L), state.getDateCreated());
+        Assertions.assertEquals(Arrays.asList(2000L, 3000L), state.getDateUpdated());
+        Assertions.assertEquals(Collections.singletonList(4000L), state.getDateIndexed());
+        Assertions.assertEquals("1", state.getDataRepository());
+        Assertions.assertEquals("00000001.tif", state.getThumbnailRepresent());
+        Assertions.assertEquals(Arrays.asList("OPENACCESS", "restricted"), state.getAccessConditions());
+    }
+
+    /**
+     * @see RecordState#RecordState(String,SolrDocument,long,boolean)
+     * @verifies create not found state if doc null
+     */
+    @Test
+    void RecordState_shouldCreateNotFoundStateIfDocNull() {
+        RecordState state = new RecordState("PPN123", null, 0, false);
+        Assertions.assertFalse(state.isFound());
+        Assertions.assertEquals(0, state.getNumFound());
+        Assertions.assertNull(state.getIddoc());
+        Assertions.assertTrue(state.getDateUpdated().isEmpty());
+        Assertions.assertTrue(state.getAccessConditions().isEmpty());
+    }
+
+    /**
+     * @see RecordState#getPreviousDataRepository()
+     * @verifies return question mark if found without repository
+     */
+    @Test
+    void getPreviousDataRepository_shouldReturnQuestionMarkIfFoundWithoutRepository() {
+        SolrDocument doc = new SolrDocument();
+        doc.setField(SolrConstants.IDDOC, "123");
+        Assertions.assertEquals("?", new RecordState("PPN123", doc, 1, false).getPreviousDataRepository());
+    }
+
+    /**
+     * @see RecordState#getPreviousDataRepository()
+     * @verifies return null if not found
+     */
+    @Test
+    void getPreviousDataRepository_shouldReturnNullIfNotFound() {
+        Assertions.assertNull(new RecordState("PPN123", null, 0, false).getPreviousDataRepository());
+    }
+}
@@ -15,12 +15,16 @@
  */
 package io.goobi.viewer.indexer.model.datarepository.strategy;
 
+import org.apache.solr.common.SolrDocument;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import io.goobi.viewer.indexer.AbstractTest;
 import io.goobi.viewer.indexer.SolrIndexerDaemon;
 import io.goobi.viewer.indexer.helper.Configuration;
+import io.goobi.viewer.indexer.helper.SolrSearchIndex;
+import io.goobi.viewer.indexer.model.RecordState;
+import io.goobi.viewer.indexer.model.SolrConstants;
 
 class AbstractDataRepositoryStrategyTest extends AbstractTest {
 
@@ -35,4 +39,18 @@ class AbstractDataRepositoryStrategyTest extends AbstractTest {
         Assertions.assertNotNull(strategy);
         Assertions.assertEquals(strategyName, strategy.getClass().getSimpleName());
     }
-}
\ No newline at end of file
+
+    /**
+     * @see AbstractDataRepositoryStrategy#lookUpPreviousDataRepository(String,SolrSearchIndex,SolrSearchIndex,RecordState)
+     * @verifies return repository from record state if available
+     */
+    @Test
+    void lookUpPreviousDataRepository_shouldReturnRepositoryFromRecordStateIfAvailable() throws Exception {
+        AbstractDataRepositoryStrategy strategy = new SingleRepositoryStrategy(SolrIndexerDaemon.getInstance().getConfiguration());
+        SolrDocument doc = new SolrDocument();
+        doc.setField(SolrConstants.DATAREPOSITORY, "1");
+        // No search index is passed, so the value must come from the record state
+        Assertions.assertEquals("1", strategy.lookUpPreviousDataRepository("PPN123", null, null, new RecordState("PPN123", doc, 1, false)));
+        Assertions.assertNull(strategy.lookUpPreviousDataRepository("PPN123", null, null, new RecordState("PPN123", null, 0, false)));
+    }
+}
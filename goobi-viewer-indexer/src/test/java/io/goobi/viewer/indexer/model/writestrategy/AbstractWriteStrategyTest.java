@@ -51,4 +51,29 @@ class AbstractWriteStrategyTest {
         Assertions.assertEquals(1, doc.getFieldValues(SolrConstants.DATECREATED).size());
         Assertions.assertEquals(123L, doc.getFieldValue(SolrConstants.DATECREATED));
     }
-}
\ No newline at end of file
+
+    /**
+     * @see AbstractWriteStrategy#addGenerationField(SolrInputDocument)
+     * @verifies add generation if set
+     */
+    @Test
+    void addGenerationField_shouldAddGenerationIfSet() {
+        LazySolrWriteStrategy strat = new LazySolrWriteStrategy(null);
+        strat.setGeneration("123");
+        SolrInputDocument doc = new SolrInputDocument();
+        strat.addGenerationField(doc);
+        Assertions.assertEquals("123", doc.getFieldValue(SolrConstants.INDEXGENERATION));
+    }
+
+    /**
+     * @see AbstractWriteStrategy#addGenerationField(SolrInputDocument)
+     * @verifies not add generation if not set
+     */
+    @Test
+    void addGenerationField_shouldNotAddGenerationIfNotSet() {
+        LazySolrWriteStrategy strat = new LazySolrWriteStrategy(null);
+        SolrInputDocument doc = new SolrInputDocument();
+        strat.addGenerationField(doc);
+        Assertions.assertFalse(doc.containsKey(SolrConstants.INDEXGENERATION));
+    }
+}